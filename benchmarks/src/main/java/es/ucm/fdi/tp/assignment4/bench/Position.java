@@ -0,0 +1,89 @@
+package es.ucm.fdi.tp.assignment4.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import es.ucm.fdi.tp.basecode.bgame.control.GameFactory;
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveList;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * <p>A reference position of a benchmark: a board in play, the player that
+ * moved last, the player to move and one of its valid moves.</p>
+ *
+ * <p>Una posicion de referencia de un benchmark: un tablero en juego, el
+ * jugador que movio en ultimo lugar, el jugador que mueve y uno de sus
+ * movimientos validos.</p>
+ */
+class Position {
+
+	final GameRules rules;
+	final List<Piece> pieces;
+	final Board board;
+	final Piece lastMover;
+	final Piece turn;
+	final GameMove move;
+
+	/**
+	 * <p>A move list reused by {@link RulesBenchmark#validMovesPacked}.</p>
+	 * <p>Una lista de movimientos reutilizada por
+	 * {@link RulesBenchmark#validMovesPacked}.</p>
+	 */
+	final MoveList packed = new MoveList();
+
+	private Position(GameRules rules, List<Piece> pieces, Board board, Piece lastMover, Piece turn,
+			GameMove move) {
+		this.rules = rules;
+		this.pieces = pieces;
+		this.board = board;
+		this.lastMover = lastMover;
+		this.turn = turn;
+		this.move = move;
+	}
+
+	/**
+	 * <p>Generates {@code count} reference positions by playing random games
+	 * with a generator seeded with {@code seed}, and taking every position in
+	 * play after the first move. The same arguments always give the same
+	 * positions.</p>
+	 *
+	 * <p>Genera {@code count} posiciones de referencia jugando partidas
+	 * aleatorias con un generador con semilla {@code seed}, y tomando cada
+	 * posicion en juego tras el primer movimiento. Los mismos argumentos
+	 * siempre dan las mismas posiciones.</p>
+	 */
+	static List<Position> generate(GameFactory factory, List<Piece> pieces, long seed, int count) {
+		Random random = new Random(seed);
+		GameRules rules = factory.gameRules();
+		List<Position> positions = new ArrayList<Position>(count);
+		while (positions.size() < count) {
+			Board board = rules.createBoard(pieces);
+			Piece turn = rules.initialPlayer(board, pieces);
+			while (positions.size() < count) {
+				List<GameMove> moves = rules.validMoves(board, pieces, turn);
+				if (moves.isEmpty()) {
+					break;
+				}
+				moves.get(random.nextInt(moves.size())).execute(board, pieces);
+				if (rules.updateState(board, pieces, turn).getFirst() != State.InPlay) {
+					break;
+				}
+				Piece next = rules.nextPlayer(board, pieces, turn);
+				List<GameMove> nextMoves = rules.validMoves(board, pieces, next);
+				if (nextMoves.isEmpty()) {
+					break;
+				}
+				GameMove move = nextMoves.get(random.nextInt(nextMoves.size()));
+				positions.add(new Position(rules, pieces, board.copy(), turn, next, move));
+				turn = next;
+			}
+		}
+		return positions;
+	}
+
+}
@@ -0,0 +1,207 @@
+package es.ucm.fdi.tp.assignment4.bench;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import es.ucm.fdi.tp.assignment4.ataxx.AtaxxFactory;
+import es.ucm.fdi.tp.basecode.attt.AdvancedTTTFactory;
+import es.ucm.fdi.tp.basecode.bgame.control.GameFactory;
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.PackedMoveRules;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+import es.ucm.fdi.tp.basecode.connectn.ConnectNFactory;
+import es.ucm.fdi.tp.basecode.ttt.TicTacToeFactory;
+
+/**
+ * <p>JMH micro-benchmarks of the game rules: validMoves, execute, updateState,
+ * nextPlayer, evaluate and copy, for every game of the project at several
+ * board sizes (the parameter {@code game}). Each invocation applies the
+ * operation to the next of a fixed set of reference positions (see
+ * {@link Position}), generated from a fixed seed so that different runs (and
+ * different versions of the code) measure exactly the same work. The results
+ * are written as JSON with the JMH options {@code -rf json -rff FILE}.</p>
+ *
+ * <p>Ataxx is measured without obstacles, since they are placed with a
+ * generator that cannot be seeded.</p>
+ *
+ * <p>Micro-benchmarks JMH de las reglas de los juegos: validMoves, execute,
+ * updateState, nextPlayer, evaluate y copy, para cada juego del proyecto con
+ * varios tamanos de tablero (el parametro {@code game}). Cada invocacion
+ * aplica la operacion a la siguiente de un conjunto fijo de posiciones de
+ * referencia (ver {@link Position}), generadas con una semilla fija para que
+ * distintas ejecuciones (y distintas versiones del codigo) midan exactamente
+ * el mismo trabajo. Los resultados se escriben como JSON con las opciones de
+ * JMH {@code -rf json -rff FICHERO}.</p>
+ *
+ * <p>Ataxx se mide sin obstaculos, ya que se colocan con un generador al que
+ * no se le puede fijar la semilla.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(2)
+@State(Scope.Thread)
+public class RulesBenchmark {
+
+	/**
+	 * <p>The game configuration: the game and the dimension of its board, and
+	 * "x4" for four players.</p>
+	 * <p>La configuracion de juego: el juego y la dimension de su tablero, y
+	 * "x4" para cuatro jugadores.</p>
+	 */
+	@Param({ "ttt", "attt", "cn5", "cn9", "cn15", "ataxx5", "ataxx7", "ataxx9", "ataxx9x4", "ataxx11" })
+	public String game;
+
+	/**
+	 * <p>The seed of the reference positions.</p>
+	 * <p>La semilla de las posiciones de referencia.</p>
+	 */
+	@Param("20160425")
+	public long seed;
+
+	/**
+	 * <p>The number of reference positions.</p>
+	 * <p>El numero de posiciones de referencia.</p>
+	 */
+	@Param("256")
+	public int positions;
+
+	private Position[] ps;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		GameFactory factory = factory(game);
+		List<Piece> pieces = game.endsWith("x4")
+				? Arrays.asList(new Piece("X"), new Piece("O"), new Piece("R"), new Piece("B"))
+				: factory.createDefaultPieces();
+		List<Position> list = Position.generate(factory, pieces, seed, positions);
+		ps = list.toArray(new Position[list.size()]);
+		next = 0;
+	}
+
+	private static GameFactory factory(String game) {
+		String id = game.endsWith("x4") ? game.substring(0, game.length() - 2) : game;
+		if (id.equals("ttt")) {
+			return new TicTacToeFactory();
+		} else if (id.equals("attt")) {
+			return new AdvancedTTTFactory();
+		} else if (id.startsWith("cn")) {
+			return new ConnectNFactory(Integer.parseInt(id.substring(2)));
+		} else if (id.startsWith("ataxx")) {
+			return new AtaxxFactory(Integer.parseInt(id.substring(5)), 0);
+		}
+		throw new IllegalArgumentException("Unknown game: " + game);
+	}
+
+	/**
+	 * <p>The reference position of the next invocation.</p>
+	 * <p>La posicion de referencia de la siguiente invocacion.</p>
+	 */
+	private Position position() {
+		Position p = ps[next];
+		next = next + 1 == ps.length ? 0 : next + 1;
+		return p;
+	}
+
+	/**
+	 * <p>{@link GameRules#validMoves} for the player to move.</p>
+	 * <p>{@link GameRules#validMoves} del jugador que mueve.</p>
+	 */
+	@Benchmark
+	public List<GameMove> validMoves() {
+		Position p = position();
+		return p.rules.validMoves(p.board, p.pieces, p.turn);
+	}
+
+	/**
+	 * <p>{@link PackedMoveRules#validMoves} for the player to move, into a
+	 * reused move list. It does nothing if the rules do not implement
+	 * {@link PackedMoveRules}.</p>
+	 * <p>{@link PackedMoveRules#validMoves} del jugador que mueve, en una lista
+	 * de movimientos reutilizada. No hace nada si las reglas no implementan
+	 * {@link PackedMoveRules}.</p>
+	 */
+	@Benchmark
+	public void validMovesPacked(Blackhole bh) {
+		Position p = position();
+		if (p.rules instanceof PackedMoveRules) {
+			p.packed.clear();
+			((PackedMoveRules) p.rules).validMoves(p.board, p.pieces, p.turn, p.packed);
+			bh.consume(p.packed.size());
+		}
+	}
+
+	/**
+	 * <p>{@link GameMove#execute} of a valid move. It is executed with
+	 * {@link GameMove#executeUndoable} and then undone, so the position can be
+	 * reused.</p>
+	 * <p>{@link GameMove#execute} de un movimiento valido. Se ejecuta con
+	 * {@link GameMove#executeUndoable} y despues se deshace, para poder
+	 * reutilizar la posicion.</p>
+	 */
+	@Benchmark
+	public void execute(Blackhole bh) {
+		Position p = position();
+		int undo = p.move.executeUndoable(p.board, p.pieces);
+		bh.consume(p.board.getZobristKey());
+		p.move.undo(p.board, undo);
+	}
+
+	/**
+	 * <p>{@link GameRules#updateState} after the last move.</p>
+	 * <p>{@link GameRules#updateState} tras el ultimo movimiento.</p>
+	 */
+	@Benchmark
+	public Object updateState() {
+		Position p = position();
+		return p.rules.updateState(p.board, p.pieces, p.lastMover);
+	}
+
+	/**
+	 * <p>{@link GameRules#nextPlayer} after the last move.</p>
+	 * <p>{@link GameRules#nextPlayer} tras el ultimo movimiento.</p>
+	 */
+	@Benchmark
+	public Piece nextPlayer() {
+		Position p = position();
+		return p.rules.nextPlayer(p.board, p.pieces, p.lastMover);
+	}
+
+	/**
+	 * <p>{@link GameRules#evaluate} for the player to move.</p>
+	 * <p>{@link GameRules#evaluate} para el jugador que mueve.</p>
+	 */
+	@Benchmark
+	public double evaluate() {
+		Position p = position();
+		return p.rules.evaluate(p.board, p.pieces, p.turn, p.turn);
+	}
+
+	/**
+	 * <p>{@link Board#copy()}.</p>
+	 */
+	@Benchmark
+	public Board copy() {
+		return position().board.copy();
+	}
+
+}
@@ -0,0 +1,248 @@
+package es.ucm.fdi.tp.assignment4.ataxx;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.FiniteRectBoard;
+import es.ucm.fdi.tp.basecode.bgame.model.Game;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveList;
+import es.ucm.fdi.tp.basecode.bgame.model.Pair;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * <p>Randomized equivalence tests of {@link AtaxxBitboard} and
+ * {@link AtaxxBoard}: along random games, their move generation, counters,
+ * evaluation and state must be those of a {@link FiniteRectBoard} with the
+ * same cells (which {@link AtaxxRules} and {@link AtaxxEvaluator} scan), and {@link Board#undo(int)} must restore the
+ * cells, the counters and the Zobrist key.</p>
+ *
+ * <p>Pruebas aleatorias de equivalencia de {@link AtaxxBitboard} y
+ * {@link AtaxxBoard}: a lo largo de partidas aleatorias, su generacion de
+ * movimientos, sus contadores, su evaluacion y su estado deben ser los de un
+ * {@link FiniteRectBoard} con las mismas casillas (que {@link AtaxxRules} y
+ * {@link AtaxxEvaluator} recorren), y {@link Board#undo(int)} debe restaurar las casillas, los
+ * contadores y la clave Zobrist.</p>
+ */
+public class AtaxxBoardTest {
+
+	private static final int GAMES = 8;
+	private static final int MAX_MOVES = 200;
+
+	@Test
+	public void bitboardMatchesFullScan() {
+		Random random = new Random(1);
+		for (int dim = 5; dim <= AtaxxBitboard.MAX_DIM; dim += 2) {
+			for (int n = 2; n <= 4; n++) {
+				for (int g = 0; g < GAMES; g++) {
+					playRandomGame(random, new AtaxxBitboard(dim, dim), pieces(n));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void paddedBoardMatchesFullScan() {
+		Random random = new Random(2);
+		for (int dim = 5; dim <= 13; dim += 2) {
+			for (int n = 2; n <= 4; n++) {
+				for (int g = 0; g < GAMES; g++) {
+					playRandomGame(random, new AtaxxBoard(dim, dim), pieces(n));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void undoRestoresCellsCountersAndKey() {
+		Random random = new Random(3);
+		for (int dim = 5; dim <= 11; dim += 2) {
+			List<Piece> pieces = pieces(2 + random.nextInt(3));
+			for (int g = 0; g < GAMES; g++) {
+				Board board = AtaxxBitboard.supports(dim, dim) && random.nextBoolean() ? new AtaxxBitboard(dim, dim)
+						: new AtaxxBoard(dim, dim);
+				AtaxxRules rules = setUp(random, board, pieces);
+				Piece turn = rules.initialPlayer(board, pieces);
+				for (int m = 0; m < MAX_MOVES && turn != null; m++) {
+					Board before = board.copy();
+					int mark = board.mark();
+					Piece t = turn;
+					for (int k = 1 + random.nextInt(4); k > 0 && t != null; k--) {
+						t = playRandomMove(random, rules, board, pieces, t);
+					}
+					board.undo(mark);
+					assertSameBoard(before, board);
+					assertEquals(before.getZobristKey(), board.getZobristKey());
+					assertSameCounters((AtaxxCounters) before, (AtaxxCounters) board, pieces, rules.getObstacle(pieces));
+
+					turn = playRandomMove(random, rules, board, pieces, turn);
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>Plays a random game on {@code board} and on a {@link FiniteRectBoard},
+	 * checking after each move that both have the same cells, Zobrist key,
+	 * moves, counters, state and next player.</p>
+	 */
+	private static void playRandomGame(Random random, Board board, List<Piece> pieces) {
+		int dim = board.getRows();
+		AtaxxRules rules = setUp(random, board, pieces);
+		Board scanned = new FiniteRectBoard(dim, dim);
+		copyCells(board, scanned);
+		Piece obstacle = rules.getObstacle(pieces);
+		Piece turn = rules.initialPlayer(board, pieces);
+		for (int m = 0; m < MAX_MOVES; m++) {
+			assertSameBoard(scanned, board);
+			assertEquals(scanned.getZobristKey(), board.getZobristKey());
+			for (Piece p : pieces) {
+				MoveList expected = new MoveList();
+				MoveList actual = new MoveList();
+				rules.validMoves(scanned, pieces, p, expected);
+				rules.validMoves(board, pieces, p, actual);
+				assertEquals(Arrays.toString(expected.toArray()), Arrays.toString(actual.toArray()));
+				assertEquals(expected.size(), rules.countValidMoves(board, pieces, p));
+				assertSameCounters(scanned, (AtaxxCounters) board, p, obstacle);
+				assertEquals(rules.evaluate(scanned, pieces, turn, p), rules.evaluate(board, pieces, turn, p), 0.0);
+			}
+			Pair<Game.State, Piece> expected = rules.updateState(scanned, pieces, turn);
+			Pair<Game.State, Piece> actual = rules.updateState(board, pieces, turn);
+			assertEquals(expected.getFirst(), actual.getFirst());
+			assertEquals(expected.getSecond(), actual.getSecond());
+			if (actual.getFirst() != Game.State.InPlay) {
+				return;
+			}
+			Piece next = rules.nextPlayer(board, pieces, turn);
+			assertEquals(rules.nextPlayer(scanned, pieces, turn), next);
+
+			int move = randomMove(random, rules, board, pieces, next);
+			rules.execute(board, pieces, next, move);
+			rules.execute(scanned, pieces, next, move);
+			turn = next;
+		}
+	}
+
+	/**
+	 * <p>Places the initial pieces of {@link AtaxxRules} on {@code board}, and
+	 * a random number of obstacles in random cells.</p>
+	 */
+	private static AtaxxRules setUp(Random random, Board board, List<Piece> pieces) {
+		int dim = board.getRows();
+		AtaxxRules rules = new AtaxxRules(dim, 0);
+		copyCells(rules.createBoard(pieces), board);
+		Piece obstacle = rules.getObstacle(pieces);
+		for (int k = random.nextInt(dim * dim / 5 + 1); k > 0; k--) {
+			int row = random.nextInt(dim);
+			int col = random.nextInt(dim);
+			if (board.getPosition(row, col) == null) {
+				board.setPosition(row, col, obstacle);
+			}
+		}
+		return rules;
+	}
+
+	/**
+	 * <p>Checks the counters of {@code actual} for {@code p} against a scan
+	 * of {@code board}.</p>
+	 */
+	private static void assertSameCounters(Board board, AtaxxCounters actual, Piece p, Piece obstacle) {
+		int count = 0;
+		int mobility = 0;
+		int frontier = 0;
+		int adjacency = 0;
+		for (int i = 0; i < board.getRows(); i++) {
+			for (int j = 0; j < board.getCols(); j++) {
+				if (!p.equals(board.getPosition(i, j))) {
+					continue;
+				}
+				count++;
+				boolean border = false;
+				for (int r = Math.max(i - 2, 0); r <= Math.min(i + 2, board.getRows() - 1); r++) {
+					for (int c = Math.max(j - 2, 0); c <= Math.min(j + 2, board.getCols() - 1); c++) {
+						Piece q = board.getPosition(r, c);
+						boolean near = Math.abs(r - i) <= 1 && Math.abs(c - j) <= 1;
+						if (q == null) {
+							mobility++;
+							border |= near;
+						} else if (near && q.equals(obstacle)) {
+							adjacency++;
+						}
+					}
+				}
+				if (border) {
+					frontier++;
+				}
+			}
+		}
+		assertEquals(count, actual.count(p));
+		assertEquals(mobility > 0, actual.canMove(p));
+		assertEquals(mobility, actual.mobility(p));
+		assertEquals(frontier, actual.frontier(p));
+		assertEquals(adjacency, actual.adjacency(p, obstacle));
+	}
+
+	private static void assertSameCounters(AtaxxCounters expected, AtaxxCounters actual, List<Piece> pieces,
+			Piece obstacle) {
+		for (Piece p : pieces) {
+			assertEquals(expected.count(p), actual.count(p));
+			assertEquals(expected.canMove(p), actual.canMove(p));
+			assertEquals(expected.mobility(p), actual.mobility(p));
+			assertEquals(expected.frontier(p), actual.frontier(p));
+			assertEquals(expected.adjacency(p, obstacle), actual.adjacency(p, obstacle));
+			for (Piece q : pieces) {
+				assertEquals(expected.adjacency(p, q), actual.adjacency(p, q));
+			}
+		}
+	}
+
+	/**
+	 * <p>Makes a random move of {@code turn} and returns the next player, or
+	 * {@code null} if the game is over.</p>
+	 */
+	private static Piece playRandomMove(Random random, AtaxxRules rules, Board board, List<Piece> pieces,
+			Piece turn) {
+		rules.execute(board, pieces, turn, randomMove(random, rules, board, pieces, turn));
+		if (rules.updateState(board, pieces, turn).getFirst() != Game.State.InPlay) {
+			return null;
+		}
+		return rules.nextPlayer(board, pieces, turn);
+	}
+
+	private static int randomMove(Random random, AtaxxRules rules, Board board, List<Piece> pieces, Piece turn) {
+		MoveList moves = new MoveList();
+		rules.validMoves(board, pieces, turn, moves);
+		return moves.get(random.nextInt(moves.size()));
+	}
+
+	private static void copyCells(Board from, Board to) {
+		for (int i = 0; i < from.getRows(); i++) {
+			for (int j = 0; j < from.getCols(); j++) {
+				to.setPosition(i, j, from.getPosition(i, j));
+			}
+		}
+	}
+
+	private static void assertSameBoard(Board expected, Board actual) {
+		for (int i = 0; i < expected.getRows(); i++) {
+			for (int j = 0; j < expected.getCols(); j++) {
+				assertEquals("cell (" + i + "," + j + ")", expected.getPosition(i, j), actual.getPosition(i, j));
+			}
+		}
+	}
+
+	private static List<Piece> pieces(int n) {
+		List<Piece> pieces = new ArrayList<Piece>();
+		for (int i = 0; i < n; i++) {
+			pieces.add(new Piece("P" + i));
+		}
+		return pieces;
+	}
+
+}
@@ -0,0 +1,166 @@
+package es.ucm.fdi.tp.basecode.connectn;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.FiniteRectBoard;
+import es.ucm.fdi.tp.basecode.bgame.model.Game;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveList;
+import es.ucm.fdi.tp.basecode.bgame.model.Pair;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * Randomized equivalence tests of {@link ConnectNBoard}: along random games,
+ * its incremental line counters must give the same results as scanning a
+ * {@link FiniteRectBoard} with the same cells, and {@link Board#undo(int)}
+ * must restore the cells, the counters and the Zobrist key.
+ *
+ * <p>
+ * Pruebas aleatorias de equivalencia de {@link ConnectNBoard}: a lo largo de
+ * partidas aleatorias, sus contadores incrementales de lineas deben dar los
+ * mismos resultados que recorrer un {@link FiniteRectBoard} con las mismas
+ * casillas, y {@link Board#undo(int)} debe restaurar las casillas, los
+ * contadores y la clave Zobrist.
+ */
+public class ConnectNBoardTest {
+
+	private static final int GAMES = 40;
+
+	@Test
+	public void countersMatchFullScan() {
+		Random random = new Random(1);
+		for (int dim = 3; dim <= 7; dim++) {
+			for (int n = 2; n <= 4; n++) {
+				for (int g = 0; g < GAMES; g++) {
+					playRandomGame(random, dim, pieces(n), random.nextBoolean());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void undoRestoresCellsCountersAndKey() {
+		Random random = new Random(2);
+		for (int dim = 3; dim <= 7; dim++) {
+			List<Piece> pieces = pieces(2 + random.nextInt(3));
+			ConnectNRules rules = new ConnectNRules(dim, true);
+			for (int g = 0; g < GAMES; g++) {
+				Board board = rules.createBoard(pieces);
+				Piece turn = rules.initialPlayer(board, pieces);
+				while (rules.updateState(board, pieces, turn).getFirst() == Game.State.InPlay) {
+					Board before = board.copy();
+					int mark = board.mark();
+					int moves = 1 + random.nextInt(dim);
+					Piece t = turn;
+					for (int k = 0; k < moves && !board.isFull(); k++) {
+						rules.execute(board, pieces, t, randomMove(random, rules, board, pieces, t));
+						t = rules.nextPlayer(board, pieces, t);
+					}
+					board.undo(mark);
+					assertSameBoard(before, board);
+					assertEquals(before.getZobristKey(), board.getZobristKey());
+					for (Piece p : pieces) {
+						assertEquals(((ConnectNBoard) before).openLines(p), ((ConnectNBoard) board).openLines(p));
+						assertEquals(((ConnectNBoard) before).openLineSquares(p),
+								((ConnectNBoard) board).openLineSquares(p));
+					}
+
+					rules.execute(board, pieces, turn, randomMove(random, rules, board, pieces, turn));
+					turn = rules.nextPlayer(board, pieces, turn);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Plays a random game on a {@link ConnectNBoard} and on a
+	 * {@link FiniteRectBoard}, checking after each move that both give the
+	 * same state and evaluation, and that the open lines of the
+	 * {@link ConnectNBoard} are those of a scan.
+	 */
+	private static void playRandomGame(Random random, int dim, List<Piece> pieces, boolean weighted) {
+		ConnectNRules rules = new ConnectNRules(dim, weighted);
+		Board board = rules.createBoard(pieces);
+		Board scanned = new FiniteRectBoard(dim, dim);
+		Piece turn = rules.initialPlayer(board, pieces);
+		while (true) {
+			assertSameBoard(scanned, board);
+			assertEquals(scanned.getZobristKey(), board.getZobristKey());
+			for (Piece p : pieces) {
+				assertEquals(openLines(scanned, p, false), ((ConnectNBoard) board).openLines(p));
+				assertEquals(openLines(scanned, p, true) - openLines(scanned, p, false),
+						((ConnectNBoard) board).openLineSquares(p));
+				assertEquals(rules.evaluate(scanned, pieces, turn, p), rules.evaluate(board, pieces, turn, p), 0.0);
+			}
+			Pair<Game.State, Piece> expected = rules.updateState(scanned, pieces, turn);
+			Pair<Game.State, Piece> actual = rules.updateState(board, pieces, turn);
+			assertEquals(expected.getFirst(), actual.getFirst());
+			assertEquals(expected.getSecond(), actual.getSecond());
+			if (actual.getFirst() != Game.State.InPlay) {
+				return;
+			}
+
+			int move = randomMove(random, rules, board, pieces, turn);
+			rules.execute(board, pieces, turn, move);
+			rules.execute(scanned, pieces, turn, move);
+			turn = rules.nextPlayer(board, pieces, turn);
+		}
+	}
+
+	/**
+	 * The open lines of {@code p} found by a scan of every row, column and
+	 * diagonal, each one counting 1 (plus the square of the cells of
+	 * {@code p} in it if {@code weighted}).
+	 */
+	private static int openLines(Board board, Piece p, boolean weighted) {
+		int dim = board.getRows();
+		int lines = 0;
+		for (int i = 0; i < dim; i++) {
+			lines += line(board, p, weighted, i, 0, 0, 1) + line(board, p, weighted, 0, i, 1, 0);
+		}
+		return lines + line(board, p, weighted, 0, 0, 1, 1) + line(board, p, weighted, dim - 1, 0, -1, 1);
+	}
+
+	private static int line(Board board, Piece p, boolean weighted, int row, int col, int dRow, int dCol) {
+		int own = 0;
+		for (int k = 0; k < board.getRows(); k++) {
+			Piece q = board.getPosition(row + k * dRow, col + k * dCol);
+			if (q != null) {
+				if (!q.equals(p)) {
+					return 0;
+				}
+				own++;
+			}
+		}
+		return weighted ? 1 + own * own : 1;
+	}
+
+	private static int randomMove(Random random, ConnectNRules rules, Board board, List<Piece> pieces, Piece turn) {
+		MoveList moves = new MoveList();
+		rules.validMoves(board, pieces, turn, moves);
+		return moves.get(random.nextInt(moves.size()));
+	}
+
+	private static void assertSameBoard(Board expected, Board actual) {
+		for (int i = 0; i < expected.getRows(); i++) {
+			for (int j = 0; j < expected.getCols(); j++) {
+				assertEquals("cell (" + i + "," + j + ")", expected.getPosition(i, j), actual.getPosition(i, j));
+			}
+		}
+	}
+
+	private static List<Piece> pieces(int n) {
+		List<Piece> pieces = new ArrayList<Piece>();
+		for (int i = 0; i < n; i++) {
+			pieces.add(new Piece("P" + i));
+		}
+		return pieces;
+	}
+
+}
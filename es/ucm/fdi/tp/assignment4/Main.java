@@ -1,5 +1,7 @@
 package es.ucm.fdi.tp.assignment4;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
@@ -13,17 +15,29 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
 import es.ucm.fdi.tp.assignment4.ataxx.AtaxxFactory;
+import es.ucm.fdi.tp.assignment4.ataxx.NTupleNetwork;
 import es.ucm.fdi.tp.basecode.attt.AdvancedTTTFactory;
 import es.ucm.fdi.tp.basecode.bgame.control.ConsoleCtrl;
 import es.ucm.fdi.tp.basecode.bgame.control.ConsoleCtrlMVC;
 import es.ucm.fdi.tp.basecode.bgame.control.Controller;
 import es.ucm.fdi.tp.basecode.bgame.control.GameFactory;
 import es.ucm.fdi.tp.basecode.bgame.control.Player;
+import es.ucm.fdi.tp.basecode.bgame.control.PonderingAIPlayer;
+import es.ucm.fdi.tp.basecode.bgame.control.Tournament;
 import es.ucm.fdi.tp.basecode.bgame.model.AIAlgorithm;
 import es.ucm.fdi.tp.basecode.bgame.model.Game;
+import es.ucm.fdi.tp.basecode.bgame.model.GameClock;
 import es.ucm.fdi.tp.basecode.bgame.model.GameError;
 import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+import es.ucm.fdi.tp.basecode.book.BookPlayer;
+import es.ucm.fdi.tp.basecode.book.OpeningBook;
 import es.ucm.fdi.tp.basecode.connectn.ConnectNFactory;
+import es.ucm.fdi.tp.basecode.mcts.MCTS;
+import es.ucm.fdi.tp.basecode.minmax.MinMax;
+import es.ucm.fdi.tp.basecode.minmax.ParallelMinMax;
+import es.ucm.fdi.tp.basecode.minmax.SearchStats;
+import es.ucm.fdi.tp.basecode.tablebase.PerfectPlay;
+import es.ucm.fdi.tp.basecode.tablebase.Tablebase;
 import es.ucm.fdi.tp.basecode.ttt.TicTacToeFactory;
 
 /**
@@ -133,12 +147,47 @@ public class Main {
         }
     }
 
+    /**
+     * <p>The algorithms available for the automatic players.</p>
+     * <p>Algoritmos disponibles para los jugadores automaticos.</p>
+     */
+    enum AlgorithmInfo {
+        MINMAX("minmax", "alpha-beta MinMax"), MCTS("mcts", "Monte-Carlo Tree Search");
+
+        private String id;
+        private String desc;
+
+        AlgorithmInfo(String id, String desc) {
+            this.id = id;
+            this.desc = desc;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getDesc() {
+            return desc;
+        }
+
+        @Override
+        public String toString() {
+            return id;
+        }
+    }
+
     /**
      * <p>Default game to play.</p>
      * <p>Juego por defecto.</p>
      */
     final private static GameInfo DEFAULT_GAME = GameInfo.Ataxx;
 
+    /**
+     * <p>Default algorithm of the automatic players.</p>
+     * <p>Algoritmo por defecto de los jugadores automaticos.</p>
+     */
+    final private static AlgorithmInfo DEFAULT_ALGORITHM = AlgorithmInfo.MINMAX;
+
     /**
      * <p>default view to use.</p>
      * <p>Vista por defecto.</p>
@@ -202,6 +251,73 @@ public class Main {
      */
     private static boolean multiviews;
 
+    /**
+     * <p>{@code true} if the option -pd was provided, to let the automatic
+     * players of an interactive game think during the turn of the other
+     * players, and {@code false} otherwise.</p>
+     * 
+     * <p>{@code true} si se incluye la opcion -pd, para que los jugadores
+     * automaticos de una partida interactiva piensen durante el turno de los
+     * demas jugadores, o {@code false} en caso contrario.</p>
+     */
+    private static boolean ponder;
+
+    /**
+     * <p>Number of games of the tournament provided with the option -tn
+     * ({@code null} if not provided, to play a single game).</p>
+     * 
+     * <p>Numero de partidas del torneo proporcionado con la opcion -tn
+     * ({@code null} si no se proporciona, para jugar una unica partida).</p>
+     */
+    private static Integer tournamentGames;
+
+    /**
+     * <p>Number of games of the tournament played at the same time, provided
+     * with the option -tn (one per processor by default).</p>
+     * 
+     * <p>Numero de partidas del torneo que se juegan a la vez, proporcionado
+     * con la opcion -tn (una por procesador por defecto).</p>
+     */
+    private static int tournamentConcurrency;
+
+    /**
+     * <p>Base time of the clocks of the players, in milliseconds, provided
+     * with the option -tc ({@code null} if not provided, to play without
+     * clocks).</p>
+     * 
+     * <p>Tiempo base de los relojes de los jugadores, en milisegundos,
+     * proporcionado con la opcion -tc ({@code null} si no se proporciona, para
+     * jugar sin relojes).</p>
+     */
+    private static Long clockBase;
+
+    /**
+     * <p>Increment of the clocks of the players, in milliseconds, provided
+     * with the option -tc (0 by default).</p>
+     * 
+     * <p>Incremento de los relojes de los jugadores, en milisegundos,
+     * proporcionado con la opcion -tc (0 por defecto).</p>
+     */
+    private static long clockIncrement;
+
+    /**
+     * <p>What happens when a player runs out of time, provided with the
+     * option -to.</p>
+     * 
+     * <p>Lo que ocurre cuando un jugador se queda sin tiempo, proporcionado
+     * con la opcion -to.</p>
+     */
+    private static Game.TimeoutPolicy timeoutPolicy;
+
+    /**
+     * <p>Opening book of the automatic players, provided with the option -bk
+     * ({@code null} if not provided).</p>
+     * 
+     * <p>Libro de aperturas de los jugadores automaticos, proporcionado con
+     * la opcion -bk ({@code null} si no se proporciona).</p>
+     */
+    private static OpeningBook book;
+
     /**
      * <p>Number of rows provided with the option -d ({@code null} if not
      * provided).</p>
@@ -223,13 +339,102 @@ public class Main {
     private static Integer numObstacles;
 
     /**
-     * <p>The algorithm to be used by the automatic player. Not used so far, it is
-     * always {@code null}.</p>
+     * <p>Default time budget per move of the automatic players, in
+     * milliseconds.</p>
+     * 
+     * <p>Tiempo por defecto por movimiento de los jugadores automaticos, en
+     * milisegundos.</p>
+     */
+    final private static long DEFAULT_MOVE_TIME = MinMax.DEFAULT_TIME_BUDGET;
+
+    /**
+     * <p>Default number of threads of the automatic players.</p>
+     * 
+     * <p>Numero de hebras por defecto de los jugadores automaticos.</p>
+     */
+    final private static int DEFAULT_THREADS = 1;
+
+    /**
+     * <p>Time budget per move of the automatic players, provided with the -mt
+     * option.</p>
+     * 
+     * <p>Tiempo por movimiento de los jugadores automaticos, proporcionado con
+     * la opcion -mt.</p>
+     */
+    private static long moveTime;
+
+    /**
+     * <p>Number of threads of the automatic players, provided with the -th
+     * option.</p>
+     * 
+     * <p>Numero de hebras de los jugadores automaticos, proporcionado con la
+     * opcion -th.</p>
+     */
+    private static int threads;
+
+    /**
+     * <p>The default algorithm of the automatic players, selected with the -ai
+     * option.</p>
+     * 
+     * <p>Algoritmo por defecto de los jugadores automaticos, seleccionado con
+     * la opcion -ai.</p>
+     */
+    private static AlgorithmInfo algorithm;
+
+    /**
+     * <p>Whether the MinMax algorithms order the moves (unless -nmo is
+     * given).</p>
+     * 
+     * <p>Si los algoritmos MinMax ordenan los movimientos (salvo que se
+     * incluya -nmo).</p>
+     */
+    private static boolean moveOrdering;
+
+    /**
+     * <p>The algorithm of each player given in the -p option, or {@code null}
+     * to use {@link #algorithm}.</p>
+     * 
+     * <p>Algoritmo de cada jugador proporcionado en la opcion -p, o
+     * {@code null} para usar {@link #algorithm}.</p>
+     */
+    private static List<AlgorithmInfo> playerAlgorithms;
+
+    /**
+     * <p>The time budget per move of each player given in the -p option, or
+     * {@code null} to use {@link #moveTime}.</p>
+     * 
+     * <p>Tiempo por movimiento de cada jugador proporcionado en la opcion -p,
+     * o {@code null} para usar {@link #moveTime}.</p>
+     */
+    private static List<Long> playerMoveTimes;
+
+    /**
+     * <p>The tablebase provided with the -tb option, or {@code null}.</p>
+     * 
+     * <p>Tabla de finales proporcionada con la opcion -tb, o
+     * {@code null}.</p>
+     */
+    private static Tablebase tablebase;
+
+    /**
+     * <p>The statistics of the searches of the algorithms created by
+     * {@link #createAlgorithm(int)} for each player, if they are a
+     * {@link MinMax} or a {@link ParallelMinMax}.</p>
+     * 
+     * <p>Las estadisticas de las busquedas de los algoritmos creados por
+     * {@link #createAlgorithm(int)} para cada jugador, si son un
+     * {@link MinMax} o un {@link ParallelMinMax}.</p>
+     */
+    private static List<List<SearchStats>> playerStats = new ArrayList<List<SearchStats>>();
+
+    /**
+     * <p>The {@link ParallelMinMax} created by {@link #createAlgorithm(int)},
+     * to shut down their threads when the program ends.</p>
      * 
-     * <p>Algoritmo a utilizar por el jugador automatico. Actualmente no se
-     * utiliza, por lo que siempre es {@code null}.</p>
+     * <p>Los {@link ParallelMinMax} creados por {@link #createAlgorithm(int)},
+     * para detener sus hebras cuando termina el programa.</p>
      */
-    private static AIAlgorithm aiPlayerAlg;
+    private static List<ParallelMinMax> parallelMinMaxes = new ArrayList<ParallelMinMax>();
 
     /**
      * <p>Processes the command-line arguments and modify the fields of this
@@ -260,6 +465,17 @@ public class Main {
         cmdLineOptions.addOption(constructPlayersOption()); // -p or --players
         cmdLineOptions.addOption(constructDimensionOption()); // -d or --dim
         cmdLineOptions.addOption(constructObstaclesOption()); // -o or --obstacles
+        cmdLineOptions.addOption(constructMoveTimeOption()); // -mt or --move-time
+        cmdLineOptions.addOption(constructThreadsOption()); // -th or --threads
+        cmdLineOptions.addOption(constructAlgorithmOption()); // -ai or --ai-algorithm
+        cmdLineOptions.addOption(constructNoMoveOrderingOption()); // -nmo or --no-move-ordering
+        cmdLineOptions.addOption(constructPonderOption()); // -pd or --ponder
+        cmdLineOptions.addOption(constructTournamentOption()); // -tn or --tournament
+        cmdLineOptions.addOption(constructTimeControlOption()); // -tc or --time-control
+        cmdLineOptions.addOption(constructTimeoutOption()); // -to or --on-timeout
+        cmdLineOptions.addOption(constructBookOption()); // -bk or --book
+        cmdLineOptions.addOption(constructTablebaseOption()); // -tb or --tablebase
+        cmdLineOptions.addOption(constructNTupleOption()); // -nt or --ntuple
         // parse the command line as provided in args
         //
         CommandLineParser parser = new DefaultParser();
@@ -268,10 +484,19 @@ public class Main {
             parseHelpOption(line, cmdLineOptions);
             parseDimOptionn(line);
             parseObstaclesOptionn(line);
+            parseMoveTimeOption(line);
+            parseThreadsOption(line);
+            parseAlgorithmOption(line);
             parseGameOption(line);
             parseViewOption(line);
             parseMultiViewOption(line);
             parsePlayersOptions(line);
+            parsePonderOption(line);
+            parseTournamentOption(line);
+            parseTimeControlOption(line);
+            parseBookOption(line);
+            parseTablebaseOption(line);
+            parseNTupleOption(line);
 
             // if there are some remaining arguments, then something wrong is
             // provided in the command line!
@@ -306,6 +531,40 @@ public class Main {
                 "Create a separate view for each player (valid only when using the " + ViewInfo.WINDOW + " view)");
     }
 
+    /**
+     * <p>Builds the ponder (-pd or --ponder) CLI option.</p>
+     * 
+     * <p>Construye la opcion CLI -pd.</p>
+     * 
+     * @return
+     *      <p>CLI {@link Option} for the ponder option.</p>
+     */
+    private static Option constructPonderOption() {
+        return new Option("pd", "ponder", false,
+                "Let the automatic players keep thinking during the turn of the other players (valid only in interactive games, with some manual player)");
+    }
+
+    /**
+     * <p>Parses the ponder option (-pd or --ponder). It sets the value of
+     * {@link #ponder} accordingly. Should be called after
+     * {@link #parsePlayersOptions(CommandLine)}.</p>
+     * 
+     * <p>Extrae la opcion -pd y asigna el valor de {@link #ponder}. Se debe
+     * llamar despues de {@link #parsePlayersOptions(CommandLine)}.</p>
+     * 
+     * @param line
+     *            <p>CLI {@link CommandLine} object.</p>
+     * @throws ParseException
+     *             <p>If there is no manual player.</p>
+     *             <p>Si no hay ningun jugador manual.</p>
+     */
+    private static void parsePonderOption(CommandLine line) throws ParseException {
+        ponder = line.hasOption("pd");
+        if (ponder && !playerModes.contains(PlayerMode.MANUAL)) {
+            throw new ParseException("The option -pd requires a manual player");
+        }
+    }
+
     /**
      * <p>Parses the multiview option (-m or --multiview). It sets the value of
      * {@link #multiviews} accordingly.</p>
@@ -379,7 +638,11 @@ public class Main {
         }
         optionInfo += "). If B is not given, the default mode '" + DEFAULT_PLAYERMODE.getId()
                 + "' is used. If this option is not given a default list of pieces from the corresponding game is used, each assigmed the mode '"
-                + DEFAULT_PLAYERMODE.getId() + "'.";
+                + DEFAULT_PLAYERMODE.getId() + "'. An automatic player can also have the form A:"
+                + PlayerMode.AI.getId() + ":ALG or A:" + PlayerMode.AI.getId()
+                + ":ALG:MT, to play with the algorithm ALG (as in -ai) and MT milliseconds per move (as in -mt), e.g., X:"
+                + PlayerMode.AI.getId() + ":" + AlgorithmInfo.MCTS.getId() + ",O:" + PlayerMode.AI.getId() + ":"
+                + AlgorithmInfo.MINMAX.getId() + ":500.";
 
         Option opt = new Option("p", "players", true, optionInfo);
         opt.setArgName("list of players");
@@ -388,10 +651,12 @@ public class Main {
 
     /**
      * <p>Parses the players/pieces option (-p or --players). It sets the value of
-     * {@link #pieces} and {@link #playerModes} accordingly.</p>
+     * {@link #pieces}, {@link #playerModes}, {@link #playerAlgorithms} and
+     * {@link #playerMoveTimes} accordingly.</p>
      *
-     * <p>Extrae la opcion players (-p) y asigna el valor de {@link #pieces} y
-     * {@link #playerModes}.</p>
+     * <p>Extrae la opcion players (-p) y asigna el valor de {@link #pieces},
+     * {@link #playerModes}, {@link #playerAlgorithms} y
+     * {@link #playerMoveTimes}.</p>
      * 
      * @param line
      *            <p>CLI {@link CommandLine} object.</p>
@@ -404,6 +669,8 @@ public class Main {
     private static void parsePlayersOptions(CommandLine line) throws ParseException {
 
         String playersVal = line.getOptionValue("p");
+        playerAlgorithms = new ArrayList<AlgorithmInfo>();
+        playerMoveTimes = new ArrayList<Long>();
 
         if (playersVal == null) {
             // if no -p option, we take the default pieces from the
@@ -413,6 +680,8 @@ public class Main {
             playerModes = new ArrayList<PlayerMode>();
             for (int i = 0; i < pieces.size(); i++) {
                 playerModes.add(DEFAULT_PLAYERMODE);
+                playerAlgorithms.add(null);
+                playerMoveTimes.add(null);
             }
         } else {
             pieces = new ArrayList<Piece>();
@@ -423,8 +692,10 @@ public class Main {
                 if (playerInfo.length == 1) { // only the piece name is provided
                     pieces.add(new Piece(playerInfo[0]));
                     playerModes.add(DEFAULT_PLAYERMODE);
-                } else if (playerInfo.length == 2) { // piece name and mode are
-                                                        // provided
+                } else if (playerInfo.length <= 4) { // piece name and mode are
+                                                        // provided, and maybe
+                                                        // the algorithm and
+                                                        // the time per move
                     pieces.add(new Piece(playerInfo[0]));
                     PlayerMode selectedMode = null;
                     for (PlayerMode mode : PlayerMode.values()) {
@@ -437,9 +708,14 @@ public class Main {
                     } else {
                         throw new ParseException("Invalid player mode in '" + player + "'");
                     }
+                    if (playerInfo.length > 2 && selectedMode != PlayerMode.AI) {
+                        throw new ParseException("Only automatic players can have an algorithm: '" + player + "'");
+                    }
                 } else {
                     throw new ParseException("Invalid player information '" + player + "'");
                 }
+                playerAlgorithms.add(playerInfo.length > 2 ? parseAlgorithm(playerInfo[2]) : null);
+                playerMoveTimes.add(playerInfo.length > 3 ? parseMoveTime(playerInfo[3]) : null);
             }
         }
     }
@@ -612,6 +888,554 @@ public class Main {
         }
     }
 
+    /**
+     * <p>Builds the move time (-mt or --move-time) CLI option.</p>
+     * 
+     * <p>Construye la opcion CLI -mt.</p>
+     * 
+     * @return <p>CLI {@link Option} for the move time option.</p>
+     *         <p>Objeto {@link Option} de esta opcion.</p>
+     */
+    private static Option constructMoveTimeOption() {
+        Option opt = new Option("mt", "move-time", true,
+                "Time budget per move of the automatic players, in milliseconds. By default, " + DEFAULT_MOVE_TIME + ".");
+        opt.setArgName("milliseconds");
+        return opt;
+    }
+
+    /**
+     * <p>Parses the move time option (-mt or --move-time). It sets the value of
+     * {@link #moveTime} accordingly.</p>
+     * 
+     * <p>Extrae la opcion -mt. Asigna el valor de {@link #moveTime}.</p>
+     * 
+     * @param line
+     *            <p>CLI {@link CommandLine} object.</p>
+     * @throws ParseException
+     *             <p>If an invalid value is provided.</p>
+     *             <p>Si se proporciona un valor invalido.</p>
+     */
+    private static void parseMoveTimeOption(CommandLine line) throws ParseException {
+        moveTime = parseMoveTime(line.getOptionValue("mt", String.valueOf(DEFAULT_MOVE_TIME)));
+    }
+
+    /**
+     * <p>Parses a time budget per move, as given in the -mt and -p
+     * options.</p>
+     * 
+     * <p>Extrae un tiempo por movimiento, como los de las opciones -mt y
+     * -p.</p>
+     * 
+     * @param mtVal
+     *            <p>The value to parse.</p>
+     * @return <p>The time budget, in milliseconds.</p>
+     * @throws ParseException
+     *             <p>If an invalid value is provided.</p>
+     *             <p>Si se proporciona un valor invalido.</p>
+     */
+    private static long parseMoveTime(String mtVal) throws ParseException {
+        long mt;
+        try {
+            mt = Long.parseLong(mtVal);
+        } catch (NumberFormatException e) {
+            throw new ParseException("Invalid move time: " + mtVal);
+        }
+        if (mt < 1) {
+            throw new ParseException("Invalid move time: " + mtVal);
+        }
+        return mt;
+    }
+
+    /**
+     * <p>Builds the threads (-th or --threads) CLI option.</p>
+     * 
+     * <p>Construye la opcion CLI -th.</p>
+     * 
+     * @return <p>CLI {@link Option} for the threads option.</p>
+     *         <p>Objeto {@link Option} de esta opcion.</p>
+     */
+    private static Option constructThreadsOption() {
+        Option opt = new Option("th", "threads", true,
+                "Number of threads of the search of each automatic player (0 for one per processor). "
+                        + "In a tournament, each of the concurrent games has its own searches. By default, "
+                        + DEFAULT_THREADS + ".");
+        opt.setArgName("number of threads");
+        return opt;
+    }
+
+    /**
+     * <p>Parses the threads option (-th or --threads). It sets the value of
+     * {@link #threads} accordingly.</p>
+     * 
+     * <p>Extrae la opcion -th. Asigna el valor de {@link #threads}.</p>
+     * 
+     * @param line
+     *            <p>CLI {@link CommandLine} object.</p>
+     * @throws ParseException
+     *             <p>If an invalid value is provided.</p>
+     *             <p>Si se proporciona un valor invalido.</p>
+     */
+    private static void parseThreadsOption(CommandLine line) throws ParseException {
+        String thVal = line.getOptionValue("th", String.valueOf(DEFAULT_THREADS));
+        try {
+            threads = Integer.parseInt(thVal);
+        } catch (NumberFormatException e) {
+            throw new ParseException("Invalid number of threads: " + thVal);
+        }
+        if (threads < 0) {
+            throw new ParseException("Invalid number of threads: " + thVal);
+        } else if (threads == 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+    }
+
+    /**
+     * <p>Builds the algorithm (-ai or --ai-algorithm) CLI option.</p>
+     * 
+     * <p>Construye la opcion CLI -ai.</p>
+     * 
+     * @return <p>CLI {@link Option} for the algorithm option.</p>
+     *         <p>Objeto {@link Option} de esta opcion.</p>
+     */
+    private static Option constructAlgorithmOption() {
+        String optionInfo = "The algorithm of the automatic players ( ";
+        for (AlgorithmInfo i : AlgorithmInfo.values()) {
+            optionInfo += i.getId() + " [for " + i.getDesc() + "] ";
+        }
+        optionInfo += "). By default, " + DEFAULT_ALGORITHM.getId() + ".";
+        Option opt = new Option("ai", "ai-algorithm", true, optionInfo);
+        opt.setArgName("algorithm identifier");
+        return opt;
+    }
+
+    /**
+     * <p>Builds the no-move-ordering (-nmo or --no-move-ordering) CLI
+     * option.</p>
+     * 
+     * <p>Construye la opcion CLI -nmo.</p>
+     * 
+     * @return
+     *      <p>CLI {@link Option} for the no-move-ordering option.</p>
+     */
+    private static Option constructNoMoveOrderingOption() {
+        return new Option("nmo", "no-move-ordering", false,
+                "Search the moves of " + AlgorithmInfo.MINMAX.getId()
+                        + " in the order of generation, to measure the gain of the move ordering in a tournament");
+    }
+
+    /**
+     * <p>Parses the algorithm option (-ai or --ai-algorithm). It sets the value
+     * of {@link #algorithm}, and that of {@link #moveOrdering} (disabled with
+     * -nmo). The algorithms are created by {@link #createAlgorithm(int)}.</p>
+     * 
+     * <p>Extrae la opcion -ai. Asigna el valor de {@link #algorithm}, y el de
+     * {@link #moveOrdering} (desactivada con -nmo). Los algoritmos se crean con
+     * {@link #createAlgorithm(int)}.</p>
+     * 
+     * @param line
+     *            <p>CLI {@link CommandLine} object.</p>
+     * @throws ParseException
+     *             <p>If an invalid value is provided.</p>
+     *             <p>Si se proporciona un valor invalido.</p>
+     */
+    private static void parseAlgorithmOption(CommandLine line) throws ParseException {
+        algorithm = parseAlgorithm(line.getOptionValue("ai", DEFAULT_ALGORITHM.getId()));
+        moveOrdering = !line.hasOption("nmo");
+    }
+
+    /**
+     * <p>Parses an algorithm identifier, as given in the -ai and -p
+     * options.</p>
+     * 
+     * <p>Extrae un identificador de algoritmo, como los de las opciones -ai y
+     * -p.</p>
+     * 
+     * @param aiVal
+     *            <p>The value to parse.</p>
+     * @return <p>The algorithm.</p>
+     * @throws ParseException
+     *             <p>If an invalid value is provided.</p>
+     *             <p>Si se proporciona un valor invalido.</p>
+     */
+    private static AlgorithmInfo parseAlgorithm(String aiVal) throws ParseException {
+        for (AlgorithmInfo a : AlgorithmInfo.values()) {
+            if (aiVal.equals(a.getId())) {
+                return a;
+            }
+        }
+        throw new ParseException("Uknown algorithm '" + aiVal + "'");
+    }
+
+    /**
+     * <p>Consults the algorithm of the i-th player: the one given in the -p
+     * option, or the one of -ai.</p>
+     * 
+     * <p>Proporciona el algoritmo del jugador i-esimo: el de la opcion -p, o
+     * el de -ai.</p>
+     */
+    private static AlgorithmInfo algorithmOf(int i) {
+        return playerAlgorithms.get(i) != null ? playerAlgorithms.get(i) : algorithm;
+    }
+
+    /**
+     * <p>Consults the time budget per move of the i-th player: the one given
+     * in the -p option, or the one of -mt.</p>
+     * 
+     * <p>Proporciona el tiempo por movimiento del jugador i-esimo: el de la
+     * opcion -p, o el de -mt.</p>
+     */
+    private static long moveTimeOf(int i) {
+        return playerMoveTimes.get(i) != null ? playerMoveTimes.get(i) : moveTime;
+    }
+
+    /**
+     * <p>Creates a new instance of the algorithm of the i-th player, with its
+     * time budget: a {@link MinMax} (one thread) or a {@link ParallelMinMax}
+     * (several threads), or an {@link MCTS}, wrapped in a {@link PerfectPlay}
+     * if a tablebase was given. Each call creates a separate instance, so
+     * that concurrent games do not share their searches. The statistics of
+     * the MinMax algorithms are kept in {@link #playerStats}.</p>
+     * 
+     * <p>Crea una nueva instancia del algoritmo del jugador i-esimo, con su
+     * tiempo por movimiento: un {@link MinMax} (una hebra) o un
+     * {@link ParallelMinMax} (varias hebras), o un {@link MCTS}, encapsulado
+     * en un {@link PerfectPlay} si se proporciono una tabla de finales. Cada
+     * llamada crea una instancia distinta, para que las partidas concurrentes
+     * no compartan sus busquedas. Las estadisticas de los algoritmos MinMax se
+     * guardan en {@link #playerStats}.</p>
+     * 
+     * @param i
+     *            <p>The index of the player.</p>
+     *            <p>El indice del jugador.</p>
+     * @return <p>The new algorithm.</p>
+     *         <p>El nuevo algoritmo.</p>
+     */
+    private static AIAlgorithm createAlgorithm(int i) {
+        while (playerStats.size() <= i) {
+            playerStats.add(new ArrayList<SearchStats>());
+        }
+        long mt = moveTimeOf(i);
+        AIAlgorithm alg;
+        switch (algorithmOf(i)) {
+        case MINMAX:
+            if (threads == 1) {
+                MinMax minMax = new MinMax(mt);
+                minMax.setMoveOrdering(moveOrdering);
+                playerStats.get(i).add(minMax.getStats());
+                alg = minMax;
+            } else {
+                ParallelMinMax parallelMinMax = new ParallelMinMax(threads, mt);
+                parallelMinMax.setMoveOrdering(moveOrdering);
+                playerStats.get(i).add(parallelMinMax.getStats());
+                parallelMinMaxes.add(parallelMinMax);
+                alg = parallelMinMax;
+            }
+            break;
+        case MCTS:
+            alg = new MCTS(mt);
+            break;
+        default:
+            throw new UnsupportedOperationException("Something went wrong! This program point should be unreachable!");
+        }
+        return tablebase != null ? new PerfectPlay(tablebase, alg) : alg;
+    }
+
+    /**
+     * <p>Builds the tournament (-tn or --tournament) CLI option.</p>
+     * 
+     * <p>Construye la opcion CLI -tn.</p>
+     * 
+     * @return <p>CLI {@link Option} for the tournament option.</p>
+     *         <p>Objeto {@link Option} de esta opcion.</p>
+     */
+    private static Option constructTournamentOption() {
+        Option opt = new Option("tn", "tournament", true,
+                "Play a headless tournament of GAMES games between the players given with -p (which cannot be manual), "
+                        + "CONCURRENCY of them at the same time (by default, one per processor). "
+                        + "It must have the form GAMES or GAMESxCONCURRENCY.");
+        opt.setArgName("games");
+        return opt;
+    }
+
+    /**
+     * <p>Parses the tournament option (-tn or --tournament). It sets the value
+     * of {@link #tournamentGames} and {@link #tournamentConcurrency}
+     * accordingly. The value is GAMES or GAMESxCONCURRENCY.</p>
+     * 
+     * <p>Extrae la opcion -tn. Asigna el valor de los atributos
+     * {@link #tournamentGames} y {@link #tournamentConcurrency}. El valor es
+     * de la forma GAMES o GAMESxCONCURRENCY.</p>
+     * 
+     * @param line
+     *            <p>CLI {@link CommandLine} object.</p>
+     * @throws ParseException
+     *             <p>If an invalid value is provided.</p>
+     *             <p>Si se proporciona un valor invalido.</p>
+     */
+    private static void parseTournamentOption(CommandLine line) throws ParseException {
+        String tnVal = line.getOptionValue("tn");
+        if (tnVal != null) {
+            try {
+                String[] tn = tnVal.split("x");
+                if (tn.length == 1 || tn.length == 2) {
+                    tournamentGames = Integer.parseInt(tn[0]);
+                    tournamentConcurrency = tn.length == 2 ? Integer.parseInt(tn[1])
+                            : Runtime.getRuntime().availableProcessors();
+                } else {
+                    throw new ParseException("Invalid tournament: " + tnVal);
+                }
+            } catch (NumberFormatException e) {
+                throw new ParseException("Invalid tournament: " + tnVal);
+            }
+            if (tournamentGames < 1 || tournamentConcurrency < 1) {
+                throw new ParseException("Invalid tournament: " + tnVal);
+            }
+            if (playerModes.contains(PlayerMode.MANUAL)) {
+                throw new ParseException("Manual players cannot play in a tournament");
+            }
+        }
+    }
+
+    /**
+     * <p>Builds the time control (-tc or --time-control) CLI option.</p>
+     * 
+     * <p>Construye la opcion CLI -tc.</p>
+     * 
+     * @return <p>CLI {@link Option} for the time control option.</p>
+     *         <p>Objeto {@link Option} de esta opcion.</p>
+     */
+    private static Option constructTimeControlOption() {
+        Option opt = new Option("tc", "time-control", true,
+                "Play with a clock per player, with BASE milliseconds and INCREMENT more milliseconds after each move "
+                        + "(0 by default). The automatic players share out the time left between their moves. "
+                        + "It must have the form BASE or BASE+INCREMENT (not valid with manual players).");
+        opt.setArgName("time");
+        return opt;
+    }
+
+    /**
+     * <p>Builds the timeout (-to or --on-timeout) CLI option.</p>
+     * 
+     * <p>Construye la opcion CLI -to.</p>
+     * 
+     * @return <p>CLI {@link Option} for the timeout option.</p>
+     *         <p>Objeto {@link Option} de esta opcion.</p>
+     */
+    private static Option constructTimeoutOption() {
+        Option opt = new Option("to", "on-timeout", true,
+                "What happens when a player runs out of time (valid only with -tc): 'forfeit' (the player loses, "
+                        + "by default) or 'fallback' (its first valid move is played instead).");
+        opt.setArgName("policy");
+        return opt;
+    }
+
+    /**
+     * <p>Parses the time control (-tc or --time-control) and timeout (-to or
+     * --on-timeout) options. It sets the value of {@link #clockBase},
+     * {@link #clockIncrement} and {@link #timeoutPolicy} accordingly. The
+     * value of -tc is BASE or BASE+INCREMENT.</p>
+     * 
+     * <p>Extrae las opciones -tc y -to. Asigna el valor de los atributos
+     * {@link #clockBase}, {@link #clockIncrement} y {@link #timeoutPolicy}.
+     * El valor de -tc es de la forma BASE o BASE+INCREMENT.</p>
+     * 
+     * @param line
+     *            <p>CLI {@link CommandLine} object.</p>
+     * @throws ParseException
+     *             <p>If an invalid value is provided.</p>
+     *             <p>Si se proporciona un valor invalido.</p>
+     */
+    private static void parseTimeControlOption(CommandLine line) throws ParseException {
+        String tcVal = line.getOptionValue("tc");
+        String toVal = line.getOptionValue("to");
+        if (tcVal == null) {
+            if (toVal != null) {
+                throw new ParseException("The option -to requires -tc");
+            }
+            return;
+        }
+        try {
+            String[] tc = tcVal.split("\\+");
+            if (tc.length == 1 || tc.length == 2) {
+                clockBase = Long.parseLong(tc[0]);
+                clockIncrement = tc.length == 2 ? Long.parseLong(tc[1]) : 0;
+            } else {
+                throw new ParseException("Invalid time control: " + tcVal);
+            }
+        } catch (NumberFormatException e) {
+            throw new ParseException("Invalid time control: " + tcVal);
+        }
+        if (clockBase < 1 || clockIncrement < 0) {
+            throw new ParseException("Invalid time control: " + tcVal);
+        }
+        if (toVal == null || toVal.equalsIgnoreCase("forfeit")) {
+            timeoutPolicy = Game.TimeoutPolicy.Forfeit;
+        } else if (toVal.equalsIgnoreCase("fallback")) {
+            timeoutPolicy = Game.TimeoutPolicy.Fallback;
+        } else {
+            throw new ParseException("Invalid timeout policy: " + toVal);
+        }
+        if (playerModes.contains(PlayerMode.MANUAL)) {
+            throw new ParseException("Manual players cannot play with a clock");
+        }
+    }
+
+    /**
+     * <p>Builds the book (-bk or --book) CLI option.</p>
+     * 
+     * <p>Construye la opcion CLI -bk.</p>
+     * 
+     * @return <p>CLI {@link Option} for the book option.</p>
+     *         <p>Objeto {@link Option} de esta opcion.</p>
+     */
+    private static Option constructBookOption() {
+        Option opt = new Option("bk", "book", true,
+                "Let the automatic players play the moves of an opening book while the game is in it. "
+                        + "The book must be of the game being played (see BookTool).");
+        opt.setArgName("file");
+        return opt;
+    }
+
+    /**
+     * <p>Parses the book option (-bk or --book). It opens the book and sets
+     * the value of {@link #book} accordingly. Should be called after
+     * {@link #parseGameOption(CommandLine)}, since the book must be of the
+     * game being played.</p>
+     * 
+     * <p>Extrae la opcion -bk. Abre el libro y asigna el valor de
+     * {@link #book}. Se debe llamar despues de
+     * {@link #parseGameOption(CommandLine)}, ya que el libro debe ser del
+     * juego al que se juega.</p>
+     * 
+     * @param line
+     *            <p>CLI {@link CommandLine} object.</p>
+     * @throws ParseException
+     *             <p>If the book cannot be opened or it is of another
+     *             game.</p>
+     *             <p>Si no se puede abrir el libro o es de otro juego.</p>
+     */
+    private static void parseBookOption(CommandLine line) throws ParseException {
+        String bkVal = line.getOptionValue("bk");
+        if (bkVal == null) {
+            return;
+        }
+        try {
+            book = OpeningBook.open(Paths.get(bkVal));
+        } catch (IOException | GameError e) {
+            throw new ParseException("Invalid opening book '" + bkVal + "': " + e.getLocalizedMessage());
+        }
+        if (!book.getGameDesc().equals(gameFactory.gameRules().gameDesc())) {
+            throw new ParseException("The opening book '" + bkVal + "' is of another game: " + book.getGameDesc());
+        }
+    }
+
+    /**
+     * <p>Builds the tablebase (-tb or --tablebase) CLI option.</p>
+     * 
+     * <p>Construye la opcion CLI -tb.</p>
+     * 
+     * @return <p>CLI {@link Option} for the tablebase option.</p>
+     *         <p>Objeto {@link Option} de esta opcion.</p>
+     */
+    private static Option constructTablebaseOption() {
+        Option opt = new Option("tb", "tablebase", true,
+                "Let the automatic players play perfectly with a tablebase of the game being played "
+                        + "(see TablebaseTool), using the algorithm of -ai only for the positions out of it.");
+        opt.setArgName("file");
+        return opt;
+    }
+
+    /**
+     * <p>Parses the tablebase option (-tb or --tablebase). It opens the
+     * {@link #tablebase}, with which the algorithms of the automatic players
+     * are wrapped in a {@link PerfectPlay}. Should be called after
+     * {@link #parseGameOption(CommandLine)}.</p>
+     * 
+     * <p>Extrae la opcion -tb. Abre la {@link #tablebase}, con la que los
+     * algoritmos de los jugadores automaticos se encapsulan en un
+     * {@link PerfectPlay}. Se debe llamar despues de
+     * {@link #parseGameOption(CommandLine)}.</p>
+     * 
+     * @param line
+     *            <p>CLI {@link CommandLine} object.</p>
+     * @throws ParseException
+     *             <p>If the tablebase cannot be opened or it is of another
+     *             game.</p>
+     *             <p>Si no se puede abrir la tabla o es de otro juego.</p>
+     */
+    private static void parseTablebaseOption(CommandLine line) throws ParseException {
+        String tbVal = line.getOptionValue("tb");
+        if (tbVal == null) {
+            return;
+        }
+        try {
+            tablebase = Tablebase.open(Paths.get(tbVal));
+        } catch (IOException | GameError e) {
+            throw new ParseException("Invalid tablebase '" + tbVal + "': " + e.getLocalizedMessage());
+        }
+        if (!tablebase.getGameDesc().equals(gameFactory.gameRules().gameDesc())) {
+            throw new ParseException("The tablebase '" + tbVal + "' is of another game: " + tablebase.getGameDesc());
+        }
+    }
+
+    /**
+     * <p>Builds the n-tuple network (-nt or --ntuple) CLI option.</p>
+     * 
+     * <p>Construye la opcion CLI -nt.</p>
+     * 
+     * @return <p>CLI {@link Option} for the n-tuple network option.</p>
+     *         <p>Objeto {@link Option} de esta opcion.</p>
+     */
+    private static Option constructNTupleOption() {
+        Option opt = new Option("nt", "ntuple", true,
+                "Evaluate the Ataxx boards with an n-tuple network trained by NTupleTool, "
+                        + "instead of the built-in evaluation.");
+        opt.setArgName("file");
+        return opt;
+    }
+
+    /**
+     * <p>Parses the n-tuple network option (-nt or --ntuple). It maps the
+     * weights file and sets the network on the Ataxx factory. Should be called
+     * after {@link #parseGameOption(CommandLine)}.</p>
+     * 
+     * <p>Extrae la opcion -nt. Proyecta el fichero de pesos y establece la red
+     * en la factoria de Ataxx. Se debe llamar despues de
+     * {@link #parseGameOption(CommandLine)}.</p>
+     * 
+     * @param line
+     *            <p>CLI {@link CommandLine} object.</p>
+     * @throws ParseException
+     *             <p>If the game is not Ataxx or the network cannot be
+     *             opened.</p>
+     *             <p>Si el juego no es Ataxx o no se puede abrir la red.</p>
+     */
+    private static void parseNTupleOption(CommandLine line) throws ParseException {
+        String ntVal = line.getOptionValue("nt");
+        if (ntVal == null) {
+            return;
+        }
+        if (!(gameFactory instanceof AtaxxFactory)) {
+            throw new ParseException("The option -nt can only be used with the game ataxx");
+        }
+        try {
+            ((AtaxxFactory) gameFactory).setNetwork(NTupleNetwork.open(Paths.get(ntVal)));
+        } catch (IOException | GameError e) {
+            throw new ParseException("Invalid n-tuple network '" + ntVal + "': " + e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * <p>Wraps an automatic player in a {@link BookPlayer} if the option -bk
+     * was provided.</p>
+     * 
+     * <p>Encapsula un jugador automatico en un {@link BookPlayer} si se
+     * incluye la opcion -bk.</p>
+     */
+    private static Player withBook(Player player) {
+        return book != null ? new BookPlayer(book, player) : player;
+    }
+
     /**
      * <p>Builds the help (-h or --help) CLI option.</p>
      * 
@@ -665,7 +1489,7 @@ public class Main {
             for (int i = 0; i < pieces.size(); i++) {
                 switch (playerModes.get(i)) {
                 case AI:
-                    players.add(gameFactory.createAIPlayer(aiPlayerAlg));
+                    players.add(gameFactory.createAIPlayer(createAlgorithm(i)));
                     break;
                 case MANUAL:
                     players.add(gameFactory.createConsolePlayer());
@@ -701,6 +1525,9 @@ public class Main {
      */
     public static void startGame() {
         Game g = new Game(gameFactory.gameRules());
+        if (clockBase != null) {
+            g.setClock(new GameClock(clockBase, clockIncrement), timeoutPolicy);
+        }
         Controller c = null;
 
         switch (view) {
@@ -709,7 +1536,13 @@ public class Main {
             for (int i = 0; i < pieces.size(); i++) {
                 switch (playerModes.get(i)) {
                 case AI:
-                    players.add(gameFactory.createAIPlayer(aiPlayerAlg));
+                    if (ponder) {
+                        PonderingAIPlayer player = new PonderingAIPlayer(createAlgorithm(i));
+                        g.addObserver(player);
+                        players.add(withBook(player));
+                    } else {
+                        players.add(withBook(gameFactory.createAIPlayer(createAlgorithm(i))));
+                    }
                     break;
                 case MANUAL:
                     players.add(gameFactory.createConsolePlayer());
@@ -735,12 +1568,77 @@ public class Main {
         c.start();
     }
 
+    /**
+     * <p>Plays a headless {@link Tournament} between the players given with the
+     * -p option and prints the results. Each of the concurrent games is played
+     * with new automatic players (see {@link #createAlgorithm(int)}). Should
+     * be called after {@link #parseArgs(String[])} so that the fields are set
+     * to the right values.</p>
+     * 
+     * <p>Juega un {@link Tournament} sin interfaz entre los jugadores
+     * proporcionados con la opcion -p e imprime los resultados. Cada una de
+     * las partidas concurrentes se juega con nuevos jugadores automaticos
+     * (ver {@link #createAlgorithm(int)}). Se debe llamar despues de
+     * {@link #parseArgs(String[])} para que los atributos tengan los valores
+     * correctos.</p>
+     */
+    public static void startTournament() {
+        ArrayList<String> names = new ArrayList<String>();
+        for (int i = 0; i < pieces.size(); i++) {
+            String name = pieces.get(i) + ":" + playerModes.get(i).getId();
+            if (playerModes.get(i) == PlayerMode.AI) {
+                name += ":" + algorithmOf(i).getId() + ":" + moveTimeOf(i);
+            }
+            names.add(name);
+        }
+
+        Tournament t = new Tournament(gameFactory, pieces, new Tournament.Lineup() {
+            @Override
+            public List<Player> create() {
+                ArrayList<Player> players = new ArrayList<Player>();
+                for (int i = 0; i < pieces.size(); i++) {
+                    switch (playerModes.get(i)) {
+                    case AI:
+                        players.add(withBook(gameFactory.createAIPlayer(createAlgorithm(i))));
+                        break;
+                    case RANDOM:
+                        players.add(gameFactory.createRandomPlayer());
+                        break;
+                    default:
+                        throw new UnsupportedOperationException(
+                                "Something went wrong! This program point should be unreachable!");
+                    }
+                }
+                return players;
+            }
+        });
+        if (clockBase != null) {
+            t.setTimeControl(clockBase, clockIncrement, timeoutPolicy);
+        }
+        System.out.println("Playing " + tournamentGames + " games of " + gameFactory.gameRules().gameDesc() + ", "
+                + tournamentConcurrency + " at a time...");
+        System.out.print(t.play(tournamentGames, tournamentConcurrency).report(names));
+        for (int i = 0; i < playerStats.size(); i++) {
+            SearchStats stats = new SearchStats();
+            for (SearchStats s : playerStats.get(i)) {
+                stats.add(s);
+            }
+            if (stats.getNodes() > 0) {
+                System.out.println("Search of " + names.get(i) + ": " + stats);
+            }
+        }
+    }
+
     /**
      * <p>The main method. It calls {@link #parseArgs(String[])} and then
-     * {@link #startGame()}.</p>
+     * {@link #startGame()}, or {@link #startTournament()} if the -tn option
+     * was provided. Then it shuts down the threads of the automatic
+     * players.</p>
      * 
      * <p>Metodo main. Llama a {@link #parseArgs(String[])} y a continuacion inicia
-     * un juego con {@link #startGame()}.</p>
+     * un juego con {@link #startGame()}, o un torneo con
+     * {@link #startTournament()} si se proporciono la opcion -tn. Despues
+     * detiene las hebras de los jugadores automaticos.</p>
      * 
      * @param args
      *            <p>Command-line arguments.</p>
@@ -748,7 +1646,17 @@ public class Main {
      */
     public static void main(String[] args) {
         parseArgs(args);
-        startGame();
+        try {
+            if (tournamentGames != null) {
+                startTournament();
+            } else {
+                startGame();
+            }
+        } finally {
+            for (ParallelMinMax parallelMinMax : parallelMinMaxes) {
+                parallelMinMax.shutdown();
+            }
+        }
     }
 
 }
@@ -0,0 +1,761 @@
+package es.ucm.fdi.tp.assignment4.ataxx;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import es.ucm.fdi.tp.basecode.bgame.model.BasicBoard;
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.GameError;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveList;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveVisitor;
+import es.ucm.fdi.tp.basecode.bgame.model.PackedMove;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * <p>A {@link Board} for Ataxx that stores the cells of each piece (players and
+ * obstacles) as bit masks. Cell {@code (row, col)} is bit {@code row*cols+col}
+ * of a 128 bit mask kept in two {@code long} words ({@code lo} for bits 0..63
+ * and {@code hi} for bits 64..127), so boards up to {@link #MAX_DIM}x
+ * {@link #MAX_DIM} are supported. Move generation, clone spreading and
+ * infection are computed with shift-and-mask operations instead of visiting
+ * every cell.</p>
+ *
+ * <p>Un {@link Board} para Ataxx que almacena las casillas de cada ficha
+ * (jugadores y obstaculos) como mascaras de bits. La casilla
+ * {@code (row, col)} es el bit {@code row*cols+col} de una mascara de 128 bits
+ * guardada en dos palabras {@code long} ({@code lo} para los bits 0..63 y
+ * {@code hi} para los bits 64..127), por lo que se admiten tableros de hasta
+ * {@link #MAX_DIM}x{@link #MAX_DIM}. La generacion de movimientos, la
+ * clonacion y la infeccion se calculan con operaciones de desplazamiento y
+ * mascara en lugar de recorrer todas las casillas.</p>
+ */
+public class AtaxxBitboard extends BasicBoard implements AtaxxCounters {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * <p>Maximum number of rows and columns of a bitboard.</p>
+	 * <p>Numero maximo de filas y columnas de un bitboard.</p>
+	 */
+	public static final int MAX_DIM = 9;
+
+	/**
+	 * <p>Maximum number of different pieces (players and obstacles) that can be
+	 * placed on a bitboard.</p>
+	 * <p>Numero maximo de fichas distintas (jugadores y obstaculos) que se
+	 * pueden colocar en un bitboard.</p>
+	 */
+	private static final int MAX_SLOTS = 8;
+
+	/**
+	 * <p>Precomputed masks that only depend on the size of the board. They are
+	 * never modified, so copies of a board share them.</p>
+	 * <p>Mascaras precalculadas que solo dependen de la dimension del tablero. No se
+	 * modifican nunca, por lo que las copias de un tablero las comparten.</p>
+	 */
+	private static final class Geometry implements java.io.Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int rows;
+		private final int cols;
+		private final int numOfCells;
+
+		// all the cells of the board
+		private final long boardLo, boardHi;
+
+		// all the cells but those of the first/last column
+		private final long notFirstColLo, notFirstColHi;
+		private final long notLastColLo, notLastColHi;
+
+		// for each cell, its neighbours at distance 1 and at distance 1 or 2
+		private final long[] near1Lo, near1Hi;
+		private final long[] near2Lo, near2Hi;
+
+		private Geometry(int rows, int cols) {
+			this.rows = rows;
+			this.cols = cols;
+			this.numOfCells = rows * cols;
+
+			long bLo = 0, bHi = 0, fLo = 0, fHi = 0, lLo = 0, lHi = 0;
+			for (int i = 0; i < numOfCells; i++) {
+				int col = i % cols;
+				if (i < 64) {
+					bLo |= 1L << i;
+					fLo |= (col != 0) ? 1L << i : 0;
+					lLo |= (col != cols - 1) ? 1L << i : 0;
+				} else {
+					bHi |= 1L << (i - 64);
+					fHi |= (col != 0) ? 1L << (i - 64) : 0;
+					lHi |= (col != cols - 1) ? 1L << (i - 64) : 0;
+				}
+			}
+			boardLo = bLo;
+			boardHi = bHi;
+			notFirstColLo = fLo;
+			notFirstColHi = fHi;
+			notLastColLo = lLo;
+			notLastColHi = lHi;
+
+			near1Lo = new long[numOfCells];
+			near1Hi = new long[numOfCells];
+			near2Lo = new long[numOfCells];
+			near2Hi = new long[numOfCells];
+			for (int i = 0; i < numOfCells; i++) {
+				int row = i / cols;
+				int col = i % cols;
+				for (int r = row - 2; r <= row + 2; r++) {
+					for (int c = col - 2; c <= col + 2; c++) {
+						if (r >= 0 && r < rows && c >= 0 && c < cols && (r != row || c != col)) {
+							int j = r * cols + c;
+							boolean adjacent = Math.abs(r - row) <= 1 && Math.abs(c - col) <= 1;
+							if (j < 64) {
+								near2Lo[i] |= 1L << j;
+								near1Lo[i] |= adjacent ? 1L << j : 0;
+							} else {
+								near2Hi[i] |= 1L << (j - 64);
+								near1Hi[i] |= adjacent ? 1L << (j - 64) : 0;
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private Geometry geometry;
+
+	/**
+	 * <p>The pieces placed on the board. The index of a piece in this array is
+	 * its slot, which indexes {@link #maskLo} and {@link #maskHi}.</p>
+	 * <p>Las fichas colocadas en el tablero. El indice de una ficha en este array
+	 * es su posicion, que indexa {@link #maskLo} y {@link #maskHi}.</p>
+	 */
+	private Piece[] slots;
+	private int numOfSlots;
+
+	/**
+	 * <p>The slot of each piece, indexed by its ordinal, or -1 if it has no
+	 * slot. It is not serialized, since ordinals depend on the run: it is
+	 * rebuilt from {@link #slots} when the board is read.</p>
+	 * <p>La posicion de cada ficha, indexada por su ordinal, o -1 si no tiene
+	 * posicion. No se serializa, ya que los ordinales dependen de la
+	 * ejecucion: se reconstruye a partir de {@link #slots} al leer el
+	 * tablero.</p>
+	 */
+	private transient int[] slotOfOrdinal;
+
+	/**
+	 * <p>Whether the piece in each slot is one of {@link #players}, the
+	 * pieces of the players given to the last call of {@link #infect}, so
+	 * that the infection reads a flag instead of searching each neighbour in
+	 * the list. It is rebuilt when {@link #infect} gets another list.</p>
+	 * <p>Si la ficha de cada posicion es una de {@link #players}, las fichas
+	 * de los jugadores recibidas en la ultima llamada a {@link #infect}, para
+	 * que la infeccion lea un indicador en lugar de buscar cada vecina en la
+	 * lista. Se reconstruye cuando {@link #infect} recibe otra lista.</p>
+	 */
+	private transient boolean[] isPlayer;
+	private transient List<Piece> players;
+
+	/**
+	 * <p>The cells occupied by the piece in each slot.</p>
+	 * <p>Casillas ocupadas por la ficha de cada posicion.</p>
+	 */
+	private long[] maskLo;
+	private long[] maskHi;
+
+	/**
+	 * <p>The slot of the piece at each cell, or -1 if the cell is empty.</p>
+	 * <p>La posicion de la ficha de cada casilla, o -1 si esta vacia.</p>
+	 */
+	private byte[] cells;
+
+	/**
+	 * <p>The mobility and the number of frontier cells (see
+	 * {@link AtaxxCounters}) of the piece in each slot.</p>
+	 * <p>La movilidad y el numero de casillas frontera (ver
+	 * {@link AtaxxCounters}) de la ficha de cada posicion.</p>
+	 */
+	private int[] mobility;
+	private int[] frontier;
+
+	/**
+	 * <p>The adjacency of the pieces of each pair of slots {@code (s, t)}, at
+	 * index {@code s*MAX_SLOTS+t}.</p>
+	 * <p>La adyacencia de las fichas de cada par de posiciones
+	 * {@code (s, t)}, en el indice {@code s*MAX_SLOTS+t}.</p>
+	 */
+	private int[] adjacency;
+
+	/**
+	 * <p>All the occupied cells.</p>
+	 * <p>Todas las casillas ocupadas.</p>
+	 */
+	private long occupiedLo;
+	private long occupiedHi;
+
+	/**
+	 * <p>Number of occupied cells.</p>
+	 * <p>Numero de casillas ocupadas.</p>
+	 */
+	private int occupied;
+
+	/**
+	 * <p>Checks if a bitboard can represent a board of the given size.</p>
+	 * <p>Comprueba si un bitboard puede representar un tablero de la dimension
+	 * dada.</p>
+	 *
+	 * @param rows
+	 *            <p>Number of rows.</p>
+	 *            <p>Numero de filas.</p>
+	 * @param cols
+	 *            <p>Number of columns.</p>
+	 *            <p>Numero de columnas.</p>
+	 * @return <p>{@code true} if the size is supported.</p>
+	 *         <p>{@code true} si la dimension esta soportada.</p>
+	 */
+	public static boolean supports(int rows, int cols) {
+		return rows > 0 && cols > 0 && rows <= MAX_DIM && cols <= MAX_DIM;
+	}
+
+	/**
+	 * <p>Constructs an empty bitboard.</p>
+	 * <p>Construye un bitboard vacio.</p>
+	 *
+	 * @param rows
+	 *            <p>Number of rows.</p>
+	 *            <p>Numero de filas.</p>
+	 * @param cols
+	 *            <p>Number of columns.</p>
+	 *            <p>Numero de columnas.</p>
+	 */
+	public AtaxxBitboard(int rows, int cols) {
+		if (!supports(rows, cols)) {
+			throw new GameError("Invalid bitboard size (" + rows + "," + cols + "), the maximum is " + MAX_DIM + "x"
+					+ MAX_DIM);
+		}
+		this.geometry = new Geometry(rows, cols);
+		this.slots = new Piece[MAX_SLOTS];
+		this.slotOfOrdinal = new int[0];
+		this.isPlayer = new boolean[MAX_SLOTS];
+		this.maskLo = new long[MAX_SLOTS];
+		this.maskHi = new long[MAX_SLOTS];
+		this.cells = new byte[geometry.numOfCells];
+		Arrays.fill(cells, (byte) -1);
+		this.mobility = new int[MAX_SLOTS];
+		this.frontier = new int[MAX_SLOTS];
+		this.adjacency = new int[MAX_SLOTS * MAX_SLOTS];
+	}
+
+	/**
+	 * <p>Copy constructor, used by {@link #copy()}.</p>
+	 * <p>Constructor de copia, usado por {@link #copy()}.</p>
+	 */
+	private AtaxxBitboard(AtaxxBitboard other) {
+		other.copyTo(this);
+		this.geometry = other.geometry;
+		this.slots = other.slots.clone();
+		this.numOfSlots = other.numOfSlots;
+		this.slotOfOrdinal = other.slotOfOrdinal.clone();
+		this.isPlayer = other.isPlayer.clone();
+		this.players = other.players;
+		this.maskLo = other.maskLo.clone();
+		this.maskHi = other.maskHi.clone();
+		this.cells = other.cells.clone();
+		this.mobility = other.mobility.clone();
+		this.frontier = other.frontier.clone();
+		this.adjacency = other.adjacency.clone();
+		this.occupiedLo = other.occupiedLo;
+		this.occupiedHi = other.occupiedHi;
+		this.occupied = other.occupied;
+	}
+
+	@Override
+	public int getRows() {
+		return geometry.rows;
+	}
+
+	@Override
+	public int getCols() {
+		return geometry.cols;
+	}
+
+	private int cellIndex(int row, int col) {
+		if (row < 0 || row >= geometry.rows || col < 0 || col >= geometry.cols) {
+			throw new GameError("Trying to access an invalid position (" + row + "," + col + ")");
+		}
+		return row * geometry.cols + col;
+	}
+
+	@Override
+	public Piece getPosition(int row, int col) {
+		int s = cells[cellIndex(row, col)];
+		return s < 0 ? null : slots[s];
+	}
+
+	@Override
+	public void setPosition(int row, int col, Piece p) {
+		int cell = cellIndex(row, col);
+		setCell(cell, p == null ? -1 : slotFor(p));
+	}
+
+	/**
+	 * <p>Places the piece of slot {@code slot} (or nothing if it is -1) at
+	 * {@code cell}. All modifications of the board go through this method.</p>
+	 * <p>Coloca la ficha de la posicion {@code slot} (o nada si es -1) en
+	 * {@code cell}. Todas las modificaciones del tablero pasan por este
+	 * metodo.</p>
+	 */
+	private void setCell(int cell, int slot) {
+		int old = cells[cell];
+		if (old == slot) {
+			return;
+		}
+		positionChanged(cell / geometry.cols, cell % geometry.cols, old < 0 ? null : slots[old],
+				slot < 0 ? null : slots[slot]);
+		updateFeatures(cell, old, slot);
+		long bitLo = cell < 64 ? 1L << cell : 0;
+		long bitHi = cell < 64 ? 0 : 1L << (cell - 64);
+		if (old >= 0) {
+			maskLo[old] &= ~bitLo;
+			maskHi[old] &= ~bitHi;
+		} else {
+			occupied++;
+			occupiedLo |= bitLo;
+			occupiedHi |= bitHi;
+		}
+		if (slot >= 0) {
+			maskLo[slot] |= bitLo;
+			maskHi[slot] |= bitHi;
+		} else {
+			occupied--;
+			occupiedLo &= ~bitLo;
+			occupiedHi &= ~bitHi;
+		}
+		cells[cell] = (byte) slot;
+	}
+
+	/**
+	 * <p>Updates the mobility, frontier and adjacency counters before the
+	 * piece at {@code cell} changes from slot {@code old} to slot
+	 * {@code slot} (-1 for empty). Only the cells at distance 1 or 2 are
+	 * looked at, with one mask operation per slot.</p>
+	 * <p>Actualiza los contadores de movilidad, frontera y adyacencia antes de
+	 * que la ficha de {@code cell} cambie de la posicion {@code old} a la
+	 * posicion {@code slot} (-1 para vacia). Solo se miran las casillas a
+	 * distancia 1 o 2, con una operacion de mascara por posicion.</p>
+	 */
+	private void updateFeatures(int cell, int old, int slot) {
+		Geometry g = geometry;
+		long near1Lo = g.near1Lo[cell], near1Hi = g.near1Hi[cell];
+		long near2Lo = g.near2Lo[cell], near2Hi = g.near2Hi[cell];
+		long emptyLo = ~occupiedLo & g.boardLo, emptyHi = ~occupiedHi & g.boardHi;
+		boolean emptied = slot < 0;
+		boolean filled = old < 0;
+
+		for (int t = 0; t < numOfSlots; t++) {
+			int n1 = Long.bitCount(maskLo[t] & near1Lo) + Long.bitCount(maskHi[t] & near1Hi);
+			if (!filled) {
+				adjacency[old * MAX_SLOTS + t] -= n1;
+				adjacency[t * MAX_SLOTS + old] -= n1;
+			}
+			if (!emptied) {
+				adjacency[slot * MAX_SLOTS + t] += n1;
+				adjacency[t * MAX_SLOTS + slot] += n1;
+			}
+			if (filled || emptied) {
+				// the pieces around gain or lose an empty cell at distance 1 or 2
+				int n2 = Long.bitCount(maskLo[t] & near2Lo) + Long.bitCount(maskHi[t] & near2Hi);
+				mobility[t] += emptied ? n2 : -n2;
+			}
+		}
+
+		// the empty cells around the cell itself do not change
+		int empty1 = Long.bitCount(near1Lo & emptyLo) + Long.bitCount(near1Hi & emptyHi);
+		int empty2 = Long.bitCount(near2Lo & emptyLo) + Long.bitCount(near2Hi & emptyHi);
+		if (!filled) {
+			mobility[old] -= empty2;
+			frontier[old] -= empty1 > 0 ? 1 : 0;
+		}
+		if (!emptied) {
+			mobility[slot] += empty2;
+			frontier[slot] += empty1 > 0 ? 1 : 0;
+		}
+
+		// the pieces around whose only empty neighbour is filled leave the
+		// frontier, those without empty neighbours enter it when it is emptied
+		if (filled || emptied) {
+			int before = emptied ? 0 : 1;
+			for (int k = 0; k < 2; k++) {
+				for (long m = k == 0 ? near1Lo & occupiedLo : near1Hi & occupiedHi; m != 0; m &= m - 1) {
+					int n = 64 * k + Long.numberOfTrailingZeros(m);
+					if (Long.bitCount(g.near1Lo[n] & emptyLo) + Long.bitCount(g.near1Hi[n] & emptyHi) == before) {
+						frontier[cells[n]] += emptied ? 1 : -1;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>Records that {@code p} has the slot {@code s}.</p>
+	 * <p>Registra que {@code p} tiene la posicion {@code s}.</p>
+	 */
+	private void mapSlot(Piece p, int s) {
+		int o = p.getOrdinal();
+		if (o >= slotOfOrdinal.length) {
+			int n = slotOfOrdinal.length;
+			slotOfOrdinal = Arrays.copyOf(slotOfOrdinal, o + 1);
+			Arrays.fill(slotOfOrdinal, n, o + 1, -1);
+		}
+		slotOfOrdinal[o] = s;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		slotOfOrdinal = new int[0];
+		isPlayer = new boolean[MAX_SLOTS];
+		for (int s = 0; s < numOfSlots; s++) {
+			mapSlot(slots[s], s);
+		}
+	}
+
+	/**
+	 * <p>Returns the slot of {@code p}, or -1 if it was never placed on the
+	 * board.</p>
+	 * <p>Devuelve la posicion de {@code p}, o -1 si nunca se ha colocado en el
+	 * tablero.</p>
+	 */
+	private int slotOf(Piece p) {
+		int o = p.getOrdinal();
+		return o < slotOfOrdinal.length ? slotOfOrdinal[o] : -1;
+	}
+
+	/**
+	 * <p>Like {@link #slotOf(Piece)}, but assigns a new slot to {@code p} if it
+	 * does not have one yet.</p>
+	 * <p>Como {@link #slotOf(Piece)}, pero asigna una nueva posicion a {@code p}
+	 * si aun no tiene una.</p>
+	 */
+	private int slotFor(Piece p) {
+		int s = slotOf(p);
+		if (s < 0) {
+			if (numOfSlots == MAX_SLOTS) {
+				throw new GameError("Too many different pieces on the board, the maximum is " + MAX_SLOTS);
+			}
+			s = numOfSlots++;
+			slots[s] = p;
+			mapSlot(p, s);
+			isPlayer[s] = players != null && players.contains(p);
+		}
+		return s;
+	}
+
+	/**
+	 * <p>Updates {@link #isPlayer} if {@code pieces} is not the list of
+	 * {@link #players}.</p>
+	 * <p>Actualiza {@link #isPlayer} si {@code pieces} no es la lista de
+	 * {@link #players}.</p>
+	 */
+	private void setPlayers(List<Piece> pieces) {
+		if (pieces != players) {
+			players = pieces;
+			for (int s = 0; s < numOfSlots; s++) {
+				isPlayer[s] = pieces.contains(slots[s]);
+			}
+		}
+	}
+
+	@Override
+	public boolean isFull() {
+		return occupied == geometry.numOfCells;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return occupied == 0;
+	}
+
+	@Override
+	public Board copy() {
+		return new AtaxxBitboard(this);
+	}
+
+	/**
+	 * <p>Number of cells occupied by {@code p}.</p>
+	 * <p>Numero de casillas ocupadas por {@code p}.</p>
+	 *
+	 * @param p
+	 *            <p>A piece.</p>
+	 *            <p>Una ficha.</p>
+	 * @return <p>The number of cells occupied by {@code p}.</p>
+	 *         <p>El numero de casillas ocupadas por {@code p}.</p>
+	 */
+	public int count(Piece p) {
+		int s = slotOf(p);
+		return s < 0 ? 0 : Long.bitCount(maskLo[s]) + Long.bitCount(maskHi[s]);
+	}
+
+	/**
+	 * <p>Checks if {@code p} has at least one piece with an empty cell at
+	 * distance 1 or 2, i.e., if it can move.</p>
+	 * <p>Comprueba si {@code p} tiene al menos una ficha con una casilla vacia a
+	 * distancia 1 o 2, es decir, si puede mover.</p>
+	 *
+	 * @param p
+	 *            <p>A piece.</p>
+	 *            <p>Una ficha.</p>
+	 * @return <p>{@code true} if {@code p} can move.</p>
+	 *         <p>{@code true} si {@code p} puede mover.</p>
+	 */
+	public boolean canMove(Piece p) {
+		int s = slotOf(p);
+		if (s < 0) {
+			return false;
+		}
+		// the cells at distance 2 are the dilation of the dilation
+		long lo1 = dilateLo(maskLo[s], maskHi[s]);
+		long hi1 = dilateHi(maskLo[s], maskHi[s]);
+		long lo = dilateLo(lo1, hi1);
+		long hi = dilateHi(lo1, hi1);
+		return (lo & ~occupiedLo) != 0 || (hi & ~occupiedHi) != 0;
+	}
+
+	@Override
+	public int mobility(Piece p) {
+		int s = slotOf(p);
+		return s < 0 ? 0 : mobility[s];
+	}
+
+	@Override
+	public int frontier(Piece p) {
+		int s = slotOf(p);
+		return s < 0 ? 0 : frontier[s];
+	}
+
+	@Override
+	public int adjacency(Piece p, Piece q) {
+		int s = slotOf(p);
+		int t = slotOf(q);
+		return s < 0 || t < 0 ? 0 : adjacency[s * MAX_SLOTS + t];
+	}
+
+	/**
+	 * <p>Adds to {@code moves} the moves of {@code p} that lead to different
+	 * positions, in the same order as a row-major scan of the board: by origin,
+	 * and then by destination. A clone move (distance 1) gives the same
+	 * position from any origin, so each empty cell next to {@code p} gets a
+	 * single clone move, from its first neighbour of {@code p}. Every jump
+	 * (distance 2) is a different position and is always added.</p>
+	 * <p>Agrega a {@code moves} los movimientos de {@code p} que llevan a
+	 * posiciones distintas, en el mismo orden que un recorrido del tablero por
+	 * filas: por origen, y despues por destino. Un movimiento de clonacion
+	 * (distancia 1) da la misma posicion desde cualquier origen, por lo que
+	 * cada casilla vacia junto a {@code p} recibe un unico movimiento de
+	 * clonacion, desde su primera vecina de {@code p}. Cada salto (distancia
+	 * 2) es una posicion distinta y siempre se agrega.</p>
+	 *
+	 * @param p
+	 *            <p>The piece to move.</p>
+	 *            <p>La ficha a mover.</p>
+	 * @param moves
+	 *            <p>The list where the moves are added.</p>
+	 *            <p>La lista donde se agregan los movimientos.</p>
+	 */
+	public void addMoves(Piece p, List<GameMove> moves) {
+		MoveList packed = new MoveList();
+		visitMoves(p, packed);
+		for (int i = 0; i < packed.size(); i++) {
+			moves.add(AtaxxMove.unpack(packed.get(i), p));
+		}
+	}
+
+	/**
+	 * <p>Like {@link #addMoves(Piece, List)}, but passes the moves packed (see
+	 * {@link PackedMove}) to {@code visitor}, so no object is created, and
+	 * stops as soon as the visitor asks for it.</p>
+	 * <p>Como {@link #addMoves(Piece, List)}, pero pasa los movimientos
+	 * empaquetados (vease {@link PackedMove}) a {@code visitor}, por lo que no
+	 * se crea ningun objeto, y para en cuanto el visitante lo pide.</p>
+	 *
+	 * @param p
+	 *            <p>The piece to move.</p>
+	 *            <p>La ficha a mover.</p>
+	 * @param visitor
+	 *            <p>The visitor of the moves.</p>
+	 *            <p>El visitante de los movimientos.</p>
+	 * @return <p>{@code false} if the visitor stopped the enumeration.</p>
+	 *         <p>{@code false} si el visitante paro la enumeracion.</p>
+	 */
+	public boolean visitMoves(Piece p, MoveVisitor visitor) {
+		int s = slotOf(p);
+		if (s < 0) {
+			return true;
+		}
+		long emptyLo = ~occupiedLo & geometry.boardLo;
+		long emptyHi = ~occupiedHi & geometry.boardHi;
+		// the destinations of the clone moves already added
+		long clonedLo = 0;
+		long clonedHi = 0;
+		for (int k = 0; k < 2; k++) {
+			for (long m = k == 0 ? maskLo[s] : maskHi[s]; m != 0; m &= m - 1) {
+				int from = 64 * k + Long.numberOfTrailingZeros(m);
+				long near1Lo = geometry.near1Lo[from];
+				long near1Hi = geometry.near1Hi[from];
+				if (!visitMovesFrom(from, emptyLo & ~(clonedLo & near1Lo), emptyHi & ~(clonedHi & near1Hi), visitor)) {
+					return false;
+				}
+				clonedLo |= near1Lo & emptyLo;
+				clonedHi |= near1Hi & emptyHi;
+			}
+		}
+		return true;
+	}
+
+	private boolean visitMovesFrom(int from, long emptyLo, long emptyHi, MoveVisitor visitor) {
+		int cols = geometry.cols;
+		int fromRow = from / cols;
+		int fromCol = from % cols;
+		for (long m = geometry.near2Lo[from] & emptyLo; m != 0; m &= m - 1) {
+			int to = Long.numberOfTrailingZeros(m);
+			if (!visitor.visit(PackedMove.move(fromRow, fromCol, to / cols, to % cols))) {
+				return false;
+			}
+		}
+		for (long m = geometry.near2Hi[from] & emptyHi; m != 0; m &= m - 1) {
+			int to = 64 + Long.numberOfTrailingZeros(m);
+			if (!visitor.visit(PackedMove.move(fromRow, fromCol, to / cols, to % cols))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * <p>Number of moves that {@link #addMoves(Piece, List)} would add, computed
+	 * with masks and without creating any move: one clone move per empty cell
+	 * next to {@code p}, plus one jump per piece of {@code p} and empty cell at
+	 * distance 2.</p>
+	 * <p>Numero de movimientos que agregaria {@link #addMoves(Piece, List)},
+	 * calculado con mascaras y sin crear ningun movimiento: un movimiento de
+	 * clonacion por casilla vacia junto a {@code p}, mas un salto por ficha de
+	 * {@code p} y casilla vacia a distancia 2.</p>
+	 *
+	 * @param p
+	 *            <p>A piece.</p>
+	 *            <p>Una ficha.</p>
+	 * @return <p>The number of moves of {@code p}.</p>
+	 *         <p>El numero de movimientos de {@code p}.</p>
+	 */
+	public int countMoves(Piece p) {
+		int s = slotOf(p);
+		if (s < 0) {
+			return 0;
+		}
+		long emptyLo = ~occupiedLo & geometry.boardLo;
+		long emptyHi = ~occupiedHi & geometry.boardHi;
+		long lo = dilateLo(maskLo[s], maskHi[s]);
+		long hi = dilateHi(maskLo[s], maskHi[s]);
+		int n = Long.bitCount(lo & emptyLo) + Long.bitCount(hi & emptyHi);
+		for (int k = 0; k < 2; k++) {
+			for (long m = k == 0 ? maskLo[s] : maskHi[s]; m != 0; m &= m - 1) {
+				int from = 64 * k + Long.numberOfTrailingZeros(m);
+				n += Long.bitCount(geometry.near2Lo[from] & ~geometry.near1Lo[from] & emptyLo)
+						+ Long.bitCount(geometry.near2Hi[from] & ~geometry.near1Hi[from] & emptyHi);
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * <p>Converts to {@code p} all the pieces in {@code pieces}, other than
+	 * {@code p}, adjacent to ({@code row}, {@code col}).</p>
+	 * <p>Convierte en {@code p} todas las fichas de {@code pieces}, distintas de
+	 * {@code p}, adyacentes a ({@code row}, {@code col}).</p>
+	 *
+	 * @param row
+	 *            <p>Row of the infecting piece.</p>
+	 *            <p>Fila de la ficha que infecta.</p>
+	 * @param col
+	 *            <p>Column of the infecting piece.</p>
+	 *            <p>Columna de la ficha que infecta.</p>
+	 * @param p
+	 *            <p>The infecting piece.</p>
+	 *            <p>La ficha que infecta.</p>
+	 * @param pieces
+	 *            <p>The pieces of the players (obstacles are never
+	 *            infected).</p>
+	 *            <p>Las fichas de los jugadores (los obstaculos nunca se
+	 *            infectan).</p>
+	 */
+	public void infect(int row, int col, Piece p, List<Piece> pieces) {
+		setPlayers(pieces);
+		int cell = cellIndex(row, col);
+		int target = slotFor(p);
+		long nearLo = geometry.near1Lo[cell];
+		long nearHi = geometry.near1Hi[cell];
+		for (int s = 0; s < numOfSlots; s++) {
+			if (s != target && isPlayer[s] && ((maskLo[s] & nearLo) != 0 || (maskHi[s] & nearHi) != 0)) {
+				for (long m = maskLo[s] & nearLo; m != 0; m &= m - 1) {
+					setCell(Long.numberOfTrailingZeros(m), target);
+				}
+				for (long m = maskHi[s] & nearHi; m != 0; m &= m - 1) {
+					setCell(64 + Long.numberOfTrailingZeros(m), target);
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>Computes the low word of the cells at distance at most 1 from the
+	 * cells of the mask ({@code lo}, {@code hi}). See
+	 * {@link #dilateHi(long, long)} for the high word.</p>
+	 * <p>Calcula la palabra baja de las casillas a distancia como mucho 1 de las
+	 * casillas de la mascara ({@code lo}, {@code hi}). Ver
+	 * {@link #dilateHi(long, long)} para la palabra alta.</p>
+	 */
+	private long dilateLo(long lo, long hi) {
+		Geometry g = geometry;
+		int k = g.cols;
+
+		// horizontal spreading, masking the columns that would wrap around
+		long eastLo = lo & g.notLastColLo;
+		long westLo = lo & g.notFirstColLo, westHi = hi & g.notFirstColHi;
+		long hLo = lo | (eastLo << 1) | ((westLo >>> 1) | (westHi << 63));
+		long hHi = hi | ((hi & g.notLastColHi) << 1) | (eastLo >>> 63) | (westHi >>> 1);
+
+		// vertical spreading of the horizontal one: one row is 'cols' bits
+		long vLo = hLo | (hLo << k) | ((hLo >>> k) | (hHi << (64 - k)));
+		return vLo & g.boardLo;
+	}
+
+	/**
+	 * <p>Computes the high word of the cells at distance at most 1 from the
+	 * cells of the mask ({@code lo}, {@code hi}), as
+	 * {@link #dilateLo(long, long)}. Both are pure, so several threads can
+	 * query the same board.</p>
+	 * <p>Calcula la palabra alta de las casillas a distancia como mucho 1 de las
+	 * casillas de la mascara ({@code lo}, {@code hi}), como
+	 * {@link #dilateLo(long, long)}. Ambas son puras, por lo que varias hebras
+	 * pueden consultar el mismo tablero.</p>
+	 */
+	private long dilateHi(long lo, long hi) {
+		Geometry g = geometry;
+		int k = g.cols;
+
+		// horizontal spreading, masking the columns that would wrap around
+		long eastLo = lo & g.notLastColLo, eastHi = hi & g.notLastColHi;
+		long westHi = hi & g.notFirstColHi;
+		long hLo = lo | (eastLo << 1) | (((lo & g.notFirstColLo) >>> 1) | (westHi << 63));
+		long hHi = hi | ((eastHi << 1) | (eastLo >>> 63)) | (westHi >>> 1);
+
+		// vertical spreading of the horizontal one: one row is 'cols' bits
+		long vHi = hHi | ((hHi << k) | (hLo >>> (64 - k))) | (hHi >>> k);
+		return vHi & g.boardHi;
+	}
+
+}
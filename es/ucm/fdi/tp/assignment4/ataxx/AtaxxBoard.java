@@ -0,0 +1,500 @@
+package es.ucm.fdi.tp.assignment4.ataxx;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveList;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveVisitor;
+import es.ucm.fdi.tp.basecode.bgame.model.PackedMove;
+import es.ucm.fdi.tp.basecode.bgame.model.PaddedBoard;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * <p>The {@link Board} for Ataxx boards too large for an {@link AtaxxBitboard}.
+ * Besides the cells, it keeps for each piece its number of cells and its
+ * mobility: the number of pairs (cell of the piece, empty cell at distance 1 or
+ * 2). A piece can move if and only if its mobility is positive. It also keeps
+ * the frontier and adjacency counters of {@link AtaxxCounters}. All are
+ * updated in {@link #set(int, Piece)}, visiting only the 24 cells around the
+ * changed one with the offsets of {@link PaddedBoard}, so moves and
+ * {@link Board#undo(int)} keep them in sync.</p>
+ *
+ * <p>El {@link Board} para los tableros de Ataxx demasiado grandes para un
+ * {@link AtaxxBitboard}. Ademas de las casillas, mantiene para cada ficha su
+ * numero de casillas y su movilidad: el numero de pares (casilla de la ficha,
+ * casilla vacia a distancia 1 o 2). Una ficha puede mover si y solo si su
+ * movilidad es positiva. Tambien mantiene los contadores de frontera y
+ * adyacencia de {@link AtaxxCounters}. Todos se actualizan en
+ * {@link #set(int, Piece)},
+ * visitando solo las 24 casillas alrededor de la modificada con los
+ * desplazamientos de {@link PaddedBoard}, por lo que los movimientos y
+ * {@link Board#undo(int)} los mantienen al dia.</p>
+ */
+public class AtaxxBoard extends PaddedBoard implements AtaxxCounters {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * <p>The pieces placed on the board. The index of a piece in this array is
+	 * its slot, which indexes {@link #counts} and {@link #mobility}.</p>
+	 * <p>Las fichas colocadas en el tablero. El indice de una ficha en este array
+	 * es su posicion, que indexa {@link #counts} y {@link #mobility}.</p>
+	 */
+	private Piece[] slots;
+	private int numOfSlots;
+
+	/**
+	 * <p>The slot of each piece, indexed by its ordinal, or -1 if it has no
+	 * slot. It is not serialized, since ordinals depend on the run: it is
+	 * rebuilt from {@link #slots} when the board is read.</p>
+	 * <p>La posicion de cada ficha, indexada por su ordinal, o -1 si no tiene
+	 * posicion. No se serializa, ya que los ordinales dependen de la
+	 * ejecucion: se reconstruye a partir de {@link #slots} al leer el
+	 * tablero.</p>
+	 */
+	private transient int[] slotOfOrdinal;
+
+	/**
+	 * <p>Whether the piece in each slot is one of {@link #players}, the
+	 * pieces of the players given to the last call of {@link #infect}, so
+	 * that the infection reads a flag instead of searching each neighbour in
+	 * the list. It is rebuilt when {@link #infect} gets another list.</p>
+	 * <p>Si la ficha de cada posicion es una de {@link #players}, las fichas
+	 * de los jugadores recibidas en la ultima llamada a {@link #infect}, para
+	 * que la infeccion lea un indicador en lugar de buscar cada vecina en la
+	 * lista. Se reconstruye cuando {@link #infect} recibe otra lista.</p>
+	 */
+	private transient boolean[] isPlayer;
+	private transient List<Piece> players;
+
+	/**
+	 * <p>Number of cells of the piece in each slot.</p>
+	 * <p>Numero de casillas de la ficha de cada posicion.</p>
+	 */
+	private int[] counts;
+
+	/**
+	 * <p>Mobility of the piece in each slot.</p>
+	 * <p>Movilidad de la ficha de cada posicion.</p>
+	 */
+	private int[] mobility;
+
+	/**
+	 * <p>Number of frontier cells (see {@link AtaxxCounters#frontier(Piece)})
+	 * of the piece in each slot.</p>
+	 * <p>Numero de casillas frontera (ver
+	 * {@link AtaxxCounters#frontier(Piece)}) de la ficha de cada posicion.</p>
+	 */
+	private int[] frontier;
+
+	/**
+	 * <p>Adjacency of the pieces of each pair of slots.</p>
+	 * <p>Adyacencia de las fichas de cada par de posiciones.</p>
+	 */
+	private int[][] adjacency;
+
+	/**
+	 * <p>Whether each offset of {@link PaddedBoard#getNear2()} is at distance 1,
+	 * i.e., a clone move.</p>
+	 * <p>Si cada desplazamiento de {@link PaddedBoard#getNear2()} esta a
+	 * distancia 1, es decir, es un movimiento de clonacion.</p>
+	 */
+	private static final boolean[] CLONE = new boolean[24];
+
+	static {
+		int k = 0;
+		for (int r = -2; r <= 2; r++) {
+			for (int c = -2; c <= 2; c++) {
+				if (r != 0 || c != 0) {
+					CLONE[k++] = Math.abs(r) <= 1 && Math.abs(c) <= 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>Constructs an empty board.</p>
+	 * <p>Construye un tablero vacio.</p>
+	 *
+	 * @param rows
+	 *            <p>Number of rows.</p>
+	 *            <p>Numero de filas.</p>
+	 * @param cols
+	 *            <p>Number of columns.</p>
+	 *            <p>Numero de columnas.</p>
+	 */
+	public AtaxxBoard(int rows, int cols) {
+		super(rows, cols);
+		this.slots = new Piece[8];
+		this.slotOfOrdinal = new int[0];
+		this.isPlayer = new boolean[8];
+		this.counts = new int[8];
+		this.mobility = new int[8];
+		this.frontier = new int[8];
+		this.adjacency = new int[8][8];
+		slotFor(BORDER);
+	}
+
+	@Override
+	public void set(int index, Piece p) {
+		Piece old = get(index);
+		int oldSlot = old == null ? -1 : slotOf(old);
+		int newSlot = p == null ? -1 : slotFor(p);
+		super.set(index, p);
+		if (oldSlot == newSlot) {
+			return;
+		}
+
+		// count the empty cells around the cell and update the mobility of the
+		// pieces around it, which gain or lose an empty cell (the border has a
+		// slot of its own, so it needs no special case)
+		int empty = 0;
+		int delta = oldSlot < 0 ? -1 : newSlot < 0 ? 1 : 0;
+		for (int d : getNear2()) {
+			Piece q = get(index + d);
+			if (q == null) {
+				empty++;
+			} else if (delta != 0) {
+				mobility[slotOf(q)] += delta;
+			}
+		}
+		if (oldSlot >= 0) {
+			counts[oldSlot]--;
+			mobility[oldSlot] -= empty;
+		}
+		if (newSlot >= 0) {
+			counts[newSlot]++;
+			mobility[newSlot] += empty;
+		}
+
+		// the same with the adjacent cells for the adjacency and the
+		// frontier: a piece around leaves the frontier when its last empty
+		// neighbour is filled, and enters it when its first one is emptied
+		int empty1 = 0;
+		for (int d : getNear1()) {
+			Piece q = get(index + d);
+			if (q == null) {
+				empty1++;
+				continue;
+			}
+			int t = slotOf(q);
+			if (oldSlot >= 0) {
+				adjacency[oldSlot][t]--;
+				adjacency[t][oldSlot]--;
+			}
+			if (newSlot >= 0) {
+				adjacency[newSlot][t]++;
+				adjacency[t][newSlot]++;
+			}
+			if (delta != 0 && q != BORDER && emptyNeighbours(index + d) == (delta > 0 ? 1 : 0)) {
+				frontier[t] += delta;
+			}
+		}
+		if (oldSlot >= 0 && empty1 > 0) {
+			frontier[oldSlot]--;
+		}
+		if (newSlot >= 0 && empty1 > 0) {
+			frontier[newSlot]++;
+		}
+	}
+
+	/**
+	 * <p>Number of empty cells adjacent to {@code index}.</p>
+	 * <p>Numero de casillas vacias adyacentes a {@code index}.</p>
+	 */
+	private int emptyNeighbours(int index) {
+		int n = 0;
+		for (int d : getNear1()) {
+			if (get(index + d) == null) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * <p>Records that {@code p} has the slot {@code s}.</p>
+	 * <p>Registra que {@code p} tiene la posicion {@code s}.</p>
+	 */
+	private void mapSlot(Piece p, int s) {
+		int o = p.getOrdinal();
+		if (o >= slotOfOrdinal.length) {
+			int n = slotOfOrdinal.length;
+			slotOfOrdinal = Arrays.copyOf(slotOfOrdinal, o + 1);
+			Arrays.fill(slotOfOrdinal, n, o + 1, -1);
+		}
+		slotOfOrdinal[o] = s;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		slotOfOrdinal = new int[0];
+		isPlayer = new boolean[slots.length];
+		for (int s = 0; s < numOfSlots; s++) {
+			mapSlot(slots[s], s);
+		}
+	}
+
+	/**
+	 * <p>Returns the slot of {@code p}, or -1 if it was never placed on the
+	 * board.</p>
+	 * <p>Devuelve la posicion de {@code p}, o -1 si nunca se ha colocado en el
+	 * tablero.</p>
+	 */
+	private int slotOf(Piece p) {
+		int o = p.getOrdinal();
+		return o < slotOfOrdinal.length ? slotOfOrdinal[o] : -1;
+	}
+
+	/**
+	 * <p>Like {@link #slotOf(Piece)}, but assigns a new slot to {@code p} if it
+	 * does not have one yet.</p>
+	 * <p>Como {@link #slotOf(Piece)}, pero asigna una nueva posicion a {@code p}
+	 * si aun no tiene una.</p>
+	 */
+	private int slotFor(Piece p) {
+		int s = slotOf(p);
+		if (s < 0) {
+			if (numOfSlots == slots.length) {
+				slots = Arrays.copyOf(slots, 2 * numOfSlots);
+				isPlayer = Arrays.copyOf(isPlayer, 2 * numOfSlots);
+				counts = Arrays.copyOf(counts, 2 * numOfSlots);
+				mobility = Arrays.copyOf(mobility, 2 * numOfSlots);
+				frontier = Arrays.copyOf(frontier, 2 * numOfSlots);
+				adjacency = Arrays.copyOf(adjacency, 2 * numOfSlots);
+				for (int i = 0; i < adjacency.length; i++) {
+					adjacency[i] = i < numOfSlots ? Arrays.copyOf(adjacency[i], 2 * numOfSlots)
+							: new int[2 * numOfSlots];
+				}
+			}
+			s = numOfSlots++;
+			slots[s] = p;
+			mapSlot(p, s);
+			isPlayer[s] = players != null && players.contains(p);
+		}
+		return s;
+	}
+
+	/**
+	 * <p>Updates {@link #isPlayer} if {@code pieces} is not the list of
+	 * {@link #players}.</p>
+	 * <p>Actualiza {@link #isPlayer} si {@code pieces} no es la lista de
+	 * {@link #players}.</p>
+	 */
+	private void setPlayers(List<Piece> pieces) {
+		if (pieces != players) {
+			players = pieces;
+			for (int s = 0; s < numOfSlots; s++) {
+				isPlayer[s] = pieces.contains(slots[s]);
+			}
+		}
+	}
+
+	@Override
+	public int count(Piece p) {
+		int s = slotOf(p);
+		return s < 0 ? 0 : counts[s];
+	}
+
+	@Override
+	public boolean canMove(Piece p) {
+		int s = slotOf(p);
+		return s >= 0 && mobility[s] > 0;
+	}
+
+	@Override
+	public int mobility(Piece p) {
+		int s = slotOf(p);
+		return s < 0 ? 0 : mobility[s];
+	}
+
+	@Override
+	public int frontier(Piece p) {
+		int s = slotOf(p);
+		return s < 0 ? 0 : frontier[s];
+	}
+
+	@Override
+	public int adjacency(Piece p, Piece q) {
+		int s = slotOf(p);
+		int t = slotOf(q);
+		return s < 0 || t < 0 ? 0 : adjacency[s][t];
+	}
+
+	/**
+	 * <p>Adds to {@code moves} the moves of {@code p} that lead to different
+	 * positions, in the same order as a row-major scan of the board: by origin,
+	 * and then by destination. As in {@link AtaxxBitboard#addMoves}, each empty
+	 * cell next to {@code p} gets a single clone move, from its first
+	 * neighbour of {@code p}, and every jump is added.</p>
+	 * <p>Agrega a {@code moves} los movimientos de {@code p} que llevan a
+	 * posiciones distintas, en el mismo orden que un recorrido del tablero por
+	 * filas: por origen, y despues por destino. Como en
+	 * {@link AtaxxBitboard#addMoves}, cada casilla vacia junto a {@code p}
+	 * recibe un unico movimiento de clonacion, desde su primera vecina de
+	 * {@code p}, y se agregan todos los saltos.</p>
+	 *
+	 * @param p
+	 *            <p>The piece to move.</p>
+	 *            <p>La ficha a mover.</p>
+	 * @param moves
+	 *            <p>The list where the moves are added.</p>
+	 *            <p>La lista donde se agregan los movimientos.</p>
+	 */
+	public void addMoves(Piece p, List<GameMove> moves) {
+		MoveList packed = new MoveList();
+		moves(p, packed);
+		for (int i = 0; i < packed.size(); i++) {
+			moves.add(AtaxxMove.unpack(packed.get(i), p));
+		}
+	}
+
+	/**
+	 * <p>Like {@link #addMoves(Piece, List)}, but passes the moves packed (see
+	 * {@link PackedMove}) to {@code visitor}, so no object is created, and
+	 * stops as soon as the visitor asks for it.</p>
+	 * <p>Como {@link #addMoves(Piece, List)}, pero pasa los movimientos
+	 * empaquetados (vease {@link PackedMove}) a {@code visitor}, por lo que no
+	 * se crea ningun objeto, y para en cuanto el visitante lo pide.</p>
+	 *
+	 * @param p
+	 *            <p>The piece to move.</p>
+	 *            <p>La ficha a mover.</p>
+	 * @param visitor
+	 *            <p>The visitor of the moves.</p>
+	 *            <p>El visitante de los movimientos.</p>
+	 * @return <p>{@code false} if the visitor stopped the enumeration.</p>
+	 *         <p>{@code false} si el visitante paro la enumeracion.</p>
+	 */
+	public boolean visitMoves(Piece p, MoveVisitor visitor) {
+		return moves(p, visitor) >= 0;
+	}
+
+	/**
+	 * <p>Number of moves that {@link #addMoves(Piece, List)} would add,
+	 * computed without creating any move.</p>
+	 * <p>Numero de movimientos que agregaria {@link #addMoves(Piece, List)},
+	 * calculado sin crear ningun movimiento.</p>
+	 *
+	 * @param p
+	 *            <p>A piece.</p>
+	 *            <p>Una ficha.</p>
+	 * @return <p>The number of moves of {@code p}.</p>
+	 *         <p>El numero de movimientos de {@code p}.</p>
+	 */
+	public int countMoves(Piece p) {
+		return moves(p, null);
+	}
+
+	/**
+	 * <p>Counts the moves of {@code p}, and passes them to {@code visitor}
+	 * unless it is {@code null}. It returns -1 if the visitor stopped the
+	 * enumeration.</p>
+	 * <p>Cuenta los movimientos de {@code p}, y los pasa a {@code visitor}
+	 * salvo que sea {@code null}. Devuelve -1 si el visitante paro la
+	 * enumeracion.</p>
+	 */
+	private int moves(Piece p, MoveVisitor visitor) {
+		int s = slotOf(p);
+		if (s < 0 || counts[s] == 0) {
+			return 0;
+		}
+		int n = 0;
+		int[] near1 = getNear1();
+		int[] near2 = getNear2();
+		for (int from : getCells()) {
+			if (!p.equals(get(from))) {
+				continue;
+			}
+			for (int k = 0; k < near2.length; k++) {
+				int to = from + near2[k];
+				if (get(to) != null || (CLONE[k] && !firstNeighbour(p, from, to, near1))) {
+					continue;
+				}
+				n++;
+				if (visitor != null && !visitor.visit(PackedMove.move(rowOf(from), colOf(from), rowOf(to), colOf(to)))) {
+					return -1;
+				}
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * <p>Checks if {@code from} is the first cell of {@code p}, in row-major
+	 * order, next to {@code to}.</p>
+	 * <p>Comprueba si {@code from} es la primera casilla de {@code p}, por
+	 * filas, junto a {@code to}.</p>
+	 */
+	private boolean firstNeighbour(Piece p, int from, int to, int[] near1) {
+		for (int d : near1) {
+			if (to + d >= from) {
+				return true;
+			}
+			if (p.equals(get(to + d))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * <p>Converts to {@code p} all the pieces in {@code pieces}, other than
+	 * {@code p}, adjacent to ({@code row}, {@code col}).</p>
+	 * <p>Convierte en {@code p} todas las fichas de {@code pieces}, distintas de
+	 * {@code p}, adyacentes a ({@code row}, {@code col}).</p>
+	 *
+	 * @param row
+	 *            <p>Row of the infecting piece.</p>
+	 *            <p>Fila de la ficha que infecta.</p>
+	 * @param col
+	 *            <p>Column of the infecting piece.</p>
+	 *            <p>Columna de la ficha que infecta.</p>
+	 * @param p
+	 *            <p>The infecting piece.</p>
+	 *            <p>La ficha que infecta.</p>
+	 * @param pieces
+	 *            <p>The pieces of the players (obstacles are never
+	 *            infected).</p>
+	 *            <p>Las fichas de los jugadores (los obstaculos nunca se
+	 *            infectan).</p>
+	 */
+	public void infect(int row, int col, Piece p, List<Piece> pieces) {
+		setPlayers(pieces);
+		int cell = index(row, col);
+		int target = slotFor(p);
+		for (int d : getNear1()) {
+			Piece q = get(cell + d);
+			if (q != null) {
+				int s = slotOf(q);
+				if (s != target && isPlayer[s]) {
+					set(cell + d, p);
+				}
+			}
+		}
+	}
+
+	@Override
+	public Board copy() {
+		AtaxxBoard newboard = new AtaxxBoard(getRows(), getCols());
+		copyTo(newboard);
+		newboard.slots = slots.clone();
+		newboard.numOfSlots = numOfSlots;
+		newboard.slotOfOrdinal = slotOfOrdinal.clone();
+		newboard.isPlayer = isPlayer.clone();
+		newboard.players = players;
+		newboard.counts = counts.clone();
+		newboard.mobility = mobility.clone();
+		newboard.frontier = frontier.clone();
+		newboard.adjacency = new int[adjacency.length][];
+		for (int i = 0; i < adjacency.length; i++) {
+			newboard.adjacency[i] = adjacency[i].clone();
+		}
+		return newboard;
+	}
+
+}
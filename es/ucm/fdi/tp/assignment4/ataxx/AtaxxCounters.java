@@ -0,0 +1,100 @@
+package es.ucm.fdi.tp.assignment4.ataxx;
+
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * <p>A {@link Board} for Ataxx that keeps up to date, while the pieces are
+ * placed, the number of cells of each piece and whether each piece can move.
+ * {@link AtaxxRules} uses it to decide the end of the game and to skip the
+ * players that cannot move without scanning the board. It also keeps the
+ * features of {@link AtaxxEvaluator} (mobility, frontier and adjacency), so
+ * each placed piece updates them looking only at the cells around it.</p>
+ *
+ * <p>Un {@link Board} para Ataxx que mantiene actualizados, a medida que se
+ * colocan las fichas, el numero de casillas de cada ficha y si cada ficha
+ * puede mover. {@link AtaxxRules} lo usa para decidir el final de la partida y
+ * para saltar a los jugadores que no pueden mover sin recorrer el
+ * tablero. Tambien mantiene las caracteristicas de {@link AtaxxEvaluator}
+ * (movilidad, frontera y adyacencia), por lo que cada ficha colocada las
+ * actualiza mirando solo las casillas a su alrededor.</p>
+ */
+public interface AtaxxCounters extends Board {
+
+	/**
+	 * <p>Number of cells occupied by {@code p}.</p>
+	 * <p>Numero de casillas ocupadas por {@code p}.</p>
+	 *
+	 * @param p
+	 *            <p>A piece.</p>
+	 *            <p>Una ficha.</p>
+	 * @return <p>The number of cells occupied by {@code p}.</p>
+	 *         <p>El numero de casillas ocupadas por {@code p}.</p>
+	 */
+	int count(Piece p);
+
+	/**
+	 * <p>Checks if {@code p} has at least one piece with an empty cell at
+	 * distance 1 or 2, i.e., if it can move.</p>
+	 * <p>Comprueba si {@code p} tiene al menos una ficha con una casilla vacia a
+	 * distancia 1 o 2, es decir, si puede mover.</p>
+	 *
+	 * @param p
+	 *            <p>A piece.</p>
+	 *            <p>Una ficha.</p>
+	 * @return <p>{@code true} if {@code p} can move.</p>
+	 *         <p>{@code true} si {@code p} puede mover.</p>
+	 */
+	boolean canMove(Piece p);
+
+	/**
+	 * <p>Mobility of {@code p}: the number of pairs (cell of {@code p}, empty
+	 * cell at distance 1 or 2).</p>
+	 * <p>Movilidad de {@code p}: el numero de pares (casilla de {@code p},
+	 * casilla vacia a distancia 1 o 2).</p>
+	 *
+	 * @param p
+	 *            <p>A piece.</p>
+	 *            <p>Una ficha.</p>
+	 * @return <p>The mobility of {@code p}.</p>
+	 *         <p>La movilidad de {@code p}.</p>
+	 */
+	int mobility(Piece p);
+
+	/**
+	 * <p>Number of cells of {@code p} next to at least one empty cell, i.e.,
+	 * the cells that another player can infect in the next move. The rest of
+	 * the cells of {@code p} are safe until a jump empties a cell around
+	 * them.</p>
+	 * <p>Numero de casillas de {@code p} junto a al menos una casilla vacia, es
+	 * decir, las casillas que otro jugador puede infectar en el siguiente
+	 * movimiento. El resto de casillas de {@code p} estan a salvo hasta que un
+	 * salto vacie una casilla a su alrededor.</p>
+	 *
+	 * @param p
+	 *            <p>A piece.</p>
+	 *            <p>Una ficha.</p>
+	 * @return <p>The number of frontier cells of {@code p}.</p>
+	 *         <p>El numero de casillas frontera de {@code p}.</p>
+	 */
+	int frontier(Piece p);
+
+	/**
+	 * <p>Number of pairs of adjacent cells (cell of {@code p}, cell of
+	 * {@code q}). For example, the adjacency of a player to the obstacles.</p>
+	 * <p>Numero de pares de casillas adyacentes (casilla de {@code p}, casilla
+	 * de {@code q}). Por ejemplo, la adyacencia de un jugador a los
+	 * obstaculos.</p>
+	 *
+	 * @param p
+	 *            <p>A piece.</p>
+	 *            <p>Una ficha.</p>
+	 * @param q
+	 *            <p>Another piece (or the same one).</p>
+	 *            <p>Otra ficha (o la misma).</p>
+	 * @return <p>The number of adjacent pairs.</p>
+	 *         <p>El numero de pares adyacentes.</p>
+	 */
+	int adjacency(Piece p, Piece q);
+
+}
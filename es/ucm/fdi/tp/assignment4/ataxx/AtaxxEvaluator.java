@@ -0,0 +1,212 @@
+package es.ucm.fdi.tp.assignment4.ataxx;
+
+import java.util.Arrays;
+import java.util.List;
+
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * <p>The evaluation function of Ataxx, used by {@link AtaxxRules#evaluate}. Each
+ * player gets a score from these features, divided by the number of cells:</p>
+ * <ul>
+ * <li>Material: its number of cells.</li>
+ * <li>Safe cells: its cells with no empty neighbour, which cannot be infected
+ * in the next move.</li>
+ * <li>Frontier: its cells next to an empty cell (a penalty).</li>
+ * <li>Mobility: its pairs (cell, empty cell at distance 1 or 2).</li>
+ * <li>Obstacle adjacency: its cells next to obstacles, which have fewer sides
+ * from where they can be infected.</li>
+ * </ul>
+ * <p>The value for a player is its score minus the best score of the other
+ * players, so with 3 or 4 players it is measured against the strongest one.
+ * All the features are kept by the {@link AtaxxCounters} boards as the pieces
+ * are placed, so an evaluation reads a few counters per player instead of
+ * scanning the board. Other boards (e.g., a {@link
+ * es.ucm.fdi.tp.basecode.bgame.model.ReadOnlyBoard}) are scanned once for all
+ * the players.</p>
+ *
+ * <p>La funcion de evaluacion de Ataxx, que usa {@link AtaxxRules#evaluate}.
+ * Cada jugador obtiene una puntuacion de estas caracteristicas, divididas por
+ * el numero de casillas:</p>
+ * <ul>
+ * <li>Material: su numero de casillas.</li>
+ * <li>Casillas seguras: sus casillas sin vecinas vacias, que no se pueden
+ * infectar en el siguiente movimiento.</li>
+ * <li>Frontera: sus casillas junto a una casilla vacia (una penalizacion).</li>
+ * <li>Movilidad: sus pares (casilla, casilla vacia a distancia 1 o 2).</li>
+ * <li>Adyacencia a obstaculos: sus casillas junto a obstaculos, que tienen
+ * menos lados desde los que ser infectadas.</li>
+ * </ul>
+ * <p>El valor para un jugador es su puntuacion menos la mejor puntuacion de
+ * los otros jugadores, por lo que con 3 o 4 jugadores se mide contra el mas
+ * fuerte. Los tableros {@link AtaxxCounters} mantienen todas las
+ * caracteristicas a medida que se colocan las fichas, por lo que una
+ * evaluacion lee unos pocos contadores por jugador en lugar de recorrer el
+ * tablero. Los demas tableros (por ejemplo, un {@link
+ * es.ucm.fdi.tp.basecode.bgame.model.ReadOnlyBoard}) se recorren una vez para
+ * todos los jugadores.</p>
+ */
+public final class AtaxxEvaluator {
+
+	/**
+	 * <p>Weight of each cell.</p>
+	 * <p>Peso de cada casilla.</p>
+	 */
+	public static final double MATERIAL = 1.0;
+
+	/**
+	 * <p>Weight of each safe cell (on top of its material).</p>
+	 * <p>Peso de cada casilla segura (ademas de su material).</p>
+	 */
+	public static final double SAFE = 0.3;
+
+	/**
+	 * <p>Weight of each frontier cell (on top of its material).</p>
+	 * <p>Peso de cada casilla frontera (ademas de su material).</p>
+	 */
+	public static final double FRONTIER = -0.2;
+
+	/**
+	 * <p>Weight of each pair of the mobility.</p>
+	 * <p>Peso de cada par de la movilidad.</p>
+	 */
+	public static final double MOBILITY = 0.02;
+
+	/**
+	 * <p>Weight of each pair of adjacent cells (cell, obstacle).</p>
+	 * <p>Peso de cada par de casillas adyacentes (casilla, obstaculo).</p>
+	 */
+	public static final double OBSTACLES = 0.05;
+
+	private AtaxxEvaluator() {
+	}
+
+	/**
+	 * <p>Evaluates {@code board} for {@code p}, between -1 (lost) and 1
+	 * (won).</p>
+	 * <p>Evalua {@code board} para {@code p}, entre -1 (perdida) y 1
+	 * (ganada).</p>
+	 *
+	 * @param board
+	 *            <p>The board. If it is not an {@link AtaxxCounters}, the
+	 *            features are computed with a scan of its cells.</p>
+	 *            <p>El tablero. Si no es un {@link AtaxxCounters}, las
+	 *            caracteristicas se calculan recorriendo sus casillas.</p>
+	 * @param pieces
+	 *            <p>The pieces of the players.</p>
+	 *            <p>Las fichas de los jugadores.</p>
+	 * @param p
+	 *            <p>The player for which the board is evaluated.</p>
+	 *            <p>El jugador para el que se evalua el tablero.</p>
+	 * @param obstacle
+	 *            <p>The piece of the obstacles, or {@code null} if there are
+	 *            none.</p>
+	 *            <p>La ficha de los obstaculos, o {@code null} si no hay.</p>
+	 * @return <p>The value of the board for {@code p}.</p>
+	 *         <p>El valor del tablero para {@code p}.</p>
+	 */
+	public static double evaluate(Board board, List<Piece> pieces, Piece p, Piece obstacle) {
+		double[] scanned = board instanceof AtaxxCounters ? null : scan(board, pieces, obstacle);
+		double own = 0.0;
+		double best = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < pieces.size(); i++) {
+			Piece q = pieces.get(i);
+			double score = scanned != null ? scanned[i] : score((AtaxxCounters) board, q, obstacle);
+			if (q.equals(p)) {
+				own = score;
+			} else if (score > best) {
+				best = score;
+			}
+		}
+		if (best == Double.NEGATIVE_INFINITY) {
+			return 0.0;
+		}
+		double cells = board.getRows() * board.getCols();
+		return Math.max(-1.0, Math.min(1.0, (own - best) / (2.0 * cells)));
+	}
+
+	/**
+	 * <p>The score of {@code q}, not yet divided by the number of cells.</p>
+	 * <p>La puntuacion de {@code q}, aun sin dividir por el numero de
+	 * casillas.</p>
+	 */
+	private static double score(AtaxxCounters board, Piece q, Piece obstacle) {
+		return score(board.count(q), board.frontier(q), board.mobility(q),
+				obstacle != null ? board.adjacency(q, obstacle) : 0);
+	}
+
+	/**
+	 * <p>The score of a player with the given features.</p>
+	 * <p>La puntuacion de un jugador con las caracteristicas dadas.</p>
+	 */
+	private static double score(int count, int frontier, int mobility, int obstacles) {
+		if (count == 0) {
+			return 0.0;
+		}
+		return MATERIAL * count + SAFE * (count - frontier) + FRONTIER * frontier + MOBILITY * mobility
+				+ OBSTACLES * obstacles;
+	}
+
+	/**
+	 * <p>Computes the score of each player of {@code pieces} on a board of
+	 * another class, with a single scan of its cells and their 24 cells
+	 * around, instead of copying it to an {@link AtaxxBoard}.</p>
+	 * <p>Calcula la puntuacion de cada jugador de {@code pieces} en un tablero
+	 * de otra clase, con un unico recorrido de sus casillas y las 24 casillas
+	 * a su alrededor, en lugar de copiarlo a un {@link AtaxxBoard}.</p>
+	 */
+	private static double[] scan(Board board, List<Piece> pieces, Piece obstacle) {
+		// the index of each player in pieces, by ordinal, or -1
+		int[] player = new int[0];
+		for (int k = 0; k < pieces.size(); k++) {
+			int o = pieces.get(k).getOrdinal();
+			if (o >= player.length) {
+				int n = player.length;
+				player = Arrays.copyOf(player, o + 1);
+				Arrays.fill(player, n, o + 1, -1);
+			}
+			player[o] = k;
+		}
+
+		int rows = board.getRows();
+		int cols = board.getCols();
+		int[] count = new int[pieces.size()];
+		int[] frontier = new int[pieces.size()];
+		int[] mobility = new int[pieces.size()];
+		int[] obstacles = new int[pieces.size()];
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < cols; j++) {
+				Piece q = board.getPosition(i, j);
+				int k = q == null || q.getOrdinal() >= player.length ? -1 : player[q.getOrdinal()];
+				if (k < 0) {
+					continue;
+				}
+				count[k]++;
+				boolean border = false;
+				for (int r = Math.max(i - 2, 0); r <= Math.min(i + 2, rows - 1); r++) {
+					for (int c = Math.max(j - 2, 0); c <= Math.min(j + 2, cols - 1); c++) {
+						Piece n = board.getPosition(r, c);
+						boolean near = r - i <= 1 && i - r <= 1 && c - j <= 1 && j - c <= 1;
+						if (n == null) {
+							mobility[k]++;
+							border |= near;
+						} else if (near && n.equals(obstacle)) {
+							obstacles[k]++;
+						}
+					}
+				}
+				if (border) {
+					frontier[k]++;
+				}
+			}
+		}
+
+		double[] scores = new double[pieces.size()];
+		for (int k = 0; k < scores.length; k++) {
+			scores[k] = score(count[k], frontier[k], mobility[k], obstacles[k]);
+		}
+		return scores;
+	}
+
+}
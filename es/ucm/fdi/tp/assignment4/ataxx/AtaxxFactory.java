@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 
+import es.ucm.fdi.tp.basecode.bgame.control.AIPlayer;
 import es.ucm.fdi.tp.basecode.bgame.control.ConsolePlayer;
 import es.ucm.fdi.tp.basecode.bgame.control.ConsolePlayerFromListOfMoves;
 import es.ucm.fdi.tp.basecode.bgame.control.Controller;
@@ -34,6 +35,16 @@ public class AtaxxFactory implements GameFactory {
 	private int dim;
 	private int obstacles;
 
+	/**
+	 * The n-tuple network of the rules, if any. It is not serialized: it maps
+	 * a file of this machine.
+	 *
+	 * <p>
+	 * La red de n-tuplas de las reglas, si hay. No se serializa: proyecta un
+	 * fichero de esta maquina.
+	 */
+	private transient NTupleNetwork network;
+
 	public AtaxxFactory() {
         this(7, 4);
     }
@@ -61,9 +72,23 @@ public class AtaxxFactory implements GameFactory {
 		this.obstacles = obstacles;
 	}
 
+	/**
+	 * Sets the n-tuple network that evaluates the boards of the rules created
+	 * from now on (see {@link AtaxxRules#setNetwork}).
+	 *
+	 * <p>
+	 * Establece la red de n-tuplas que evalua los tableros de las reglas que se
+	 * creen a partir de ahora (ver {@link AtaxxRules#setNetwork}).
+	 */
+	public void setNetwork(NTupleNetwork network) {
+		this.network = network;
+	}
+
 	@Override
 	public GameRules gameRules() {
-		return new AtaxxRules(dim, obstacles);
+		AtaxxRules rules = new AtaxxRules(dim, obstacles);
+		rules.setNetwork(network);
+		return rules;
 	}
 
 	@Override
@@ -86,7 +111,11 @@ public class AtaxxFactory implements GameFactory {
 
 	@Override
 	public Player createAIPlayer(AIAlgorithm alg) {
-	    return new DummyAIPlayer(createRandomPlayer(), 500);
+		if ( alg != null ) {
+			return new AIPlayer(alg);
+		} else {
+			return new DummyAIPlayer(createRandomPlayer(), 500);
+		}
 	}
 
 	@Override
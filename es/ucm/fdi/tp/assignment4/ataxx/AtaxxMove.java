@@ -1,10 +1,12 @@
 package es.ucm.fdi.tp.assignment4.ataxx;
 
+import java.util.Arrays;
 import java.util.List;
 
 import es.ucm.fdi.tp.basecode.bgame.model.Board;
 import es.ucm.fdi.tp.basecode.bgame.model.GameError;
 import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.PackedMove;
 import es.ucm.fdi.tp.basecode.bgame.model.Pair;
 import es.ucm.fdi.tp.basecode.bgame.model.Piece;
 
@@ -95,12 +97,22 @@ public class AtaxxMove extends GameMove{
      *            <p>Coordenadas alrededor de las cuales realizar el cambio</p>
      */
     private void eatPiecesAroundCoords(Board board, Pair<Integer, Integer> coords, List<Piece> pieces) {
+        // the players are flagged by ordinal once, instead of searching the list for each neighbour
+        boolean[] isPlayer = new boolean[0];
+        for (Piece p : pieces) {
+            int o = p.getOrdinal();
+            if (o >= isPlayer.length) {
+                isPlayer = Arrays.copyOf(isPlayer, o + 1);
+            }
+            isPlayer[o] = true;
+        }
         Piece tmpPiece;
         for (int i = -1; i <= 1; i++) {
             for (int j = -1; j <= 1; j++) {
                 if ((coords.getFirst() + i >= 0) && (coords.getFirst() + i < board.getRows()) && (coords.getSecond() + j >= 0) && (coords.getSecond() + j < board.getCols())) {
                     tmpPiece = board.getPosition(coords.getFirst() + i, coords.getSecond() + j);
-                    if (!getPiece().equals(tmpPiece) && pieces.contains(tmpPiece)) {
+                    if (tmpPiece != null && !getPiece().equals(tmpPiece) && tmpPiece.getOrdinal() < isPlayer.length
+                            && isPlayer[tmpPiece.getOrdinal()]) {
                         board.setPosition(coords.getFirst() + i, coords.getSecond() + j, getPiece());
                     }
                 }
@@ -121,7 +133,13 @@ public class AtaxxMove extends GameMove{
 		if (getMovementDistanceRadius(this.origin, this.destination) == 2) {
 		    board.setPosition(this.origin.getFirst(), this.origin.getSecond(), null);
 		}
-		eatPiecesAroundCoords(board, this.destination, pieces);
+		if (board instanceof AtaxxBitboard) {
+		    ((AtaxxBitboard) board).infect(this.destination.getFirst(), this.destination.getSecond(), getPiece(), pieces);
+		} else if (board instanceof AtaxxBoard) {
+		    ((AtaxxBoard) board).infect(this.destination.getFirst(), this.destination.getSecond(), getPiece(), pieces);
+		} else {
+		    eatPiecesAroundCoords(board, this.destination, pieces);
+		}
 	}
 
     /**
@@ -172,6 +190,25 @@ public class AtaxxMove extends GameMove{
         return new AtaxxMove(origin, destination, p);
     }
 
+    /**
+     * <p>Creates the move of {@code p} packed in {@code move} (see {@link PackedMove}).</p>
+     * <p>Crea el movimiento de {@code p} empaquetado en {@code move} (vease {@link PackedMove}).</p>
+     * 
+     * @param move
+     *           <p>A packed move</p>
+     *           <p>Un movimiento empaquetado</p>
+     * @param p
+     *           <p>The piece to move</p>
+     *           <p>La ficha a mover</p>
+     * @return
+     *           <p>A new AtaxxMove object</p>
+     *           <p>Un nuevo objeto AtaxxMove</p>
+     */
+    static AtaxxMove unpack(int move, Piece p) {
+        return new AtaxxMove(new Pair<Integer, Integer>(PackedMove.fromRow(move), PackedMove.fromCol(move)),
+                new Pair<Integer, Integer>(PackedMove.row(move), PackedMove.col(move)), p);
+    }
+
     @Override
 	public String help() {
 		return "'originRow originCol destinationRow destinationCol' to move a piece from origin to destination.";
@@ -2,12 +2,12 @@ package es.ucm.fdi.tp.assignment4.ataxx;
 
 import java.util.List;
 
-import es.ucm.fdi.tp.basecode.bgame.Utils;
 import es.ucm.fdi.tp.basecode.bgame.control.Player;
 import es.ucm.fdi.tp.basecode.bgame.model.Board;
 import es.ucm.fdi.tp.basecode.bgame.model.GameError;
 import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
 import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.Moves;
 import es.ucm.fdi.tp.basecode.bgame.model.Piece;
 
 /**
@@ -28,11 +28,11 @@ public class AtaxxRandomPlayer extends Player{
 	    if (board.isFull()) {
             throw new GameError("The board is full, cannot make a random move!!");
         }
-	    List<GameMove> availableMoves = rules.validMoves(board, pieces, p);
-	    if (availableMoves.isEmpty()) {
+	    GameMove move = Moves.randomMove(rules, board, pieces, p);
+	    if (move == null) {
 	        throw new GameError("Nothing to move!!");
 	    }
-		return availableMoves.get(Utils.randomInt(availableMoves.size()));
+		return move;
 	}
 
 }
@@ -1,17 +1,18 @@
 package es.ucm.fdi.tp.assignment4.ataxx;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import es.ucm.fdi.tp.basecode.bgame.Utils;
 import es.ucm.fdi.tp.basecode.bgame.model.Board;
-import es.ucm.fdi.tp.basecode.bgame.model.FiniteRectBoard;
+import es.ucm.fdi.tp.basecode.bgame.model.CaptureRules;
 import es.ucm.fdi.tp.basecode.bgame.model.GameError;
 import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
 import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
-import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveList;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveVisitor;
+import es.ucm.fdi.tp.basecode.bgame.model.Moves;
+import es.ucm.fdi.tp.basecode.bgame.model.PackedMove;
 import es.ucm.fdi.tp.basecode.bgame.model.Pair;
 import es.ucm.fdi.tp.basecode.bgame.model.Piece;
 
@@ -37,7 +38,7 @@ import es.ucm.fdi.tp.basecode.bgame.model.Piece;
  * </ul>
  *
  */
-public class AtaxxRules implements GameRules {
+public class AtaxxRules implements CaptureRules {
 	
     /**
      * <p>This object is returned by gameOver to indicate that the game is not over. Just to avoid creating it multiple times, etc.</p>
@@ -55,6 +56,10 @@ public class AtaxxRules implements GameRules {
 	 * <p>Number of obstacles</p>
 	 */
 	private int obstacles;
+	/**
+	 * <p>N-tuple network used by evaluate, or null to use AtaxxEvaluator</p>
+	 */
+	private NTupleNetwork network;
 
 	/**
 	 * <p>AtaxxRules constructor</p>
@@ -82,7 +87,12 @@ public class AtaxxRules implements GameRules {
 
 	@Override
 	public Board createBoard(List<Piece> pieces) {
-		Board board = new FiniteRectBoard(dim, dim);
+		Board board;
+		if (AtaxxBitboard.supports(dim, dim)) {
+			board = new AtaxxBitboard(dim, dim);
+		} else {
+			board = new AtaxxBoard(dim, dim);
+		}
 		
 		if (pieces.size() >= 1) {
 			board.setPosition(0, 0, pieces.get(0));
@@ -212,18 +222,21 @@ public class AtaxxRules implements GameRules {
 	 * @param pieces
 	 *     <p>list of pieces</p>
 	 * @return
-	 *     <p>Map containing the numbers of pieces for each player</p>
+	 *     <p>Numbers of pieces of each player, in the order of {@code pieces}</p>
 	 */
-	private Map<Piece, Integer> countPieces(Board board, List<Piece> pieces) {
-	    Map<Piece, Integer> count = new HashMap<Piece, Integer>();
-	    Piece piece;
-	    for(Piece tmpPiece : pieces)
-	        count.put(tmpPiece, 0);
+	private int[] countPieces(Board board, List<Piece> pieces) {
+	    int[] count = new int[pieces.size()];
+	    if (board instanceof AtaxxCounters) {
+	        for (int i = 0; i < count.length; i++)
+	            count[i] = ((AtaxxCounters) board).count(pieces.get(i));
+	        return count;
+	    }
+	    int index;
 	    for (int i = 0; i < board.getRows(); i++) {
             for (int j = 0; j < board.getCols(); j++) {
-                piece = board.getPosition(i, j);
-                if (count.containsKey(piece)) {
-                    count.put(piece, count.get(piece) + 1);
+                index = pieces.indexOf(board.getPosition(i, j));
+                if (index >= 0) {
+                    count[index]++;
                 }
             }
 	    }
@@ -233,23 +246,23 @@ public class AtaxxRules implements GameRules {
 
 	@Override
 	public Pair<State, Piece> updateState(Board board, List<Piece> pieces, Piece turn) {
-	    Map<Piece, Integer> count = countPieces(board, pieces);
+	    int[] count = countPieces(board, pieces);
 	    int playersLeft = 0;
-	    for(Piece piece : pieces)
-	        if (count.get(piece).intValue() != 0)
+	    for (int i = 0; i < count.length; i++)
+	        if (count[i] != 0)
 	            playersLeft++;
 	    
 	    if ((playersLeft <= 1) || board.isFull() || (nextPlayer(board, pieces, turn) == null) ) { 
 	        State state = State.Draw;
 	        Piece winner = null;
 	        int winnerPoints = 0;
-	        for (Piece piece : pieces) {
-	            if (winnerPoints == count.get(piece)) {
+	        for (int i = 0; i < count.length; i++) {
+	            if (winnerPoints == count[i]) {
 	                winner = null;
 	                state = State.Draw;
-	            } else if (winnerPoints < count.get(piece)) {
-	                winnerPoints = count.get(piece);
-	                winner = piece;
+	            } else if (winnerPoints < count[i]) {
+	                winnerPoints = count[i];
+	                winner = pieces.get(i);
                     state = State.Won;
 	            }
 	        }
@@ -270,33 +283,41 @@ public class AtaxxRules implements GameRules {
 		return nt;
 	}
 
+	/**
+	 * <p>Evaluates {@code board} for {@code p} with {@link AtaxxEvaluator}:
+	 * material, safe and frontier cells, mobility and adjacency to the
+	 * obstacles, compared with the strongest of the other players. If a
+	 * network was set with {@link #setNetwork}, it evaluates the board
+	 * instead.</p>
+	 *
+	 * <p>Evalua {@code board} para {@code p} con {@link AtaxxEvaluator}:
+	 * material, casillas seguras y frontera, movilidad y adyacencia a los
+	 * obstaculos, comparados con el mas fuerte de los otros jugadores. Si se
+	 * establecio una red con {@link #setNetwork}, esta evalua el tablero en su
+	 * lugar.</p>
+	 */
 	@Override
 	public double evaluate(Board board, List<Piece> pieces, Piece turn, Piece p) {
-	    /*
-	    Map<Piece, Integer> count = countPieces(board, pieces);
-        State state = State.Draw;
-        Piece winner = null;
-        int winnerPoints = 0;
-        for (Piece piece : pieces) {
-            if (winnerPoints == count.get(piece)) {
-                winner = null;
-                state = State.Draw;
-            } else if (winnerPoints < count.get(piece)) {
-                winnerPoints = count.get(piece);
-                winner = piece;
-                state = State.Won;
-            }
-        }
-        
-        if (state.equals(State.Draw)) {
-            return 0;
-        } else if (winner.equals(turn)) {
-            return 1;
-        } else {
-            return -1;
-        }
-        */
-	    return 0;
+	    if (network != null) {
+	        return network.evaluate(board, pieces, p);
+	    }
+	    return AtaxxEvaluator.evaluate(board, pieces, p, obstaclePiece);
+	}
+
+	/**
+	 * <p>Sets the n-tuple network that evaluates the boards (see
+	 * {@link NTupleNetwork}), or {@code null} to use {@link AtaxxEvaluator}.</p>
+	 *
+	 * <p>Establece la red de n-tuplas que evalua los tableros (ver
+	 * {@link NTupleNetwork}), o {@code null} para usar
+	 * {@link AtaxxEvaluator}.</p>
+	 *
+	 * @param network
+	 *     <p>The network.</p>
+	 *     <p>La red.</p>
+	 */
+	public void setNetwork(NTupleNetwork network) {
+	    this.network = network;
 	}
 	
 	/**
@@ -312,62 +333,196 @@ public class AtaxxRules implements GameRules {
      *     <p>If the player can make a move.</p>
      */
 	private boolean canMove(Board board, List<Piece> playersPieces, Piece turn) { // returns as soon as it knows the player can move
-	    Pair<Integer, Integer> coords;
-	    for (int i = 0; i < board.getRows(); i++) {
-            for (int j = 0; j < board.getCols(); j++) {
-                if ((board.getPosition(i, j) != null) && (board.getPosition(i, j).equals(turn))) {
-                    coords = new Pair<Integer, Integer>(i, j);
-                    for (int k = -2; k <= 2; k++) {
-                        for (int w = -2; w <= 2; w++) {
-                            if ((coords.getFirst() + k >= 0) && (coords.getFirst() + k < dim) && (coords.getSecond() + w >= 0) && (coords.getSecond() + w < dim)) {
-                                if (board.getPosition(coords.getFirst() + k, coords.getSecond() + w) == null) {
-                                    return true;
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        }
-	    return false;
+	    if (board instanceof AtaxxCounters) {
+	        return ((AtaxxCounters) board).canMove(turn);
+	    }
+	    return Moves.hasMove(this, board, playersPieces, turn);
 	}
 	
 	/**
-	 * <p>Creates a list of possible moves a piece at some specific coordinates execute.</p>
+	 * <p>Passes to {@code visitor} the packed moves of the piece at ({@code row}, {@code col}).</p>
 	 * @param board
 	 *     <p>Board where the pice to move is.</p>
-	 * @param turn
-	 *     <p>Type of piece to move.</p>
-	 * @param coords
-	 *     <p>Coordinates of the piece.</p>
+	 * @param row
+	 *     <p>Row of the piece.</p>
+	 * @param col
+	 *     <p>Column of the piece.</p>
+	 * @param cloned
+	 *     <p>Empty cells that already have a clone move, which are skipped and updated.</p>
+	 * @param visitor
+	 *     <p>The visitor of the moves.</p>
 	 * @return
-	 *     <p>List of possible moves for the specified piece.</p>
+	 *     <p>{@code false} if the visitor stopped the enumeration.</p>
 	 */
-	private List<GameMove> validMovesFromCoord(Board board, Piece turn, Pair<Integer, Integer> coords) {
-	    List<GameMove> moves = new ArrayList<GameMove>();
+	private boolean visitMovesFromCoord(Board board, int row, int col, boolean[][] cloned, MoveVisitor visitor) {
 	    for (int i = -2; i <= 2; i++) {
             for (int j = -2; j <= 2; j++) {
-                if ((coords.getFirst() + i >= 0) && (coords.getFirst() + i < dim) && (coords.getSecond() + j >= 0) && (coords.getSecond() + j < dim)) {
-                    if (board.getPosition(coords.getFirst() + i, coords.getSecond() + j) == null) {
-                        moves.add(new AtaxxMove(coords, new Pair<Integer, Integer>(coords.getFirst() + i, coords.getSecond() + j), turn));
+                if ((row + i >= 0) && (row + i < board.getRows()) && (col + j >= 0) && (col + j < board.getCols())) {
+                    if (board.getPosition(row + i, col + j) == null) {
+                        if (Math.abs(i) <= 1 && Math.abs(j) <= 1) { // a clone move gives the same position from any origin
+                            if (cloned[row + i][col + j]) {
+                                continue;
+                            }
+                            cloned[row + i][col + j] = true;
+                        }
+                        if (!visitor.visit(PackedMove.move(row, col, row + i, col + j))) {
+                            return false;
+                        }
                     }
                 }
             }
         }
-	    return moves;
+	    return true;
 	}
 
+	/**
+	 * <p>The valid moves of {@code turn}, without duplicates: a clone move
+	 * (distance 1) to an empty cell gives the same position from any origin,
+	 * so it is listed once, from the first piece of {@code turn} next to the
+	 * cell. Jumps (distance 2) are all listed. The moves are sorted by origin
+	 * and then by destination, in row-major order.</p>
+	 *
+	 * <p>Los movimientos validos de {@code turn}, sin duplicados: un movimiento
+	 * de clonacion (distancia 1) a una casilla vacia da la misma posicion
+	 * desde cualquier origen, por lo que aparece una vez, desde la primera
+	 * ficha de {@code turn} junto a la casilla. Los saltos (distancia 2)
+	 * aparecen todos. Los movimientos se ordenan por origen y despues por
+	 * destino, por filas.</p>
+	 */
 	@Override
 	public List<GameMove> validMoves(Board board, List<Piece> playersPieces, Piece turn) {
-	    List<GameMove> moves = new ArrayList<GameMove>();
-        for (int i = 0; i < board.getRows(); i++) {
-            for (int j = 0; j < board.getCols(); j++) {
-                if ((board.getPosition(i, j) != null) && (board.getPosition(i, j).equals(turn))) {
-                    moves.addAll(validMovesFromCoord(board, turn, new Pair<Integer, Integer>(i, j)));
-                }
-            }
-        }
-        return moves;
+	    MoveList packed = new MoveList();
+	    visitMoves(board, playersPieces, turn, packed);
+	    List<GameMove> moves = new ArrayList<GameMove>(packed.size());
+	    for (int i = 0; i < packed.size(); i++) {
+	        moves.add(AtaxxMove.unpack(packed.get(i), turn));
+	    }
+	    return moves;
+	}
+
+	@Override
+	public void validMoves(Board board, List<Piece> playersPieces, Piece turn, MoveList moves) {
+	    visitMoves(board, playersPieces, turn, moves);
+	}
+
+	@Override
+	public boolean visitMoves(Board board, List<Piece> playersPieces, Piece turn, MoveVisitor visitor) {
+	    if (board instanceof AtaxxBitboard) {
+	        return ((AtaxxBitboard) board).visitMoves(turn, visitor);
+	    }
+	    if (board instanceof AtaxxBoard) {
+	        return ((AtaxxBoard) board).visitMoves(turn, visitor);
+	    }
+	    boolean[][] cloned = new boolean[board.getRows()][board.getCols()];
+	    for (int i = 0; i < board.getRows(); i++) {
+	        for (int j = 0; j < board.getCols(); j++) {
+	            if (turn.equals(board.getPosition(i, j)) && !visitMovesFromCoord(board, i, j, cloned, visitor)) {
+	                return false;
+	            }
+	        }
+	    }
+	    return true;
+	}
+
+	/**
+	 * <p>Executes the packed move {@code move}. On the boards created by these
+	 * rules the move is checked and made directly on the board, as
+	 * {@link AtaxxMove#execute(Board, List)} does, without creating the
+	 * {@link AtaxxMove}.</p>
+	 *
+	 * <p>Ejecuta el movimiento empaquetado {@code move}. En los tableros
+	 * creados por estas reglas el movimiento se comprueba y se hace
+	 * directamente en el tablero, como hace
+	 * {@link AtaxxMove#execute(Board, List)}, sin crear el
+	 * {@link AtaxxMove}.</p>
+	 */
+	@Override
+	public void execute(Board board, List<Piece> playersPieces, Piece turn, int move) {
+	    if (!(board instanceof AtaxxCounters)) {
+	        toGameMove(board, turn, move).execute(board, playersPieces);
+	        return;
+	    }
+	    int fromRow = PackedMove.fromRow(move);
+	    int fromCol = PackedMove.fromCol(move);
+	    int row = PackedMove.row(move);
+	    int col = PackedMove.col(move);
+	    int distance = Math.max(Math.abs(row - fromRow), Math.abs(col - fromCol));
+	    if (!turn.equals(board.getPosition(fromRow, fromCol))) {
+	        throw new GameError("You don't own a piece in (" + fromRow + ", " + fromCol + ")!");
+	    } else if (board.getPosition(row, col) != null) {
+	        throw new GameError("position (" + row + ", " + col + ") is already occupied!");
+	    } else if (distance > 2) {
+	        throw new GameError("You can't yump " + distance + " cells! Maximum is 2");
+	    }
+	    board.setPosition(row, col, turn);
+	    if (distance == 2) {
+	        board.setPosition(fromRow, fromCol, null);
+	    }
+	    if (board instanceof AtaxxBitboard) {
+	        ((AtaxxBitboard) board).infect(row, col, turn, playersPieces);
+	    } else {
+	        ((AtaxxBoard) board).infect(row, col, turn, playersPieces);
+	    }
+	}
+
+	@Override
+	public GameMove toGameMove(Board board, Piece turn, int move) {
+	    return AtaxxMove.unpack(move, turn);
+	}
+
+	/**
+	 * <p>Number of pieces of the other players around the destination of
+	 * {@code move}, i.e., the pieces that the move infects. Obstacles are not
+	 * counted.</p>
+	 *
+	 * <p>Numero de fichas de los otros jugadores alrededor del destino de
+	 * {@code move}, es decir, las fichas que infecta el movimiento. No se
+	 * cuentan los obstaculos.</p>
+	 */
+	@Override
+	public int captures(Board board, List<Piece> playersPieces, Piece turn, int move) {
+	    int row = PackedMove.row(move);
+	    int col = PackedMove.col(move);
+	    int count = 0;
+	    for (int i = Math.max(row - 1, 0); i <= Math.min(row + 1, board.getRows() - 1); i++) {
+	        for (int j = Math.max(col - 1, 0); j <= Math.min(col + 1, board.getCols() - 1); j++) {
+	            Piece p = board.getPosition(i, j);
+	            if (p != null && !p.equals(turn) && playersPieces.contains(p)) {
+	                count++;
+	            }
+	        }
+	    }
+	    return count;
+	}
+
+	/**
+	 * <p>Number of valid moves of {@code turn}, i.e., the size of
+	 * {@link #validMoves(Board, List, Piece)}. On the boards created by these
+	 * rules it is computed without creating the moves, so it is cheap enough
+	 * to be used as a mobility term of an evaluation.</p>
+	 *
+	 * <p>Numero de movimientos validos de {@code turn}, es decir, el tamano de
+	 * {@link #validMoves(Board, List, Piece)}. En los tableros creados por estas
+	 * reglas se calcula sin crear los movimientos, por lo que es lo bastante
+	 * barato para usarlo como termino de movilidad de una evaluacion.</p>
+	 *
+	 * @param board
+	 *     <p>Board to be searched.</p>
+	 * @param playersPieces
+	 *     <p>List of piece types</p>
+	 * @param turn
+	 *     <p>Type of piece to move.</p>
+	 * @return
+	 *     <p>The number of valid moves of {@code turn}.</p>
+	 */
+	public int countValidMoves(Board board, List<Piece> playersPieces, Piece turn) {
+	    if (board instanceof AtaxxBitboard) {
+	        return ((AtaxxBitboard) board).countMoves(turn);
+	    }
+	    if (board instanceof AtaxxBoard) {
+	        return ((AtaxxBoard) board).countMoves(turn);
+	    }
+	    return validMoves(board, playersPieces, turn).size();
 	}
 	
 	/**
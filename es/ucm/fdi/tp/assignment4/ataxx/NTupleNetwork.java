@@ -0,0 +1,332 @@
+package es.ucm.fdi.tp.assignment4.ataxx;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.GameError;
+import es.ucm.fdi.tp.basecode.bgame.model.MappedFiles;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * <p>An n-tuple network that evaluates Ataxx positions, as an alternative to
+ * {@link AtaxxEvaluator} (see {@link AtaxxRules#setNetwork}). An n-tuple is a
+ * small group of cells (a 2x3, 3x2 or 2x2 rectangle) placed at every position
+ * of the board, including those that stick out of it. Each cell has one of 5
+ * states from the point of view of the evaluated player (empty, own, of
+ * another player, obstacle or out of the board), so each placement of a tuple
+ * reads a pattern that indexes a table of weights. The tables are shared by
+ * all the placements of a tuple, so the same weights work for any size of the
+ * board. The value of a position is the hyperbolic tangent of the sum of the
+ * weights of all its patterns, between -1 (lost) and 1 (won).</p>
+ *
+ * <p>The weights are learnt by {@link NTupleTrainer} and saved to a file with
+ * {@link #write(Path)}. {@link #open(Path)} maps the file in memory, so the
+ * weights are not copied to the heap, and several processes share them.</p>
+ *
+ * <p>Una red de n-tuplas que evalua posiciones de Ataxx, como alternativa a
+ * {@link AtaxxEvaluator} (ver {@link AtaxxRules#setNetwork}). Una n-tupla es
+ * un grupo pequeno de casillas (un rectangulo de 2x3, 3x2 o 2x2) colocado en
+ * todas las posiciones del tablero, incluidas las que se salen de el. Cada
+ * casilla tiene uno de 5 estados desde el punto de vista del jugador evaluado
+ * (vacia, propia, de otro jugador, obstaculo o fuera del tablero), por lo que
+ * cada colocacion de una tupla lee un patron que indexa una tabla de pesos.
+ * Las tablas se comparten entre todas las colocaciones de una tupla, por lo
+ * que los mismos pesos sirven para cualquier tamano del tablero. El valor de
+ * una posicion es la tangente hiperbolica de la suma de los pesos de todos
+ * sus patrones, entre -1 (perdida) y 1 (ganada).</p>
+ *
+ * <p>Los pesos los aprende {@link NTupleTrainer} y se guardan en un fichero con
+ * {@link #write(Path)}. {@link #open(Path)} proyecta el fichero en memoria, por
+ * lo que los pesos no se copian al heap, y varios procesos los
+ * comparten.</p>
+ */
+public class NTupleNetwork {
+
+	/**
+	 * <p>The first 4 bytes of a weights file ("TPNT").</p>
+	 * <p>Los 4 primeros bytes de un fichero de pesos ("TPNT").</p>
+	 */
+	public static final int MAGIC = 0x54504E54;
+
+	/**
+	 * <p>The version of the format of the weights files.</p>
+	 * <p>La version del formato de los ficheros de pesos.</p>
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * <p>The states of a cell, from the point of view of a player.</p>
+	 * <p>Los estados de una casilla, desde el punto de vista de un
+	 * jugador.</p>
+	 */
+	private static final int EMPTY = 0;
+	private static final int OWN = 1;
+	private static final int OTHER = 2;
+	private static final int OBSTACLE = 3;
+	private static final int OFF = 4;
+	private static final int STATES = 5;
+
+	/**
+	 * <p>The cells of each tuple, as (row, column) offsets.</p>
+	 * <p>Las casillas de cada tupla, como desplazamientos (fila, columna).</p>
+	 */
+	private static final int[][][] TUPLES = {
+			{ { 0, 0 }, { 0, 1 }, { 0, 2 }, { 1, 0 }, { 1, 1 }, { 1, 2 } },
+			{ { 0, 0 }, { 0, 1 }, { 1, 0 }, { 1, 1 }, { 2, 0 }, { 2, 1 } },
+			{ { 0, 0 }, { 0, 1 }, { 1, 0 }, { 1, 1 } } };
+
+	/**
+	 * <p>The height and width of each tuple, and the index of its first weight.
+	 * The last element of {@link #TABLE_START} is the number of weights.</p>
+	 * <p>El alto y el ancho de cada tupla, y el indice de su primer peso. El
+	 * ultimo elemento de {@link #TABLE_START} es el numero de pesos.</p>
+	 */
+	private static final int[] HEIGHT = new int[TUPLES.length];
+	private static final int[] WIDTH = new int[TUPLES.length];
+	private static final int[] TABLE_START = new int[TUPLES.length + 1];
+
+	static {
+		for (int t = 0; t < TUPLES.length; t++) {
+			int size = 1;
+			for (int[] cell : TUPLES[t]) {
+				HEIGHT[t] = Math.max(HEIGHT[t], cell[0] + 1);
+				WIDTH[t] = Math.max(WIDTH[t], cell[1] + 1);
+				size *= STATES;
+			}
+			TABLE_START[t + 1] = TABLE_START[t] + size;
+		}
+	}
+
+	/**
+	 * <p>Size of the header of a weights file: magic, version and number of
+	 * weights.</p>
+	 * <p>Tamano de la cabecera de un fichero de pesos: numero magico, version
+	 * y numero de pesos.</p>
+	 */
+	private static final int HEADER_SIZE = 12;
+
+	/**
+	 * <p>The weights of all the tables, one after the other.</p>
+	 * <p>Los pesos de todas las tablas, una tras otra.</p>
+	 */
+	private final FloatBuffer weights;
+
+	private NTupleNetwork(FloatBuffer weights) {
+		this.weights = weights;
+	}
+
+	/**
+	 * <p>Creates a network with all the weights at 0, in the heap, to be
+	 * trained.</p>
+	 * <p>Crea una red con todos los pesos a 0, en el heap, para
+	 * entrenarla.</p>
+	 *
+	 * @return <p>The new network.</p>
+	 *         <p>La nueva red.</p>
+	 */
+	public static NTupleNetwork create() {
+		return new NTupleNetwork(FloatBuffer.allocate(size()));
+	}
+
+	/**
+	 * <p>Opens a weights file written by {@link #write(Path)}, mapping it in
+	 * memory. The weights of the returned network cannot be changed (see
+	 * {@link #copy()}).</p>
+	 * <p>Abre un fichero de pesos escrito por {@link #write(Path)},
+	 * proyectandolo en memoria. Los pesos de la red devuelta no se pueden
+	 * cambiar (ver {@link #copy()}).</p>
+	 *
+	 * @param file
+	 *            <p>The weights file.</p>
+	 *            <p>El fichero de pesos.</p>
+	 * @return <p>The network.</p>
+	 *         <p>La red.</p>
+	 * @throws IOException
+	 *             <p>If the file cannot be read.</p>
+	 *             <p>Si no se puede leer el fichero.</p>
+	 */
+	public static NTupleNetwork open(Path file) throws IOException {
+		ByteBuffer buffer = MappedFiles.map(file);
+		MappedFiles.checkHeader(buffer, HEADER_SIZE, MAGIC, VERSION, "an n-tuple network");
+		if (buffer.getInt(8) != size() || buffer.limit() < HEADER_SIZE + 4L * size()) {
+			throw new GameError("The n-tuple network does not have " + size() + " weights");
+		}
+		buffer.position(HEADER_SIZE);
+		return new NTupleNetwork(buffer.slice().asFloatBuffer());
+	}
+
+	/**
+	 * <p>Writes the weights to {@code file}, to be opened with
+	 * {@link #open(Path)}.</p>
+	 * <p>Escribe los pesos en {@code file}, para abrirlos con
+	 * {@link #open(Path)}.</p>
+	 *
+	 * @param file
+	 *            <p>The weights file.</p>
+	 *            <p>El fichero de pesos.</p>
+	 * @throws IOException
+	 *             <p>If the file cannot be written.</p>
+	 *             <p>Si no se puede escribir el fichero.</p>
+	 */
+	public void write(Path file) throws IOException {
+		try (OutputStream out = Files.newOutputStream(file);
+				DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out))) {
+			MappedFiles.writeHeader(data, MAGIC, VERSION);
+			data.writeInt(size());
+			for (int i = 0; i < size(); i++) {
+				data.writeFloat(weights.get(i));
+			}
+		}
+	}
+
+	/**
+	 * <p>Copies the network to the heap, e.g., to go on training a network
+	 * opened from a file.</p>
+	 * <p>Copia la red al heap, por ejemplo para seguir entrenando una red
+	 * abierta desde un fichero.</p>
+	 *
+	 * @return <p>The copy.</p>
+	 *         <p>La copia.</p>
+	 */
+	public NTupleNetwork copy() {
+		FloatBuffer copy = FloatBuffer.allocate(size());
+		for (int i = 0; i < size(); i++) {
+			copy.put(i, weights.get(i));
+		}
+		return new NTupleNetwork(copy);
+	}
+
+	/**
+	 * <p>Evaluates {@code board} for {@code p}, between -1 (lost) and 1
+	 * (won).</p>
+	 * <p>Evalua {@code board} para {@code p}, entre -1 (perdida) y 1
+	 * (ganada).</p>
+	 *
+	 * @param board
+	 *            <p>The board.</p>
+	 *            <p>El tablero.</p>
+	 * @param pieces
+	 *            <p>The pieces of the players. The other pieces on the board
+	 *            are obstacles.</p>
+	 *            <p>Las fichas de los jugadores. Las demas fichas del tablero
+	 *            son obstaculos.</p>
+	 * @param p
+	 *            <p>The player for which the board is evaluated.</p>
+	 *            <p>El jugador para el que se evalua el tablero.</p>
+	 * @return <p>The value of the board for {@code p}.</p>
+	 *         <p>El valor del tablero para {@code p}.</p>
+	 */
+	public double evaluate(Board board, List<Piece> pieces, Piece p) {
+		return Math.tanh(patterns(board, pieces, p, null));
+	}
+
+	/**
+	 * <p>Number of patterns of a board of {@code rows}x{@code cols} cells, i.e.,
+	 * the size of the array needed by
+	 * {@link #patterns(Board, List, Piece, int[])}.</p>
+	 * <p>Numero de patrones de un tablero de {@code rows}x{@code cols} casillas,
+	 * es decir, el tamano del array que necesita
+	 * {@link #patterns(Board, List, Piece, int[])}.</p>
+	 */
+	static int patterns(int rows, int cols) {
+		int n = 0;
+		for (int t = 0; t < TUPLES.length; t++) {
+			n += (rows + HEIGHT[t] - 1) * (cols + WIDTH[t] - 1);
+		}
+		return n;
+	}
+
+	/**
+	 * <p>Computes the sum of the weights of the patterns of {@code board} for
+	 * {@code p}. If {@code indices} is not {@code null}, the index of the
+	 * weight of each pattern is stored in it (see
+	 * {@link #patterns(int, int)}).</p>
+	 * <p>Calcula la suma de los pesos de los patrones de {@code board} para
+	 * {@code p}. Si {@code indices} no es {@code null}, el indice del peso de
+	 * cada patron se guarda en el (ver {@link #patterns(int, int)}).</p>
+	 */
+	double patterns(Board board, List<Piece> pieces, Piece p, int[] indices) {
+		int rows = board.getRows();
+		int cols = board.getCols();
+		double sum = 0.0;
+		int n = 0;
+		for (int t = 0; t < TUPLES.length; t++) {
+			int[][] tuple = TUPLES[t];
+			for (int row = 1 - HEIGHT[t]; row < rows; row++) {
+				for (int col = 1 - WIDTH[t]; col < cols; col++) {
+					int pattern = 0;
+					for (int[] cell : tuple) {
+						pattern = pattern * STATES + state(board, pieces, p, row + cell[0], col + cell[1]);
+					}
+					int index = TABLE_START[t] + pattern;
+					sum += weights.get(index);
+					if (indices != null) {
+						indices[n++] = index;
+					}
+				}
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * <p>Adds {@code delta} to the weights of the first {@code n} indices of
+	 * {@code indices}. It is not synchronized: the threads of
+	 * {@link NTupleTrainer} update the weights at the same time, and an update
+	 * lost now and then does not harm the training.</p>
+	 * <p>Suma {@code delta} a los pesos de los {@code n} primeros indices de
+	 * {@code indices}. No esta sincronizado: las hebras de
+	 * {@link NTupleTrainer} actualizan los pesos a la vez, y perder una
+	 * actualizacion de vez en cuando no perjudica al entrenamiento.</p>
+	 */
+	void update(int[] indices, int n, float delta) {
+		for (int i = 0; i < n; i++) {
+			int index = indices[i];
+			weights.put(index, weights.get(index) + delta);
+		}
+	}
+
+	/**
+	 * <p>The value of a position from the indices of its patterns.</p>
+	 * <p>El valor de una posicion a partir de los indices de sus
+	 * patrones.</p>
+	 */
+	double value(int[] indices, int n) {
+		double sum = 0.0;
+		for (int i = 0; i < n; i++) {
+			sum += weights.get(indices[i]);
+		}
+		return Math.tanh(sum);
+	}
+
+	private static int state(Board board, List<Piece> pieces, Piece p, int row, int col) {
+		if (row < 0 || row >= board.getRows() || col < 0 || col >= board.getCols()) {
+			return OFF;
+		}
+		Piece q = board.getPosition(row, col);
+		if (q == null) {
+			return EMPTY;
+		}
+		if (q.equals(p)) {
+			return OWN;
+		}
+		return pieces.contains(q) ? OTHER : OBSTACLE;
+	}
+
+	/**
+	 * <p>The number of weights of a network.</p>
+	 * <p>El numero de pesos de una red.</p>
+	 */
+	private static int size() {
+		return TABLE_START[TUPLES.length];
+	}
+
+}
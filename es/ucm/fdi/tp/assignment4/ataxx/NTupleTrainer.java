@@ -0,0 +1,255 @@
+package es.ucm.fdi.tp.assignment4.ataxx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
+import es.ucm.fdi.tp.basecode.bgame.model.GameError;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveList;
+import es.ucm.fdi.tp.basecode.bgame.model.Pair;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * <p>Trains an {@link NTupleNetwork} by self-play with temporal difference
+ * learning, TD(0). The network plays both sides of two-player games: each
+ * player chooses the move whose resulting position (the afterstate) the
+ * network values best, or a random move with probability {@code epsilon} to
+ * explore. After each move, the value of the previous afterstate is moved
+ * towards the value of the new one (negated if the other player moved), and
+ * the last afterstate of the game towards its result: 1 won, -1 lost or 0
+ * drawn.</p>
+ *
+ * <p>The games are played by several threads at a time, which update the
+ * shared weights without any locking: a game touches few weights, so the
+ * updates seldom collide, and losing one now and then does not harm the
+ * training.</p>
+ *
+ * <p>Entrena una {@link NTupleNetwork} mediante juego contra si misma con
+ * aprendizaje por diferencias temporales, TD(0). La red juega ambos lados de
+ * partidas de dos jugadores: cada jugador elige el movimiento cuya posicion
+ * resultante (el estado posterior) la red valora mejor, o un movimiento
+ * aleatorio con probabilidad {@code epsilon} para explorar. Tras cada
+ * movimiento, el valor del estado posterior anterior se acerca al valor del
+ * nuevo (negado si movio el otro jugador), y el ultimo estado posterior de la
+ * partida a su resultado: 1 ganada, -1 perdida o 0 empatada.</p>
+ *
+ * <p>Varias hebras juegan las partidas a la vez, y actualizan los pesos
+ * compartidos sin ningun bloqueo: una partida toca pocos pesos, por lo que las
+ * actualizaciones rara vez coinciden, y perder una de vez en cuando no
+ * perjudica al entrenamiento.</p>
+ */
+public class NTupleTrainer {
+
+	/**
+	 * <p>A game that reaches this number of moves (the players can jump back
+	 * and forth forever) is taken as a draw.</p>
+	 * <p>Una partida que alcanza este numero de movimientos (los jugadores
+	 * pueden saltar de un lado a otro para siempre) se toma como empate.</p>
+	 */
+	private static final int MAX_MOVES = 500;
+
+	private final NTupleNetwork network;
+	private final int dim;
+	private final int obstacles;
+	private final int threads;
+	private double learningRate = 0.001;
+	private double epsilon = 0.1;
+
+	/**
+	 * <p>Constructs a trainer of {@code network} for the games of Ataxx with
+	 * a board of {@code dim}x{@code dim} and {@code obstacles} random
+	 * obstacles.</p>
+	 * <p>Construye un entrenador de {@code network} para las partidas de
+	 * Ataxx con un tablero de {@code dim}x{@code dim} y {@code obstacles}
+	 * obstaculos aleatorios.</p>
+	 *
+	 * @param network
+	 *            <p>A network created by {@link NTupleNetwork#create()} or
+	 *            {@link NTupleNetwork#copy()}.</p>
+	 *            <p>Una red creada por {@link NTupleNetwork#create()} o
+	 *            {@link NTupleNetwork#copy()}.</p>
+	 * @param threads
+	 *            <p>Number of threads that play games.</p>
+	 *            <p>Numero de hebras que juegan partidas.</p>
+	 */
+	public NTupleTrainer(NTupleNetwork network, int dim, int obstacles, int threads) {
+		new AtaxxRules(dim, obstacles); // checks the dimension
+		this.network = network;
+		this.dim = dim;
+		this.obstacles = obstacles;
+		this.threads = threads;
+	}
+
+	/**
+	 * <p>Sets the learning rate: the fraction of the error of a value that
+	 * each weight corrects (0.001 by default).</p>
+	 * <p>Establece la tasa de aprendizaje: la fraccion del error de un valor
+	 * que corrige cada peso (0.001 por defecto).</p>
+	 */
+	public void setLearningRate(double learningRate) {
+		this.learningRate = learningRate;
+	}
+
+	/**
+	 * <p>Sets the probability of a random move (0.1 by default).</p>
+	 * <p>Establece la probabilidad de un movimiento aleatorio (0.1 por
+	 * defecto).</p>
+	 */
+	public void setEpsilon(double epsilon) {
+		this.epsilon = epsilon;
+	}
+
+	/**
+	 * <p>Plays {@code games} games, updating the network.</p>
+	 * <p>Juega {@code games} partidas, actualizando la red.</p>
+	 *
+	 * @return <p>The mean squared error of the values of the afterstates, a
+	 *         measure of how much the network still has to learn.</p>
+	 *         <p>El error cuadratico medio de los valores de los estados
+	 *         posteriores, una medida de cuanto le queda por aprender a la
+	 *         red.</p>
+	 */
+	public double train(int games) {
+		final AtomicInteger remaining = new AtomicInteger(games);
+		final DoubleAdder error = new DoubleAdder();
+		final LongAdder updates = new LongAdder();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (int t = 0; t < threads; t++) {
+				results.add(pool.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						Worker w = new Worker();
+						while (remaining.getAndDecrement() > 0) {
+							w.play();
+						}
+						error.add(w.error);
+						updates.add(w.updates);
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> f : results) {
+				f.get();
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new GameError("The training of the n-tuple network failed: " + e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GameError("Interrupted while training the n-tuple network");
+		} finally {
+			pool.shutdownNow();
+		}
+		long n = updates.sum();
+		return n == 0 ? 0.0 : error.sum() / n;
+	}
+
+	/**
+	 * <p>The state of a thread: its rules (which keep the obstacle piece), its
+	 * random numbers and its buffers.</p>
+	 * <p>El estado de una hebra: sus reglas (que guardan la ficha de los
+	 * obstaculos), sus numeros aleatorios y sus buffers.</p>
+	 */
+	private class Worker {
+
+		private final AtaxxRules rules = new AtaxxRules(dim, obstacles);
+		private final List<Piece> pieces = new AtaxxFactory(dim, obstacles).createDefaultPieces();
+		private final Random random = new Random();
+		private final MoveList moves = new MoveList();
+		private int[] previous = new int[0];
+		private int[] current = new int[0];
+		private double error;
+		private long updates;
+
+		private void play() {
+			Board board = rules.createBoard(pieces);
+			int patterns = NTupleNetwork.patterns(board.getRows(), board.getCols());
+			if (previous.length < patterns) {
+				previous = new int[patterns];
+				current = new int[patterns];
+			}
+			Piece turn = rules.initialPlayer(board, pieces);
+			Piece mover = null;
+			for (int n = 0; turn != null; n++) {
+				rules.execute(board, pieces, turn, choose(board, turn));
+				network.patterns(board, pieces, turn, current);
+				Pair<State, Piece> state = rules.updateState(board, pieces, turn);
+				boolean over = state.getFirst() != State.InPlay || n == MAX_MOVES;
+				if (mover != null) {
+					double next = network.value(current, patterns);
+					learn(previous, patterns, mover.equals(turn) ? next : -next);
+				}
+				if (over) {
+					learn(current, patterns, result(state, turn));
+					return;
+				}
+				int[] swap = previous;
+				previous = current;
+				current = swap;
+				mover = turn;
+				turn = rules.nextPlayer(board, pieces, turn);
+			}
+		}
+
+		/**
+		 * <p>Chooses the move of {@code turn}: random with probability
+		 * {@link NTupleTrainer#epsilon}, otherwise the one with the best
+		 * afterstate.</p>
+		 * <p>Elige el movimiento de {@code turn}: aleatorio con probabilidad
+		 * {@link NTupleTrainer#epsilon}, y si no el del mejor estado
+		 * posterior.</p>
+		 */
+		private int choose(Board board, Piece turn) {
+			moves.clear();
+			rules.validMoves(board, pieces, turn, moves);
+			if (random.nextDouble() < epsilon) {
+				return moves.get(random.nextInt(moves.size()));
+			}
+			int best = moves.get(0);
+			double bestValue = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < moves.size(); i++) {
+				int mark = board.mark();
+				rules.execute(board, pieces, turn, moves.get(i));
+				// tanh is increasing, so the sums compare as the values
+				double value = network.patterns(board, pieces, turn, null);
+				board.undo(mark);
+				if (value > bestValue) {
+					bestValue = value;
+					best = moves.get(i);
+				}
+			}
+			return best;
+		}
+
+		private void learn(int[] indices, int n, double target) {
+			double value = network.value(indices, n);
+			double delta = target - value;
+			network.update(indices, n, (float) (learningRate * delta * (1.0 - value * value)));
+			error += delta * delta;
+			updates++;
+		}
+
+		private double result(Pair<State, Piece> state, Piece p) {
+			if (state.getFirst() != State.Won) {
+				return 0.0;
+			}
+			return p.equals(state.getSecond()) ? 1.0 : -1.0;
+		}
+
+	}
+
+}
@@ -0,0 +1,127 @@
+package es.ucm.fdi.tp.assignment4.book;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import es.ucm.fdi.tp.assignment4.ataxx.AtaxxFactory;
+import es.ucm.fdi.tp.basecode.attt.AdvancedTTTFactory;
+import es.ucm.fdi.tp.basecode.bgame.control.GameFactory;
+import es.ucm.fdi.tp.basecode.book.BookBuilder;
+import es.ucm.fdi.tp.basecode.connectn.ConnectNFactory;
+import es.ucm.fdi.tp.basecode.minmax.MinMax;
+import es.ucm.fdi.tp.basecode.ttt.TicTacToeFactory;
+
+/**
+ * <p>Builds the {@link es.ucm.fdi.tp.basecode.book.OpeningBook} of a game
+ * offline (see {@link BookBuilder}), searching each position of its first
+ * plies with a {@link MinMax} with a large time budget. The book is used in
+ * the games with the option -bk of {@link es.ucm.fdi.tp.assignment4.Main}.
+ * Ataxx books are built without obstacles, since they are placed at
+ * random.</p>
+ *
+ * <p>Construye fuera de linea el
+ * {@link es.ucm.fdi.tp.basecode.book.OpeningBook} de un juego (ver
+ * {@link BookBuilder}), buscando cada posicion de sus primeras jugadas con un
+ * {@link MinMax} con mucho tiempo. El libro se usa en las partidas con la
+ * opcion -bk de {@link es.ucm.fdi.tp.assignment4.Main}. Los libros de Ataxx
+ * se construyen sin obstaculos, ya que se colocan al azar.</p>
+ */
+public class BookTool {
+
+	private static final int DEFAULT_PLIES = 4;
+	private static final long DEFAULT_MOVE_TIME = 2000;
+
+	private static GameFactory factory;
+	private static int plies;
+	private static long moveTime;
+	private static int threads;
+	private static String output;
+
+	private static Options options() {
+		Options options = new Options();
+		options.addOption(new Option("h", "help", false, "Print this message"));
+		options.addOption(new Option("g", "game", true,
+				"Game of the book: 'ataxx', 'cn', 'ttt' or 'attt'. Mandatory."));
+		options.addOption(new Option("d", "dim", true,
+				"Dimension of the board of 'ataxx' and 'cn' (7 and 5 by default)."));
+		options.addOption(new Option("pl", "plies", true,
+				"Number of plies in the book. By default, " + DEFAULT_PLIES + "."));
+		options.addOption(new Option("mt", "move-time", true,
+				"Search time of each position, in milliseconds. By default, " + DEFAULT_MOVE_TIME + "."));
+		options.addOption(new Option("th", "threads", true,
+				"Number of positions searched at the same time. By default, one per processor."));
+		options.addOption(new Option("o", "output", true, "Book file. Mandatory."));
+		return options;
+	}
+
+	private static void parseArgs(String[] args) {
+		Options options = options();
+		try {
+			CommandLine line = new DefaultParser().parse(options, args);
+			if (line.hasOption("h")) {
+				new HelpFormatter().printHelp(BookTool.class.getCanonicalName(), options, true);
+				System.exit(0);
+			}
+			String game = line.getOptionValue("g");
+			output = line.getOptionValue("o");
+			if (game == null || output == null) {
+				throw new ParseException("The options -g and -o are mandatory");
+			}
+			String dim = line.getOptionValue("d");
+			if ("ataxx".equals(game)) {
+				factory = new AtaxxFactory(dim == null ? 7 : Integer.parseInt(dim), 0);
+			} else if ("cn".equals(game)) {
+				factory = dim == null ? new ConnectNFactory() : new ConnectNFactory(Integer.parseInt(dim));
+			} else if ("ttt".equals(game) && dim == null) {
+				factory = new TicTacToeFactory();
+			} else if ("attt".equals(game) && dim == null) {
+				factory = new AdvancedTTTFactory();
+			} else {
+				throw new ParseException("Invalid game: " + game + (dim == null ? "" : " " + dim));
+			}
+			plies = Integer.parseInt(line.getOptionValue("pl", String.valueOf(DEFAULT_PLIES)));
+			moveTime = Long.parseLong(line.getOptionValue("mt", String.valueOf(DEFAULT_MOVE_TIME)));
+			threads = Integer.parseInt(line.getOptionValue("th",
+					String.valueOf(Runtime.getRuntime().availableProcessors())));
+			if (plies < 1 || moveTime < 1 || threads < 1) {
+				throw new ParseException("Invalid number of plies, move time or threads");
+			}
+			if (line.getArgs().length > 0) {
+				throw new ParseException("Illegal arguments: " + Arrays.toString(line.getArgs()));
+			}
+		} catch (ParseException | NumberFormatException e) {
+			System.err.println(e.getLocalizedMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * <p>Builds the book described in the command line.</p>
+	 * <p>Construye el libro descrito en la linea de ordenes.</p>
+	 *
+	 * @param args
+	 *            <p>Command-line arguments (-h for help).</p>
+	 *            <p>Argumentos de la linea de ordenes (-h para ayuda).</p>
+	 */
+	public static void main(String[] args) throws IOException {
+		parseArgs(args);
+
+		BookBuilder builder = new BookBuilder(factory.gameRules(), factory.createDefaultPieces(),
+				new MinMax(moveTime), threads);
+		System.out.println("Building a book of " + plies + " plies of " + factory.gameRules().gameDesc() + "...");
+		long start = System.currentTimeMillis();
+		int size = builder.build(plies);
+		builder.write(Paths.get(output));
+		System.out.println(size + " positions written to " + output + " in "
+				+ (System.currentTimeMillis() - start) / 1000 + " s");
+	}
+
+}
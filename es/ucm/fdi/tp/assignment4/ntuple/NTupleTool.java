@@ -0,0 +1,131 @@
+package es.ucm.fdi.tp.assignment4.ntuple;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import es.ucm.fdi.tp.assignment4.ataxx.NTupleNetwork;
+import es.ucm.fdi.tp.assignment4.ataxx.NTupleTrainer;
+
+/**
+ * <p>Trains the {@link NTupleNetwork} of Ataxx offline by self-play (see
+ * {@link NTupleTrainer}), and writes its weights to a file. The network is
+ * used in the games with the option -nt of
+ * {@link es.ucm.fdi.tp.assignment4.Main}. The games are played in 10 rounds,
+ * and the error of each round is printed, so one can see whether the network
+ * is still learning.</p>
+ *
+ * <p>Entrena fuera de linea la {@link NTupleNetwork} de Ataxx jugando contra
+ * si misma (ver {@link NTupleTrainer}), y escribe sus pesos en un fichero. La
+ * red se usa en las partidas con la opcion -nt de
+ * {@link es.ucm.fdi.tp.assignment4.Main}. Las partidas se juegan en 10
+ * rondas, y se imprime el error de cada ronda, para ver si la red sigue
+ * aprendiendo.</p>
+ */
+public class NTupleTool {
+
+	private static final int ROUNDS = 10;
+
+	private static int dim;
+	private static int obstacles;
+	private static int games;
+	private static int threads;
+	private static double learningRate;
+	private static double epsilon;
+	private static String input;
+	private static String output;
+
+	private static Options options() {
+		Options options = new Options();
+		options.addOption(new Option("h", "help", false, "Print this message"));
+		options.addOption(new Option("d", "dim", true, "Dimension of the board of the games (7 by default)."));
+		options.addOption(new Option("ob", "obstacles", true,
+				"Number of random obstacles of the games (4 by default)."));
+		options.addOption(new Option("n", "games", true, "Number of games to play (100000 by default)."));
+		options.addOption(new Option("lr", "learning-rate", true, "Learning rate (0.001 by default)."));
+		options.addOption(new Option("e", "epsilon", true,
+				"Probability of a random move, to explore (0.1 by default)."));
+		options.addOption(new Option("th", "threads", true,
+				"Number of threads. By default, one per processor."));
+		options.addOption(new Option("i", "input", true,
+				"Network to go on training. By default, training starts from zero."));
+		options.addOption(new Option("o", "output", true, "Network file. Mandatory."));
+		return options;
+	}
+
+	private static void parseArgs(String[] args) {
+		Options options = options();
+		try {
+			CommandLine line = new DefaultParser().parse(options, args);
+			if (line.hasOption("h")) {
+				new HelpFormatter().printHelp(NTupleTool.class.getCanonicalName(), options, true);
+				System.exit(0);
+			}
+			output = line.getOptionValue("o");
+			if (output == null) {
+				throw new ParseException("The option -o is mandatory");
+			}
+			input = line.getOptionValue("i");
+			dim = Integer.parseInt(line.getOptionValue("d", "7"));
+			obstacles = Integer.parseInt(line.getOptionValue("ob", "4"));
+			games = Integer.parseInt(line.getOptionValue("n", "100000"));
+			learningRate = Double.parseDouble(line.getOptionValue("lr", "0.001"));
+			epsilon = Double.parseDouble(line.getOptionValue("e", "0.1"));
+			threads = Integer.parseInt(line.getOptionValue("th",
+					String.valueOf(Runtime.getRuntime().availableProcessors())));
+			if (games < 1) {
+				throw new ParseException("Invalid number of games: " + games);
+			}
+			if (threads < 1) {
+				throw new ParseException("Invalid number of threads: " + threads);
+			}
+			if (learningRate <= 0.0 || epsilon < 0.0 || epsilon > 1.0) {
+				throw new ParseException("Invalid learning rate or epsilon: " + learningRate + " " + epsilon);
+			}
+			if (line.getArgs().length > 0) {
+				throw new ParseException("Illegal arguments: " + Arrays.toString(line.getArgs()));
+			}
+		} catch (ParseException | NumberFormatException e) {
+			System.err.println(e.getLocalizedMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * <p>Trains the network described in the command line.</p>
+	 * <p>Entrena la red descrita en la linea de ordenes.</p>
+	 *
+	 * @param args
+	 *            <p>Command-line arguments (-h for help).</p>
+	 *            <p>Argumentos de la linea de ordenes (-h para ayuda).</p>
+	 */
+	public static void main(String[] args) throws IOException {
+		parseArgs(args);
+
+		NTupleNetwork network = input == null ? NTupleNetwork.create() : NTupleNetwork.open(Paths.get(input)).copy();
+		NTupleTrainer trainer = new NTupleTrainer(network, dim, obstacles, threads);
+		trainer.setLearningRate(learningRate);
+		trainer.setEpsilon(epsilon);
+		System.out.println("Training the n-tuple network with " + games + " games of Ataxx " + dim + "x" + dim
+				+ " with " + obstacles + " obstacles...");
+		long start = System.currentTimeMillis();
+		int played = 0;
+		for (int r = 1; r <= ROUNDS; r++) {
+			int n = (int) ((long) games * r / ROUNDS) - played;
+			double error = trainer.train(n);
+			played += n;
+			System.out.println(String.format("%d games: mean squared error %.4f", played, error));
+		}
+		network.write(Paths.get(output));
+		System.out.println("Network written to " + output + " in " + (System.currentTimeMillis() - start) / 1000
+				+ " s");
+	}
+
+}
@@ -0,0 +1,109 @@
+package es.ucm.fdi.tp.assignment4.tablebase;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import es.ucm.fdi.tp.basecode.attt.AdvancedTTTFactory;
+import es.ucm.fdi.tp.basecode.bgame.control.GameFactory;
+import es.ucm.fdi.tp.basecode.connectn.ConnectNFactory;
+import es.ucm.fdi.tp.basecode.tablebase.Tablebase;
+import es.ucm.fdi.tp.basecode.tablebase.TablebaseGenerator;
+import es.ucm.fdi.tp.basecode.ttt.TicTacToeFactory;
+
+/**
+ * <p>Generates the {@link Tablebase} of a small game offline (see
+ * {@link TablebaseGenerator}): Tic-Tac-Toe, Advanced Tic-Tac-Toe or ConnectN
+ * with a board of at most 4x4, for two players. The tablebase is used in the
+ * games with the option -tb of {@link es.ucm.fdi.tp.assignment4.Main}.</p>
+ *
+ * <p>Genera fuera de linea la {@link Tablebase} de un juego pequeno (ver
+ * {@link TablebaseGenerator}): Tic-Tac-Toe, Tic-Tac-Toe avanzado o ConnectN
+ * con un tablero de como mucho 4x4, para dos jugadores. La tabla se usa en
+ * las partidas con la opcion -tb de
+ * {@link es.ucm.fdi.tp.assignment4.Main}.</p>
+ */
+public class TablebaseTool {
+
+	private static GameFactory factory;
+	private static int threads;
+	private static String output;
+
+	private static Options options() {
+		Options options = new Options();
+		options.addOption(new Option("h", "help", false, "Print this message"));
+		options.addOption(new Option("g", "game", true, "Game of the tablebase: 'ttt', 'attt' or 'cn'. Mandatory."));
+		options.addOption(new Option("d", "dim", true, "Dimension of the board of 'cn' (4 by default)."));
+		options.addOption(new Option("th", "threads", true,
+				"Number of threads. By default, one per processor."));
+		options.addOption(new Option("o", "output", true, "Tablebase file. Mandatory."));
+		return options;
+	}
+
+	private static void parseArgs(String[] args) {
+		Options options = options();
+		try {
+			CommandLine line = new DefaultParser().parse(options, args);
+			if (line.hasOption("h")) {
+				new HelpFormatter().printHelp(TablebaseTool.class.getCanonicalName(), options, true);
+				System.exit(0);
+			}
+			String game = line.getOptionValue("g");
+			output = line.getOptionValue("o");
+			if (game == null || output == null) {
+				throw new ParseException("The options -g and -o are mandatory");
+			}
+			String dim = line.getOptionValue("d");
+			if ("cn".equals(game)) {
+				factory = new ConnectNFactory(dim == null ? 4 : Integer.parseInt(dim));
+			} else if ("ttt".equals(game) && dim == null) {
+				factory = new TicTacToeFactory();
+			} else if ("attt".equals(game) && dim == null) {
+				factory = new AdvancedTTTFactory();
+			} else {
+				throw new ParseException("Invalid game: " + game + (dim == null ? "" : " " + dim));
+			}
+			threads = Integer.parseInt(line.getOptionValue("th",
+					String.valueOf(Runtime.getRuntime().availableProcessors())));
+			if (threads < 1) {
+				throw new ParseException("Invalid number of threads: " + threads);
+			}
+			if (line.getArgs().length > 0) {
+				throw new ParseException("Illegal arguments: " + Arrays.toString(line.getArgs()));
+			}
+		} catch (ParseException | NumberFormatException e) {
+			System.err.println(e.getLocalizedMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * <p>Generates the tablebase described in the command line.</p>
+	 * <p>Genera la tabla descrita en la linea de ordenes.</p>
+	 *
+	 * @param args
+	 *            <p>Command-line arguments (-h for help).</p>
+	 *            <p>Argumentos de la linea de ordenes (-h para ayuda).</p>
+	 */
+	public static void main(String[] args) throws IOException {
+		parseArgs(args);
+
+		TablebaseGenerator generator = new TablebaseGenerator(factory.gameRules(), factory.createDefaultPieces(),
+				threads);
+		System.out.println("Generating the tablebase of " + factory.gameRules().gameDesc() + "...");
+		long start = System.currentTimeMillis();
+		int reachable = generator.generate();
+		generator.write(Paths.get(output));
+		System.out.println(reachable + " positions (" + generator.count(Tablebase.WIN) + " won, "
+				+ generator.count(Tablebase.LOSS) + " lost, " + generator.count(Tablebase.DRAW) + " drawn) written to "
+				+ output + " in " + (System.currentTimeMillis() - start) / 1000 + " s");
+	}
+
+}
@@ -4,9 +4,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 import es.ucm.fdi.tp.basecode.bgame.model.Board;
-import es.ucm.fdi.tp.basecode.bgame.model.FiniteRectBoard;
 import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveVisitor;
+import es.ucm.fdi.tp.basecode.bgame.model.PackedMove;
 import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+import es.ucm.fdi.tp.basecode.connectn.ConnectNBoard;
 import es.ucm.fdi.tp.basecode.ttt.TicTacToeRules;
 
 /**
@@ -25,7 +27,7 @@ public class AdvancedTTTRules extends TicTacToeRules {
 
 	@Override
 	public Board createBoard(List<Piece> playersPieces) {
-		Board b = new FiniteRectBoard(3, 3);
+		Board b = new ConnectNBoard(3);
 		b.setPieceCount(playersPieces.get(0), 3);
 		b.setPieceCount(playersPieces.get(1), 3);
 		return b;
@@ -64,4 +66,36 @@ public class AdvancedTTTRules extends TicTacToeRules {
 		return moves;
 	}
 
+	@Override
+	public boolean visitMoves(Board board, List<Piece> playersPieces, Piece turn, MoveVisitor visitor) {
+		if (board.getPieceCount(turn) > 0) {
+			return super.visitMoves(board, playersPieces, turn, visitor);
+		}
+		for (int i = 0; i < board.getRows(); i++) {
+			for (int j = 0; j < board.getCols(); j++) {
+				if (board.getPosition(i, j) == turn) {
+					for (int x = 0; x < board.getRows(); x++) {
+						for (int y = 0; y < board.getCols(); y++) {
+							if (board.getPosition(x, y) == null && !visitor.visit(PackedMove.move(i, j, x, y))) {
+								return false;
+							}
+						}
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void execute(Board board, List<Piece> playersPieces, Piece turn, int move) {
+		toGameMove(board, turn, move).execute(board, playersPieces);
+	}
+
+	@Override
+	public GameMove toGameMove(Board board, Piece turn, int move) {
+		return new AdvancedTTTMove(PackedMove.fromRow(move), PackedMove.fromCol(move), PackedMove.row(move),
+				PackedMove.col(move), turn);
+	}
+
 }
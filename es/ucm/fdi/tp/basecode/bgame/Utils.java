@@ -3,6 +3,7 @@ package es.ucm.fdi.tp.basecode.bgame;
 import java.awt.Color;
 import java.util.Iterator;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * A class with some (static) miscellaneous methods.
@@ -13,15 +14,17 @@ import java.util.Random;
  */
 public class Utils {
 
-	private static Random randGeneratorDiffSeed = new Random();
-
 	/**
 	 * Returns a random integer between 0 (inclusive) and n (exclusive). It
-	 * simply delegates to {@link Random#nextInt(int)}.
+	 * simply delegates to {@link Random#nextInt(int)} of the
+	 * {@link ThreadLocalRandom} of the calling thread, so concurrent games do
+	 * not contend for a single generator.
 	 * 
 	 * <p>
 	 * Devuelve un numero entero entre 0 (incluido) y n (excluido). Utiliza
-	 * {@link Random#nextInt(int)}.
+	 * {@link Random#nextInt(int)} del {@link ThreadLocalRandom} de la hebra
+	 * que lo llama, para que las partidas concurrentes no compitan por un unico
+	 * generador.
 	 * 
 	 * @param n
 	 *            The upper limit (exclusive) of the generated random integer.
@@ -32,7 +35,7 @@ public class Utils {
 	 *         Numero entero aleatorio entre 0 (incluido) y n (excluido).
 	 */
 	public static int randomInt(int n) {
-		return randGeneratorDiffSeed.nextInt(n);
+		return ThreadLocalRandom.current().nextInt(n);
 	}
 
 	/**
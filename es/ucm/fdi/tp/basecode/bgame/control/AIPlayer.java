@@ -3,18 +3,23 @@ package es.ucm.fdi.tp.basecode.bgame.control;
 import java.util.List;
 
 import es.ucm.fdi.tp.basecode.bgame.model.AIAlgorithm;
+import es.ucm.fdi.tp.basecode.bgame.model.AnytimeAIAlgorithm;
 import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.GameClock;
 import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
 import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
 import es.ucm.fdi.tp.basecode.bgame.model.Piece;
 
 /**
  * Class that implements an AI player that simply delegates the requests to an
- * {@link AIAlgorithm}.
+ * {@link AIAlgorithm}. In a game with clocks, an {@link AnytimeAIAlgorithm}
+ * is given the deadline of {@link GameClock#moveDeadline(Piece)}.
  * 
  * <p>
  * Clase que implementa un jugador con IA que delega la peticion a un
- * {@link AIAlgorithm}..
+ * {@link AIAlgorithm}. En un juego con relojes, a un
+ * {@link AnytimeAIAlgorithm} se le da el instante limite de
+ * {@link GameClock#moveDeadline(Piece)}.
  */
 public class AIPlayer extends Player {
 
@@ -42,4 +47,17 @@ public class AIPlayer extends Player {
 		return alg.getMove(p, board, pieces, rules);
 	}
 
+	@Override
+	public GameMove requestMove(Piece p, Board board, List<Piece> pieces, GameRules rules, GameClock clock) {
+		if (clock != null && alg instanceof AnytimeAIAlgorithm) {
+			return ((AnytimeAIAlgorithm) alg).getMove(p, board, pieces, rules, clock.moveDeadline(p));
+		}
+		return requestMove(p, board, pieces, rules);
+	}
+
+	@Override
+	public boolean isAutomatic() {
+		return true;
+	}
+
 }
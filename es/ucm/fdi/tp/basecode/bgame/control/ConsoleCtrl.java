@@ -99,7 +99,7 @@ public class ConsoleCtrl extends Controller {
 	 */
 	@Override
 	public void makeMove(Player p) {
-		game.makeMove(players.get(game.getTurn()));
+		super.makeMove(players.get(game.getTurn()));
 	};
 
 	/**
@@ -137,7 +137,7 @@ public class ConsoleCtrl extends Controller {
 		}
 
 		// start the game
-		game.start(pieces);
+		startGame();
 
 		// print the starting message
 		System.out.println("Starting '" + game.gameDesc() + "'");
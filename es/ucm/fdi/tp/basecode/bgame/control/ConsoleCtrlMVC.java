@@ -19,6 +19,19 @@ import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
  * Controlador que usa MVC. Se diferencia de {@link ConsoleCtrl} en que no
  * escribe ningun resultado relacionado con el juego (solo los errores de
  * interaccion con el usuario).
+ * 
+ * <p>
+ * Since the output is done by the views, the moves of automatic players (see
+ * {@link Player#isAutomatic()}, e.g., AI players, with or without an opening
+ * book) are made with {@link #makeMoveAsync(Player)}: the console keeps
+ * accepting commands (e.g., 'restart' or 'quit') while the AI is thinking.
+ * 
+ * <p>
+ * Como la salida la hacen las vistas, los movimientos de los jugadores
+ * automaticos (vease {@link Player#isAutomatic()}, por ejemplo los jugadores
+ * con IA, con o sin libro de aperturas) se hacen con
+ * {@link #makeMoveAsync(Player)}: la consola sigue aceptando comandos (por
+ * ejemplo, 'restart' o 'quit') mientras la IA piensa.
  */
 public class ConsoleCtrlMVC extends ConsoleCtrl {
 
@@ -26,11 +39,21 @@ public class ConsoleCtrlMVC extends ConsoleCtrl {
 		super(g, pieces, players, in);
 	}
 
+	@Override
+	public void makeMove(Player p) {
+		Player player = players.get(game.getTurn());
+		if (player.isAutomatic()) {
+			makeMoveAsync(player);
+		} else {
+			super.makeMove(p);
+		}
+	}
+
 	@Override
 	public void start() {
 
 		// start the game
-		game.start(pieces);
+		startGame();
 
 		while (game.getState() == State.InPlay) {
 
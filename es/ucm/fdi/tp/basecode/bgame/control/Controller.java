@@ -2,8 +2,24 @@ package es.ucm.fdi.tp.basecode.bgame.control;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 import es.ucm.fdi.tp.basecode.bgame.model.Game;
+import es.ucm.fdi.tp.basecode.bgame.model.GameClock;
+import es.ucm.fdi.tp.basecode.bgame.model.GameError;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
 import es.ucm.fdi.tp.basecode.bgame.model.Piece;
 
 /**
@@ -16,6 +32,24 @@ import es.ucm.fdi.tp.basecode.bgame.model.Piece;
  * fichas dadas en el constructor, y realiza operaciones como ejecutar un
  * movimiento de un jugador, parar el juego, etc.
  * 
+ * <p>
+ * All the changes to {@link #game} (start, moves, restart and stop) are made
+ * by a single writer thread, in the order they are requested, so the game
+ * stays consistent without locking it. The synchronous methods wait for their
+ * change to be made. {@link #makeMoveAsync(Player)} asks the player for a
+ * move on another thread, on a copy of the board, and returns at once; the
+ * request can be cancelled with {@link #cancelMove()}, and it is discarded if
+ * the game changes (e.g., it is restarted or stopped) before it finishes.
+ * 
+ * <p>
+ * Todos los cambios en {@link #game} (inicio, movimientos, reinicio y
+ * parada) los hace una unica hebra escritora, en el orden en que se piden,
+ * por lo que el juego se mantiene consistente sin bloquearlo. Los metodos
+ * sincronos esperan a que se haga su cambio.
+ * {@link #makeMoveAsync(Player)} pide el movimiento al jugador en otra hebra,
+ * sobre una copia del tablero, y vuelve inmediatamente; la peticion se puede
+ * cancelar con {@link #cancelMove()}, y se descarta si el juego cambia (por
+ * ejemplo, se reinicia o se para) antes de que termine.
  */
 public class Controller {
 
@@ -35,6 +69,64 @@ public class Controller {
 	 */
 	protected List<Piece> pieces;
 
+	/**
+	 * The executor of the changes to {@link #game}. It has at most one thread
+	 * (which ends when it is idle for a while), so the changes are made one
+	 * after another, in order.
+	 * 
+	 * <p>
+	 * Ejecutor de los cambios en {@link #game}. Tiene como mucho una hebra
+	 * (que termina cuando esta inactiva un tiempo), por lo que los cambios se
+	 * hacen uno detras de otro, en orden.
+	 */
+	private final ExecutorService writer;
+
+	/**
+	 * The current thread of {@link #writer}.
+	 * 
+	 * <p>
+	 * Hebra actual de {@link #writer}.
+	 */
+	private volatile Thread writerThread;
+
+	/**
+	 * The executor of the requests of {@link #makeMoveAsync(Player)}.
+	 * 
+	 * <p>
+	 * Ejecutor de las peticiones de {@link #makeMoveAsync(Player)}.
+	 */
+	private final ExecutorService thinkers;
+
+	/**
+	 * The executor of the timeouts of the requests of
+	 * {@link #makeMoveAsync(Player)}, when the game has a clock. A timeout
+	 * only hands its work over to {@link #writer}.
+	 * 
+	 * <p>
+	 * Ejecutor de los tiempos limite de las peticiones de
+	 * {@link #makeMoveAsync(Player)}, cuando el juego tiene reloj. Un tiempo
+	 * limite solo pasa su trabajo a {@link #writer}.
+	 */
+	private final ScheduledExecutorService timer;
+
+	/**
+	 * The result of the last call to {@link #makeMoveAsync(Player)}.
+	 * 
+	 * <p>
+	 * Resultado de la ultima llamada a {@link #makeMoveAsync(Player)}.
+	 */
+	private CompletableFuture<GameMove> pending;
+
+	/**
+	 * The number of changes made to {@link #game}. A move requested for an
+	 * older generation is discarded. It is only used by the writer thread.
+	 * 
+	 * <p>
+	 * Numero de cambios hechos en {@link #game}. Un movimiento pedido para una
+	 * generacion anterior se descarta. Solo lo usa la hebra escritora.
+	 */
+	private int generation;
+
 	/**
 	 * Constructs a controller. Should be called by subclasses to set the values
 	 * of {@link #game} and {@link #pieces}.
@@ -62,8 +154,83 @@ public class Controller {
 			this.pieces = new ArrayList<Piece>(pieces);
 		else
 			this.pieces = new ArrayList<Piece>();
+		ThreadPoolExecutor writer = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "game-writer");
+						t.setDaemon(true);
+						writerThread = t;
+						return t;
+					}
+				});
+		writer.allowCoreThreadTimeOut(true);
+		this.writer = writer;
+		this.thinkers = Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "game-thinker");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "game-timer");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		timer.setRemoveOnCancelPolicy(true);
+		this.timer = timer;
 	};
 
+	/**
+	 * Makes a change to {@link #game} on the writer thread and waits for it.
+	 * The errors of the change are thrown again in the calling thread. If it
+	 * is called from the writer thread itself (e.g., by an observer of the
+	 * game), the change is made directly.
+	 * 
+	 * <p>
+	 * Hace un cambio en {@link #game} en la hebra escritora y lo espera. Los
+	 * errores del cambio se vuelven a lanzar en la hebra que llama. Si se
+	 * llama desde la propia hebra escritora (por ejemplo, desde un observador
+	 * del juego), el cambio se hace directamente.
+	 * 
+	 * @param change
+	 *            The change.
+	 *            <p>
+	 *            El cambio.
+	 */
+	protected void write(final Runnable change) {
+		if (Thread.currentThread() == writerThread) {
+			generation++;
+			change.run();
+			return;
+		}
+		try {
+			writer.submit(new Runnable() {
+				@Override
+				public void run() {
+					generation++;
+					change.run();
+				}
+			}).get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new GameError("The change of the game failed: " + e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GameError("Interrupted while waiting for the game");
+		}
+	}
+
 	/**
 	 * Stops the game that is being played in this controller (the one
 	 * referenced by {@link #game}).
@@ -74,7 +241,13 @@ public class Controller {
 	 */
 	public void stop() {
 		if (game != null) {
-			game.stop();
+			cancelMove();
+			write(new Runnable() {
+				@Override
+				public void run() {
+					game.stop();
+				}
+			});
 		}
 	}
 
@@ -86,7 +259,13 @@ public class Controller {
 	 */
 	public void restart() {
 		if (game != null) {
-			game.restart();
+			cancelMove();
+			write(new Runnable() {
+				@Override
+				public void run() {
+					game.restart();
+				}
+			});
 		}
 	}
 
@@ -99,9 +278,215 @@ public class Controller {
 	 * @param player
 	 *            A player.
 	 */
-	public void makeMove(Player player) {
+	public void makeMove(final Player player) {
 		if (game != null && player != null) {
-			game.makeMove(player);
+			write(new Runnable() {
+				@Override
+				public void run() {
+					game.makeMove(player);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Makes a move in the game being played without waiting for it: the
+	 * player is asked for a move on another thread, on a copy of the board,
+	 * and the move is then executed on the writer thread. Only one request can
+	 * be pending at a time. If the game changes before the move is executed
+	 * (another move, restart, stop), the move is discarded and the result is
+	 * cancelled. Cancelling the result (or calling {@link #cancelMove()})
+	 * interrupts the thread of the player. If the game has a clock and the
+	 * player does not answer before it runs out, its thread is interrupted
+	 * and the timeout policy of the game is applied, as in
+	 * {@link Game#makeMove(Player)}.
+	 * 
+	 * <p>
+	 * Hace un movimiento en el juego que se esta jugando sin esperarlo: se
+	 * pide el movimiento al jugador en otra hebra, sobre una copia del
+	 * tablero, y despues se ejecuta el movimiento en la hebra escritora. Solo
+	 * puede haber una peticion pendiente a la vez. Si el juego cambia antes de
+	 * que se ejecute el movimiento (otro movimiento, reinicio, parada), el
+	 * movimiento se descarta y se cancela el resultado. Cancelar el resultado
+	 * (o llamar a {@link #cancelMove()}) interrumpe la hebra del jugador. Si
+	 * el juego tiene reloj y el jugador no contesta antes de que se le acabe,
+	 * se interrumpe su hebra y se aplica la politica de tiempo agotado del
+	 * juego, como en {@link Game#makeMove(Player)}.
+	 * 
+	 * @param player
+	 *            A player.
+	 *            <p>
+	 *            Un jugador.
+	 * @return The move once it has been executed (the fallback move if the
+	 *         player ran out of time, or {@code null} if it forfeited). It
+	 *         completes exceptionally with the error of the player or of the
+	 *         move, if any.
+	 *         <p>
+	 *         El movimiento una vez ejecutado (el sustituto si el jugador se
+	 *         quedo sin tiempo, o {@code null} si perdio la partida). Se
+	 *         completa con el error del jugador o del movimiento, si lo hay.
+	 * @throws GameError
+	 *             If there is no game or another request is pending.
+	 *             <p>
+	 *             Si no hay juego u otra peticion esta pendiente.
+	 */
+	public synchronized CompletableFuture<GameMove> makeMoveAsync(final Player player) {
+		if (game == null || player == null) {
+			throw new GameError("There is no game or player to make a move");
+		}
+		if (pending != null && !pending.isDone()) {
+			throw new GameError("A move is already being requested");
+		}
+		final CompletableFuture<GameMove> result = new CompletableFuture<GameMove>();
+		pending = result;
+		writer.execute(new Runnable() {
+			@Override
+			public void run() {
+				request(player, result);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Cancels the pending request of {@link #makeMoveAsync(Player)}, if any.
+	 * 
+	 * <p>
+	 * Cancela la peticion pendiente de {@link #makeMoveAsync(Player)}, si la
+	 * hay.
+	 * 
+	 * @return {@code true} if a request was cancelled.
+	 *         <p>
+	 *         {@code true} si se ha cancelado una peticion.
+	 */
+	public synchronized boolean cancelMove() {
+		return pending != null && pending.cancel(true);
+	}
+
+	/**
+	 * Starts the request of a move to {@code player} for the current position,
+	 * and its timeout if the game has a clock. Called on the writer thread.
+	 * 
+	 * <p>
+	 * Comienza la peticion de un movimiento a {@code player} para la posicion
+	 * actual, y su tiempo limite si el juego tiene reloj. Se llama en la hebra
+	 * escritora.
+	 */
+	private void request(Player player, final CompletableFuture<GameMove> result) {
+		if (result.isDone()) {
+			return;
+		}
+		final int requested = generation;
+		final Callable<GameMove> request;
+		try {
+			request = game.moveRequest(player);
+		} catch (RuntimeException e) {
+			result.completeExceptionally(e);
+			return;
+		}
+		final Future<?> thinking = thinkers.submit(new Runnable() {
+			@Override
+			public void run() {
+				GameMove move = null;
+				RuntimeException error = null;
+				try {
+					move = request.call();
+				} catch (RuntimeException e) {
+					error = e;
+				} catch (Exception e) {
+					error = new GameError("The request of a move failed: " + e);
+				}
+				final GameMove m = move;
+				final RuntimeException e = error;
+				writer.execute(new Runnable() {
+					@Override
+					public void run() {
+						finish(result, requested, m, e);
+					}
+				});
+			}
+		});
+		GameClock clock = game.getClock();
+		final Future<?> timeout;
+		if (clock != null) {
+			timeout = timer.schedule(new Runnable() {
+				@Override
+				public void run() {
+					writer.execute(new Runnable() {
+						@Override
+						public void run() {
+							timeOut(result, requested, thinking);
+						}
+					});
+				}
+			}, Math.max(0, clock.getRemaining(game.getTurn())), TimeUnit.MILLISECONDS);
+		} else {
+			timeout = null;
+		}
+		result.whenComplete(new BiConsumer<GameMove, Throwable>() {
+			@Override
+			public void accept(GameMove m, Throwable e) {
+				if (result.isCancelled()) {
+					thinking.cancel(true);
+				}
+				if (timeout != null) {
+					timeout.cancel(false);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Applies the timeout policy of the game to the request of {@code result},
+	 * whose player ran out of time, unless the request has already finished
+	 * or the game changed meanwhile. The thread of the player is interrupted.
+	 * Called on the writer thread.
+	 * 
+	 * <p>
+	 * Aplica la politica de tiempo agotado del juego a la peticion de
+	 * {@code result}, cuyo jugador se quedo sin tiempo, salvo que la peticion
+	 * ya haya terminado o el juego haya cambiado mientras tanto. Se interrumpe
+	 * la hebra del jugador. Se llama en la hebra escritora.
+	 */
+	private void timeOut(CompletableFuture<GameMove> result, int requested, Future<?> thinking) {
+		if (result.isDone() || requested != generation) {
+			return;
+		}
+		generation++;
+		thinking.cancel(true);
+		try {
+			result.complete(game.timeOut());
+		} catch (RuntimeException e) {
+			result.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * Executes the move computed for {@code result}, unless the request was
+	 * cancelled or the game changed meanwhile. Called on the writer thread.
+	 * 
+	 * <p>
+	 * Ejecuta el movimiento calculado para {@code result}, salvo que la
+	 * peticion se haya cancelado o el juego haya cambiado mientras tanto. Se
+	 * llama en la hebra escritora.
+	 */
+	private void finish(CompletableFuture<GameMove> result, int requested, GameMove move, RuntimeException error) {
+		if (result.isDone()) {
+			return;
+		}
+		if (requested != generation) {
+			result.cancel(false);
+			return;
+		}
+		generation++;
+		try {
+			if (error != null) {
+				game.reportError(error);
+			}
+			game.makeMove(move);
+			result.complete(move);
+		} catch (RuntimeException e) {
+			result.completeExceptionally(e);
 		}
 	}
 
@@ -115,8 +500,25 @@ public class Controller {
 	 */
 	public void start() {
 		if (game != null) {
-			game.start(pieces);
+			startGame();
 		}
 	}
 
+	/**
+	 * Starts {@link #game} with {@link #pieces} on the writer thread. It is
+	 * meant for subclasses that override {@link #start()}.
+	 * 
+	 * <p>
+	 * Inicia {@link #game} con {@link #pieces} en la hebra escritora. Esta
+	 * pensado para las subclases que sobrescriben {@link #start()}.
+	 */
+	protected void startGame() {
+		write(new Runnable() {
+			@Override
+			public void run() {
+				game.start(pieces);
+			}
+		});
+	}
+
 }
@@ -4,6 +4,7 @@ import java.util.List;
 
 import es.ucm.fdi.tp.basecode.bgame.Utils;
 import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.GameClock;
 import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
 import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
 import es.ucm.fdi.tp.basecode.bgame.model.Piece;
@@ -71,4 +72,28 @@ public class DummyAIPlayer extends Player {
 		return player.requestMove(p, board, pieces, rules);
 	}
 
+	/**
+	 * Like {@link #requestMove(Piece, Board, List, GameRules)}, but it never
+	 * waits longer than the time budget of its clock (see
+	 * {@link GameClock#moveBudget(Piece)}).
+	 * 
+	 * <p>
+	 * Como {@link #requestMove(Piece, Board, List, GameRules)}, pero nunca
+	 * espera mas que el tiempo que le da su reloj (vease
+	 * {@link GameClock#moveBudget(Piece)}).
+	 */
+	@Override
+	public GameMove requestMove(Piece p, Board board, List<Piece> pieces, GameRules rules, GameClock clock) {
+		if (clock == null) {
+			return requestMove(p, board, pieces, rules);
+		}
+		Utils.sleep((int) Math.min(delay, clock.moveBudget(p)));
+		return player.requestMove(p, board, pieces, rules, clock);
+	}
+
+	@Override
+	public boolean isAutomatic() {
+		return true;
+	}
+
 }
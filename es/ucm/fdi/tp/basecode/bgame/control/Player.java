@@ -4,6 +4,8 @@ package es.ucm.fdi.tp.basecode.bgame.control;
 import java.util.List;
 
 import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.Game;
+import es.ucm.fdi.tp.basecode.bgame.model.GameClock;
 import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
 import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
 import es.ucm.fdi.tp.basecode.bgame.model.Piece;
@@ -63,4 +65,73 @@ public abstract class Player implements java.io.Serializable {
 	 */
 	public abstract GameMove requestMove(Piece p, Board board, List<Piece> pieces, GameRules rules);
 
+	/**
+	 * Returns a game move, like
+	 * {@link #requestMove(Piece, Board, List, GameRules)}, in a game with
+	 * clocks. Players that can adapt to the time left (e.g., searching
+	 * players) should override it and answer before their clock runs out,
+	 * since the game stops waiting for them then (see
+	 * {@link Game#setClock(GameClock, Game.TimeoutPolicy)}). By default it
+	 * ignores the clocks.
+	 * 
+	 * <p>
+	 * Obtiene un movimiento, como
+	 * {@link #requestMove(Piece, Board, List, GameRules)}, en un juego con
+	 * relojes. Los jugadores que pueden adaptarse al tiempo restante (por
+	 * ejemplo, los que buscan) deberian sobrescribirlo y contestar antes de
+	 * que se acabe su tiempo, pues entonces el juego deja de esperarlos
+	 * (vease {@link Game#setClock(GameClock, Game.TimeoutPolicy)}). Por
+	 * defecto ignora los relojes.
+	 * 
+	 * @param p
+	 *            The piece to be used for making the move.
+	 *            <p>
+	 *            La ficha que se utiliza para realizar el movimiento.
+	 * @param board
+	 *            A board on which the move will be executed.
+	 *            <p>
+	 *            Tablero sobre el que se esta jugando.
+	 * @param pieces
+	 *            The list of pieces involved in the game.
+	 *            <p>
+	 *            La lista de fichas de todos los jugadores.
+	 * @param rules
+	 *            The rules of the game being played.
+	 *            <p>
+	 *            Las reglas del juego que se esta jugando.
+	 * @param clock
+	 *            The clocks of the game, with the one of {@code p} running, or
+	 *            {@code null} if the game is not timed.
+	 *            <p>
+	 *            Los relojes del juego, con el de {@code p} en marcha, o
+	 *            {@code null} si el juego no tiene tiempo.
+	 * @return A game move.
+	 *         <p>
+	 *         Un movimiento proporcionado por este jugador.
+	 */
+	public GameMove requestMove(Piece p, Board board, List<Piece> pieces, GameRules rules, GameClock clock) {
+		return requestMove(p, board, pieces, rules);
+	}
+
+	/**
+	 * Checks if the player computes its moves by itself, without the user,
+	 * possibly for a long time (e.g., a searching player). Controllers can
+	 * then ask it for its moves on another thread, so they keep accepting
+	 * commands meanwhile. By default it is {@code false}.
+	 * 
+	 * <p>
+	 * Comprueba si el jugador calcula sus movimientos por si mismo, sin el
+	 * usuario, posiblemente durante mucho tiempo (por ejemplo, un jugador que
+	 * busca). Los controladores pueden entonces pedirle sus movimientos en
+	 * otra hebra, para seguir aceptando ordenes mientras tanto. Por defecto
+	 * es {@code false}.
+	 * 
+	 * @return {@code true} if the player computes its moves by itself.
+	 *         <p>
+	 *         {@code true} si el jugador calcula sus movimientos por si mismo.
+	 */
+	public boolean isAutomatic() {
+		return false;
+	}
+
 }
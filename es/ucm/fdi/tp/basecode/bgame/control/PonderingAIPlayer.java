@@ -0,0 +1,306 @@
+package es.ucm.fdi.tp.basecode.bgame.control;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import es.ucm.fdi.tp.basecode.bgame.model.AIAlgorithm;
+import es.ucm.fdi.tp.basecode.bgame.model.AnytimeAIAlgorithm;
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.Game;
+import es.ucm.fdi.tp.basecode.bgame.model.GameClock;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.GameObserver;
+import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+import es.ucm.fdi.tp.basecode.bgame.model.ReadOnlyBoard;
+
+/**
+ * An {@link AIPlayer} that keeps searching while the other players think
+ * (pondering). It must be added as an observer of the game. When the turn
+ * passes to another player, it predicts the reply of that player with a short
+ * search of its own algorithm (see {@link #PREDICTION_BUDGET}) and, if the player after the predicted reply is its own piece,
+ * searches its answer to it in the background. If the reply actually played
+ * is the predicted one (a ponder hit), {@link #requestMove} returns the move
+ * found in the background, waiting only for what is left of that search.
+ * Otherwise the background search is interrupted and a normal search is done
+ * (which, for algorithms with a transposition table, still benefits from the
+ * positions already searched).
+ *
+ * <p>
+ * The player only knows its piece after its first move, so it starts
+ * pondering from then on.
+ *
+ * <p>
+ * Un {@link AIPlayer} que sigue buscando mientras los otros jugadores piensan
+ * (ponder). Se debe anadir como observador del juego. Cuando el turno pasa a
+ * otro jugador, predice la respuesta de ese jugador con una busqueda corta de
+ * su propio algoritmo (vease {@link #PREDICTION_BUDGET}) y, si el jugador tras la respuesta predicha es su propia ficha, busca en
+ * segundo plano su contestacion. Si la respuesta que se juega es la predicha
+ * (un acierto), {@link #requestMove} devuelve el movimiento encontrado en
+ * segundo plano, esperando solo lo que quede de esa busqueda. En otro caso, la
+ * busqueda en segundo plano se interrumpe y se hace una busqueda normal (que,
+ * para los algoritmos con tabla de transposiciones, aun aprovecha las
+ * posiciones ya buscadas).
+ *
+ * <p>
+ * El jugador solo conoce su ficha tras su primer movimiento, por lo que
+ * empieza a pensar en el turno de los demas a partir de entonces.
+ */
+public class PonderingAIPlayer extends AIPlayer implements GameObserver {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The time budget, in milliseconds, of the search that predicts the reply
+	 * of the other player, if the algorithm is an
+	 * {@link AnytimeAIAlgorithm}. It is kept short so that most of the turn
+	 * of the other player is left to search the answer to that reply.
+	 *
+	 * <p>
+	 * Tiempo, en milisegundos, de la busqueda que predice la respuesta del
+	 * otro jugador, si el algoritmo es un {@link AnytimeAIAlgorithm}. Es corto
+	 * para dejar la mayor parte del turno del otro jugador a la busqueda de la
+	 * contestacion a esa respuesta.
+	 */
+	public static final long PREDICTION_BUDGET = 100;
+
+	/**
+	 * A search in the background, started in the turn of another player.
+	 *
+	 * <p>
+	 * Una busqueda en segundo plano, comenzada en el turno de otro jugador.
+	 */
+	private static class Ponder {
+
+		/**
+		 * The Zobrist key of the position after the predicted reply, once it
+		 * is known.
+		 *
+		 * <p>
+		 * La clave Zobrist de la posicion tras la respuesta predicha, una vez
+		 * que se conoce.
+		 */
+		private volatile Long position;
+
+		/**
+		 * The answer to the predicted reply, or {@code null} if there is none.
+		 *
+		 * <p>
+		 * La contestacion a la respuesta predicha, o {@code null} si no la
+		 * hay.
+		 */
+		private Future<GameMove> result;
+	}
+
+	/**
+	 * The thread of the background searches.
+	 *
+	 * <p>
+	 * Hebra de las busquedas en segundo plano.
+	 */
+	private transient ExecutorService ponderer;
+
+	private AIAlgorithm alg;
+	private Piece me;
+	private List<Piece> pieces;
+	private GameRules rules;
+
+	/**
+	 * The current background search, or {@code null}.
+	 *
+	 * <p>
+	 * La busqueda en segundo plano actual, o {@code null}.
+	 */
+	private transient Ponder ponder;
+
+	/**
+	 * Constructs an AI player that ponders.
+	 *
+	 * <p>
+	 * Construye un jugador AI que piensa en el turno de los demas.
+	 *
+	 * @param alg
+	 *            The {@link AIAlgorithm} to be used by this player.
+	 *
+	 *            <p>
+	 *            El {@link AIAlgorithm} que usa este jugador.
+	 */
+	public PonderingAIPlayer(AIAlgorithm alg) {
+		super(alg);
+		this.alg = alg;
+	}
+
+	@Override
+	public GameMove requestMove(Piece p, Board board, List<Piece> pieces, GameRules rules) {
+		GameMove move = pondered(p, board, pieces, rules, null);
+		return move != null ? move : super.requestMove(p, board, pieces, rules);
+	}
+
+	@Override
+	public GameMove requestMove(Piece p, Board board, List<Piece> pieces, GameRules rules, GameClock clock) {
+		GameMove move = pondered(p, board, pieces, rules, clock);
+		return move != null ? move : super.requestMove(p, board, pieces, rules, clock);
+	}
+
+	/**
+	 * Takes the current background search and, if it searched the position
+	 * of {@code board}, waits for its move. In a game with clocks, it waits at
+	 * most the time budget of the clock of {@code p}.
+	 *
+	 * <p>
+	 * Toma la busqueda en segundo plano actual y, si busco la posicion de
+	 * {@code board}, espera su movimiento. En un juego con relojes, espera
+	 * como mucho el tiempo que da el reloj de {@code p}.
+	 *
+	 * @return The move, or {@code null} if it has to be searched again.
+	 *         <p>
+	 *         El movimiento, o {@code null} si hay que volver a buscarlo.
+	 */
+	private GameMove pondered(Piece p, Board board, List<Piece> pieces, GameRules rules, GameClock clock) {
+		Ponder pd;
+		synchronized (this) {
+			this.me = p;
+			this.pieces = pieces;
+			this.rules = rules;
+			pd = ponder;
+			ponder = null;
+		}
+		if (pd == null) {
+			return null;
+		}
+		Long position = pd.position;
+		if (position == null || position.longValue() != board.getZobristKey()) {
+			pd.result.cancel(true);
+			return null;
+		}
+		try {
+			if (clock != null) {
+				return pd.result.get(clock.moveBudget(p), TimeUnit.MILLISECONDS);
+			}
+			return pd.result.get();
+		} catch (ExecutionException | CancellationException e) {
+			return null;
+		} catch (TimeoutException e) {
+			pd.result.cancel(true);
+			return null;
+		} catch (InterruptedException e) {
+			pd.result.cancel(true);
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	/**
+	 * Starts a background search for the position of {@code board}, where
+	 * {@code turn} is to move. When the turn comes back to this player, the
+	 * current search is kept for {@link #requestMove}.
+	 *
+	 * <p>
+	 * Comienza una busqueda en segundo plano para la posicion de
+	 * {@code board}, en la que mueve {@code turn}. Cuando el turno vuelve a
+	 * este jugador, la busqueda actual se conserva para {@link #requestMove}.
+	 */
+	private synchronized void startPonder(Board board, final Piece turn) {
+		if (me == null || me.equals(turn)) {
+			return;
+		}
+		stopPonder();
+		if (ponderer == null) {
+			ponderer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "ponder");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		final Board copy = board.copy();
+		final Piece me = this.me;
+		final List<Piece> pieces = this.pieces;
+		final GameRules rules = this.rules;
+		final Ponder pd = new Ponder();
+		pd.result = ponderer.submit(new Callable<GameMove>() {
+			@Override
+			public GameMove call() {
+				GameMove reply = predict(turn, new ReadOnlyBoard(copy), pieces, rules);
+				if (reply == null || Thread.currentThread().isInterrupted()) {
+					return null;
+				}
+				reply.execute(copy, pieces);
+				if (rules.updateState(copy, pieces, turn).getFirst() != Game.State.InPlay
+						|| !me.equals(rules.nextPlayer(copy, pieces, turn))) {
+					return null;
+				}
+				pd.position = copy.getZobristKey();
+				return PonderingAIPlayer.super.requestMove(me, new ReadOnlyBoard(copy), pieces, rules);
+			}
+		});
+		ponder = pd;
+	}
+
+	/**
+	 * Predicts the reply of {@code turn}, with a search of at most
+	 * {@link #PREDICTION_BUDGET} milliseconds if the algorithm allows it.
+	 *
+	 * <p>
+	 * Predice la respuesta de {@code turn}, con una busqueda de como mucho
+	 * {@link #PREDICTION_BUDGET} milisegundos si el algoritmo lo permite.
+	 */
+	private GameMove predict(Piece turn, Board board, List<Piece> pieces, GameRules rules) {
+		if (alg instanceof AnytimeAIAlgorithm) {
+			return ((AnytimeAIAlgorithm) alg).getMove(turn, board, pieces, rules,
+					System.currentTimeMillis() + PREDICTION_BUDGET);
+		}
+		return super.requestMove(turn, board, pieces, rules);
+	}
+
+	/**
+	 * Interrupts the current background search, if any.
+	 *
+	 * <p>
+	 * Interrumpe la busqueda en segundo plano actual, si la hay.
+	 */
+	private synchronized void stopPonder() {
+		if (ponder != null) {
+			ponder.result.cancel(true);
+			ponder = null;
+		}
+	}
+
+	@Override
+	public void onGameStart(Board board, String gameDesc, List<Piece> pieces, Piece turn) {
+		stopPonder();
+	}
+
+	@Override
+	public void onGameOver(Board board, Game.State state, Piece winner) {
+		stopPonder();
+	}
+
+	@Override
+	public void onMoveStart(Board board, Piece turn) {
+	}
+
+	@Override
+	public void onMoveEnd(Board board, Piece turn, boolean success) {
+	}
+
+	@Override
+	public void onChangeTurn(Board board, Piece turn) {
+		startPonder(board, turn);
+	}
+
+	@Override
+	public void onError(String msg) {
+	}
+
+}
@@ -0,0 +1,510 @@
+package es.ucm.fdi.tp.basecode.bgame.control;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import es.ucm.fdi.tp.basecode.bgame.model.Game;
+import es.ucm.fdi.tp.basecode.bgame.model.GameClock;
+import es.ucm.fdi.tp.basecode.bgame.model.GameError;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * A headless batch of games between a fixed lineup of players, used to
+ * compare automatic players. The games are played concurrently in a thread
+ * pool, without observers (so nothing is printed while they are played) and
+ * without any controller. In game {@code g}, the {@code i}-th piece is played
+ * by the player {@code (i + g) % n} of the lineup, so every player plays every
+ * position (e.g., moving first) the same number of times.
+ *
+ * <p>
+ * With {@link #Tournament(GameFactory, List, List)}, the players are shared by
+ * all the games, so they must support concurrent calls to
+ * {@link Player#requestMove}. This is the case for the random players and for
+ * the {@link AIPlayer}s of this project, but not for the console players.
+ * With {@link #Tournament(GameFactory, List, Lineup)}, each thread of the
+ * pool plays its games with its own players, so the searches of concurrent
+ * games do not compete for the same engine (e.g., the thread pool of a
+ * parallel search, where they would wait past their deadlines).
+ *
+ * <p>
+ * Una serie de partidas sin interfaz entre un grupo fijo de jugadores, que se
+ * usa para comparar jugadores automaticos. Las partidas se juegan de forma
+ * concurrente en un pool de hebras, sin observadores (por lo que no se imprime
+ * nada mientras se juegan) y sin controlador. En la partida {@code g}, la
+ * {@code i}-esima ficha la juega el jugador {@code (i + g) % n} del grupo, por
+ * lo que cada jugador juega cada posicion (por ejemplo, mover primero) el
+ * mismo numero de veces.
+ *
+ * <p>
+ * Con {@link #Tournament(GameFactory, List, List)}, los jugadores se
+ * comparten entre todas las partidas, por lo que deben admitir llamadas
+ * concurrentes a {@link Player#requestMove}. Es el caso de los jugadores
+ * aleatorios y de los {@link AIPlayer} de este proyecto, pero no de los
+ * jugadores de consola. Con {@link #Tournament(GameFactory, List, Lineup)},
+ * cada hebra del pool juega sus partidas con sus propios jugadores, por lo que
+ * las busquedas de partidas concurrentes no compiten por el mismo motor (por
+ * ejemplo, el pool de hebras de una busqueda paralela, donde esperarian mas
+ * alla de sus plazos).
+ *
+ * <p>
+ * With a time control (see
+ * {@link #setTimeControl(long, long, Game.TimeoutPolicy)}), every game is
+ * played with a {@link GameClock}, so no game takes longer than the time of
+ * its players, whatever they do.
+ *
+ * <p>
+ * Con un control de tiempo (vease
+ * {@link #setTimeControl(long, long, Game.TimeoutPolicy)}), cada partida se
+ * juega con un {@link GameClock}, por lo que ninguna partida dura mas que el
+ * tiempo de sus jugadores, hagan lo que hagan.
+ */
+public class Tournament {
+
+	/**
+	 * The z-score of the 95% confidence intervals.
+	 *
+	 * <p>
+	 * El valor z de los intervalos de confianza del 95%.
+	 */
+	private static final double Z95 = 1.959964;
+
+	/**
+	 * Games that reach this number of moves are stopped and counted as draws,
+	 * since some games (e.g., Ataxx) can go on forever.
+	 *
+	 * <p>
+	 * Las partidas que llegan a este numero de movimientos se detienen y
+	 * cuentan como empates, ya que algunos juegos (por ejemplo, Ataxx) pueden
+	 * no terminar nunca.
+	 */
+	public static final int MAX_MOVES = 5000;
+
+	/**
+	 * Creates the players of a tournament: a lineup for each thread that
+	 * plays games.
+	 *
+	 * <p>
+	 * Crea los jugadores de un torneo: un grupo por cada hebra que juega
+	 * partidas.
+	 */
+	public interface Lineup {
+
+		/**
+		 * Creates a lineup of players, one per piece.
+		 *
+		 * <p>
+		 * Crea un grupo de jugadores, uno por ficha.
+		 *
+		 * @return The players.
+		 *         <p>
+		 *         Los jugadores.
+		 */
+		List<Player> create();
+	}
+
+	private GameFactory gameFactory;
+	private List<Piece> pieces;
+	private Lineup lineup;
+
+	/**
+	 * The time control of the games: the base time and the increment of
+	 * their clocks, and what happens when a player runs out of time. The
+	 * games have no clock if {@link #timeoutPolicy} is {@code null}.
+	 *
+	 * <p>
+	 * El control de tiempo de las partidas: el tiempo base y el incremento de
+	 * sus relojes, y lo que ocurre cuando un jugador se queda sin tiempo. Las
+	 * partidas no tienen reloj si {@link #timeoutPolicy} es {@code null}.
+	 */
+	private long baseTime;
+	private long increment;
+	private Game.TimeoutPolicy timeoutPolicy;
+
+	/**
+	 * Constructs a tournament.
+	 *
+	 * <p>
+	 * Construye un torneo.
+	 *
+	 * @param gameFactory
+	 *            The factory of the game to play.
+	 *            <p>
+	 *            La factoria del juego.
+	 * @param pieces
+	 *            The pieces of the game.
+	 *            <p>
+	 *            Las fichas del juego.
+	 * @param players
+	 *            The lineup of players, one per piece, shared by all the
+	 *            games.
+	 *            <p>
+	 *            El grupo de jugadores, uno por ficha, compartido por todas
+	 *            las partidas.
+	 */
+	public Tournament(GameFactory gameFactory, List<Piece> pieces, List<Player> players) {
+		if (pieces.size() != players.size()) {
+			throw new GameError("There must be one player per piece");
+		}
+		final List<Player> shared = Collections.unmodifiableList(new ArrayList<Player>(players));
+		this.gameFactory = gameFactory;
+		this.pieces = new ArrayList<Piece>(pieces);
+		this.lineup = new Lineup() {
+			@Override
+			public List<Player> create() {
+				return shared;
+			}
+		};
+	}
+
+	/**
+	 * Constructs a tournament where each thread plays with its own players.
+	 *
+	 * <p>
+	 * Construye un torneo en el que cada hebra juega con sus propios
+	 * jugadores.
+	 *
+	 * @param gameFactory
+	 *            The factory of the game to play.
+	 *            <p>
+	 *            La factoria del juego.
+	 * @param pieces
+	 *            The pieces of the game.
+	 *            <p>
+	 *            Las fichas del juego.
+	 * @param lineup
+	 *            Creates the players of each thread, one per piece.
+	 *            <p>
+	 *            Crea los jugadores de cada hebra, uno por ficha.
+	 */
+	public Tournament(GameFactory gameFactory, List<Piece> pieces, Lineup lineup) {
+		this.gameFactory = gameFactory;
+		this.pieces = new ArrayList<Piece>(pieces);
+		this.lineup = lineup;
+	}
+
+	/**
+	 * Plays every game with a clock. It must be called before
+	 * {@link #play(int, int)}.
+	 *
+	 * <p>
+	 * Juega cada partida con reloj. Se debe llamar antes de
+	 * {@link #play(int, int)}.
+	 *
+	 * @param baseTime
+	 *            The initial time of each player, in milliseconds.
+	 *            <p>
+	 *            Tiempo inicial de cada jugador, en milisegundos.
+	 * @param increment
+	 *            The time added to a player after each of its moves, in
+	 *            milliseconds.
+	 *            <p>
+	 *            Tiempo que se anade a un jugador tras cada uno de sus
+	 *            movimientos, en milisegundos.
+	 * @param policy
+	 *            What happens when a player runs out of time.
+	 *            <p>
+	 *            Lo que ocurre cuando un jugador se queda sin tiempo.
+	 */
+	public void setTimeControl(long baseTime, long increment, Game.TimeoutPolicy policy) {
+		if (baseTime < 1 || increment < 0) {
+			throw new GameError("Invalid time control: " + baseTime + "+" + increment);
+		}
+		if (policy == null) {
+			throw new GameError("A timeout policy is required");
+		}
+		this.baseTime = baseTime;
+		this.increment = increment;
+		this.timeoutPolicy = policy;
+	}
+
+	/**
+	 * Plays the games and waits for all of them to finish. A lineup of
+	 * players is created for each of the {@code concurrency} threads.
+	 *
+	 * <p>
+	 * Juega las partidas y espera a que terminen todas. Se crea un grupo de
+	 * jugadores para cada una de las {@code concurrency} hebras.
+	 *
+	 * @param games
+	 *            Number of games.
+	 *            <p>
+	 *            Numero de partidas.
+	 * @param concurrency
+	 *            Number of games played at the same time.
+	 *            <p>
+	 *            Numero de partidas que se juegan a la vez.
+	 * @return The results.
+	 *         <p>
+	 *         Los resultados.
+	 */
+	public Result play(final int games, int concurrency) {
+		if (games < 1 || concurrency < 1) {
+			throw new GameError("The number of games and the concurrency must be positive");
+		}
+
+		List<List<Player>> lineups = new ArrayList<List<Player>>();
+		for (int t = 0; t < concurrency; t++) {
+			List<Player> players = lineup.create();
+			if (players.size() != pieces.size()) {
+				throw new GameError("There must be one player per piece");
+			}
+			lineups.add(players);
+		}
+
+		final Result result = new Result(pieces.size(), games);
+		final AtomicInteger nextGame = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+
+		long start = System.nanoTime();
+		for (final List<Player> players : lineups) {
+			pool.execute(new Runnable() {
+				@Override
+				public void run() {
+					int g;
+					while ((g = nextGame.getAndIncrement()) < games) {
+						playGame(g, players, result);
+					}
+				}
+			});
+		}
+		pool.shutdown();
+		try {
+			while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+				// keep waiting
+			}
+		} catch (InterruptedException e) {
+			pool.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		result.elapsedNanos = System.nanoTime() - start;
+		return result;
+	}
+
+	/**
+	 * Plays the game number {@code g} with a lineup of players and adds its
+	 * outcome to {@code result}.
+	 *
+	 * <p>
+	 * Juega la partida numero {@code g} con un grupo de jugadores y anade su
+	 * resultado a {@code result}.
+	 */
+	private void playGame(int g, List<Player> players, Result result) {
+		int n = players.size();
+		try {
+			Game game = new Game(gameFactory.gameRules());
+			if (timeoutPolicy != null) {
+				game.setClock(new GameClock(baseTime, increment), timeoutPolicy);
+			}
+			game.start(pieces);
+			int moves = 0;
+			while (game.getState() == Game.State.InPlay) {
+				if (moves++ == MAX_MOVES) {
+					game.stop();
+					result.draws.incrementAndGet();
+					return;
+				}
+				int seat = pieces.indexOf(game.getTurn());
+				game.makeMove(players.get((seat + g) % n));
+			}
+			if (game.getState() == Game.State.Won) {
+				int seat = pieces.indexOf(game.getWinner());
+				result.wins.incrementAndGet((seat + g) % n);
+			} else if (game.getState() == Game.State.Draw) {
+				result.draws.incrementAndGet();
+			} else {
+				result.fail(g, new GameError("The game ended in the state " + game.getState()));
+			}
+		} catch (RuntimeException e) {
+			result.fail(g, e);
+		}
+	}
+
+	/**
+	 * The results of a tournament. The rates are computed over the games that
+	 * ended without errors, with 95% Wilson score confidence intervals.
+	 *
+	 * <p>
+	 * Los resultados de un torneo. Los porcentajes se calculan sobre las
+	 * partidas que terminaron sin errores, con intervalos de confianza de
+	 * Wilson del 95%.
+	 */
+	public static class Result {
+
+		private final AtomicIntegerArray wins;
+		private final AtomicInteger draws = new AtomicInteger();
+		private final AtomicInteger errors = new AtomicInteger();
+		private final int games;
+		private long elapsedNanos;
+
+		/**
+		 * The first error of a game, and the number of that game.
+		 *
+		 * <p>
+		 * El primer error de una partida, y el numero de esa partida.
+		 */
+		private Throwable firstError;
+		private int firstErrorGame;
+
+		private Result(int players, int games) {
+			this.wins = new AtomicIntegerArray(players);
+			this.games = games;
+		}
+
+		/**
+		 * Consults the number of wins of the {@code i}-th player of the
+		 * lineup.
+		 *
+		 * <p>
+		 * Proporciona el numero de victorias del {@code i}-esimo jugador del
+		 * grupo.
+		 */
+		public int getWins(int i) {
+			return wins.get(i);
+		}
+
+		/**
+		 * Consults the number of draws.
+		 *
+		 * <p>
+		 * Proporciona el numero de empates.
+		 */
+		public int getDraws() {
+			return draws.get();
+		}
+
+		/**
+		 * Consults the number of games that failed (e.g., a player could not
+		 * move).
+		 *
+		 * <p>
+		 * Proporciona el numero de partidas que fallaron (por ejemplo, un
+		 * jugador no pudo mover).
+		 */
+		public int getErrors() {
+			return errors.get();
+		}
+
+		/**
+		 * Counts the game {@code g} as failed, and keeps its error if it is
+		 * the first one.
+		 *
+		 * <p>
+		 * Cuenta la partida {@code g} como fallida, y guarda su error si es
+		 * el primero.
+		 */
+		private synchronized void fail(int g, Throwable error) {
+			errors.incrementAndGet();
+			if (firstError == null) {
+				firstError = error;
+				firstErrorGame = g;
+			}
+		}
+
+		/**
+		 * Consults the error of the first game that failed.
+		 *
+		 * <p>
+		 * Proporciona el error de la primera partida que fallo.
+		 *
+		 * @return The error, or {@code null} if no game failed.
+		 *         <p>
+		 *         El error, o {@code null} si no fallo ninguna partida.
+		 */
+		public synchronized Throwable getFirstError() {
+			return firstError;
+		}
+
+		/**
+		 * Consults the number of games played per second.
+		 *
+		 * <p>
+		 * Proporciona el numero de partidas jugadas por segundo.
+		 */
+		public double getGamesPerSecond() {
+			return games / (elapsedNanos / 1e9);
+		}
+
+		/**
+		 * Generates a report with the win rate of each player of the lineup,
+		 * the draw rate and the throughput, and the first error (with its
+		 * stack trace) if some game failed.
+		 *
+		 * <p>
+		 * Genera un informe con el porcentaje de victorias de cada jugador del
+		 * grupo, el de empates y el rendimiento, y el primer error (con su
+		 * traza) si fallo alguna partida.
+		 *
+		 * @param names
+		 *            The names of the players of the lineup.
+		 *            <p>
+		 *            Los nombres de los jugadores del grupo.
+		 * @return The report.
+		 *         <p>
+		 *         El informe.
+		 */
+		public String report(List<String> names) {
+			int finished = games - errors.get();
+			StringBuilder sb = new StringBuilder();
+			sb.append(String.format(Locale.ROOT, "Games: %d (%d with errors)%n", games, errors.get()));
+			for (int i = 0; i < wins.length(); i++) {
+				sb.append(line("Wins of " + names.get(i), wins.get(i), finished));
+			}
+			sb.append(line("Draws", draws.get(), finished));
+			sb.append(String.format(Locale.ROOT, "Time: %.2f s (%.2f games/s)%n", elapsedNanos / 1e9,
+					getGamesPerSecond()));
+			synchronized (this) {
+				if (firstError != null) {
+					StringWriter trace = new StringWriter();
+					firstError.printStackTrace(new PrintWriter(trace, true));
+					sb.append(String.format(Locale.ROOT, "First error, in game %d: %s", firstErrorGame + 1, trace));
+				}
+			}
+			return sb.toString();
+		}
+
+		private static String line(String label, int k, int n) {
+			double[] ci = wilson(k, n);
+			return String.format(Locale.ROOT, "%s: %d (%.1f%%, 95%% CI %.1f%%-%.1f%%)%n", label, k,
+					n == 0 ? 0.0 : 100.0 * k / n, 100 * ci[0], 100 * ci[1]);
+		}
+
+		/**
+		 * The 95% Wilson score interval of a proportion of {@code k} out of
+		 * {@code n}.
+		 *
+		 * <p>
+		 * El intervalo de Wilson del 95% de una proporcion de {@code k} de
+		 * {@code n}.
+		 */
+		private static double[] wilson(int k, int n) {
+			if (n == 0) {
+				return new double[] { 0.0, 1.0 };
+			}
+			double p = (double) k / n;
+			double z2 = Z95 * Z95;
+			double denom = 1 + z2 / n;
+			double center = (p + z2 / (2 * n)) / denom;
+			double half = Z95 * Math.sqrt(p * (1 - p) / n + z2 / (4.0 * n * n)) / denom;
+			return new double[] { Math.max(0.0, center - half), Math.min(1.0, center + half) };
+		}
+
+		@Override
+		public String toString() {
+			List<String> names = new ArrayList<String>();
+			for (int i = 0; i < wins.length(); i++) {
+				names.add("player " + (i + 1));
+			}
+			return report(names);
+		}
+	}
+
+}
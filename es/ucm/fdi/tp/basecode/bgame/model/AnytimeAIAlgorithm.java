@@ -0,0 +1,60 @@
+package es.ucm.fdi.tp.basecode.bgame.model;
+
+import java.util.List;
+
+/**
+ * An {@link AIAlgorithm} that can be stopped at any time: it improves its
+ * move while it has time and, when a given deadline arrives (or its thread is
+ * interrupted), it returns the best move found so far. It is used by the
+ * automatic players in games with a {@link GameClock}, with a deadline
+ * computed from the time left (see {@link GameClock#moveDeadline(Piece)}).
+ *
+ * <p>
+ * Un {@link AIAlgorithm} que se puede detener en cualquier momento: mejora su
+ * movimiento mientras tiene tiempo y, cuando llega un instante limite dado (o
+ * se interrumpe su hebra), devuelve el mejor movimiento encontrado hasta
+ * entonces. Lo usan los jugadores automaticos en los juegos con
+ * {@link GameClock}, con un instante limite calculado a partir del tiempo
+ * restante (vease {@link GameClock#moveDeadline(Piece)}).
+ */
+public interface AnytimeAIAlgorithm extends AIAlgorithm {
+
+	/**
+	 * Computes the 'best' next move that can be found before
+	 * {@code deadline}.
+	 *
+	 * <p>
+	 * Calcula el 'mejor' siguiente movimiento que se puede encontrar antes de
+	 * {@code deadline}.
+	 *
+	 * @param p
+	 *            A piece, representing the next player.
+	 *            <p>
+	 *            Ficha que representa el siguiente jugador.
+	 * @param board
+	 *            The board on which the move should be made.
+	 *            <p>
+	 *            Tablero en el que se realizara el movimiento.
+	 * @param pieces
+	 *            A list of pieces representing the players (the order is
+	 *            important).
+	 *            <p>
+	 *            Lista de fichas que representan los jugadores (el orden es
+	 *            importante).
+	 * @param rules
+	 *            The rules of the currently played game.
+	 *            <p>
+	 *            Reglas del juego al que se esta jugando.
+	 * @param deadline
+	 *            When the move must be returned, as returned by
+	 *            {@link System#currentTimeMillis()}.
+	 *            <p>
+	 *            Instante en el que se debe devolver el movimiento, como lo
+	 *            devuelve {@link System#currentTimeMillis()}.
+	 * @return The best move found.
+	 *         <p>
+	 *         El mejor movimiento encontrado.
+	 */
+	GameMove getMove(Piece p, Board board, List<Piece> pieces, GameRules rules, long deadline);
+
+}
@@ -1,16 +1,28 @@
 package es.ucm.fdi.tp.basecode.bgame.model;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
 
 /**
  * 
  * An abstract board that implements the piece-count mechanism of the interface
- * {@link Board}.
+ * {@link Board} using an array indexed by {@link Piece#getOrdinal()}, the
+ * Zobrist key of the board, the undo trail used by {@link Board#mark()} and
+ * {@link Board#undo(int)}, and a textual representation shared by all
+ * rectangular boards. Subclasses must call
+ * {@link #positionChanged(int, int, Piece, Piece)} whenever a position
+ * changes.
  *
  * <p>
  * Tablero abstracto que implementa un mecanismo contador de fichas del interfaz
- * {@link Board} usando un {@link HashMap}.
+ * {@link Board} usando un array indexado por {@link Piece#getOrdinal()}, la
+ * clave de Zobrist del tablero, el registro de cambios que usan
+ * {@link Board#mark()} y {@link Board#undo(int)}, y una representacion
+ * textual comun a todos los tableros rectangulares. Las
+ * subclases deben llamar a {@link #positionChanged(int, int, Piece, Piece)}
+ * cada vez que cambia una posicion.
  *
  */
 public abstract class BasicBoard implements Board {
@@ -21,11 +33,63 @@ public abstract class BasicBoard implements Board {
 	private static final long serialVersionUID = 1L;
 
 	/**
-	 * A {@link Map} to store the piece-count.
+	 * The piece-count of each piece, indexed by its ordinal ({@code null} if
+	 * the piece has no count). It grows on demand. Since ordinals depend on
+	 * the run, it is serialized keyed by piece (see
+	 * {@link #writeObject(ObjectOutputStream)}).
 	 * <p>
-	 * {@link Map} para almacenar los contadores de fichas.
+	 * Contador de cada ficha, indexado por su ordinal ({@code null} si la ficha
+	 * no tiene contador). Crece bajo demanda. Como los ordinales dependen de
+	 * la ejecucion, se serializa por ficha (ver
+	 * {@link #writeObject(ObjectOutputStream)}).
 	 */
-	private Map<Piece, Integer> pieceCount;
+	private transient Integer[] pieceCount;
+
+	/**
+	 * The Zobrist key of the board (see {@link Zobrist}).
+	 * <p>
+	 * La clave de Zobrist del tablero (ver {@link Zobrist}).
+	 */
+	private long zobristKey;
+
+	/**
+	 * The undo trail: the changes made while there are open marks (see
+	 * {@link #mark()}), in order. An entry for a position stores its row,
+	 * column and previous piece. An entry for a piece-count stores -1 as row,
+	 * the piece and the previous count. The arrays grow on demand and are
+	 * reused, so an undoable move does not allocate once they are large
+	 * enough.
+	 * <p>
+	 * El registro de cambios: los cambios realizados mientras hay marcas
+	 * abiertas (ver {@link #mark()}), en orden. Una entrada de una posicion
+	 * guarda su fila, columna y la ficha anterior. Una entrada de un contador
+	 * de fichas guarda -1 como fila, la ficha y el contador anterior. Los
+	 * arrays crecen bajo demanda y se reutilizan, por lo que un movimiento
+	 * deshacible no reserva memoria una vez que son suficientemente grandes.
+	 */
+	private transient int[] trailRows;
+	private transient int[] trailCols;
+	private transient Object[] trailPieces;
+	private transient Object[] trailOld;
+	private transient int trailSize;
+
+	/**
+	 * Number of marks that have not been undone yet. The changes are only
+	 * recorded while it is positive.
+	 * <p>
+	 * Numero de marcas que aun no se han deshecho. Los cambios solo se
+	 * registran mientras es positivo.
+	 */
+	private transient int openMarks;
+
+	/**
+	 * Set while {@link #undo(int)} reverts the changes, so they are not
+	 * recorded again.
+	 * <p>
+	 * Activo mientras {@link #undo(int)} deshace los cambios, para que no se
+	 * vuelvan a registrar.
+	 */
+	private transient boolean undoing;
 
 	/**
 	 * The default constructor. Should be called by subclasses to initialize the
@@ -36,18 +100,18 @@ public abstract class BasicBoard implements Board {
 	 * inicializar la tabla de contadores de fichas.
 	 */
 	public BasicBoard() {
-		this.pieceCount = new HashMap<Piece, Integer>();
+		this.pieceCount = new Integer[0];
 	}
 
 	/**
-	 * Copies the content of {@link BasicBoard#pieceCount} to the board
-	 * referenced by the parameter {@code board}. This is useful for
+	 * Copies the content of {@link BasicBoard#pieceCount} and the Zobrist key
+	 * to the board referenced by the parameter {@code board}. This is useful for
 	 * implementing {@link Board#copy()} in a way that a class first calls
 	 * {@code copyTo} of the super class, and then copies its own data.
 	 * 
 	 * <p>
-	 * Copia el contenido de {@link BasicBoard#pieceCount} al tablero
-	 * referenciado por el parametro {@code board}. Es utili para implementar
+	 * Copia el contenido de {@link BasicBoard#pieceCount} y la clave de Zobrist
+	 * al tablero referenciado por el parametro {@code board}. Es utili para implementar
 	 * {@link Board#copy()} de forma que una subclase de esta clase primero
 	 * llame a {@code copyTo} de la superclase y despues copie sus propios
 	 * datos.
@@ -58,21 +122,220 @@ public abstract class BasicBoard implements Board {
 	 *            Tablero al que se deben copiar los datos.
 	 */
 	protected void copyTo(BasicBoard board) {
-		board.pieceCount = new HashMap<Piece, Integer>(pieceCount);
+		board.pieceCount = pieceCount.clone();
+		board.zobristKey = zobristKey;
+	}
+
+	/**
+	 * Updates the Zobrist key, and records the change in the undo trail if
+	 * there are open marks, when the content of position ({@code row},
+	 * {@code col}) changes from {@code oldPiece} to {@code newPiece}.
+	 * 
+	 * <p>
+	 * Actualiza la clave de Zobrist, y registra el cambio si hay marcas
+	 * abiertas, cuando el contenido de la posicion ({@code row}, {@code col})
+	 * cambia de {@code oldPiece} a {@code newPiece}.
+	 * 
+	 * @param row
+	 *            Row of the position.
+	 *            <p>
+	 *            Fila de la posicion.
+	 * @param col
+	 *            Column of the position.
+	 *            <p>
+	 *            Columna de la posicion.
+	 * @param oldPiece
+	 *            The previous content of the position ({@code null} if empty).
+	 *            <p>
+	 *            Contenido anterior de la posicion ({@code null} si vacia).
+	 * @param newPiece
+	 *            The new content of the position ({@code null} if empty).
+	 *            <p>
+	 *            Contenido nuevo de la posicion ({@code null} si vacia).
+	 */
+	protected void positionChanged(int row, int col, Piece oldPiece, Piece newPiece) {
+		zobristKey ^= Zobrist.cellKey(row, col, oldPiece) ^ Zobrist.cellKey(row, col, newPiece);
+		if (openMarks > 0 && !undoing) {
+			record(row, col, null, oldPiece);
+		}
+	}
+
+	/**
+	 * Adds an entry to the undo trail, growing it if needed.
+	 * <p>
+	 * Anade una entrada al registro de cambios, ampliandolo si es necesario.
+	 */
+	private void record(int row, int col, Piece p, Object old) {
+		if (trailSize == trailRows.length) {
+			int n = trailSize * 2;
+			trailRows = Arrays.copyOf(trailRows, n);
+			trailCols = Arrays.copyOf(trailCols, n);
+			trailPieces = Arrays.copyOf(trailPieces, n);
+			trailOld = Arrays.copyOf(trailOld, n);
+		}
+		trailRows[trailSize] = row;
+		trailCols[trailSize] = col;
+		trailPieces[trailSize] = p;
+		trailOld[trailSize] = old;
+		trailSize++;
+	}
+
+	@Override
+	public int mark() {
+		if (trailRows == null) {
+			trailRows = new int[64];
+			trailCols = new int[64];
+			trailPieces = new Object[64];
+			trailOld = new Object[64];
+		}
+		openMarks++;
+		return trailSize;
+	}
+
+	@Override
+	public void undo(int mark) {
+		if (openMarks == 0 || mark < 0 || mark > trailSize) {
+			throw new GameError("Invalid undo mark: " + mark);
+		}
+		undoing = true;
+		try {
+			while (trailSize > mark) {
+				trailSize--;
+				int row = trailRows[trailSize];
+				if (row < 0) {
+					setPieceCount((Piece) trailPieces[trailSize], (Integer) trailOld[trailSize]);
+				} else {
+					setPosition(row, trailCols[trailSize], (Piece) trailOld[trailSize]);
+				}
+				// do not keep references to pieces that are no longer needed
+				trailPieces[trailSize] = null;
+				trailOld[trailSize] = null;
+			}
+		} finally {
+			undoing = false;
+		}
+		openMarks--;
+	}
+
+	@Override
+	public long getZobristKey() {
+		return zobristKey;
 	}
 
 	@Override
 	public void setPieceCount(Piece p, Integer n) {
-		if (n == null)
-			pieceCount.remove(p); // if the pieces count is null we remove it!
-		else
-			pieceCount.put(p, n); // otherwise we update the table
+		int o = p.getOrdinal();
+		Integer old = getPieceCount(p);
+		zobristKey ^= Zobrist.countKey(p, old) ^ Zobrist.countKey(p, n);
+		if (openMarks > 0 && !undoing) {
+			record(-1, 0, p, old);
+		}
+		if (o >= pieceCount.length) {
+			if (n == null) {
+				return; // nothing to remove
+			}
+			pieceCount = Arrays.copyOf(pieceCount, o + 1);
+		}
+		pieceCount[o] = n;
 	}
 
 	@Override
 	public Integer getPieceCount(Piece p) {
-		return pieceCount.get(p); // if there is no piece-count the HashMap will
-									// return null
+		int o = p.getOrdinal();
+		return o < pieceCount.length ? pieceCount[o] : null;
+	}
+
+	/**
+	 * Writes the piece-counts as pairs (piece, count), since the ordinals that
+	 * index {@link #pieceCount} depend on the run: a piece read by another
+	 * run may get a different ordinal.
+	 * <p>
+	 * Escribe los contadores de fichas como pares (ficha, contador), ya que
+	 * los ordinales que indexan {@link #pieceCount} dependen de la ejecucion:
+	 * una ficha leida por otra ejecucion puede recibir otro ordinal.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		int n = 0;
+		for (Integer count : pieceCount) {
+			if (count != null) {
+				n++;
+			}
+		}
+		out.writeInt(n);
+		for (int o = 0; o < pieceCount.length; o++) {
+			if (pieceCount[o] != null) {
+				out.writeObject(Piece.forOrdinal(o));
+				out.writeInt(pieceCount[o]);
+			}
+		}
+	}
+
+	/**
+	 * Reads the pairs written by {@link #writeObject(ObjectOutputStream)} and
+	 * rebuilds {@link #pieceCount} with the ordinals of this run.
+	 * <p>
+	 * Lee los pares escritos por {@link #writeObject(ObjectOutputStream)} y
+	 * reconstruye {@link #pieceCount} con los ordinales de esta ejecucion.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		pieceCount = new Integer[0];
+		for (int n = in.readInt(); n > 0; n--) {
+			Piece p = (Piece) in.readObject();
+			int o = p.getOrdinal();
+			if (o >= pieceCount.length) {
+				pieceCount = Arrays.copyOf(pieceCount, o + 1);
+			}
+			pieceCount[o] = in.readInt();
+		}
+	}
+
+	/**
+	 * Generates a string that represents the board. The symbols used to print
+	 * the board are the first characters of the piece identifier.
+	 * 
+	 * <p>
+	 * Genera un string que representa el tablero. El simbolo utilizado para
+	 * cada ficha es el primer caracter de su id.
+	 * 
+	 * @return A string representation of the board.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder render = new StringBuilder();
+
+		int height = getRows();
+		int width = getCols();
+
+		for (int r = 0; r < height; ++r) {
+
+			render.append("  +");
+			for (int c = 0; c < width; ++c)
+				render.append("---+");
+			render.append("\n");
+			render.append("" + (r % 10) + " |");
+
+			for (int c = 0; c < width; ++c) {
+				if (getPosition(r, c) == null) {
+					render.append("   |");
+				} else {
+					render.append(" " + getPosition(r, c).toString().charAt(0) + " |");
+				}
+			} // for columns
+			render.append("\n");
+		} // for rows
+
+		render.append("  +");
+		for (int c = 0; c < width; ++c)
+			render.append("---+");
+		render.append("\n");
+		render.append("   ");
+		for (int c = 0; c < width; ++c)
+			render.append(" " + (c % 10) + "  ");
+		render.append("\n");
+
+		return render.toString();
 	}
 
 }
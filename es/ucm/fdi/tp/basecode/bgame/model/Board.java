@@ -180,6 +180,62 @@ public interface Board extends java.io.Serializable {
 	 */
 	public Integer getPieceCount(Piece p);
 
+	/**
+	 * Consults the Zobrist key of the board (see {@link Zobrist}). It depends
+	 * only on the pieces in the cells and on the piece-counts, so two boards
+	 * with the same contents have the same key. It is maintained
+	 * incrementally, so consulting it is cheap.
+	 *
+	 * <p>
+	 * Devuelve la clave de Zobrist del tablero (ver {@link Zobrist}). Solo
+	 * depende de las fichas de las casillas y de los contadores de fichas, por
+	 * lo que dos tableros con el mismo contenido tienen la misma clave. Se
+	 * mantiene de forma incremental, por lo que consultarla es barato.
+	 *
+	 * @return The Zobrist key of the board.
+	 *         <p>
+	 *         La clave de Zobrist del tablero.
+	 */
+	public long getZobristKey();
+
+	/**
+	 * Opens a mark: from now on, the board records every change (positions and
+	 * piece-counts), so they can be reverted with {@link #undo(int)}. Marks can
+	 * be nested, and each one must be closed by a call to {@link #undo(int)}.
+	 * Together they allow exploring moves without copying the board (see
+	 * {@link GameMove#executeUndoable(Board, java.util.List)}).
+	 *
+	 * <p>
+	 * Abre una marca: a partir de ahora, el tablero registra cada cambio
+	 * (posiciones y contadores de fichas), de forma que se pueden deshacer con
+	 * {@link #undo(int)}. Las marcas se pueden anidar, y cada una se debe
+	 * cerrar con una llamada a {@link #undo(int)}. Juntos permiten explorar
+	 * movimientos sin copiar el tablero (ver
+	 * {@link GameMove#executeUndoable(Board, java.util.List)}).
+	 *
+	 * @return The mark, to be passed to {@link #undo(int)}.
+	 *         <p>
+	 *         La marca, que se debe pasar a {@link #undo(int)}.
+	 */
+	public int mark();
+
+	/**
+	 * Reverts all the changes made since {@code mark} was returned by
+	 * {@link #mark()}, and closes that mark. The marks must be undone in the
+	 * reverse order of their creation.
+	 *
+	 * <p>
+	 * Deshace todos los cambios realizados desde que {@link #mark()} devolvio
+	 * {@code mark}, y cierra esa marca. Las marcas se deben deshacer en orden
+	 * inverso al de su creacion.
+	 *
+	 * @param mark
+	 *            A mark returned by {@link #mark()}.
+	 *            <p>
+	 *            Una marca devuelta por {@link #mark()}.
+	 */
+	public void undo(int mark);
+
 	/**
 	 * Generates a fresh copy of the board. This is used when we want simulate
 	 * (in automatic players) what would happen when applying a given move, but
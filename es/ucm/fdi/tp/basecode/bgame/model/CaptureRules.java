@@ -0,0 +1,49 @@
+package es.ucm.fdi.tp.basecode.bgame.model;
+
+import java.util.List;
+
+/**
+ * Rules of a game where a move can capture pieces of the other players (e.g.,
+ * the infections of Ataxx). Searches use the number of captures to try the
+ * most promising moves first (see
+ * {@link es.ucm.fdi.tp.basecode.minmax.MoveOrdering}).
+ *
+ * <p>
+ * Reglas de un juego en el que un movimiento puede capturar fichas de los
+ * otros jugadores (por ejemplo, las infecciones de Ataxx). Las busquedas usan
+ * el numero de capturas para probar primero los movimientos mas prometedores
+ * (ver {@link es.ucm.fdi.tp.basecode.minmax.MoveOrdering}).
+ */
+public interface CaptureRules extends PackedMoveRules {
+
+	/**
+	 * Counts the pieces of the other players that the packed move
+	 * {@code move} of {@code turn} captures, without executing it.
+	 *
+	 * <p>
+	 * Cuenta las fichas de los otros jugadores que captura el movimiento
+	 * empaquetado {@code move} de {@code turn}, sin ejecutarlo.
+	 *
+	 * @param board
+	 *            A board.
+	 *            <p>
+	 *            Un tablero.
+	 * @param playersPieces
+	 *            The pieces of the players.
+	 *            <p>
+	 *            Las fichas de los jugadores.
+	 * @param turn
+	 *            The player to move.
+	 *            <p>
+	 *            El jugador que mueve.
+	 * @param move
+	 *            A valid packed move of {@code turn}.
+	 *            <p>
+	 *            Un movimiento empaquetado valido de {@code turn}.
+	 * @return The number of captured pieces.
+	 *         <p>
+	 *         El numero de fichas capturadas.
+	 */
+	public int captures(Board board, List<Piece> playersPieces, Piece turn, int move);
+
+}
@@ -95,6 +95,7 @@ public class FiniteRectBoard extends BasicBoard {
 			occupied--;
 		else if (p != null && q == null)
 			occupied++;
+		positionChanged(row, col, q, p);
 		board[row][col] = p;
 	}
 
@@ -116,7 +117,22 @@ public class FiniteRectBoard extends BasicBoard {
 		return cols;
 	}
 
-	private void copyTo(FiniteRectBoard newboard) {
+	/**
+	 * Copies the content of this board into {@code newboard}. Subclasses that
+	 * add their own data should call this method from their {@link #copy()}
+	 * and then copy their own data.
+	 * 
+	 * <p>
+	 * Copia el contenido de este tablero en {@code newboard}. Las subclases que
+	 * anadan sus propios datos deben llamar a este metodo desde su
+	 * {@link #copy()} y despues copiar sus propios datos.
+	 * 
+	 * @param newboard
+	 *            The board to copy to.
+	 *            <p>
+	 *            Tablero en el que se copia.
+	 */
+	protected void copyTo(FiniteRectBoard newboard) {
 
 		// ask the super class to copy its stuff first.
 		super.copyTo(newboard);
@@ -151,51 +167,4 @@ public class FiniteRectBoard extends BasicBoard {
 		return occupied == 0;
 	}
 
-	/**
-	 * Generates a string that represents the board. The symbols used to print
-	 * the board are the first characters of the piece identifier.
-	 * 
-	 * <p>
-	 * Genera un string que representa el tablero. El simbolo utilizado para
-	 * cada ficha es el primer caracter de su id.
-	 * 
-	 * @return A string representation of the board.
-	 */
-	@Override
-	public String toString() {
-		StringBuilder render = new StringBuilder();
-
-		int height = getRows();
-		int width = getCols();
-
-		for (int r = 0; r < height; ++r) {
-
-			render.append("  +");
-			for (int c = 0; c < width; ++c)
-				render.append("---+");
-			render.append("\n");
-			render.append("" + (r % 10) + " |");
-
-			for (int c = 0; c < width; ++c) {
-				if (getPosition(r, c) == null) {
-					render.append("   |");
-				} else {
-					render.append(" " + getPosition(r, c).toString().charAt(0) + " |");
-				}
-			} // for columns
-			render.append("\n");
-		} // for rows
-
-		render.append("  +");
-		for (int c = 0; c < width; ++c)
-			render.append("---+");
-		render.append("\n");
-		render.append("   ");
-		for (int c = 0; c < width; ++c)
-			render.append(" " + (c % 10) + "  ");
-		render.append("\n");
-
-		return render.toString();
-	}
-
 }
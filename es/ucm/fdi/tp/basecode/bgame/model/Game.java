@@ -5,6 +5,14 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import es.ucm.fdi.tp.basecode.bgame.control.Player;
 
@@ -20,6 +28,25 @@ import es.ucm.fdi.tp.basecode.bgame.control.Player;
  */
 public class Game implements Observable<GameObserver> {
 
+	/**
+	 * The threads where the players are asked for their moves when the game
+	 * has a clock, so the game can stop waiting for a player that runs out of
+	 * time.
+	 * 
+	 * <p>
+	 * Hebras en las que se pide su movimiento a los jugadores cuando el juego
+	 * tiene reloj, para que el juego pueda dejar de esperar a un jugador que
+	 * se queda sin tiempo.
+	 */
+	private static final ExecutorService REQUESTS = Executors.newCachedThreadPool(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "game-player");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
 	/**
 	 * List of observers.
 	 * 
@@ -98,6 +125,23 @@ public class Game implements Observable<GameObserver> {
 	 */
 	private Piece winner;
 
+	/**
+	 * The clocks of the players, or {@code null} if the game is not timed.
+	 * 
+	 * <p>
+	 * Los relojes de los jugadores, o {@code null} si el juego no tiene
+	 * tiempo.
+	 */
+	private GameClock clock;
+
+	/**
+	 * What happens when a player runs out of time.
+	 * 
+	 * <p>
+	 * Lo que ocurre cuando un jugador se queda sin tiempo.
+	 */
+	private TimeoutPolicy timeoutPolicy;
+
 	/**
 	 * The possible states of a game.
 	 * 
@@ -144,6 +188,38 @@ public class Game implements Observable<GameObserver> {
 		Stopped
 	}
 
+	/**
+	 * What happens when a player of a game with a {@link GameClock} runs out
+	 * of time.
+	 * 
+	 * <p>
+	 * Lo que ocurre cuando un jugador de un juego con {@link GameClock} se
+	 * queda sin tiempo.
+	 */
+	public enum TimeoutPolicy {
+		/**
+		 * The player loses the game. With two players the other one wins;
+		 * with more players the game ends with a draw.
+		 * 
+		 * <p>
+		 * el jugador pierde la partida. Con dos jugadores gana el otro; con
+		 * mas jugadores la partida acaba en empate.
+		 */
+		Forfeit,
+		/**
+		 * The move of the player is replaced by its first valid move (see
+		 * {@link Moves#firstMove(GameRules, Board, List, Piece)}), and the
+		 * game goes on. If there is none, the player forfeits.
+		 * 
+		 * <p>
+		 * el movimiento del jugador se sustituye por su primer movimiento
+		 * valido (vease
+		 * {@link Moves#firstMove(GameRules, Board, List, Piece)}) y el juego
+		 * continua. Si no lo hay, el jugador pierde la partida.
+		 */
+		Fallback
+	}
+
 	/**
 	 * Creates a new game.
 	 * 
@@ -161,6 +237,55 @@ public class Game implements Observable<GameObserver> {
 		this.winner = null;
 	}
 
+	/**
+	 * Sets the clocks of the game. It must be called before the game starts.
+	 * With clocks, a player that has not answered a request of
+	 * {@link #makeMove(Player)} when its clock runs out is interrupted, and
+	 * {@code policy} is applied; the players can consult the clocks (see
+	 * {@link Player#requestMove(Piece, Board, List, GameRules, GameClock)}).
+	 * 
+	 * <p>
+	 * Establece los relojes del juego. Se debe llamar antes de que empiece el
+	 * juego. Con relojes, un jugador que no ha contestado a una peticion de
+	 * {@link #makeMove(Player)} cuando se le acaba el tiempo se interrumpe, y
+	 * se aplica {@code policy}; los jugadores pueden consultar los relojes
+	 * (vease
+	 * {@link Player#requestMove(Piece, Board, List, GameRules, GameClock)}).
+	 * 
+	 * @param clock
+	 *            The clocks, or {@code null} for a game without time.
+	 *            <p>
+	 *            Los relojes, o {@code null} para un juego sin tiempo.
+	 * @param policy
+	 *            What happens when a player runs out of time.
+	 *            <p>
+	 *            Lo que ocurre cuando un jugador se queda sin tiempo.
+	 */
+	public void setClock(GameClock clock, TimeoutPolicy policy) {
+		if (state != State.Starting) {
+			notifyError(new GameError("The clock must be set before the game starts"));
+		}
+		if (clock != null && policy == null) {
+			notifyError(new GameError("A timeout policy is required"));
+		}
+		this.clock = clock;
+		this.timeoutPolicy = policy;
+	}
+
+	/**
+	 * Consults the clocks of the game.
+	 * 
+	 * <p>
+	 * Proporciona los relojes del juego.
+	 * 
+	 * @return The clocks, or {@code null} if the game is not timed.
+	 *         <p>
+	 *         Los relojes, o {@code null} si el juego no tiene tiempo.
+	 */
+	public GameClock getClock() {
+		return clock;
+	}
+
 	/**
 	 * Starts a game with a given list of pieces {@link #pieces}. The order is
 	 * important, as it might be used by the game rules to decide who is playing
@@ -206,6 +331,10 @@ public class Game implements Observable<GameObserver> {
 		this.turn = rules.initialPlayer(board, pieces); // set the initial
 														// player
 		this.state = State.InPlay; // mark the game as started
+		if (clock != null) {
+			clock.reset(this.pieces); // and start the clock of the first
+			clock.start(turn); // player
+		}
 		notifyGameStart(null); // notify all observers that the game has
 								// started.
 	}
@@ -235,6 +364,9 @@ public class Game implements Observable<GameObserver> {
 	public void stop() {
 		if (state != State.Stopped) {
 			state = State.Stopped; // mark it as stopped
+			if (clock != null) {
+				clock.pause();
+			}
 			notifyStopped(); // and notify the observers that it has been
 								// stopped
 		}
@@ -312,12 +444,18 @@ public class Game implements Observable<GameObserver> {
 	/**
 	 * Make a move using the player {@code player}. It will request a move from
 	 * player {@code player}, and then execute it using
-	 * {@link #executeMove(GameMove)}.
+	 * {@link #executeMove(GameMove, boolean)}. If the game has a clock, the
+	 * request is made on another thread, and if the clock of the player runs
+	 * out before it answers, it is interrupted and the timeout policy is
+	 * applied (see {@link #timeOut()}).
 	 * 
 	 * <p>
 	 * Realiza un movimiento utilizando el jugador {@code player}. Solicita un
 	 * movimiento al jugador {@code player} y lo ejecuta utilizando
-	 * {@link #executeMove(GameMove)}.
+	 * {@link #executeMove(GameMove, boolean)}. Si el juego tiene reloj, la
+	 * peticion se hace en otra hebra, y si al jugador se le acaba el tiempo
+	 * antes de contestar, se interrumpe y se aplica la politica de tiempo
+	 * agotado (vease {@link #timeOut()}).
 	 * 
 	 * @param player
 	 *            A player to make a move.
@@ -327,18 +465,182 @@ public class Game implements Observable<GameObserver> {
 	 */
 	public void makeMove(Player player) {
 		GameMove m = null;
+		if (clock != null) {
+			try {
+				m = requestInTime(moveRequest(player));
+			} catch (TimeoutException e) {
+				timeOut();
+				return;
+			}
+		} else {
+			try {
+				m = player.requestMove(turn, roBoard, roPieces, rules, null);
+			} catch (GameError e) {
+				notifyError(e);
+			}
+		}
+		executeMove(m, false);
+	}
+
+	/**
+	 * Runs {@code request} on another thread and waits for it until the clock
+	 * of the player in turn runs out.
+	 * 
+	 * <p>
+	 * Ejecuta {@code request} en otra hebra y la espera hasta que se acaba el
+	 * tiempo del jugador en turno.
+	 * 
+	 * @return The move.
+	 *         <p>
+	 *         El movimiento.
+	 * @throws TimeoutException
+	 *             If the player ran out of time. The request has been
+	 *             cancelled.
+	 *             <p>
+	 *             Si el jugador se quedo sin tiempo. La peticion se ha
+	 *             cancelado.
+	 */
+	private GameMove requestInTime(Callable<GameMove> request) throws TimeoutException {
+		Future<GameMove> result = REQUESTS.submit(request);
 		try {
-			m = player.requestMove(turn, roBoard, roPieces, rules);
-		} catch (GameError e) {
-			notifyError(e);
+			return result.get(Math.max(0, clock.getRemaining(turn)), TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			result.cancel(true);
+			throw e;
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof GameError) {
+				notifyError((GameError) e.getCause());
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new GameError("The request of a move failed: " + e.getCause());
+		} catch (InterruptedException e) {
+			result.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new GameError("Interrupted while waiting for a move");
+		}
+	}
+
+	/**
+	 * Prepares a request of a move to {@code player} for the current turn. The
+	 * request works on a read-only copy of the board, so it can be run on
+	 * another thread while the game goes on, without ever seeing the game
+	 * change under it. Its result is then executed with
+	 * {@link #makeMove(GameMove)}, and its errors can be reported with
+	 * {@link #reportError(RuntimeException)}.
+	 * 
+	 * <p>
+	 * Prepara una peticion de movimiento a {@code player} para el turno
+	 * actual. La peticion trabaja sobre una copia de solo lectura del tablero,
+	 * por lo que se puede ejecutar en otra hebra mientras el juego continua,
+	 * sin ver nunca cambiar el juego. Su resultado se ejecuta despues con
+	 * {@link #makeMove(GameMove)}, y sus errores se pueden notificar con
+	 * {@link #reportError(RuntimeException)}.
+	 * 
+	 * @param player
+	 *            A player to make a move.
+	 * 
+	 *            <p>
+	 *            El jugador que realiza el movimiento
+	 * @return The request.
+	 *         <p>
+	 *         La peticion.
+	 */
+	public Callable<GameMove> moveRequest(final Player player) {
+		if (state != State.InPlay) {
+			notifyError(new GameError("Game is not in play"));
+		}
+		final Piece turn = this.turn;
+		final Board board = new ReadOnlyBoard(this.board.copy());
+		final List<Piece> pieces = roPieces;
+		final GameClock clock = this.clock;
+		return new Callable<GameMove>() {
+			@Override
+			public GameMove call() {
+				return player.requestMove(turn, board, pieces, rules, clock);
+			}
+		};
+	}
+
+	/**
+	 * Executes a move of the player in turn, e.g., one obtained with
+	 * {@link #moveRequest(Player)}. See {@link #executeMove(GameMove, boolean)}.
+	 * 
+	 * <p>
+	 * Ejecuta un movimiento del jugador en turno, por ejemplo uno obtenido con
+	 * {@link #moveRequest(Player)}. Vease {@link #executeMove(GameMove, boolean)}.
+	 * 
+	 * @param move
+	 *            A move to execute.
+	 * 
+	 *            <p>
+	 *            movimiento a ejecutar.
+	 */
+	public void makeMove(GameMove move) {
+		executeMove(move, false);
+	}
+
+	/**
+	 * Applies the timeout policy to the player in turn, whose request of a
+	 * move was not answered before its clock ran out: its first valid move is
+	 * executed instead, or it forfeits. It is called by
+	 * {@link #makeMove(Player)}, and by controllers that run the requests of
+	 * {@link #moveRequest(Player)} on their own threads. The clock is not
+	 * checked again, since it may still show a few milliseconds left when the
+	 * wait for the request ends.
+	 * 
+	 * <p>
+	 * Aplica la politica de tiempo agotado al jugador en turno, cuya peticion
+	 * de movimiento no se contesto antes de que se le acabara el tiempo: en su
+	 * lugar se ejecuta su primer movimiento valido, o pierde la partida. La
+	 * llaman {@link #makeMove(Player)} y los controladores que ejecutan las
+	 * peticiones de {@link #moveRequest(Player)} en sus propias hebras. No se
+	 * vuelve a comprobar el reloj, ya que puede mostrar aun unos milisegundos
+	 * cuando termina la espera de la peticion.
+	 * 
+	 * @return The fallback move executed, or {@code null} if the player
+	 *         forfeited.
+	 *         <p>
+	 *         El movimiento sustituto ejecutado, o {@code null} si el jugador
+	 *         perdio la partida.
+	 */
+	public GameMove timeOut() {
+		if (clock == null) {
+			notifyError(new GameError("The game has no clock"));
 		}
-		executeMove(m);
+		return executeMove(null, true);
+	}
+
+	/**
+	 * Notifies the observers of an error that happened outside the game, e.g.,
+	 * in a request of {@link #moveRequest(Player)} run on another thread, and
+	 * throws it, as the errors of {@link #makeMove(Player)} are.
+	 * 
+	 * <p>
+	 * Notifica a los observadores un error ocurrido fuera del juego, por
+	 * ejemplo en una peticion de {@link #moveRequest(Player)} ejecutada en otra
+	 * hebra, y lo lanza, como los errores de {@link #makeMove(Player)}.
+	 * 
+	 * @param e
+	 *            The error.
+	 *            <p>
+	 *            El error.
+	 */
+	public void reportError(RuntimeException e) {
+		notifyError(e);
 	}
 
 	/**
 	 * Executes a given game move, according to the following steps:
 	 * <ul>
 	 * <li>The game state must be {@link State#InPlay}.</li>
+	 * <li>If the player in {@link #turn} has run out of time, apply the
+	 * {@link #timeoutPolicy}: the move is replaced by a fallback move, or the
+	 * game ends.</li>
 	 * <li>The move must correspond to the piece in {@link #turn}.</li>
 	 * <li>Notify all observers that we are about to execute a move.</li>
 	 * <li>Execute the move, and notify the observers if it has finished with
@@ -352,6 +654,9 @@ public class Game implements Observable<GameObserver> {
 	 * Procesa un movimiento de un jugador, conforme a los siguientes pasos:
 	 * <ul>
 	 * <li>El estado del juego debe ser {@link State#InPlay}.</li>
+	 * <li>Si el jugador en {@link #turn} se ha quedado sin tiempo, aplica la
+	 * {@link #timeoutPolicy}: el movimiento se sustituye por otro, o el juego
+	 * termina.</li>
 	 * <li>El movimiento debe corresponder a la ficha en {@link #turn}.</li>
 	 * <li>notifica a todos los observadores que el movimiento va a comenzar
 	 * </li>
@@ -368,8 +673,19 @@ public class Game implements Observable<GameObserver> {
 	 * 
 	 *            <p>
 	 *            movimiento a ejecutar.
+	 * @param timedOut
+	 *            Whether the player is known to have run out of time, whatever
+	 *            its clock shows.
+	 *            <p>
+	 *            Si se sabe que el jugador se ha quedado sin tiempo, muestre lo
+	 *            que muestre su reloj.
+	 * @return The move executed (the fallback move if the player ran out of
+	 *         time), or {@code null} if the player forfeited.
+	 *         <p>
+	 *         El movimiento ejecutado (el sustituto si el jugador se quedo sin
+	 *         tiempo), o {@code null} si el jugador perdio la partida.
 	 */
-	private void executeMove(GameMove move) {
+	private GameMove executeMove(GameMove move, boolean timedOut) {
 
 		// check if the game is in play
 		//
@@ -377,6 +693,15 @@ public class Game implements Observable<GameObserver> {
 			notifyError(new GameError("Game is not in play"));
 		}
 
+		// the player must be in time
+		//
+		if (clock != null && (timedOut || clock.getRemaining(turn) <= 0)) {
+			move = outOfTime();
+			if (move == null) {
+				return null;
+			}
+		}
+
 		// the move must correspond to the current player
 		//
 		if (!move.getPiece().equals(turn)) {
@@ -390,6 +715,9 @@ public class Game implements Observable<GameObserver> {
 		try {
 			move.execute(this.board, this.roPieces); // execute the move, and
 														// then
+			if (clock != null) {
+				clock.stop(); // charge the time of the move
+			}
 			notifyEndMove(true); // notify that the move has finished correctly
 		} catch (GameError e) {
 			notifyEndMove(false); // notify the the move has ended with error,
@@ -410,6 +738,9 @@ public class Game implements Observable<GameObserver> {
 			break;
 		case InPlay:
 			turn = rules.nextPlayer(board, pieces, turn);
+			if (clock != null) {
+				clock.start(turn);
+			}
 			notifyChangeTurn();
 			break;
 		case Won:
@@ -421,6 +752,44 @@ public class Game implements Observable<GameObserver> {
 			throw new UnsupportedOperationException(
 					"The state " + gameOverStatus.getFirst() + " is invalid at this point, something went wrong!");
 		}
+		return move;
+	}
+
+	/**
+	 * Applies the {@link #timeoutPolicy} to the player in {@link #turn}, who
+	 * has run out of time.
+	 * 
+	 * <p>
+	 * Aplica la {@link #timeoutPolicy} al jugador en {@link #turn}, que se ha
+	 * quedado sin tiempo.
+	 * 
+	 * @return The fallback move, or {@code null} if the player forfeited.
+	 *         <p>
+	 *         El movimiento sustituto, o {@code null} si el jugador perdio la
+	 *         partida.
+	 */
+	private GameMove outOfTime() {
+		if (timeoutPolicy == TimeoutPolicy.Fallback) {
+			GameMove m = null;
+			try {
+				m = Moves.firstMove(rules, roBoard, roPieces, turn);
+			} catch (GameError e) {
+				// the rules cannot generate moves, so the player forfeits
+			}
+			if (m != null) {
+				return m;
+			}
+		}
+		clock.pause();
+		if (pieces.size() == 2) {
+			winner = pieces.get(0).equals(turn) ? pieces.get(1) : pieces.get(0);
+			state = State.Won;
+			notifyWon();
+		} else {
+			state = State.Draw;
+			notifyDraw();
+		}
+		return null;
 	}
 
 	/**
@@ -591,6 +960,9 @@ public class Game implements Observable<GameObserver> {
 				s = s + " ";
 			}
 		}
+		if (clock != null) {
+			s = s + "\n" + "Clocks: " + clock;
+		}
 		s = s + "\n" + "Game Status: " + getState();
 		if (getState() == State.Won) {
 			s = s + "\n" + "Winner: " + getWinner();
@@ -0,0 +1,310 @@
+package es.ucm.fdi.tp.basecode.bgame.model;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The clocks of the players of a {@link Game} (see
+ * {@link Game#setClock(GameClock, Game.TimeoutPolicy)}). Each player starts
+ * with a base time, its clock runs during its turns and, after each of its
+ * moves, it gets an increment. A player whose clock reaches zero during its
+ * turn has run out of time, and the game applies its
+ * {@link Game.TimeoutPolicy}.
+ * The clocks are started and stopped by the game; players can consult them
+ * (e.g., to budget the time of a search with {@link #moveDeadline(Piece)})
+ * from any thread.
+ *
+ * <p>
+ * Los relojes de los jugadores de un {@link Game} (vease
+ * {@link Game#setClock(GameClock, Game.TimeoutPolicy)}). Cada jugador empieza
+ * con un tiempo base, su reloj corre durante sus turnos y, tras cada uno de
+ * sus movimientos, recibe un incremento. Un jugador cuyo reloj llega a
+ * cero durante su turno se ha quedado sin tiempo, y el juego aplica su
+ * {@link Game.TimeoutPolicy}. El juego pone en marcha y para los relojes; los
+ * jugadores los pueden consultar (por ejemplo, para repartir el tiempo de una
+ * busqueda con {@link #moveDeadline(Piece)}) desde cualquier hebra.
+ */
+public class GameClock {
+
+	/**
+	 * The number of moves that {@link #moveBudget(Piece)} assumes are left
+	 * to play, since the length of a game is not known in advance.
+	 *
+	 * <p>
+	 * Numero de movimientos que {@link #moveBudget(Piece)} supone que quedan
+	 * por jugar, ya que la duracion de una partida no se conoce de antemano.
+	 */
+	public static final int MOVES_TO_GO = 30;
+
+	/**
+	 * The time, in milliseconds, that {@link #moveBudget(Piece)} keeps in
+	 * reserve to answer after the search ends.
+	 *
+	 * <p>
+	 * Tiempo, en milisegundos, que {@link #moveBudget(Piece)} guarda en
+	 * reserva para contestar despues de que termine la busqueda.
+	 */
+	public static final long SAFETY_MARGIN = 50;
+
+	private final long base;
+	private final long increment;
+
+	/**
+	 * The remaining time of each player at the start of its current (or last)
+	 * turn, in milliseconds.
+	 *
+	 * <p>
+	 * Tiempo restante de cada jugador al comienzo de su turno actual (o del
+	 * ultimo), en milisegundos.
+	 */
+	private final Map<Piece, Long> remaining;
+
+	/**
+	 * The player whose clock is running, or {@code null}.
+	 *
+	 * <p>
+	 * El jugador cuyo reloj esta en marcha, o {@code null}.
+	 */
+	private Piece running;
+
+	/**
+	 * When the clock of {@link #running} was started, as returned by
+	 * {@link System#nanoTime()}: the elapsed time is measured with a monotonic
+	 * clock, as the waits of {@link java.util.concurrent.Future#get} are, so a
+	 * change of the wall clock does not add or remove time.
+	 *
+	 * <p>
+	 * Cuando se puso en marcha el reloj de {@link #running}, como lo devuelve
+	 * {@link System#nanoTime()}: el tiempo transcurrido se mide con un reloj
+	 * monotono, como las esperas de {@link java.util.concurrent.Future#get},
+	 * por lo que un cambio del reloj del sistema no anade ni quita tiempo.
+	 */
+	private long turnStart;
+
+	/**
+	 * Constructs the clocks of a game.
+	 *
+	 * <p>
+	 * Construye los relojes de una partida.
+	 *
+	 * @param base
+	 *            The initial time of each player, in milliseconds.
+	 *            <p>
+	 *            Tiempo inicial de cada jugador, en milisegundos.
+	 * @param increment
+	 *            The time added to a player after each of its moves, in
+	 *            milliseconds.
+	 *            <p>
+	 *            Tiempo que se anade a un jugador tras cada uno de sus
+	 *            movimientos, en milisegundos.
+	 */
+	public GameClock(long base, long increment) {
+		if (base < 1) {
+			throw new GameError("The base time must be positive: " + base);
+		}
+		if (increment < 0) {
+			throw new GameError("The increment cannot be negative: " + increment);
+		}
+		this.base = base;
+		this.increment = increment;
+		this.remaining = new LinkedHashMap<Piece, Long>();
+	}
+
+	/**
+	 * Consults the initial time of each player.
+	 *
+	 * <p>
+	 * Proporciona el tiempo inicial de cada jugador.
+	 *
+	 * @return The base time, in milliseconds.
+	 */
+	public long getBase() {
+		return base;
+	}
+
+	/**
+	 * Consults the time added to a player after each of its moves.
+	 *
+	 * <p>
+	 * Proporciona el tiempo que se anade a un jugador tras cada uno de sus
+	 * movimientos.
+	 *
+	 * @return The increment, in milliseconds.
+	 */
+	public long getIncrement() {
+		return increment;
+	}
+
+	/**
+	 * Sets the clock of every player to the base time, with all of them
+	 * stopped.
+	 *
+	 * <p>
+	 * Pone el reloj de cada jugador al tiempo base, con todos ellos parados.
+	 */
+	synchronized void reset(List<Piece> pieces) {
+		remaining.clear();
+		for (Piece p : pieces) {
+			remaining.put(p, base);
+		}
+		running = null;
+	}
+
+	/**
+	 * Starts the clock of {@code p}, stopping the one that was running (if
+	 * any) without charging it.
+	 *
+	 * <p>
+	 * Pone en marcha el reloj de {@code p}, parando el que estaba en marcha
+	 * (si lo hay) sin descontarle el tiempo.
+	 */
+	synchronized void start(Piece p) {
+		running = p;
+		turnStart = System.nanoTime();
+	}
+
+	/**
+	 * Stops the running clock and charges its player with the time of the
+	 * turn, and then adds the increment. A clock that ran out of time is set
+	 * to zero before adding the increment.
+	 *
+	 * <p>
+	 * Para el reloj en marcha, descuenta a su jugador el tiempo del turno y
+	 * despues le anade el incremento. Un reloj que se ha quedado sin tiempo se
+	 * pone a cero antes de anadir el incremento.
+	 */
+	synchronized void stop() {
+		if (running != null) {
+			remaining.put(running, Math.max(0, remaining(running)) + increment);
+			running = null;
+		}
+	}
+
+	/**
+	 * Stops the running clock without charging its player (e.g., when the
+	 * game is over).
+	 *
+	 * <p>
+	 * Para el reloj en marcha sin descontar el tiempo a su jugador (por
+	 * ejemplo, cuando la partida termina).
+	 */
+	synchronized void pause() {
+		running = null;
+	}
+
+	/**
+	 * Consults the remaining time of {@code p}, including the time spent in
+	 * its current turn if its clock is running. It is negative if {@code p}
+	 * has run out of time but its turn did not end yet.
+	 *
+	 * <p>
+	 * Proporciona el tiempo restante de {@code p}, incluyendo el tiempo
+	 * gastado en su turno actual si su reloj esta en marcha. Es negativo si
+	 * {@code p} se ha quedado sin tiempo pero su turno aun no ha terminado.
+	 *
+	 * @param p
+	 *            A player.
+	 *            <p>
+	 *            Un jugador.
+	 * @return The remaining time, in milliseconds.
+	 *         <p>
+	 *         El tiempo restante, en milisegundos.
+	 */
+	public synchronized long getRemaining(Piece p) {
+		return remaining(p);
+	}
+
+	private long remaining(Piece p) {
+		Long left = remaining.get(p);
+		if (left == null) {
+			throw new GameError("The player " + p + " has no clock");
+		}
+		if (p.equals(running)) {
+			return left - (System.nanoTime() - turnStart) / 1000000L;
+		}
+		return left;
+	}
+
+	/**
+	 * Consults the player whose clock is running.
+	 *
+	 * <p>
+	 * Proporciona el jugador cuyo reloj esta en marcha.
+	 *
+	 * @return The player, or {@code null} if all the clocks are stopped.
+	 *         <p>
+	 *         El jugador, o {@code null} si todos los relojes estan parados.
+	 */
+	public synchronized Piece getRunning() {
+		return running;
+	}
+
+	/**
+	 * Computes the time that {@code p} should spend in its next move: an
+	 * equal share of its remaining time over {@link #MOVES_TO_GO} moves, plus
+	 * the increment, but always leaving {@link #SAFETY_MARGIN} (or half the
+	 * remaining time, if it is shorter) on the clock.
+	 *
+	 * <p>
+	 * Calcula el tiempo que {@code p} deberia gastar en su siguiente
+	 * movimiento: una parte igual de su tiempo restante entre
+	 * {@link #MOVES_TO_GO} movimientos, mas el incremento, pero dejando
+	 * siempre {@link #SAFETY_MARGIN} (o la mitad del tiempo restante, si es
+	 * menor) en el reloj.
+	 *
+	 * @param p
+	 *            A player.
+	 *            <p>
+	 *            Un jugador.
+	 * @return The time budget, in milliseconds (at least 1).
+	 *         <p>
+	 *         El tiempo para el movimiento, en milisegundos (al menos 1).
+	 */
+	public synchronized long moveBudget(Piece p) {
+		long left = remaining(p);
+		if (left <= 1) {
+			return 1;
+		}
+		long budget = left / MOVES_TO_GO + increment;
+		long limit = left - Math.min(SAFETY_MARGIN, left / 2);
+		return Math.max(1, Math.min(budget, limit));
+	}
+
+	/**
+	 * Computes the time by which {@code p} should have chosen its move,
+	 * i.e., the current time plus {@link #moveBudget(Piece)}.
+	 *
+	 * <p>
+	 * Calcula el instante en el que {@code p} deberia haber elegido su
+	 * movimiento, es decir, el instante actual mas
+	 * {@link #moveBudget(Piece)}.
+	 *
+	 * @param p
+	 *            A player.
+	 *            <p>
+	 *            Un jugador.
+	 * @return The deadline, as returned by
+	 *         {@link System#currentTimeMillis()}.
+	 *         <p>
+	 *         El instante limite, como lo devuelve
+	 *         {@link System#currentTimeMillis()}.
+	 */
+	public long moveDeadline(Piece p) {
+		return System.currentTimeMillis() + moveBudget(p);
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Piece p : remaining.keySet()) {
+			long left = Math.max(0, remaining(p));
+			if (sb.length() > 0) {
+				sb.append(' ');
+			}
+			sb.append(String.format("%s %d:%02d.%d", p, left / 60000, left / 1000 % 60, left / 100 % 10));
+		}
+		return sb.toString();
+	}
+
+}
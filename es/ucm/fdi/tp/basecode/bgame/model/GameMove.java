@@ -95,6 +95,59 @@ public abstract class GameMove implements java.io.Serializable {
 	 */
 	public abstract void execute(Board board, List<Piece> pieces);
 
+	/**
+	 * Executes the move on {@code board} so that it can be reverted later with
+	 * {@link #undo(Board, int)}, without copying the board. Moves are undone in
+	 * the reverse order of their execution. If {@link #execute(Board, List)}
+	 * fails, the board is left unchanged.
+	 * <p>
+	 * Ejecuta el movimiento en {@code board} de forma que se pueda deshacer
+	 * despues con {@link #undo(Board, int)}, sin copiar el tablero. Los
+	 * movimientos se deshacen en orden inverso al de su ejecucion. Si
+	 * {@link #execute(Board, List)} falla, el tablero no se modifica.
+	 * @param board
+	 *            A board on which the move operates.
+	 *            <p>
+	 *            Tablero sobre el que se realiza el movimiento.
+	 * @param pieces
+	 *            A list of pieces that are involved in the game.
+	 *            <p>
+	 *            Lista de fichas de todos los jugadores
+	 * @return The undo record, to be passed to {@link #undo(Board, int)}.
+	 *         <p>
+	 *         El registro para deshacer, que se debe pasar a
+	 *         {@link #undo(Board, int)}.
+	 */
+	public int executeUndoable(Board board, List<Piece> pieces) {
+		int mark = board.mark();
+		try {
+			execute(board, pieces);
+		} catch (RuntimeException e) {
+			board.undo(mark);
+			throw e;
+		}
+		return mark;
+	}
+
+	/**
+	 * Reverts the execution of this move on {@code board}.
+	 * <p>
+	 * Deshace la ejecucion de este movimiento en {@code board}.
+	 * @param board
+	 *            The board on which the move was executed.
+	 *            <p>
+	 *            Tablero sobre el que se realizo el movimiento.
+	 * @param undo
+	 *            The undo record returned by
+	 *            {@link #executeUndoable(Board, List)}.
+	 *            <p>
+	 *            El registro devuelto por
+	 *            {@link #executeUndoable(Board, List)}.
+	 */
+	public void undo(Board board, int undo) {
+		board.undo(undo);
+	}
+
 	/**
 	 * An abstract method for generating a game move from a string. The string
 	 * format depends on the actual move (@see {@link #help()}).
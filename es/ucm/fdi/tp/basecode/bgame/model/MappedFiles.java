@@ -0,0 +1,210 @@
+package es.ucm.fdi.tp.basecode.bgame.model;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Helpers for the binary files that are mapped in memory (tablebases, opening
+ * books, n-tuple networks). All of them start with the same header: a magic
+ * number and a version, as two ints, optionally followed by a description
+ * written with {@link DataOutputStream#writeUTF(String)}.
+ *
+ * <p>
+ * Utilidades para los ficheros binarios que se proyectan en memoria (tablas,
+ * libros de aperturas, redes de n-tuplas). Todos empiezan con la misma
+ * cabecera: un numero magico y una version, como dos ints, seguidos
+ * opcionalmente de una descripcion escrita con
+ * {@link DataOutputStream#writeUTF(String)}.
+ */
+public final class MappedFiles {
+
+	/**
+	 * The offset of the description, after the magic number and the version.
+	 *
+	 * <p>
+	 * La posicion de la descripcion, tras el numero magico y la version.
+	 */
+	private static final int DESCRIPTION = 8;
+
+	private MappedFiles() {
+	}
+
+	/**
+	 * Maps a whole file in memory, read-only.
+	 *
+	 * <p>
+	 * Proyecta un fichero entero en memoria, en solo lectura.
+	 *
+	 * @param file
+	 *            The file.
+	 *            <p>
+	 *            El fichero.
+	 * @return The mapped file.
+	 *         <p>
+	 *         El fichero proyectado.
+	 * @throws IOException
+	 *             If the file cannot be read.
+	 *             <p>
+	 *             Si no se puede leer el fichero.
+	 */
+	public static ByteBuffer map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			// the mapping remains valid after the channel is closed
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	/**
+	 * Checks the magic number and the version of a mapped file.
+	 *
+	 * <p>
+	 * Comprueba el numero magico y la version de un fichero proyectado.
+	 *
+	 * @param buffer
+	 *            The mapped file.
+	 *            <p>
+	 *            El fichero proyectado.
+	 * @param minSize
+	 *            The minimum size of a file of this kind.
+	 *            <p>
+	 *            El tamano minimo de un fichero de este tipo.
+	 * @param magic
+	 *            The expected magic number.
+	 *            <p>
+	 *            El numero magico esperado.
+	 * @param version
+	 *            The expected version.
+	 *            <p>
+	 *            La version esperada.
+	 * @param what
+	 *            The kind of file, for the error messages (e.g., "a
+	 *            tablebase").
+	 *            <p>
+	 *            El tipo de fichero, para los mensajes de error (por ejemplo,
+	 *            "a tablebase").
+	 * @throws GameError
+	 *             If the file is too small, or its magic number or version
+	 *             are not the expected ones.
+	 *             <p>
+	 *             Si el fichero es demasiado pequeno, o su numero magico o su
+	 *             version no son los esperados.
+	 */
+	public static void checkHeader(ByteBuffer buffer, int minSize, int magic, int version, String what) {
+		if (buffer.limit() < Math.max(minSize, DESCRIPTION) || buffer.getInt(0) != magic) {
+			throw new GameError("Not " + what);
+		}
+		if (buffer.getInt(4) != version) {
+			throw new GameError("Unsupported version of " + what + ": " + buffer.getInt(4));
+		}
+	}
+
+	/**
+	 * Reads the description that follows the magic number and the version.
+	 *
+	 * <p>
+	 * Lee la descripcion que sigue al numero magico y a la version.
+	 *
+	 * @param buffer
+	 *            The mapped file, with a checked header.
+	 *            <p>
+	 *            El fichero proyectado, con la cabecera comprobada.
+	 * @return The description.
+	 *         <p>
+	 *         La descripcion.
+	 */
+	public static String getDescription(ByteBuffer buffer) {
+		int length = buffer.getShort(DESCRIPTION) & 0xFFFF;
+		byte[] desc = new byte[length];
+		for (int i = 0; i < length; i++) {
+			desc[i] = buffer.get(DESCRIPTION + 2 + i);
+		}
+		return new String(desc, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Computes the offset of the data that follows the description.
+	 *
+	 * <p>
+	 * Calcula la posicion de los datos que siguen a la descripcion.
+	 *
+	 * @param buffer
+	 *            The mapped file, with a checked header.
+	 *            <p>
+	 *            El fichero proyectado, con la cabecera comprobada.
+	 * @return The offset of the first byte after the description.
+	 *         <p>
+	 *         La posicion del primer byte tras la descripcion.
+	 */
+	public static int afterDescription(ByteBuffer buffer) {
+		return DESCRIPTION + 2 + (buffer.getShort(DESCRIPTION) & 0xFFFF);
+	}
+
+	/**
+	 * Writes the magic number and the version of a file.
+	 *
+	 * <p>
+	 * Escribe el numero magico y la version de un fichero.
+	 *
+	 * @param out
+	 *            The stream of the file.
+	 *            <p>
+	 *            El flujo del fichero.
+	 * @param magic
+	 *            The magic number.
+	 *            <p>
+	 *            El numero magico.
+	 * @param version
+	 *            The version.
+	 *            <p>
+	 *            La version.
+	 * @throws IOException
+	 *             If the header cannot be written.
+	 *             <p>
+	 *             Si no se puede escribir la cabecera.
+	 */
+	public static void writeHeader(DataOutputStream out, int magic, int version) throws IOException {
+		out.writeInt(magic);
+		out.writeInt(version);
+	}
+
+	/**
+	 * Writes the magic number, the version and the description of a file.
+	 *
+	 * <p>
+	 * Escribe el numero magico, la version y la descripcion de un fichero.
+	 *
+	 * @param out
+	 *            The stream of the file.
+	 *            <p>
+	 *            El flujo del fichero.
+	 * @param magic
+	 *            The magic number.
+	 *            <p>
+	 *            El numero magico.
+	 * @param version
+	 *            The version.
+	 *            <p>
+	 *            La version.
+	 * @param description
+	 *            The description, read back by
+	 *            {@link #getDescription(ByteBuffer)}.
+	 *            <p>
+	 *            La descripcion, que lee
+	 *            {@link #getDescription(ByteBuffer)}.
+	 * @throws IOException
+	 *             If the header cannot be written.
+	 *             <p>
+	 *             Si no se puede escribir la cabecera.
+	 */
+	public static void writeHeader(DataOutputStream out, int magic, int version, String description)
+			throws IOException {
+		writeHeader(out, magic, version);
+		out.writeUTF(description);
+	}
+
+}
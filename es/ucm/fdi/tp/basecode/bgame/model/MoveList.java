@@ -0,0 +1,167 @@
+package es.ucm.fdi.tp.basecode.bgame.model;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of packed moves (see {@link PackedMove}) stored in an
+ * {@code int[]}. It is meant to be reused: {@link #clear()} keeps the array, so
+ * once it is large enough, filling it again does not allocate. As a
+ * {@link MoveVisitor} it adds every visited move, so it can collect the moves
+ * of an enumeration.
+ *
+ * <p>
+ * Una lista ampliable de movimientos empaquetados (vease {@link PackedMove})
+ * almacenada en un {@code int[]}. Esta pensada para reutilizarse:
+ * {@link #clear()} conserva el array, por lo que una vez que es
+ * suficientemente grande, volver a llenarla no reserva memoria. Como
+ * {@link MoveVisitor} agrega cada movimiento visitado, por lo que puede reunir
+ * los movimientos de una enumeracion.
+ */
+public final class MoveList implements MoveVisitor {
+
+	private int[] moves;
+	private int size;
+
+	/**
+	 * Constructs an empty list.
+	 *
+	 * <p>
+	 * Construye una lista vacia.
+	 */
+	public MoveList() {
+		this(64);
+	}
+
+	/**
+	 * Constructs an empty list with room for {@code capacity} moves.
+	 *
+	 * <p>
+	 * Construye una lista vacia con espacio para {@code capacity}
+	 * movimientos.
+	 */
+	public MoveList(int capacity) {
+		moves = new int[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Adds a move at the end of the list.
+	 *
+	 * <p>
+	 * Agrega un movimiento al final de la lista.
+	 */
+	public void add(int move) {
+		if (size == moves.length) {
+			moves = Arrays.copyOf(moves, 2 * size);
+		}
+		moves[size++] = move;
+	}
+
+	/**
+	 * Adds {@code move} at the end of the list and goes on with the
+	 * enumeration.
+	 *
+	 * <p>
+	 * Agrega {@code move} al final de la lista y sigue con la enumeracion.
+	 */
+	@Override
+	public boolean visit(int move) {
+		add(move);
+		return true;
+	}
+
+	/**
+	 * The {@code i}-th move of the list.
+	 *
+	 * <p>
+	 * El {@code i}-esimo movimiento de la lista.
+	 */
+	public int get(int i) {
+		if (i >= size) {
+			throw new IndexOutOfBoundsException("Index: " + i + ", size: " + size);
+		}
+		return moves[i];
+	}
+
+	/**
+	 * Replaces the {@code i}-th move of the list.
+	 *
+	 * <p>
+	 * Reemplaza el {@code i}-esimo movimiento de la lista.
+	 */
+	public void set(int i, int move) {
+		if (i >= size) {
+			throw new IndexOutOfBoundsException("Index: " + i + ", size: " + size);
+		}
+		moves[i] = move;
+	}
+
+	/**
+	 * The number of moves in the list.
+	 *
+	 * <p>
+	 * El numero de movimientos de la lista.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks if the list is empty.
+	 *
+	 * <p>
+	 * Comprueba si la lista esta vacia.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all the moves, keeping the storage.
+	 *
+	 * <p>
+	 * Elimina todos los movimientos, conservando el almacenamiento.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * The index of the first occurrence of {@code move}, or -1 if it is not in
+	 * the list.
+	 *
+	 * <p>
+	 * El indice de la primera aparicion de {@code move}, o -1 si no esta en la
+	 * lista.
+	 */
+	public int indexOf(int move) {
+		for (int i = 0; i < size; i++) {
+			if (moves[i] == move) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * The moves of the list, in a new array.
+	 *
+	 * <p>
+	 * Los movimientos de la lista, en un array nuevo.
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(moves, size);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(PackedMove.toString(moves[i]));
+		}
+		return sb.append(']').toString();
+	}
+
+}
@@ -0,0 +1,37 @@
+package es.ucm.fdi.tp.basecode.bgame.model;
+
+/**
+ * Receives the packed moves (see {@link PackedMove}) enumerated by
+ * {@link PackedMoveRules#visitMoves(Board, java.util.List, Piece, MoveVisitor)},
+ * one by one, and decides whether the enumeration goes on. It lets callers
+ * that only need part of the moves (the first one, a random one, how many
+ * there are, etc.) stop early and never build the list of all the moves.
+ *
+ * <p>
+ * Recibe los movimientos empaquetados (vease {@link PackedMove}) que enumera
+ * {@link PackedMoveRules#visitMoves(Board, java.util.List, Piece, MoveVisitor)},
+ * uno a uno, y decide si la enumeracion continua. Permite que quien solo
+ * necesita parte de los movimientos (el primero, uno aleatorio, cuantos hay,
+ * etc.) pare antes y nunca construya la lista de todos los movimientos.
+ */
+public interface MoveVisitor {
+
+	/**
+	 * Called for each move of the enumeration.
+	 *
+	 * <p>
+	 * Se llama para cada movimiento de la enumeracion.
+	 *
+	 * @param move
+	 *            A packed move.
+	 *            <p>
+	 *            Un movimiento empaquetado.
+	 * @return {@code true} to go on with the next move, {@code false} to stop
+	 *         the enumeration.
+	 *         <p>
+	 *         {@code true} para seguir con el siguiente movimiento,
+	 *         {@code false} para parar la enumeracion.
+	 */
+	public boolean visit(int move);
+
+}
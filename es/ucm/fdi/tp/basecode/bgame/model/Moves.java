@@ -0,0 +1,221 @@
+package es.ucm.fdi.tp.basecode.bgame.model;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Static methods to query the valid moves of a player without building the
+ * list of all of them. If the rules implement {@link PackedMoveRules}, the
+ * moves are enumerated with
+ * {@link PackedMoveRules#visitMoves(Board, List, Piece, MoveVisitor)}, which
+ * stops as soon as the answer is known (e.g., at the first move for
+ * {@link #hasMove}) and creates at most one {@link GameMove}. Otherwise they
+ * fall back to {@link GameRules#validMoves(Board, List, Piece)}.
+ *
+ * <p>
+ * Metodos estaticos para consultar los movimientos validos de un jugador sin
+ * construir la lista de todos ellos. Si las reglas implementan
+ * {@link PackedMoveRules}, los movimientos se enumeran con
+ * {@link PackedMoveRules#visitMoves(Board, List, Piece, MoveVisitor)}, que para
+ * en cuanto se conoce la respuesta (por ejemplo, en el primer movimiento para
+ * {@link #hasMove}) y crea como mucho un {@link GameMove}. En otro caso se
+ * recurre a {@link GameRules#validMoves(Board, List, Piece)}.
+ */
+public final class Moves {
+
+	/**
+	 * Stops the enumeration at the first move.
+	 *
+	 * <p>
+	 * Para la enumeracion en el primer movimiento.
+	 */
+	private static final class First implements MoveVisitor {
+		private int move;
+
+		@Override
+		public boolean visit(int move) {
+			this.move = move;
+			return false;
+		}
+	}
+
+	/**
+	 * Counts the moves.
+	 *
+	 * <p>
+	 * Cuenta los movimientos.
+	 */
+	private static final class Counter implements MoveVisitor {
+		private int count;
+
+		@Override
+		public boolean visit(int move) {
+			count++;
+			return true;
+		}
+	}
+
+	/**
+	 * Chooses a move uniformly at random in a single pass, without knowing
+	 * the number of moves in advance (reservoir sampling): the {@code n}-th
+	 * move replaces the chosen one with probability {@code 1/n}.
+	 *
+	 * <p>
+	 * Elige un movimiento de manera uniforme en una sola pasada, sin conocer
+	 * de antemano el numero de movimientos (muestreo de reserva): el
+	 * {@code n}-esimo movimiento reemplaza al elegido con probabilidad
+	 * {@code 1/n}.
+	 */
+	private static final class Sampler implements MoveVisitor {
+		private final Random random;
+		private int count;
+		private int move;
+
+		private Sampler(Random random) {
+			this.random = random;
+		}
+
+		@Override
+		public boolean visit(int move) {
+			count++;
+			if (random.nextInt(count) == 0) {
+				this.move = move;
+			}
+			return true;
+		}
+	}
+
+	private Moves() {
+	}
+
+	/**
+	 * Checks if {@code turn} has some valid move.
+	 *
+	 * <p>
+	 * Comprueba si {@code turn} tiene algun movimiento valido.
+	 *
+	 * @param rules
+	 *            The rules of the game.
+	 *            <p>
+	 *            Las reglas del juego.
+	 * @param board
+	 *            A board.
+	 *            <p>
+	 *            Un tablero.
+	 * @param pieces
+	 *            The pieces of the players.
+	 *            <p>
+	 *            Las fichas de los jugadores.
+	 * @param turn
+	 *            The player to move.
+	 *            <p>
+	 *            El jugador que mueve.
+	 * @return {@code true} if {@code turn} can move.
+	 *         <p>
+	 *         {@code true} si {@code turn} puede mover.
+	 */
+	public static boolean hasMove(GameRules rules, Board board, List<Piece> pieces, Piece turn) {
+		if (rules instanceof PackedMoveRules) {
+			return !((PackedMoveRules) rules).visitMoves(board, pieces, turn, new First());
+		}
+		return !validMoves(rules, board, pieces, turn).isEmpty();
+	}
+
+	/**
+	 * The first valid move of {@code turn}, in the order of
+	 * {@link GameRules#validMoves(Board, List, Piece)}.
+	 *
+	 * <p>
+	 * El primer movimiento valido de {@code turn}, en el orden de
+	 * {@link GameRules#validMoves(Board, List, Piece)}.
+	 *
+	 * @return The first move, or {@code null} if {@code turn} cannot move.
+	 *         <p>
+	 *         El primer movimiento, o {@code null} si {@code turn} no puede
+	 *         mover.
+	 */
+	public static GameMove firstMove(GameRules rules, Board board, List<Piece> pieces, Piece turn) {
+		if (rules instanceof PackedMoveRules) {
+			PackedMoveRules packedRules = (PackedMoveRules) rules;
+			First first = new First();
+			if (packedRules.visitMoves(board, pieces, turn, first)) {
+				return null;
+			}
+			return packedRules.toGameMove(board, turn, first.move);
+		}
+		List<GameMove> moves = validMoves(rules, board, pieces, turn);
+		return moves.isEmpty() ? null : moves.get(0);
+	}
+
+	/**
+	 * The number of valid moves of {@code turn}.
+	 *
+	 * <p>
+	 * El numero de movimientos validos de {@code turn}.
+	 */
+	public static int countMoves(GameRules rules, Board board, List<Piece> pieces, Piece turn) {
+		if (rules instanceof PackedMoveRules) {
+			Counter counter = new Counter();
+			((PackedMoveRules) rules).visitMoves(board, pieces, turn, counter);
+			return counter.count;
+		}
+		return validMoves(rules, board, pieces, turn).size();
+	}
+
+	/**
+	 * Like {@link #randomMove(GameRules, Board, List, Piece, Random)}, using
+	 * the {@link ThreadLocalRandom} of the calling thread (as
+	 * {@link es.ucm.fdi.tp.basecode.bgame.Utils#randomInt(int)} does).
+	 *
+	 * <p>
+	 * Como {@link #randomMove(GameRules, Board, List, Piece, Random)}, usando
+	 * el {@link ThreadLocalRandom} de la hebra que llama (como hace
+	 * {@link es.ucm.fdi.tp.basecode.bgame.Utils#randomInt(int)}).
+	 */
+	public static GameMove randomMove(GameRules rules, Board board, List<Piece> pieces, Piece turn) {
+		return randomMove(rules, board, pieces, turn, ThreadLocalRandom.current());
+	}
+
+	/**
+	 * A valid move of {@code turn} chosen uniformly at random. With
+	 * {@link PackedMoveRules} it takes a single pass over the moves and only
+	 * creates the chosen {@link GameMove}.
+	 *
+	 * <p>
+	 * Un movimiento valido de {@code turn} elegido de manera uniforme. Con
+	 * {@link PackedMoveRules} hace una sola pasada sobre los movimientos y
+	 * solo crea el {@link GameMove} elegido.
+	 *
+	 * @param random
+	 *            The random generator.
+	 *            <p>
+	 *            El generador aleatorio.
+	 * @return The chosen move, or {@code null} if {@code turn} cannot move.
+	 *         <p>
+	 *         El movimiento elegido, o {@code null} si {@code turn} no puede
+	 *         mover.
+	 */
+	public static GameMove randomMove(GameRules rules, Board board, List<Piece> pieces, Piece turn, Random random) {
+		if (rules instanceof PackedMoveRules) {
+			PackedMoveRules packedRules = (PackedMoveRules) rules;
+			Sampler sampler = new Sampler(random);
+			packedRules.visitMoves(board, pieces, turn, sampler);
+			if (sampler.count == 0) {
+				return null;
+			}
+			return packedRules.toGameMove(board, turn, sampler.move);
+		}
+		List<GameMove> moves = validMoves(rules, board, pieces, turn);
+		return moves.isEmpty() ? null : moves.get(random.nextInt(moves.size()));
+	}
+
+	private static List<GameMove> validMoves(GameRules rules, Board board, List<Piece> pieces, Piece turn) {
+		List<GameMove> moves = rules.validMoves(board, pieces, turn);
+		if (moves == null) {
+			throw new GameError("The game '" + rules.gameDesc() + "' does not support the generation of valid moves.");
+		}
+		return moves;
+	}
+
+}
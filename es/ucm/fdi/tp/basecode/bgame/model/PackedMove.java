@@ -0,0 +1,177 @@
+package es.ucm.fdi.tp.basecode.bgame.model;
+
+/**
+ * Static methods to encode a move of a board game in a single {@code int}, so
+ * engines can generate, store and compare moves without creating objects (see
+ * {@link MoveList} and {@link PackedMoveRules}). A packed move has a
+ * destination cell and, optionally, an origin cell near it:
+ * <ul>
+ * <li>bits 0-11: destination column.</li>
+ * <li>bits 12-23: destination row.</li>
+ * <li>bits 24-27: origin column - destination column + 8 (0 if there is no
+ * origin).</li>
+ * <li>bits 28-31: origin row - destination row + 8 (0 if there is no
+ * origin).</li>
+ * </ul>
+ * A move without origin (e.g., placing a piece in ConnectN) is called a
+ * placement. Rows and columns must be between 0 and {@link #MAX_DIM}-1, and
+ * the origin must be at most {@link #MAX_JUMP} rows and columns away from the
+ * destination; otherwise the move cannot be packed, and a {@link GameError}
+ * is thrown.
+ *
+ * <p>
+ * Metodos estaticos para codificar un movimiento de un juego de tablero en un
+ * unico {@code int}, para que los motores puedan generar, guardar y comparar
+ * movimientos sin crear objetos (vease {@link MoveList} y
+ * {@link PackedMoveRules}). Un movimiento empaquetado tiene una casilla destino
+ * y, opcionalmente, una casilla origen cercana:
+ * <ul>
+ * <li>bits 0-11: columna destino.</li>
+ * <li>bits 12-23: fila destino.</li>
+ * <li>bits 24-27: columna origen - columna destino + 8 (0 si no hay
+ * origen).</li>
+ * <li>bits 28-31: fila origen - fila destino + 8 (0 si no hay origen).</li>
+ * </ul>
+ * Un movimiento sin origen (por ejemplo, colocar una ficha en ConnectN) se
+ * llama colocacion. Las filas y columnas deben estar entre 0 y
+ * {@link #MAX_DIM}-1, y el origen debe estar a como mucho {@link #MAX_JUMP}
+ * filas y columnas del destino; si no, el movimiento no se puede empaquetar,
+ * y se lanza un {@link GameError}.
+ */
+public final class PackedMove {
+
+	/**
+	 * The maximum number of rows and columns of a board whose moves can be
+	 * packed.
+	 *
+	 * <p>
+	 * Numero maximo de filas y columnas de un tablero cuyos movimientos se
+	 * pueden empaquetar.
+	 */
+	public static final int MAX_DIM = 1 << 12;
+
+	/**
+	 * The maximum distance, in rows and in columns, from the origin to the
+	 * destination of a packed move.
+	 *
+	 * <p>
+	 * Distancia maxima, en filas y en columnas, del origen al destino de un
+	 * movimiento empaquetado.
+	 */
+	public static final int MAX_JUMP = 7;
+
+	private PackedMove() {
+	}
+
+	/**
+	 * Packs a placement at ({@code row},{@code col}).
+	 *
+	 * <p>
+	 * Empaqueta una colocacion en ({@code row},{@code col}).
+	 *
+	 * @throws GameError
+	 *             If the cell is out of the range of packed moves.
+	 *             <p>
+	 *             Si la casilla esta fuera del rango de los movimientos
+	 *             empaquetados.
+	 */
+	public static int place(int row, int col) {
+		if (((row | col) & -MAX_DIM) != 0) {
+			throw new GameError("The move to (" + row + "," + col + ") cannot be packed, the maximum dimension is "
+					+ MAX_DIM);
+		}
+		return row << 12 | col;
+	}
+
+	/**
+	 * Packs a move from ({@code fromRow},{@code fromCol}) to
+	 * ({@code row},{@code col}).
+	 *
+	 * <p>
+	 * Empaqueta un movimiento de ({@code fromRow},{@code fromCol}) a
+	 * ({@code row},{@code col}).
+	 *
+	 * @throws GameError
+	 *             If the cells are out of the range of packed moves.
+	 *             <p>
+	 *             Si las casillas estan fuera del rango de los movimientos
+	 *             empaquetados.
+	 */
+	public static int move(int fromRow, int fromCol, int row, int col) {
+		int dRow = fromRow - row + 8;
+		int dCol = fromCol - col + 8;
+		if (((fromRow | fromCol | row | col) & -MAX_DIM) != 0 || dRow < 1 || dRow > 15 || dCol < 1 || dCol > 15) {
+			throw new GameError("The move from (" + fromRow + "," + fromCol + ") to (" + row + "," + col
+					+ ") cannot be packed, the maximum dimension is " + MAX_DIM + " and the maximum jump "
+					+ MAX_JUMP);
+		}
+		return dRow << 28 | dCol << 24 | row << 12 | col;
+	}
+
+	/**
+	 * Checks if {@code move} is a placement, i.e., it has no origin.
+	 *
+	 * <p>
+	 * Comprueba si {@code move} es una colocacion, es decir, si no tiene
+	 * origen.
+	 */
+	public static boolean isPlacement(int move) {
+		return (move >>> 24) == 0;
+	}
+
+	/**
+	 * The destination row of {@code move}.
+	 *
+	 * <p>
+	 * La fila destino de {@code move}.
+	 */
+	public static int row(int move) {
+		return (move >>> 12) & 0xFFF;
+	}
+
+	/**
+	 * The destination column of {@code move}.
+	 *
+	 * <p>
+	 * La columna destino de {@code move}.
+	 */
+	public static int col(int move) {
+		return move & 0xFFF;
+	}
+
+	/**
+	 * The origin row of {@code move}, or -1 if it is a placement.
+	 *
+	 * <p>
+	 * La fila origen de {@code move}, o -1 si es una colocacion.
+	 */
+	public static int fromRow(int move) {
+		return isPlacement(move) ? -1 : row(move) + (move >>> 28) - 8;
+	}
+
+	/**
+	 * The origin column of {@code move}, or -1 if it is a placement.
+	 *
+	 * <p>
+	 * La columna origen de {@code move}, o -1 si es una colocacion.
+	 */
+	public static int fromCol(int move) {
+		return isPlacement(move) ? -1 : col(move) + ((move >>> 24) & 0xF) - 8;
+	}
+
+	/**
+	 * A textual representation of {@code move}: "row col" for a placement and
+	 * "fromRow fromCol row col" otherwise.
+	 *
+	 * <p>
+	 * Una representacion textual de {@code move}: "row col" para una
+	 * colocacion y "fromRow fromCol row col" en otro caso.
+	 */
+	public static String toString(int move) {
+		if (isPlacement(move)) {
+			return row(move) + " " + col(move);
+		}
+		return fromRow(move) + " " + fromCol(move) + " " + row(move) + " " + col(move);
+	}
+
+}
@@ -0,0 +1,150 @@
+package es.ucm.fdi.tp.basecode.bgame.model;
+
+import java.util.List;
+
+/**
+ * Rules of a game that can generate and execute its moves packed in an
+ * {@code int} (see {@link PackedMove}), so engines (searches, random playouts,
+ * etc.) do not create a {@link GameMove} per move. The packed moves of a
+ * position are the same, and in the same order, as the moves returned by
+ * {@link GameRules#validMoves(Board, List, Piece)}, and
+ * {@link #toGameMove(Board, Piece, int)} turns a packed move back into the
+ * corresponding {@link GameMove}, e.g., to return it from a player. The moves
+ * can also be enumerated one by one with
+ * {@link #visitMoves(Board, List, Piece, MoveVisitor)}, stopping as soon as
+ * the caller has what it needs (see {@link Moves}).
+ *
+ * <p>
+ * Reglas de un juego que puede generar y ejecutar sus movimientos
+ * empaquetados en un {@code int} (vease {@link PackedMove}), para que los
+ * motores (busquedas, simulaciones aleatorias, etc.) no creen un
+ * {@link GameMove} por movimiento. Los movimientos empaquetados de una
+ * posicion son los mismos, y en el mismo orden, que los movimientos devueltos
+ * por {@link GameRules#validMoves(Board, List, Piece)}, y
+ * {@link #toGameMove(Board, Piece, int)} convierte un movimiento empaquetado en
+ * el {@link GameMove} correspondiente, por ejemplo para devolverlo desde un
+ * jugador. Los movimientos tambien se pueden enumerar uno a uno con
+ * {@link #visitMoves(Board, List, Piece, MoveVisitor)}, parando en cuanto
+ * quien llama tiene lo que necesita (vease {@link Moves}).
+ */
+public interface PackedMoveRules extends GameRules {
+
+	/**
+	 * Adds to {@code moves} the packed valid moves of {@code turn}.
+	 *
+	 * <p>
+	 * Agrega a {@code moves} los movimientos validos empaquetados de
+	 * {@code turn}.
+	 *
+	 * @param board
+	 *            A board.
+	 *            <p>
+	 *            Un tablero.
+	 * @param playersPieces
+	 *            The pieces of the players.
+	 *            <p>
+	 *            Las fichas de los jugadores.
+	 * @param turn
+	 *            The player to move.
+	 *            <p>
+	 *            El jugador que mueve.
+	 * @param moves
+	 *            The list where the moves are added.
+	 *            <p>
+	 *            La lista donde se agregan los movimientos.
+	 */
+	public void validMoves(Board board, List<Piece> playersPieces, Piece turn, MoveList moves);
+
+	/**
+	 * Passes the packed valid moves of {@code turn} to {@code visitor}, in the
+	 * same order as {@link #validMoves(Board, List, Piece, MoveList)}, until
+	 * the visitor stops the enumeration. The moves are generated as they are
+	 * visited, so stopping early also saves the work of generating the rest.
+	 *
+	 * <p>
+	 * Pasa los movimientos validos empaquetados de {@code turn} a
+	 * {@code visitor}, en el mismo orden que
+	 * {@link #validMoves(Board, List, Piece, MoveList)}, hasta que el visitante
+	 * para la enumeracion. Los movimientos se generan a medida que se visitan,
+	 * por lo que parar antes tambien ahorra el trabajo de generar el resto.
+	 *
+	 * @param board
+	 *            A board.
+	 *            <p>
+	 *            Un tablero.
+	 * @param playersPieces
+	 *            The pieces of the players.
+	 *            <p>
+	 *            Las fichas de los jugadores.
+	 * @param turn
+	 *            The player to move.
+	 *            <p>
+	 *            El jugador que mueve.
+	 * @param visitor
+	 *            The visitor of the moves.
+	 *            <p>
+	 *            El visitante de los movimientos.
+	 * @return {@code false} if the visitor stopped the enumeration,
+	 *         {@code true} if all the moves were visited.
+	 *         <p>
+	 *         {@code false} si el visitante paro la enumeracion, {@code true}
+	 *         si se visitaron todos los movimientos.
+	 */
+	public boolean visitMoves(Board board, List<Piece> playersPieces, Piece turn, MoveVisitor visitor);
+
+	/**
+	 * Executes the packed move {@code move} of {@code turn} on {@code board},
+	 * like {@link GameMove#execute(Board, List)} would do with the
+	 * corresponding {@link GameMove}.
+	 *
+	 * <p>
+	 * Ejecuta el movimiento empaquetado {@code move} de {@code turn} en
+	 * {@code board}, como lo haria {@link GameMove#execute(Board, List)} con el
+	 * {@link GameMove} correspondiente.
+	 *
+	 * @param board
+	 *            A board.
+	 *            <p>
+	 *            Un tablero.
+	 * @param playersPieces
+	 *            The pieces of the players.
+	 *            <p>
+	 *            Las fichas de los jugadores.
+	 * @param turn
+	 *            The player that moves.
+	 *            <p>
+	 *            El jugador que mueve.
+	 * @param move
+	 *            A packed move.
+	 *            <p>
+	 *            Un movimiento empaquetado.
+	 */
+	public void execute(Board board, List<Piece> playersPieces, Piece turn, int move);
+
+	/**
+	 * Converts the packed move {@code move} of {@code turn} into a
+	 * {@link GameMove}.
+	 *
+	 * <p>
+	 * Convierte el movimiento empaquetado {@code move} de {@code turn} en un
+	 * {@link GameMove}.
+	 *
+	 * @param board
+	 *            The board where the move is made.
+	 *            <p>
+	 *            El tablero donde se hace el movimiento.
+	 * @param turn
+	 *            The player that moves.
+	 *            <p>
+	 *            El jugador que mueve.
+	 * @param move
+	 *            A packed move.
+	 *            <p>
+	 *            Un movimiento empaquetado.
+	 * @return The corresponding {@link GameMove}.
+	 *         <p>
+	 *         El {@link GameMove} correspondiente.
+	 */
+	public GameMove toGameMove(Board board, Piece turn, int move);
+
+}
@@ -0,0 +1,336 @@
+package es.ucm.fdi.tp.basecode.bgame.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A finite rectangular board stored in one flat array with a border of
+ * {@link #PAD} sentinel cells around it. The sentinel cells contain
+ * {@link #BORDER}, so code that scans the neighbourhood of a cell at distance
+ * 1 or 2 can add the offsets of {@link #getNear1()} or {@link #getNear2()} to
+ * the index of the cell without checking the bounds: it will find either a
+ * cell of the board or {@link #BORDER}.
+ *
+ * <p>
+ * The methods of {@link Board} are checked as in {@link FiniteRectBoard}. The
+ * index-based methods ({@link #get(int)} and {@link #set(int, Piece)}) are not,
+ * and are meant for rules code that only uses indices of cells of the board
+ * (see {@link #index(int, int)} and {@link #getCells()}) plus offsets.
+ *
+ * <p>
+ * Un tablero rectangular finito almacenado en un unico array con un borde de
+ * {@link #PAD} casillas centinela a su alrededor. Las casillas centinela
+ * contienen {@link #BORDER}, por lo que el codigo que recorre las casillas a
+ * distancia 1 o 2 de una casilla puede sumar los desplazamientos de
+ * {@link #getNear1()} o {@link #getNear2()} al indice de la casilla sin
+ * comprobar los limites: encontrara una casilla del tablero o {@link #BORDER}.
+ *
+ * <p>
+ * Los metodos de {@link Board} se comprueban como en {@link FiniteRectBoard}.
+ * Los metodos basados en indices ({@link #get(int)} y
+ * {@link #set(int, Piece)}) no, y estan pensados para el codigo de las reglas
+ * que solo usa indices de casillas del tablero (vease
+ * {@link #index(int, int)} y {@link #getCells()}) mas desplazamientos.
+ */
+public class PaddedBoard extends BasicBoard {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Width of the border of sentinel cells.
+	 *
+	 * <p>
+	 * Anchura del borde de casillas centinela.
+	 */
+	public static final int PAD = 2;
+
+	/**
+	 * The piece in the sentinel cells. It is never returned by
+	 * {@link #getPosition(int, int)} and it is not a piece of any player.
+	 *
+	 * <p>
+	 * La ficha de las casillas centinela. Nunca la devuelve
+	 * {@link #getPosition(int, int)} y no es la ficha de ningun jugador.
+	 */
+	public static final Piece BORDER = new Piece("<border>");
+
+	/**
+	 * The geometries already computed, by size.
+	 *
+	 * <p>
+	 * Las geometrias ya calculadas, por dimension.
+	 */
+	private static final ConcurrentHashMap<Long, Geometry> geometries = new ConcurrentHashMap<Long, Geometry>();
+
+	/**
+	 * Precomputed indices and offsets that only depend on the size of the
+	 * board. They are never modified, so all the boards of the same size share
+	 * them.
+	 *
+	 * <p>
+	 * Indices y desplazamientos precalculados que solo dependen de la
+	 * dimension del tablero. No se modifican nunca, por lo que todos los
+	 * tableros de la misma dimension los comparten.
+	 */
+	private static final class Geometry implements java.io.Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int rows;
+		private final int cols;
+		private final int stride;
+		private final int size;
+		private final int[] cells;
+		private final int[] near1;
+		private final int[] near2;
+
+		private Geometry(int rows, int cols) {
+			this.rows = rows;
+			this.cols = cols;
+			this.stride = cols + 2 * PAD;
+			this.size = (rows + 2 * PAD) * stride;
+			this.cells = new int[rows * cols];
+			for (int i = 0; i < rows; i++) {
+				for (int j = 0; j < cols; j++) {
+					cells[i * cols + j] = (i + PAD) * stride + j + PAD;
+				}
+			}
+			this.near1 = offsets(1);
+			this.near2 = offsets(2);
+		}
+
+		/**
+		 * The offsets of the cells at distance 1 to {@code radius}, in
+		 * row-major order.
+		 */
+		private int[] offsets(int radius) {
+			int[] offsets = new int[(2 * radius + 1) * (2 * radius + 1) - 1];
+			int k = 0;
+			for (int r = -radius; r <= radius; r++) {
+				for (int c = -radius; c <= radius; c++) {
+					if (r != 0 || c != 0) {
+						offsets[k++] = r * stride + c;
+					}
+				}
+			}
+			return offsets;
+		}
+	}
+
+	private Geometry geometry;
+
+	/**
+	 * The cells of the board and of the border, row by row.
+	 *
+	 * <p>
+	 * Las casillas del tablero y del borde, fila a fila.
+	 */
+	private Piece[] cells;
+
+	/**
+	 * The number of occupied cells in the board.
+	 *
+	 * <p>
+	 * Numero de casillas ocupadas en el tablero.
+	 */
+	private int occupied;
+
+	/**
+	 * Constructs an empty board of a given dimension.
+	 *
+	 * <p>
+	 * Construye un tablero vacio de una dimension determinada.
+	 *
+	 * @param rows
+	 *            Number of rows.
+	 *            <p>
+	 *            Numero de filas.
+	 * @param cols
+	 *            Number of columns.
+	 *            <p>
+	 *            Numero de columnas.
+	 */
+	public PaddedBoard(int rows, int cols) {
+		if (rows <= 0 || cols <= 0) {
+			throw new GameError("Invalid finte rectangular board size  (" + rows + "," + cols + ")");
+		}
+		Long key = ((long) rows << 32) | cols;
+		Geometry g = geometries.get(key);
+		if (g == null) {
+			g = new Geometry(rows, cols);
+			Geometry other = geometries.putIfAbsent(key, g);
+			if (other != null) {
+				g = other;
+			}
+		}
+		this.geometry = g;
+		this.cells = new Piece[g.size];
+		Arrays.fill(cells, BORDER);
+		for (int i : g.cells) {
+			cells[i] = null;
+		}
+	}
+
+	/**
+	 * The index of position ({@code row},{@code col}).
+	 *
+	 * <p>
+	 * El indice de la posicion ({@code row},{@code col}).
+	 *
+	 * @throws GameError
+	 *             If the position is not on the board.
+	 *             <p>
+	 *             Si la posicion no esta en el tablero.
+	 */
+	public int index(int row, int col) {
+		if (row < 0 || row >= geometry.rows || col < 0 || col >= geometry.cols) {
+			throw new GameError("Trying to access an invalid position (" + row + "," + col + ")");
+		}
+		return (row + PAD) * geometry.stride + col + PAD;
+	}
+
+	/**
+	 * The row of the cell of index {@code index}.
+	 *
+	 * <p>
+	 * La fila de la casilla de indice {@code index}.
+	 */
+	public int rowOf(int index) {
+		return index / geometry.stride - PAD;
+	}
+
+	/**
+	 * The column of the cell of index {@code index}.
+	 *
+	 * <p>
+	 * La columna de la casilla de indice {@code index}.
+	 */
+	public int colOf(int index) {
+		return index % geometry.stride - PAD;
+	}
+
+	/**
+	 * The indices of all the cells of the board (not of the border), in
+	 * row-major order. The array is shared, it must not be modified.
+	 *
+	 * <p>
+	 * Los indices de todas las casillas del tablero (no del borde), por filas.
+	 * El array es compartido, no se debe modificar.
+	 */
+	public int[] getCells() {
+		return geometry.cells;
+	}
+
+	/**
+	 * The offsets from a cell to the 8 cells at distance 1, in row-major
+	 * order. The array is shared, it must not be modified.
+	 *
+	 * <p>
+	 * Los desplazamientos desde una casilla a las 8 casillas a distancia 1,
+	 * por filas. El array es compartido, no se debe modificar.
+	 */
+	public int[] getNear1() {
+		return geometry.near1;
+	}
+
+	/**
+	 * The offsets from a cell to the 24 cells at distance 1 or 2, in
+	 * row-major order. The array is shared, it must not be modified.
+	 *
+	 * <p>
+	 * Los desplazamientos desde una casilla a las 24 casillas a distancia 1 o
+	 * 2, por filas. El array es compartido, no se debe modificar.
+	 */
+	public int[] getNear2() {
+		return geometry.near2;
+	}
+
+	/**
+	 * The content of the cell of index {@code index}, without any check: it
+	 * is {@link #BORDER} for the cells of the border.
+	 *
+	 * <p>
+	 * El contenido de la casilla de indice {@code index}, sin ninguna
+	 * comprobacion: es {@link #BORDER} para las casillas del borde.
+	 */
+	public Piece get(int index) {
+		return cells[index];
+	}
+
+	/**
+	 * Places {@code p} (or nothing if it is {@code null}) in the cell of index
+	 * {@code index}, which must be a cell of the board. All modifications of
+	 * the board go through this method, so subclasses that keep their own
+	 * data should override it.
+	 *
+	 * <p>
+	 * Coloca {@code p} (o nada si es {@code null}) en la casilla de indice
+	 * {@code index}, que debe ser una casilla del tablero. Todas las
+	 * modificaciones del tablero pasan por este metodo, por lo que las
+	 * subclases que mantienen sus propios datos deben sobrescribirlo.
+	 */
+	public void set(int index, Piece p) {
+		Piece q = cells[index];
+		if (p == null && q != null)
+			occupied--;
+		else if (p != null && q == null)
+			occupied++;
+		positionChanged(rowOf(index), colOf(index), q, p);
+		cells[index] = p;
+	}
+
+	@Override
+	public void setPosition(int row, int col, Piece p) {
+		set(index(row, col), p);
+	}
+
+	@Override
+	public Piece getPosition(int row, int col) {
+		return cells[index(row, col)];
+	}
+
+	@Override
+	public int getRows() {
+		return geometry.rows;
+	}
+
+	@Override
+	public int getCols() {
+		return geometry.cols;
+	}
+
+	/**
+	 * Copies the content of this board into {@code newboard}, which must have
+	 * the same size. Subclasses that add their own data should call this
+	 * method from their {@link #copy()} and then copy their own data.
+	 *
+	 * <p>
+	 * Copia el contenido de este tablero en {@code newboard}, que debe tener la
+	 * misma dimension. Las subclases que anadan sus propios datos deben llamar
+	 * a este metodo desde su {@link #copy()} y despues copiar sus propios
+	 * datos.
+	 */
+	protected void copyTo(PaddedBoard newboard) {
+		super.copyTo(newboard);
+		newboard.cells = cells.clone();
+		newboard.occupied = occupied;
+	}
+
+	@Override
+	public Board copy() {
+		PaddedBoard newboard = new PaddedBoard(getRows(), getCols());
+		copyTo(newboard);
+		return newboard;
+	}
+
+	@Override
+	public boolean isFull() {
+		return occupied == geometry.cells.length;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return occupied == 0;
+	}
+
+}
@@ -1,5 +1,12 @@
 package es.ucm.fdi.tp.basecode.bgame.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * This class represents a game piece (counter) that players can use to place on
  * a board. It also can be used by the different games to mark obstacles, etc.
@@ -11,6 +18,14 @@ package es.ucm.fdi.tp.basecode.bgame.model;
  * same hash code. (see {@link #equals(Object)} and {@link #hashCode()}.
  *
  * <p>
+ * Every identifier is registered the first time a piece with it is created,
+ * and gets a small ordinal (0, 1, 2, ...) that is the same for all the pieces
+ * with that identifier (see {@link #getOrdinal()}). Boards and engines can use
+ * the ordinal to index arrays instead of using the piece as a key, and
+ * {@link #forOrdinal(int)} gives back a piece. The registry is thread-safe.
+ * Ordinals are not stable between runs, so they must not be stored.
+ *
+ * <p>
  * Esta clase representa una ficha de juego (un contador) que los jugadores
  * pueden utilizar para colocar en el tablero de juego. También se puede
  * utilizar para indicar obstáculos, etc. en el tablero. Cada ficha tiene un
@@ -21,6 +36,15 @@ package es.ucm.fdi.tp.basecode.bgame.model;
  * <b>Importante:</b> Dos fichas con el mismo identificador son iguales y tienen
  * el mismo codigo hash. (vease {@link #equals(Object)} y {@link #hashCode()}.
  * 
+ * <p>
+ * Cada identificador se registra la primera vez que se crea una ficha con el,
+ * y recibe un ordinal pequeno (0, 1, 2, ...) que es el mismo para todas las
+ * fichas con ese identificador (vease {@link #getOrdinal()}). Los tableros y
+ * motores pueden usar el ordinal como indice de arrays en lugar de usar la
+ * ficha como clave, y {@link #forOrdinal(int)} devuelve una ficha. El registro
+ * es seguro entre hebras. Los ordinales no son estables entre ejecuciones, por
+ * lo que no se deben almacenar.
+ * 
  *
  */
 public class Piece implements java.io.Serializable {
@@ -38,13 +62,13 @@ public class Piece implements java.io.Serializable {
 	private String id;
 
 	/**
-	 * A counter to be used for automatically assigning an identifier to a
-	 * piece.
+	 * The ordinal of the identifier (see {@link #getOrdinal()}). It is not
+	 * serialized, since ordinals depend on the run.
 	 * <p>
-	 * Contador que se utiliza para asignar automaticamente un identificador a
-	 * una ficha.
+	 * El ordinal del identificador (vease {@link #getOrdinal()}). No se
+	 * serializa, ya que los ordinales dependen de la ejecucion.
 	 */
-	private static int autoIdMajor = 0;
+	private transient int ordinal;
 
 	/**
 	 * A counter to be used for automatically assigning an identifier to a
@@ -53,7 +77,23 @@ public class Piece implements java.io.Serializable {
 	 * Contador que se utiliza para asignar automaticamente un identificador a
 	 * una ficha.
 	 */
-	private static int autoIdMinor = 0;
+	private static final AtomicInteger autoId = new AtomicInteger();
+
+	/**
+	 * The ordinal of each registered identifier.
+	 * <p>
+	 * El ordinal de cada identificador registrado.
+	 */
+	private static final ConcurrentHashMap<String, Integer> ordinals = new ConcurrentHashMap<String, Integer>();
+
+	/**
+	 * The first piece created with each registered identifier, indexed by
+	 * ordinal.
+	 * <p>
+	 * La primera ficha creada con cada identificador registrado, indexada por
+	 * ordinal.
+	 */
+	private static final List<Piece> registry = new CopyOnWriteArrayList<Piece>();
 
 	/**
 	 * This constructor creates a piece with an automatically assigned
@@ -67,6 +107,7 @@ public class Piece implements java.io.Serializable {
 	 */
 	public Piece() {
 		id = generateId();
+		ordinal = register(this);
 	}
 
 	/**
@@ -88,6 +129,7 @@ public class Piece implements java.io.Serializable {
 
 		if (validPieceId(id)) {
 			this.id = id;
+			this.ordinal = register(this);
 		} else {
 			throw new GameError("Invalid Piece identifier '" + id + "'. It must be whitespace free.");
 		}
@@ -106,15 +148,40 @@ public class Piece implements java.io.Serializable {
 	 *         Un identificador de ficha.
 	 */
 	private String generateId() {
-		String id = String.valueOf((char) (autoIdMajor + 65));
-		id = "" + id + autoIdMinor;
-
-		autoIdMajor = (autoIdMajor + 1) % 26;
+		int n = autoId.getAndIncrement();
+		String id = String.valueOf((char) (n % 26 + 65));
+		id = "" + id + (n / 26);
+		return id;
+	}
 
-		if (autoIdMajor == 0)
-			autoIdMinor++;
+	/**
+	 * Registers the identifier of {@code p}, if it was not registered yet.
+	 * 
+	 * <p>
+	 * Registra el identificador de {@code p}, si aun no estaba registrado.
+	 * 
+	 * @return The ordinal of the identifier.
+	 *         <p>
+	 *         El ordinal del identificador.
+	 */
+	private static int register(Piece p) {
+		Integer o = ordinals.get(p.id);
+		if (o == null) {
+			synchronized (registry) {
+				o = ordinals.get(p.id);
+				if (o == null) {
+					o = registry.size();
+					registry.add(p);
+					ordinals.put(p.id, o);
+				}
+			}
+		}
+		return o;
+	}
 
-		return id;
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		ordinal = register(this);
 	}
 
 	/**
@@ -158,6 +225,44 @@ public class Piece implements java.io.Serializable {
 		return id;
 	}
 
+	/**
+	 * Consults the ordinal of the piece identifier. Pieces are equal if and
+	 * only if they have the same ordinal.
+	 * 
+	 * <p>
+	 * Proporciona el ordinal del identificador de la ficha. Las fichas son
+	 * iguales si y solo si tienen el mismo ordinal.
+	 * 
+	 * @return The ordinal, between 0 and the number of registered
+	 *         identifiers.
+	 *         <p>
+	 *         El ordinal, entre 0 y el numero de identificadores registrados.
+	 */
+	public int getOrdinal() {
+		return ordinal;
+	}
+
+	/**
+	 * Returns a piece with the identifier of ordinal {@code ordinal}.
+	 * 
+	 * <p>
+	 * Devuelve una ficha con el identificador de ordinal {@code ordinal}.
+	 * 
+	 * @param ordinal
+	 *            An ordinal returned by {@link #getOrdinal()}.
+	 *            <p>
+	 *            Un ordinal devuelto por {@link #getOrdinal()}.
+	 * @return The first piece created with that identifier.
+	 *         <p>
+	 *         La primera ficha creada con ese identificador.
+	 */
+	public static Piece forOrdinal(int ordinal) {
+		if (ordinal < 0 || ordinal >= registry.size()) {
+			throw new GameError("Invalid piece ordinal " + ordinal);
+		}
+		return registry.get(ordinal);
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -174,13 +279,8 @@ public class Piece implements java.io.Serializable {
 			return false;
 		if (getClass() != obj.getClass())
 			return false;
-		Piece other = (Piece) obj;
-		if (id == null) {
-			if (other.id != null)
-				return false;
-		} else if (!id.equals(other.id))
-			return false;
-		return true;
+		// equal identifiers have the same ordinal
+		return ordinal == ((Piece) obj).ordinal;
 	}
 
 	@Override
@@ -54,6 +54,11 @@ public class ReadOnlyBoard implements Board {
 		return board.getPieceCount(p);
 	}
 
+	@Override
+	public long getZobristKey() {
+		return board.getZobristKey();
+	}
+
 	@Override
 	public Board copy() {
 		return board.copy();
@@ -114,4 +119,31 @@ public class ReadOnlyBoard implements Board {
 	public void setPieceCount(Piece p, Integer n) {
 		error();
 	}
+
+	/**
+	 * No supported in a read only board. It throws
+	 * {@link UnsupportedOperationException}
+	 * 
+	 * <p>
+	 * No permitido en un tablero de solo lectura. Lanza
+	 * {@link UnsupportedOperationException}
+	 */
+	@Override
+	public int mark() {
+		error();
+		return 0;
+	}
+
+	/**
+	 * No supported in a read only board. It throws
+	 * {@link UnsupportedOperationException}
+	 * 
+	 * <p>
+	 * No permitido en un tablero de solo lectura. Lanza
+	 * {@link UnsupportedOperationException}
+	 */
+	@Override
+	public void undo(int mark) {
+		error();
+	}
 }
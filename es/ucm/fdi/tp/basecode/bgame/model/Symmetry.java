@@ -0,0 +1,420 @@
+package es.ucm.fdi.tp.basecode.bgame.model;
+
+/**
+ * The symmetries of a rectangular board: the 8 rotations and reflections of
+ * the square (the dihedral group D4), of which only {@link #IDENTITY},
+ * {@link #ROTATE_180}, {@link #FLIP_ROWS} and {@link #FLIP_COLS} keep the
+ * shape of a board that is not square. In games whose rules do not depend on
+ * the orientation of the board (e.g., ConnectN, Tic-Tac-Toe and Ataxx, whose
+ * initial positions and obstacles are symmetric), the positions that are
+ * transformations of each other are equivalent, so caches of positions can
+ * store each class of equivalent positions once, with the key given by
+ * {@link #canonicalKey(Board, Piece)}: up to 8 times fewer positions.
+ *
+ * <p>
+ * A position is stored in its canonical form, that of the symmetry returned
+ * by {@link #canonical(Board, Piece)}, and moves are stored transformed with
+ * {@link #move(int, int, int)}. When the position is found again (in any of
+ * its forms), its canonical symmetry maps the stored move back with
+ * {@link #inverse()}.
+ *
+ * <p>
+ * Las simetrias de un tablero rectangular: las 8 rotaciones y reflexiones del
+ * cuadrado (el grupo diedrico D4), de las que solo {@link #IDENTITY},
+ * {@link #ROTATE_180}, {@link #FLIP_ROWS} y {@link #FLIP_COLS} conservan la
+ * forma de un tablero que no es cuadrado. En los juegos cuyas reglas no
+ * dependen de la orientacion del tablero (por ejemplo, ConnectN, Tic-Tac-Toe y
+ * Ataxx, cuyas posiciones iniciales y obstaculos son simetricos), las
+ * posiciones que son transformaciones unas de otras son equivalentes, por lo
+ * que las caches de posiciones pueden guardar una sola vez cada clase de
+ * posiciones equivalentes, con la clave que da
+ * {@link #canonicalKey(Board, Piece)}: hasta 8 veces menos posiciones.
+ *
+ * <p>
+ * Una posicion se guarda en su forma canonica, la de la simetria que devuelve
+ * {@link #canonical(Board, Piece)}, y los movimientos se guardan
+ * transformados con {@link #move(int, int, int)}. Cuando se vuelve a
+ * encontrar la posicion (en cualquiera de sus formas), su simetria canonica
+ * deshace la transformacion del movimiento guardado con {@link #inverse()}.
+ */
+public enum Symmetry {
+
+	/**
+	 * Leaves the board as it is.
+	 * <p>
+	 * Deja el tablero como esta.
+	 */
+	IDENTITY,
+
+	/**
+	 * Rotates a square board 90 degrees clockwise.
+	 * <p>
+	 * Gira un tablero cuadrado 90 grados en el sentido de las agujas del
+	 * reloj.
+	 */
+	ROTATE_90,
+
+	/**
+	 * Rotates the board 180 degrees.
+	 * <p>
+	 * Gira el tablero 180 grados.
+	 */
+	ROTATE_180,
+
+	/**
+	 * Rotates a square board 270 degrees clockwise.
+	 * <p>
+	 * Gira un tablero cuadrado 270 grados en el sentido de las agujas del
+	 * reloj.
+	 */
+	ROTATE_270,
+
+	/**
+	 * Reverses the order of the rows (a reflection over the horizontal axis).
+	 * <p>
+	 * Invierte el orden de las filas (una reflexion sobre el eje horizontal).
+	 */
+	FLIP_ROWS,
+
+	/**
+	 * Reverses the order of the columns (a reflection over the vertical
+	 * axis).
+	 * <p>
+	 * Invierte el orden de las columnas (una reflexion sobre el eje
+	 * vertical).
+	 */
+	FLIP_COLS,
+
+	/**
+	 * Swaps rows and columns of a square board (a reflection over the main
+	 * diagonal).
+	 * <p>
+	 * Intercambia filas y columnas de un tablero cuadrado (una reflexion sobre
+	 * la diagonal principal).
+	 */
+	TRANSPOSE,
+
+	/**
+	 * Reflects a square board over its other diagonal.
+	 * <p>
+	 * Refleja un tablero cuadrado sobre su otra diagonal.
+	 */
+	ANTI_TRANSPOSE;
+
+	private static final Symmetry[] ALL = values();
+
+	/**
+	 * Checks if this symmetry keeps the shape of a board.
+	 *
+	 * <p>
+	 * Comprueba si esta simetria conserva la forma de un tablero.
+	 *
+	 * @param rows
+	 *            The number of rows of the board.
+	 *            <p>
+	 *            El numero de filas del tablero.
+	 * @param cols
+	 *            The number of columns of the board.
+	 *            <p>
+	 *            El numero de columnas del tablero.
+	 * @return {@code true} if the board is square or this symmetry does not
+	 *         swap rows and columns.
+	 *         <p>
+	 *         {@code true} si el tablero es cuadrado o esta simetria no
+	 *         intercambia filas y columnas.
+	 */
+	public boolean appliesTo(int rows, int cols) {
+		return rows == cols || !swapsAxes();
+	}
+
+	private boolean swapsAxes() {
+		return this == ROTATE_90 || this == ROTATE_270 || this == TRANSPOSE || this == ANTI_TRANSPOSE;
+	}
+
+	/**
+	 * The symmetry that undoes this one.
+	 *
+	 * <p>
+	 * La simetria que deshace esta.
+	 *
+	 * @return The inverse symmetry.
+	 *         <p>
+	 *         La simetria inversa.
+	 */
+	public Symmetry inverse() {
+		switch (this) {
+		case ROTATE_90:
+			return ROTATE_270;
+		case ROTATE_270:
+			return ROTATE_90;
+		default:
+			return this;
+		}
+	}
+
+	/**
+	 * The row to which this symmetry moves the cell ({@code row},
+	 * {@code col}) of a board with {@code rows} rows and {@code cols}
+	 * columns.
+	 *
+	 * <p>
+	 * La fila a la que esta simetria mueve la casilla ({@code row},
+	 * {@code col}) de un tablero con {@code rows} filas y {@code cols}
+	 * columnas.
+	 */
+	public int row(int row, int col, int rows, int cols) {
+		switch (this) {
+		case ROTATE_90:
+		case TRANSPOSE:
+			return col;
+		case ROTATE_180:
+		case FLIP_ROWS:
+			return rows - 1 - row;
+		case ROTATE_270:
+		case ANTI_TRANSPOSE:
+			return cols - 1 - col;
+		default:
+			return row;
+		}
+	}
+
+	/**
+	 * The column to which this symmetry moves the cell ({@code row},
+	 * {@code col}) of a board with {@code rows} rows and {@code cols}
+	 * columns.
+	 *
+	 * <p>
+	 * La columna a la que esta simetria mueve la casilla ({@code row},
+	 * {@code col}) de un tablero con {@code rows} filas y {@code cols}
+	 * columnas.
+	 */
+	public int col(int row, int col, int rows, int cols) {
+		switch (this) {
+		case ROTATE_90:
+		case ANTI_TRANSPOSE:
+			return rows - 1 - row;
+		case ROTATE_180:
+		case FLIP_COLS:
+			return cols - 1 - col;
+		case ROTATE_270:
+		case TRANSPOSE:
+			return row;
+		default:
+			return col;
+		}
+	}
+
+	/**
+	 * Transforms a packed move (see {@link PackedMove}): the move that plays
+	 * on the transformed board what {@code move} plays on the original one.
+	 *
+	 * <p>
+	 * Transforma un movimiento empaquetado (vease {@link PackedMove}): el
+	 * movimiento que juega en el tablero transformado lo que {@code move}
+	 * juega en el original.
+	 *
+	 * @param move
+	 *            A packed move.
+	 *            <p>
+	 *            Un movimiento empaquetado.
+	 * @param rows
+	 *            The number of rows of the original board.
+	 *            <p>
+	 *            El numero de filas del tablero original.
+	 * @param cols
+	 *            The number of columns of the original board.
+	 *            <p>
+	 *            El numero de columnas del tablero original.
+	 * @return The transformed move.
+	 *         <p>
+	 *         El movimiento transformado.
+	 */
+	public int move(int move, int rows, int cols) {
+		int r = PackedMove.row(move);
+		int c = PackedMove.col(move);
+		int row = row(r, c, rows, cols);
+		int col = col(r, c, rows, cols);
+		if (PackedMove.isPlacement(move)) {
+			return PackedMove.place(row, col);
+		}
+		int fr = PackedMove.fromRow(move);
+		int fc = PackedMove.fromCol(move);
+		return PackedMove.move(row(fr, fc, rows, cols), col(fr, fc, rows, cols), row, col);
+	}
+
+	/**
+	 * Builds the transformation of a board: a copy of it (with the same
+	 * piece counts) with each piece moved by this symmetry.
+	 *
+	 * <p>
+	 * Construye la transformacion de un tablero: una copia (con los mismos
+	 * contadores de fichas) con cada ficha movida por esta simetria.
+	 *
+	 * @param board
+	 *            A board whose shape this symmetry keeps.
+	 *            <p>
+	 *            Un tablero cuya forma conserva esta simetria.
+	 * @return The transformed board.
+	 *         <p>
+	 *         El tablero transformado.
+	 */
+	public Board apply(Board board) {
+		int rows = board.getRows();
+		int cols = board.getCols();
+		if (!appliesTo(rows, cols)) {
+			throw new GameError("The symmetry " + this + " does not apply to a " + rows + "x" + cols + " board");
+		}
+		Board b = board.copy();
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < cols; j++) {
+				b.setPosition(row(i, j, rows, cols), col(i, j, rows, cols), board.getPosition(i, j));
+			}
+		}
+		return b;
+	}
+
+	/**
+	 * Computes the key of the transformation of {@code board} when it is the
+	 * turn of {@code turn}, without building it. It is the key that
+	 * {@link Zobrist#keyFor(Board, Piece)} gives to
+	 * {@link #apply(Board) apply(board)}.
+	 *
+	 * <p>
+	 * Calcula la clave de la transformacion de {@code board} cuando es el
+	 * turno de {@code turn}, sin construirla. Es la clave que
+	 * {@link Zobrist#keyFor(Board, Piece)} da a
+	 * {@link #apply(Board) apply(board)}.
+	 *
+	 * @param board
+	 *            A board whose shape this symmetry keeps.
+	 *            <p>
+	 *            Un tablero cuya forma conserva esta simetria.
+	 * @param turn
+	 *            The piece to play next.
+	 *            <p>
+	 *            La ficha del siguiente jugador.
+	 * @return The key.
+	 *         <p>
+	 *         La clave.
+	 */
+	public long key(Board board, Piece turn) {
+		int rows = board.getRows();
+		int cols = board.getCols();
+		long key = Zobrist.keyFor(board, turn);
+		if (this == IDENTITY) {
+			return key;
+		}
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < cols; j++) {
+				Piece p = board.getPosition(i, j);
+				if (p != null) {
+					key ^= Zobrist.cellKey(i, j, p) ^ Zobrist.cellKey(row(i, j, rows, cols), col(i, j, rows, cols), p);
+				}
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * Finds the canonical symmetry of a position: the one whose
+	 * transformation has the smallest key (see {@link #key(Board, Piece)}),
+	 * or the first of them in the order of the constants if there are
+	 * several. Equivalent positions have the same canonical form, so
+	 * applying their canonical symmetries gives the same board.
+	 *
+	 * <p>
+	 * Encuentra la simetria canonica de una posicion: aquella cuya
+	 * transformacion tiene la menor clave (vease {@link #key(Board, Piece)}),
+	 * o la primera de ellas en el orden de las constantes si hay varias. Las
+	 * posiciones equivalentes tienen la misma forma canonica, por lo que al
+	 * aplicar sus simetrias canonicas se obtiene el mismo tablero.
+	 *
+	 * @param board
+	 *            A board.
+	 *            <p>
+	 *            Un tablero.
+	 * @param turn
+	 *            The piece to play next.
+	 *            <p>
+	 *            La ficha del siguiente jugador.
+	 * @return The canonical symmetry.
+	 *         <p>
+	 *         La simetria canonica.
+	 */
+	public static Symmetry canonical(Board board, Piece turn) {
+		long[] keys = keys(board, turn);
+		Symmetry best = IDENTITY;
+		for (int s = 1; s < ALL.length; s++) {
+			if (ALL[s].appliesTo(board.getRows(), board.getCols()) && keys[s] < keys[best.ordinal()]) {
+				best = ALL[s];
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Computes the canonical key of a position: the key of its canonical form
+	 * (see {@link #canonical(Board, Piece)}), which is the same for all the
+	 * positions equivalent to it.
+	 *
+	 * <p>
+	 * Calcula la clave canonica de una posicion: la clave de su forma
+	 * canonica (vease {@link #canonical(Board, Piece)}), que es la misma para
+	 * todas las posiciones equivalentes a ella.
+	 *
+	 * @param board
+	 *            A board.
+	 *            <p>
+	 *            Un tablero.
+	 * @param turn
+	 *            The piece to play next.
+	 *            <p>
+	 *            La ficha del siguiente jugador.
+	 * @return The canonical key.
+	 *         <p>
+	 *         La clave canonica.
+	 */
+	public static long canonicalKey(Board board, Piece turn) {
+		long[] keys = keys(board, turn);
+		long min = keys[0];
+		for (int s = 1; s < ALL.length; s++) {
+			if (ALL[s].appliesTo(board.getRows(), board.getCols()) && keys[s] < min) {
+				min = keys[s];
+			}
+		}
+		return min;
+	}
+
+	/**
+	 * Computes the keys of the transformations of a position by every
+	 * symmetry, in a single pass over the board. The keys of the symmetries
+	 * that do not apply to the board are meaningless.
+	 *
+	 * <p>
+	 * Calcula las claves de las transformaciones de una posicion por cada
+	 * simetria, en una sola pasada por el tablero. Las claves de las
+	 * simetrias que no se aplican al tablero no tienen sentido.
+	 */
+	private static long[] keys(Board board, Piece turn) {
+		int rows = board.getRows();
+		int cols = board.getCols();
+		long[] keys = new long[ALL.length];
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < cols; j++) {
+				Piece p = board.getPosition(i, j);
+				if (p != null) {
+					long k = Zobrist.cellKey(i, j, p);
+					for (int s = 1; s < ALL.length; s++) {
+						keys[s] ^= k ^ Zobrist.cellKey(ALL[s].row(i, j, rows, cols), ALL[s].col(i, j, rows, cols), p);
+					}
+				}
+			}
+		}
+		long key = Zobrist.keyFor(board, turn);
+		for (int s = 0; s < ALL.length; s++) {
+			keys[s] ^= key;
+		}
+		return keys;
+	}
+
+}
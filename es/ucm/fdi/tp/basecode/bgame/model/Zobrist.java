@@ -0,0 +1,178 @@
+package es.ucm.fdi.tp.basecode.bgame.model;
+
+/**
+ * Zobrist keys for boards. The key of a board is the exclusive or of one
+ * random number per occupied cell (that depends on the position and the
+ * {@link Piece} in it) and one random number per piece-count. Since the
+ * exclusive or is its own inverse, the key can be updated incrementally when a
+ * cell changes, which is what {@link BasicBoard} does in
+ * {@link Board#setPosition(int, int, Piece)} and
+ * {@link Board#setPieceCount(Piece, Integer)}. The turn is not part of the
+ * board, so it is folded in with {@link #keyFor(Board, Piece)}.
+ *
+ * <p>
+ * The random numbers are not taken from a table but computed by mixing the
+ * position and the hash code of the piece, so they are the same in every run
+ * of the program and there is no limit on the size of the boards.
+ *
+ * <p>
+ * Claves de Zobrist para tableros. La clave de un tablero es el o exclusivo de
+ * un numero aleatorio por cada casilla ocupada (que depende de la posicion y de
+ * la ficha que contiene) y de un numero aleatorio por cada contador de fichas.
+ * Como el o exclusivo es su propio inverso, la clave se puede actualizar de
+ * forma incremental cuando cambia una casilla, que es lo que hace
+ * {@link BasicBoard} en {@link Board#setPosition(int, int, Piece)} y
+ * {@link Board#setPieceCount(Piece, Integer)}. El turno no forma parte del
+ * tablero, por lo que se incluye con {@link #keyFor(Board, Piece)}.
+ *
+ * <p>
+ * Los numeros aleatorios no se toman de una tabla sino que se calculan
+ * mezclando la posicion y el codigo hash de la ficha, por lo que son los
+ * mismos en cada ejecucion del programa y no hay limite en el tamano de los
+ * tableros.
+ */
+public final class Zobrist {
+
+	private static final long CELL = 0x9E3779B97F4A7C15L;
+	private static final long COUNT = 0xC2B2AE3D27D4EB4FL;
+	private static final long TURN = 0x165667B19E3779F9L;
+	private static final long PERSPECTIVE = 0xD6E8FEB86659FD93L;
+
+	private Zobrist() {
+	}
+
+	/**
+	 * The key of the {@link Piece} {@code p} at position ({@code row},
+	 * {@code col}).
+	 *
+	 * <p>
+	 * La clave de la ficha {@code p} en la posicion ({@code row}, {@code col}).
+	 *
+	 * @param row
+	 *            Row of the position.
+	 *            <p>
+	 *            Fila de la posicion.
+	 * @param col
+	 *            Column of the position.
+	 *            <p>
+	 *            Columna de la posicion.
+	 * @param p
+	 *            The piece, or {@code null} for an empty position.
+	 *            <p>
+	 *            La ficha, o {@code null} si la posicion esta vacia.
+	 * @return The key, which is 0 for an empty position.
+	 *         <p>
+	 *         La clave, que es 0 si la posicion esta vacia.
+	 */
+	public static long cellKey(int row, int col, Piece p) {
+		if (p == null) {
+			return 0L;
+		}
+		long pos = ((long) row << 32) | (col & 0xFFFFFFFFL);
+		return mix(CELL ^ mix(pos) ^ p.hashCode());
+	}
+
+	/**
+	 * The key of the piece-count {@code n} of the {@link Piece} {@code p}.
+	 *
+	 * <p>
+	 * La clave del contador de fichas {@code n} de la ficha {@code p}.
+	 *
+	 * @param p
+	 *            The piece.
+	 *            <p>
+	 *            La ficha.
+	 * @param n
+	 *            The piece-count, or {@code null} for no piece-count.
+	 *            <p>
+	 *            El contador, o {@code null} si no hay contador.
+	 * @return The key, which is 0 when there is no piece-count.
+	 *         <p>
+	 *         La clave, que es 0 si no hay contador.
+	 */
+	public static long countKey(Piece p, Integer n) {
+		if (n == null) {
+			return 0L;
+		}
+		return mix(COUNT ^ mix(n.longValue()) ^ p.hashCode());
+	}
+
+	/**
+	 * The key that represents that it is the turn of {@code turn}.
+	 *
+	 * <p>
+	 * La clave que representa que es el turno de {@code turn}.
+	 *
+	 * @param turn
+	 *            The piece to play next.
+	 *            <p>
+	 *            La ficha del siguiente jugador.
+	 * @return The key.
+	 *         <p>
+	 *         La clave.
+	 */
+	public static long turnKey(Piece turn) {
+		return mix(TURN ^ turn.hashCode());
+	}
+
+	/**
+	 * The key that represents that a value is relative to the player
+	 * {@code p}. It is used by the searches whose values depend on the player
+	 * that searches (e.g., paranoid searches with more than two players), so
+	 * the values of different players do not mix in a shared table.
+	 *
+	 * <p>
+	 * La clave que representa que un valor es relativo al jugador {@code p}. La
+	 * usan las busquedas en las que el valor depende del jugador que busca (por
+	 * ejemplo, las busquedas paranoicas con mas de dos jugadores), para que los
+	 * valores de distintos jugadores no se mezclen en una tabla compartida.
+	 *
+	 * @param p
+	 *            The piece of the player.
+	 *            <p>
+	 *            La ficha del jugador.
+	 * @return The key.
+	 *         <p>
+	 *         La clave.
+	 */
+	public static long perspectiveKey(Piece p) {
+		return mix(PERSPECTIVE ^ p.hashCode());
+	}
+
+	/**
+	 * The key of {@code board} when it is the turn of {@code turn}.
+	 *
+	 * <p>
+	 * La clave de {@code board} cuando es el turno de {@code turn}.
+	 *
+	 * @param board
+	 *            The board.
+	 *            <p>
+	 *            El tablero.
+	 * @param turn
+	 *            The piece to play next.
+	 *            <p>
+	 *            La ficha del siguiente jugador.
+	 * @return The key.
+	 *         <p>
+	 *         La clave.
+	 */
+	public static long keyFor(Board board, Piece turn) {
+		return board.getZobristKey() ^ turnKey(turn);
+	}
+
+	/**
+	 * The finalizer of SplitMix64, which spreads every bit of the input over
+	 * the output.
+	 *
+	 * <p>
+	 * La funcion final de SplitMix64, que reparte cada bit de la entrada por
+	 * toda la salida.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+}
@@ -0,0 +1,279 @@
+package es.ucm.fdi.tp.basecode.book;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import es.ucm.fdi.tp.basecode.bgame.model.AIAlgorithm;
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
+import es.ucm.fdi.tp.basecode.bgame.model.GameError;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveList;
+import es.ucm.fdi.tp.basecode.bgame.model.PackedMoveRules;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+import es.ucm.fdi.tp.basecode.bgame.model.Symmetry;
+
+/**
+ * Builds an {@link OpeningBook} offline. It visits every position reachable
+ * from the initial board in less than a given number of plies (moves of any
+ * player), searches each of them with an {@link AIAlgorithm} (e.g., a
+ * {@link es.ucm.fdi.tp.basecode.minmax.MinMax} with a large time budget) and
+ * stores the move found. Positions reached by different orders of moves, and
+ * positions that are rotations or reflections of each other (see
+ * {@link Symmetry}), are searched only once. The searches of each ply are run in parallel, so the
+ * algorithm must support concurrent calls to
+ * {@link AIAlgorithm#getMove(Piece, Board, List, GameRules)}, as the ones of
+ * this project do.
+ *
+ * <p>
+ * Construye un {@link OpeningBook} fuera de linea. Visita cada posicion
+ * alcanzable desde el tablero inicial en menos de un numero dado de jugadas
+ * (movimientos de cualquier jugador), busca cada una de ellas con un
+ * {@link AIAlgorithm} (por ejemplo, un
+ * {@link es.ucm.fdi.tp.basecode.minmax.MinMax} con mucho tiempo) y guarda el
+ * movimiento encontrado. Las posiciones a las que se llega con distintos
+ * ordenes de movimientos, y las posiciones que son rotaciones o reflexiones
+ * unas de otras (vease {@link Symmetry}), se buscan una sola vez. Las busquedas de cada jugada
+ * se ejecutan en paralelo, por lo que el algoritmo debe admitir llamadas
+ * concurrentes a {@link AIAlgorithm#getMove(Piece, Board, List, GameRules)},
+ * como las de este proyecto.
+ */
+public class BookBuilder {
+
+	/**
+	 * A position to search: a board and the player to move.
+	 *
+	 * <p>
+	 * Una posicion a buscar: un tablero y el jugador que mueve.
+	 */
+	private static class Position {
+		private final Board board;
+		private final Piece turn;
+
+		private Position(Board board, Piece turn) {
+			this.board = board;
+			this.turn = turn;
+		}
+	}
+
+	private final GameRules rules;
+	private final PackedMoveRules packedRules;
+	private final List<Piece> pieces;
+	private final AIAlgorithm searcher;
+	private final int threads;
+
+	/**
+	 * The keys and moves of the book, as they are found.
+	 *
+	 * <p>
+	 * Las claves y movimientos del libro, segun se encuentran.
+	 */
+	private final ConcurrentHashMap<Long, Integer> book;
+
+	/**
+	 * Constructs a book builder.
+	 *
+	 * <p>
+	 * Construye un constructor de libros.
+	 *
+	 * @param rules
+	 *            The rules of the game. They must implement
+	 *            {@link PackedMoveRules}.
+	 *            <p>
+	 *            Las reglas del juego. Deben implementar
+	 *            {@link PackedMoveRules}.
+	 * @param pieces
+	 *            The pieces of the players.
+	 *            <p>
+	 *            Las fichas de los jugadores.
+	 * @param searcher
+	 *            The algorithm that chooses the move of each position.
+	 *            <p>
+	 *            El algoritmo que elige el movimiento de cada posicion.
+	 * @param threads
+	 *            The number of positions searched at the same time.
+	 *            <p>
+	 *            Numero de posiciones que se buscan a la vez.
+	 */
+	public BookBuilder(GameRules rules, List<Piece> pieces, AIAlgorithm searcher, int threads) {
+		if (!(rules instanceof PackedMoveRules)) {
+			throw new GameError("The game '" + rules.gameDesc() + "' does not support opening books");
+		}
+		if (threads < 1) {
+			throw new GameError("The number of threads must be at least 1: " + threads);
+		}
+		this.rules = rules;
+		this.packedRules = (PackedMoveRules) rules;
+		this.pieces = new ArrayList<Piece>(pieces);
+		this.searcher = searcher;
+		this.threads = threads;
+		this.book = new ConcurrentHashMap<Long, Integer>();
+	}
+
+	/**
+	 * Searches the positions of the first {@code plies} plies of the game.
+	 *
+	 * <p>
+	 * Busca las posiciones de las primeras {@code plies} jugadas de la
+	 * partida.
+	 *
+	 * @param plies
+	 *            The number of plies.
+	 *            <p>
+	 *            El numero de jugadas.
+	 * @return The number of positions of the book.
+	 *         <p>
+	 *         El numero de posiciones del libro.
+	 */
+	public int build(int plies) {
+		Board initial = rules.createBoard(pieces);
+		List<Position> level = new ArrayList<Position>();
+		level.add(new Position(initial, rules.initialPlayer(initial, pieces)));
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			for (int ply = 0; ply < plies && !level.isEmpty(); ply++) {
+				search(level, pool);
+				if (ply + 1 < plies) {
+					level = expand(level);
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		return book.size();
+	}
+
+	/**
+	 * Searches the positions of {@code level} that are not in the book yet.
+	 *
+	 * <p>
+	 * Busca las posiciones de {@code level} que aun no estan en el libro.
+	 */
+	private void search(List<Position> level, ExecutorService pool) {
+		List<Future<?>> results = new ArrayList<Future<?>>();
+		for (final Position p : level) {
+			results.add(pool.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					Symmetry s = Symmetry.canonical(p.board, p.turn);
+					long key = s.key(p.board, p.turn);
+					if (!book.containsKey(key)) {
+						GameMove m = searcher.getMove(p.turn, p.board.copy(), pieces, rules);
+						book.put(key, s.move(pack(p.board, p.turn, m), p.board.getRows(), p.board.getCols()));
+					}
+					return null;
+				}
+			}));
+		}
+		try {
+			for (Future<?> f : results) {
+				f.get();
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new GameError("The search of a position failed: " + e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GameError("Interrupted while building the book");
+		}
+	}
+
+	/**
+	 * The positions after every move of the positions of {@code level},
+	 * except the ones where the game is over. Each position appears only
+	 * once, up to symmetry.
+	 *
+	 * <p>
+	 * Las posiciones tras cada movimiento de las posiciones de
+	 * {@code level}, salvo aquellas en las que la partida ha terminado. Cada
+	 * posicion aparece una sola vez, salvo simetrias.
+	 */
+	private List<Position> expand(List<Position> level) {
+		List<Position> next = new ArrayList<Position>();
+		Set<Long> seen = new HashSet<Long>();
+		MoveList moves = new MoveList();
+		for (Position p : level) {
+			moves.clear();
+			packedRules.validMoves(p.board, pieces, p.turn, moves);
+			for (int i = 0; i < moves.size(); i++) {
+				Board b = p.board.copy();
+				packedRules.execute(b, pieces, p.turn, moves.get(i));
+				if (rules.updateState(b, pieces, p.turn).getFirst() != State.InPlay) {
+					continue;
+				}
+				Piece turn = rules.nextPlayer(b, pieces, p.turn);
+				if (seen.add(Symmetry.canonicalKey(b, turn))) {
+					next.add(new Position(b, turn));
+				}
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Finds the packed move that corresponds to {@code m}: the one that leads
+	 * to the same position.
+	 *
+	 * <p>
+	 * Encuentra el movimiento empaquetado que corresponde a {@code m}: el que
+	 * lleva a la misma posicion.
+	 */
+	private int pack(Board board, Piece turn, GameMove m) {
+		Board after = board.copy();
+		m.execute(after, pieces);
+		long target = after.getZobristKey();
+		MoveList moves = new MoveList();
+		packedRules.validMoves(board, pieces, turn, moves);
+		for (int i = 0; i < moves.size(); i++) {
+			Board b = board.copy();
+			packedRules.execute(b, pieces, turn, moves.get(i));
+			if (b.getZobristKey() == target) {
+				return moves.get(i);
+			}
+		}
+		throw new GameError("The move " + m + " is not a valid move");
+	}
+
+	/**
+	 * Writes the book built so far.
+	 *
+	 * <p>
+	 * Escribe el libro construido hasta el momento.
+	 *
+	 * @param file
+	 *            The book file.
+	 *            <p>
+	 *            El fichero del libro.
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 *             <p>
+	 *             Si no se puede escribir el fichero.
+	 */
+	public void write(Path file) throws IOException {
+		long[] keys = new long[book.size()];
+		int[] moves = new int[keys.length];
+		int i = 0;
+		for (Map.Entry<Long, Integer> e : book.entrySet()) {
+			keys[i] = e.getKey();
+			moves[i] = e.getValue();
+			i++;
+		}
+		OpeningBook.write(file, rules.gameDesc(), keys, moves);
+	}
+
+}
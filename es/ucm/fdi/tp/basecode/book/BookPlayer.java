@@ -0,0 +1,96 @@
+package es.ucm.fdi.tp.basecode.book;
+
+import java.util.List;
+
+import es.ucm.fdi.tp.basecode.bgame.control.Player;
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.GameClock;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * A player that plays the moves of an {@link OpeningBook} while the position
+ * is in the book, and delegates the requests to a {@link Player} given in the
+ * construction once the game leaves the book. A book move costs a binary
+ * search, so the wrapped player keeps all its time (or its clock) for the
+ * rest of the game.
+ *
+ * <p>
+ * Un jugador que juega los movimientos de un {@link OpeningBook} mientras la
+ * posicion esta en el libro, y delega las peticiones en un {@link Player} dado
+ * en la constructora cuando la partida sale del libro. Un movimiento del libro
+ * cuesta una busqueda binaria, por lo que el jugador encapsulado conserva todo
+ * su tiempo (o su reloj) para el resto de la partida.
+ */
+public class BookPlayer extends Player {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The book. It is not serialized, since it is mapped from a file.
+	 *
+	 * <p>
+	 * El libro. No se serializa, ya que se proyecta desde un fichero.
+	 */
+	private final transient OpeningBook book;
+
+	/**
+	 * The player to which we delegate the requests out of the book.
+	 *
+	 * <p>
+	 * Jugador en el que se delegan las peticiones fuera del libro.
+	 */
+	private final Player player;
+
+	/**
+	 * Constructs a player with an opening book.
+	 *
+	 * <p>
+	 * Construye un jugador con libro de aperturas.
+	 *
+	 * @param book
+	 *            The opening book.
+	 *            <p>
+	 *            El libro de aperturas.
+	 * @param player
+	 *            The player to which requests are delegated out of the book.
+	 *            <p>
+	 *            Jugador sobre el que se delegan las peticiones fuera del
+	 *            libro.
+	 */
+	public BookPlayer(OpeningBook book, Player player) {
+		this.book = book;
+		this.player = player;
+	}
+
+	@Override
+	public GameMove requestMove(Piece p, Board board, List<Piece> pieces, GameRules rules) {
+		GameMove move = lookup(p, board, pieces, rules);
+		return move != null ? move : player.requestMove(p, board, pieces, rules);
+	}
+
+	@Override
+	public GameMove requestMove(Piece p, Board board, List<Piece> pieces, GameRules rules, GameClock clock) {
+		GameMove move = lookup(p, board, pieces, rules);
+		return move != null ? move : player.requestMove(p, board, pieces, rules, clock);
+	}
+
+	/**
+	 * Checks if the player computes its moves by itself: the book does, so it
+	 * depends on the player out of the book.
+	 *
+	 * <p>
+	 * Comprueba si el jugador calcula sus movimientos por si mismo: el libro
+	 * lo hace, por lo que depende del jugador fuera del libro.
+	 */
+	@Override
+	public boolean isAutomatic() {
+		return player.isAutomatic();
+	}
+
+	private GameMove lookup(Piece p, Board board, List<Piece> pieces, GameRules rules) {
+		return book != null ? book.lookup(rules, board, pieces, p) : null;
+	}
+
+}
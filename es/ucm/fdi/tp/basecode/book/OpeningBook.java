@@ -0,0 +1,430 @@
+package es.ucm.fdi.tp.basecode.book;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.GameError;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.MappedFiles;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveVisitor;
+import es.ucm.fdi.tp.basecode.bgame.model.PackedMove;
+import es.ucm.fdi.tp.basecode.bgame.model.PackedMoveRules;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+import es.ucm.fdi.tp.basecode.bgame.model.Symmetry;
+
+/**
+ * An opening book: the move to play in each of a set of positions, usually the
+ * first moves of a game (see {@link BookBuilder}). The book is a binary file,
+ * which is mapped in memory instead of read, so opening it is immediate, the
+ * operating system loads only the pages that are used, and several programs
+ * (or players) can share it. Its format is, in big-endian order:
+ * <ul>
+ * <li>the magic number {@link #MAGIC} and the version {@link #VERSION}
+ * (two {@code int}s),</li>
+ * <li>the description of the game ({@link GameRules#gameDesc()}), as
+ * written by {@link DataOutputStream#writeUTF(String)},</li>
+ * <li>the number of entries (an {@code int}), and</li>
+ * <li>the entries, sorted by key: the canonical key of the position (a
+ * {@code long}, see {@link Symmetry#canonicalKey(Board, Piece)}) and the move
+ * to play in its canonical form, packed (an {@code int}, see
+ * {@link PackedMove}).</li>
+ * </ul>
+ * A move is looked up with a binary search over the entries, in
+ * {@code O(log n)}. The positions that are rotations or reflections of each
+ * other share their entry, so the game must not depend on the orientation of
+ * the board. Only games whose rules implement {@link PackedMoveRules} can have
+ * a book.
+ *
+ * <p>
+ * Un libro de aperturas: el movimiento a jugar en cada una de un conjunto de
+ * posiciones, normalmente los primeros movimientos de una partida (vease
+ * {@link BookBuilder}). El libro es un fichero binario que se proyecta en
+ * memoria en lugar de leerse, por lo que abrirlo es inmediato, el sistema
+ * operativo solo carga las paginas que se usan, y varios programas (o
+ * jugadores) lo pueden compartir. Su formato es, en orden big-endian:
+ * <ul>
+ * <li>el numero magico {@link #MAGIC} y la version {@link #VERSION} (dos
+ * {@code int}),</li>
+ * <li>la descripcion del juego ({@link GameRules#gameDesc()}), como la
+ * escribe {@link DataOutputStream#writeUTF(String)},</li>
+ * <li>el numero de entradas (un {@code int}), y</li>
+ * <li>las entradas, ordenadas por clave: la clave canonica de la posicion
+ * (un {@code long}, vease {@link Symmetry#canonicalKey(Board, Piece)}) y el
+ * movimiento a jugar en su forma canonica, empaquetado (un {@code int}, vease
+ * {@link PackedMove}).</li>
+ * </ul>
+ * Un movimiento se busca con una busqueda binaria sobre las entradas, en
+ * {@code O(log n)}. Las posiciones que son rotaciones o reflexiones unas de
+ * otras comparten su entrada, por lo que el juego no debe depender de la
+ * orientacion del tablero. Solo los juegos cuyas reglas implementan
+ * {@link PackedMoveRules} pueden tener libro.
+ */
+public class OpeningBook {
+
+	/**
+	 * The magic number at the start of a book file ("TPBK").
+	 *
+	 * <p>
+	 * El numero magico al comienzo de un fichero de libro ("TPBK").
+	 */
+	public static final int MAGIC = 0x5450424B;
+
+	/**
+	 * The version of the format of the book files.
+	 *
+	 * <p>
+	 * La version del formato de los ficheros de libro.
+	 */
+	public static final int VERSION = 3;
+
+	/**
+	 * The value returned by {@link #probe(long)} for a position that is not
+	 * in the book. It is not a valid packed move.
+	 *
+	 * <p>
+	 * El valor que devuelve {@link #probe(long)} para una posicion que no esta
+	 * en el libro. No es un movimiento empaquetado valido.
+	 */
+	public static final int NO_MOVE = -1;
+
+	private static final int ENTRY_SIZE = 12;
+
+	/**
+	 * The mapped file. Only absolute reads are used, so it can be read by
+	 * several threads at the same time.
+	 *
+	 * <p>
+	 * El fichero proyectado. Solo se usan lecturas absolutas, por lo que lo
+	 * pueden leer varias hebras a la vez.
+	 */
+	private final ByteBuffer buffer;
+
+	private final String gameDesc;
+	private final int entries;
+	private final int first;
+
+	/**
+	 * Checks if a packed move is among the valid moves of a position.
+	 *
+	 * <p>
+	 * Comprueba si un movimiento empaquetado esta entre los movimientos
+	 * validos de una posicion.
+	 */
+	private static final class Find implements MoveVisitor {
+		private final int move;
+		private boolean found;
+
+		private Find(int move) {
+			this.move = move;
+		}
+
+		@Override
+		public boolean visit(int move) {
+			found = move == this.move;
+			return !found;
+		}
+	}
+
+	/**
+	 * Finds a valid move that leads to a given position (e.g., the same move
+	 * from another origin, as a clone move of Ataxx, which is listed from
+	 * only one of the pieces next to its destination).
+	 *
+	 * <p>
+	 * Busca un movimiento valido que lleva a una posicion dada (por ejemplo,
+	 * el mismo movimiento desde otro origen, como un movimiento de clonacion
+	 * de Ataxx, que solo aparece desde una de las fichas junto a su destino).
+	 */
+	private static final class Same implements MoveVisitor {
+		private final PackedMoveRules rules;
+		private final Board board;
+		private final List<Piece> pieces;
+		private final Piece turn;
+		private final long target;
+		private int found = NO_MOVE;
+
+		private Same(PackedMoveRules rules, Board board, List<Piece> pieces, Piece turn, long target) {
+			this.rules = rules;
+			this.board = board;
+			this.pieces = pieces;
+			this.turn = turn;
+			this.target = target;
+		}
+
+		@Override
+		public boolean visit(int move) {
+			int mark = board.mark();
+			rules.execute(board, pieces, turn, move);
+			if (board.getZobristKey() == target) {
+				found = move;
+			}
+			board.undo(mark);
+			return found == NO_MOVE;
+		}
+	}
+
+	private OpeningBook(ByteBuffer buffer) {
+		this.buffer = buffer;
+		MappedFiles.checkHeader(buffer, 10, MAGIC, VERSION, "an opening book");
+		this.gameDesc = MappedFiles.getDescription(buffer);
+		int desc = MappedFiles.afterDescription(buffer);
+		this.entries = buffer.getInt(desc);
+		this.first = desc + 4;
+		if (entries < 0 || buffer.limit() < first + (long) entries * ENTRY_SIZE) {
+			throw new GameError("The opening book is truncated");
+		}
+	}
+
+	/**
+	 * Opens a book file, mapping it in memory.
+	 *
+	 * <p>
+	 * Abre un fichero de libro, proyectandolo en memoria.
+	 *
+	 * @param file
+	 *            The book file.
+	 *            <p>
+	 *            El fichero del libro.
+	 * @return The book.
+	 *         <p>
+	 *         El libro.
+	 * @throws IOException
+	 *             If the file cannot be read.
+	 *             <p>
+	 *             Si no se puede leer el fichero.
+	 */
+	public static OpeningBook open(Path file) throws IOException {
+		return new OpeningBook(MappedFiles.map(file));
+	}
+
+	/**
+	 * Writes a book file.
+	 *
+	 * <p>
+	 * Escribe un fichero de libro.
+	 *
+	 * @param file
+	 *            The book file.
+	 *            <p>
+	 *            El fichero del libro.
+	 * @param gameDesc
+	 *            The description of the game.
+	 *            <p>
+	 *            La descripcion del juego.
+	 * @param keys
+	 *            The keys of the positions, without repetitions. They are
+	 *            sorted (with {@code moves}) in place.
+	 *            <p>
+	 *            Las claves de las posiciones, sin repeticiones. Se ordenan
+	 *            (junto con {@code moves}) en el propio array.
+	 * @param moves
+	 *            The packed move of each position.
+	 *            <p>
+	 *            El movimiento empaquetado de cada posicion.
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 *             <p>
+	 *             Si no se puede escribir el fichero.
+	 */
+	public static void write(Path file, String gameDesc, long[] keys, int[] moves) throws IOException {
+		if (keys.length != moves.length) {
+			throw new GameError("There must be one move per key");
+		}
+		sort(keys, moves);
+		for (int i = 1; i < keys.length; i++) {
+			if (keys[i] == keys[i - 1]) {
+				throw new GameError("Repeated key in the opening book: " + keys[i]);
+			}
+		}
+		try (OutputStream out = Files.newOutputStream(file);
+				DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out))) {
+			MappedFiles.writeHeader(data, MAGIC, VERSION, gameDesc);
+			data.writeInt(keys.length);
+			for (int i = 0; i < keys.length; i++) {
+				data.writeLong(keys[i]);
+				data.writeInt(moves[i]);
+			}
+		}
+	}
+
+	/**
+	 * Sorts {@code keys}, moving the elements of {@code moves} along.
+	 *
+	 * <p>
+	 * Ordena {@code keys}, moviendo con ellos los elementos de {@code moves}.
+	 */
+	private static void sort(long[] keys, int[] moves) {
+		Integer[] order = new Integer[keys.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		final long[] k = keys.clone();
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Long.compare(k[a], k[b]);
+			}
+		});
+		int[] m = moves.clone();
+		for (int i = 0; i < order.length; i++) {
+			keys[i] = k[order[i]];
+			moves[i] = m[order[i]];
+		}
+	}
+
+	/**
+	 * Consults the description of the game of the book.
+	 *
+	 * <p>
+	 * Proporciona la descripcion del juego del libro.
+	 *
+	 * @return The description, as given by {@link GameRules#gameDesc()}.
+	 */
+	public String getGameDesc() {
+		return gameDesc;
+	}
+
+	/**
+	 * Consults the number of positions of the book.
+	 *
+	 * <p>
+	 * Proporciona el numero de posiciones del libro.
+	 *
+	 * @return The number of positions.
+	 */
+	public int size() {
+		return entries;
+	}
+
+	/**
+	 * Looks up the move of the position with key {@code key}.
+	 *
+	 * <p>
+	 * Busca el movimiento de la posicion con clave {@code key}.
+	 *
+	 * @param key
+	 *            The key of the position (see
+	 *            {@link Symmetry#canonicalKey(Board, Piece)}).
+	 *            <p>
+	 *            La clave de la posicion (vease
+	 *            {@link Symmetry#canonicalKey(Board, Piece)}).
+	 * @return The packed move, for the canonical form of the position, or
+	 *         {@link #NO_MOVE} if the position is not in
+	 *         the book.
+	 *         <p>
+	 *         El movimiento empaquetado, o {@link #NO_MOVE} si la posicion no
+	 *         esta en el libro.
+	 */
+	public int probe(long key) {
+		int lo = 0;
+		int hi = entries - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			long k = buffer.getLong(first + mid * ENTRY_SIZE);
+			if (k < key) {
+				lo = mid + 1;
+			} else if (k > key) {
+				hi = mid - 1;
+			} else {
+				return buffer.getInt(first + mid * ENTRY_SIZE + 8);
+			}
+		}
+		return NO_MOVE;
+	}
+
+	/**
+	 * Looks up the move of {@code turn} in the position of {@code board}. The
+	 * move of the book, transformed back from the canonical form of the
+	 * position, is only returned if it is a valid move (or leads to the same
+	 * position as one), so a collision of keys cannot make a player play an
+	 * invalid move.
+	 *
+	 * <p>
+	 * Busca el movimiento de {@code turn} en la posicion de {@code board}. El
+	 * movimiento del libro, transformado de vuelta desde la forma canonica de
+	 * la posicion, solo se devuelve si es un movimiento valido (o lleva a la
+	 * misma posicion que uno), por lo que una colision de claves no puede
+	 * hacer que un jugador haga un movimiento invalido.
+	 *
+	 * @param rules
+	 *            The rules of the game.
+	 *            <p>
+	 *            Las reglas del juego.
+	 * @param board
+	 *            A board.
+	 *            <p>
+	 *            Un tablero.
+	 * @param pieces
+	 *            The pieces of the players.
+	 *            <p>
+	 *            Las fichas de los jugadores.
+	 * @param turn
+	 *            The player to move.
+	 *            <p>
+	 *            El jugador que mueve.
+	 * @return The move, or {@code null} if the position is not in the book or
+	 *         the book is of another game.
+	 *         <p>
+	 *         El movimiento, o {@code null} si la posicion no esta en el libro
+	 *         o el libro es de otro juego.
+	 */
+	public GameMove lookup(GameRules rules, Board board, List<Piece> pieces, Piece turn) {
+		if (!(rules instanceof PackedMoveRules) || !gameDesc.equals(rules.gameDesc())) {
+			return null;
+		}
+		Symmetry s = Symmetry.canonical(board, turn);
+		int move = probe(s.key(board, turn));
+		if (move == NO_MOVE) {
+			return null;
+		}
+		move = s.inverse().move(move, board.getRows(), board.getCols());
+		PackedMoveRules packedRules = (PackedMoveRules) rules;
+		Find find = new Find(move);
+		packedRules.visitMoves(board, pieces, turn, find);
+		if (find.found) {
+			return packedRules.toGameMove(board, turn, move);
+		}
+		// the move may be listed in another form: look for its position
+		Board b = board.copy();
+		if (!inside(b, move)) {
+			return null;
+		}
+		try {
+			int mark = b.mark();
+			packedRules.execute(b, pieces, turn, move);
+			long target = b.getZobristKey();
+			b.undo(mark);
+			Same same = new Same(packedRules, b, pieces, turn, target);
+			packedRules.visitMoves(board, pieces, turn, same);
+			return same.found != NO_MOVE ? packedRules.toGameMove(board, turn, same.found) : null;
+		} catch (GameError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Checks if the cells of a packed move are on the board.
+	 *
+	 * <p>
+	 * Comprueba si las casillas de un movimiento empaquetado estan en el
+	 * tablero.
+	 */
+	private static boolean inside(Board board, int move) {
+		if (PackedMove.row(move) >= board.getRows() || PackedMove.col(move) >= board.getCols()) {
+			return false;
+		}
+		return PackedMove.isPlacement(move) || (PackedMove.fromRow(move) < board.getRows()
+				&& PackedMove.fromCol(move) >= 0 && PackedMove.fromCol(move) < board.getCols());
+	}
+
+}
@@ -0,0 +1,358 @@
+package es.ucm.fdi.tp.basecode.connectn;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.FiniteRectBoard;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * A square board for ConnectN-like games that keeps, for each line (row,
+ * column or diagonal) and each piece, the number of cells of the line occupied
+ * by the piece. The counters are updated in {@link #setPosition}, so they
+ * follow the moves and {@link Board#undo(int)}, and they tell in constant time
+ * whether some line is complete, i.e., whether
+ * {@link ConnectNRules#updateState} has to look for a winner at all. They also
+ * keep, for each piece, the number of lines that are still open for it (with
+ * no cell of another piece) and its cells in them, which
+ * {@link ConnectNRules#evaluate} reads in constant time.
+ *
+ * <p>
+ * Un tablero cuadrado para juegos del estilo de ConnectN que mantiene, para
+ * cada linea (fila, columna o diagonal) y cada ficha, el numero de casillas de
+ * la linea ocupadas por la ficha. Los contadores se actualizan en
+ * {@link #setPosition}, por lo que siguen a los movimientos y a
+ * {@link Board#undo(int)}, e indican en tiempo constante si hay alguna linea
+ * completa, es decir, si {@link ConnectNRules#updateState} tiene que buscar
+ * un ganador. Tambien mantienen, para cada ficha, el numero de lineas que
+ * siguen abiertas para ella (sin casillas de otra ficha) y sus casillas en
+ * ellas, que {@link ConnectNRules#evaluate} lee en tiempo constante.
+ */
+public class ConnectNBoard extends FiniteRectBoard {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The dimension of the board.
+	 *
+	 * <p>
+	 * Dimension del tablero.
+	 */
+	private int dim;
+
+	/**
+	 * The pieces placed on the board. The index of a piece in this array is
+	 * its slot, which indexes {@link #lineCounts}.
+	 *
+	 * <p>
+	 * Las fichas colocadas en el tablero. El indice de una ficha en este array
+	 * es su posicion, que indexa {@link #lineCounts}.
+	 */
+	private Piece[] slots;
+	private int numOfSlots;
+
+	/**
+	 * The slot of each piece, indexed by its ordinal, or -1 if it has no
+	 * slot. It is not serialized, since ordinals depend on the run: it is
+	 * rebuilt from {@link #slots} when the board is read.
+	 *
+	 * <p>
+	 * La posicion de cada ficha, indexada por su ordinal, o -1 si no tiene
+	 * posicion. No se serializa, ya que los ordinales dependen de la
+	 * ejecucion: se reconstruye a partir de {@link #slots} al leer el
+	 * tablero.
+	 */
+	private transient int[] slotOfOrdinal;
+
+	/**
+	 * The number of cells of each line occupied by the piece of each slot.
+	 * Lines {@code 0..dim-1} are the rows, {@code dim..2*dim-1} the columns,
+	 * {@code 2*dim} the diagonal and {@code 2*dim+1} the anti-diagonal.
+	 *
+	 * <p>
+	 * Numero de casillas de cada linea ocupadas por la ficha de cada posicion.
+	 * Las lineas {@code 0..dim-1} son las filas, {@code dim..2*dim-1} las
+	 * columnas, {@code 2*dim} la diagonal y {@code 2*dim+1} la antidiagonal.
+	 */
+	private int[][] lineCounts;
+
+	/**
+	 * The number of lines completely occupied by a single piece.
+	 *
+	 * <p>
+	 * Numero de lineas ocupadas completamente por una misma ficha.
+	 */
+	private int completeLines;
+
+	/**
+	 * The number of occupied cells of each line.
+	 *
+	 * <p>
+	 * Numero de casillas ocupadas de cada linea.
+	 */
+	private int[] occupiedCounts;
+
+	/**
+	 * The number of lines with no occupied cell.
+	 *
+	 * <p>
+	 * Numero de lineas sin casillas ocupadas.
+	 */
+	private int emptyLines;
+
+	/**
+	 * The number of open lines of the piece of each slot, and the sum of the
+	 * squares of its number of cells in them.
+	 *
+	 * <p>
+	 * Numero de lineas abiertas de la ficha de cada posicion, y la suma de los
+	 * cuadrados de su numero de casillas en ellas.
+	 */
+	private int[] openLines;
+	private int[] openSquares;
+
+	/**
+	 * Constructs an empty board of {@code dim}x{@code dim} cells.
+	 *
+	 * <p>
+	 * Construye un tablero vacio de {@code dim}x{@code dim} casillas.
+	 *
+	 * @param dim
+	 *            The dimension of the board.
+	 *            <p>
+	 *            Dimension del tablero.
+	 */
+	public ConnectNBoard(int dim) {
+		super(dim, dim);
+		this.dim = dim;
+		this.slots = new Piece[4];
+		this.slotOfOrdinal = new int[0];
+		this.lineCounts = new int[4][];
+		this.occupiedCounts = new int[2 * dim + 2];
+		this.emptyLines = 2 * dim + 2;
+		this.openLines = new int[4];
+		this.openSquares = new int[4];
+	}
+
+	@Override
+	public void setPosition(int row, int col, Piece p) {
+		Piece old = getPosition(row, col);
+		super.setPosition(row, col, p);
+		if (old != null) {
+			count(row, col, slotOf(old), -1);
+		}
+		if (p != null) {
+			count(row, col, slotFor(p), 1);
+		}
+	}
+
+	/**
+	 * Adds {@code delta} to the counters of the lines through ({@code row},
+	 * {@code col}) for the piece of slot {@code slot}.
+	 *
+	 * <p>
+	 * Suma {@code delta} a los contadores de las lineas que pasan por
+	 * ({@code row},{@code col}) para la ficha de la posicion {@code slot}.
+	 */
+	private void count(int row, int col, int slot, int delta) {
+		count(slot, row, delta);
+		count(slot, dim + col, delta);
+		if (row == col) {
+			count(slot, 2 * dim, delta);
+		}
+		if (row + col == dim - 1) {
+			count(slot, 2 * dim + 1, delta);
+		}
+	}
+
+	private void count(int slot, int line, int delta) {
+		int[] counts = lineCounts[slot];
+		int c = counts[line];
+		int occupied = occupiedCounts[line];
+		if (c == dim) {
+			completeLines--;
+		}
+
+		// the line is open for a piece if all its occupied cells are of the
+		// piece: adding a cell closes it for the others, removing the only
+		// cell of another piece opens it again
+		if (delta > 0) {
+			for (int t = 0; t < numOfSlots; t++) {
+				if (t != slot && lineCounts[t][line] == occupied) {
+					openLines[t]--;
+					openSquares[t] -= occupied * occupied;
+				}
+			}
+			if (c == occupied) {
+				openSquares[slot] += 2 * c + 1;
+			}
+		} else {
+			if (c == occupied) {
+				openSquares[slot] -= 2 * c - 1;
+			}
+			for (int t = 0; t < numOfSlots; t++) {
+				if (t != slot && lineCounts[t][line] == occupied - 1) {
+					openLines[t]++;
+					openSquares[t] += (occupied - 1) * (occupied - 1);
+				}
+			}
+		}
+
+		counts[line] += delta;
+		occupiedCounts[line] += delta;
+		if (counts[line] == dim) {
+			completeLines++;
+		}
+		if (occupied == 0) {
+			emptyLines--;
+		} else if (occupiedCounts[line] == 0) {
+			emptyLines++;
+		}
+	}
+
+	/**
+	 * Records that {@code p} has the slot {@code s}.
+	 *
+	 * <p>
+	 * Registra que {@code p} tiene la posicion {@code s}.
+	 */
+	private void mapSlot(Piece p, int s) {
+		int o = p.getOrdinal();
+		if (o >= slotOfOrdinal.length) {
+			int n = slotOfOrdinal.length;
+			slotOfOrdinal = Arrays.copyOf(slotOfOrdinal, o + 1);
+			Arrays.fill(slotOfOrdinal, n, o + 1, -1);
+		}
+		slotOfOrdinal[o] = s;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		slotOfOrdinal = new int[0];
+		for (int s = 0; s < numOfSlots; s++) {
+			mapSlot(slots[s], s);
+		}
+	}
+
+	/**
+	 * Returns the slot of {@code p}, or -1 if it was never placed on the
+	 * board.
+	 *
+	 * <p>
+	 * Devuelve la posicion de {@code p}, o -1 si nunca se ha colocado en el
+	 * tablero.
+	 */
+	private int slotOf(Piece p) {
+		int o = p.getOrdinal();
+		return o < slotOfOrdinal.length ? slotOfOrdinal[o] : -1;
+	}
+
+	/**
+	 * Like {@link #slotOf(Piece)}, but assigns a new slot to {@code p} if it
+	 * does not have one yet.
+	 *
+	 * <p>
+	 * Como {@link #slotOf(Piece)}, pero asigna una nueva posicion a {@code p}
+	 * si aun no tiene una.
+	 */
+	private int slotFor(Piece p) {
+		int s = slotOf(p);
+		if (s < 0) {
+			if (numOfSlots == slots.length) {
+				slots = Arrays.copyOf(slots, 2 * numOfSlots);
+				lineCounts = Arrays.copyOf(lineCounts, 2 * numOfSlots);
+				openLines = Arrays.copyOf(openLines, 2 * numOfSlots);
+				openSquares = Arrays.copyOf(openSquares, 2 * numOfSlots);
+			}
+			s = numOfSlots++;
+			slots[s] = p;
+			mapSlot(p, s);
+			lineCounts[s] = new int[2 * dim + 2];
+			openLines[s] = emptyLines;
+		}
+		return s;
+	}
+
+	/**
+	 * Checks if some row, column or diagonal is completely occupied by a
+	 * single piece.
+	 *
+	 * <p>
+	 * Comprueba si alguna fila, columna o diagonal esta ocupada completamente
+	 * por una misma ficha.
+	 *
+	 * @return {@code true} if there is a complete line.
+	 *         <p>
+	 *         {@code true} si hay una linea completa.
+	 */
+	public boolean hasCompleteLine() {
+		return completeLines > 0;
+	}
+
+	/**
+	 * Consults the number of lines (rows, columns and diagonals) that are
+	 * still open for {@code p}, i.e., that have no cell of another piece.
+	 *
+	 * <p>
+	 * Proporciona el numero de lineas (filas, columnas y diagonales) que
+	 * siguen abiertas para {@code p}, es decir, que no tienen casillas de otra
+	 * ficha.
+	 *
+	 * @param p
+	 *            A piece.
+	 *            <p>
+	 *            Una ficha.
+	 * @return The number of open lines of {@code p}.
+	 *         <p>
+	 *         El numero de lineas abiertas de {@code p}.
+	 */
+	public int openLines(Piece p) {
+		int s = slotOf(p);
+		return s < 0 ? emptyLines : openLines[s];
+	}
+
+	/**
+	 * Consults the sum, over the lines open for {@code p}, of the square of
+	 * the number of cells of {@code p} in the line. The more cells a line
+	 * already holds, the closer it is to be completed.
+	 *
+	 * <p>
+	 * Proporciona la suma, sobre las lineas abiertas para {@code p}, del
+	 * cuadrado del numero de casillas de {@code p} en la linea. Cuantas mas
+	 * casillas tiene ya una linea, mas cerca esta de completarse.
+	 *
+	 * @param p
+	 *            A piece.
+	 *            <p>
+	 *            Una ficha.
+	 * @return The sum of the squares.
+	 *         <p>
+	 *         La suma de los cuadrados.
+	 */
+	public int openLineSquares(Piece p) {
+		int s = slotOf(p);
+		return s < 0 ? 0 : openSquares[s];
+	}
+
+	@Override
+	public Board copy() {
+		ConnectNBoard newboard = new ConnectNBoard(dim);
+		copyTo(newboard);
+		newboard.slots = slots.clone();
+		newboard.numOfSlots = numOfSlots;
+		newboard.slotOfOrdinal = slotOfOrdinal.clone();
+		newboard.lineCounts = new int[lineCounts.length][];
+		for (int s = 0; s < numOfSlots; s++) {
+			newboard.lineCounts[s] = lineCounts[s].clone();
+		}
+		newboard.completeLines = completeLines;
+		newboard.occupiedCounts = occupiedCounts.clone();
+		newboard.emptyLines = emptyLines;
+		newboard.openLines = openLines.clone();
+		newboard.openSquares = openSquares.clone();
+		return newboard;
+	}
+
+}
@@ -1,15 +1,15 @@
 package es.ucm.fdi.tp.basecode.connectn;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import es.ucm.fdi.tp.basecode.bgame.model.Board;
-import es.ucm.fdi.tp.basecode.bgame.model.FiniteRectBoard;
 import es.ucm.fdi.tp.basecode.bgame.model.GameError;
 import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
-import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveList;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveVisitor;
+import es.ucm.fdi.tp.basecode.bgame.model.PackedMove;
+import es.ucm.fdi.tp.basecode.bgame.model.PackedMoveRules;
 import es.ucm.fdi.tp.basecode.bgame.model.Pair;
 import es.ucm.fdi.tp.basecode.bgame.model.Piece;
 import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
@@ -36,7 +36,7 @@ import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
  * </ul>
  *
  */
-public class ConnectNRules implements GameRules {
+public class ConnectNRules implements PackedMoveRules {
 
 	// This object is returned by gameOver to indicate that the game is not
 	// over. Just to avoid creating it multiple times, etc.
@@ -45,11 +45,45 @@ public class ConnectNRules implements GameRules {
 
 	protected int dim;
 
+	/**
+	 * Whether {@link #evaluate} weights the open lines by the cells they
+	 * already hold.
+	 *
+	 * <p>
+	 * Si {@link #evaluate} pondera las lineas abiertas por las casillas que ya
+	 * tienen.
+	 */
+	protected boolean weighted;
+
 	public ConnectNRules(int dim) {
+		this(dim, false);
+	}
+
+	/**
+	 * Constructs the rules of ConnectN.
+	 *
+	 * <p>
+	 * Construye las reglas de ConnectN.
+	 *
+	 * @param dim
+	 *            The dimension of the board.
+	 *            <p>
+	 *            Dimension del tablero.
+	 * @param weighted
+	 *            Whether {@link #evaluate} weights each open line by the
+	 *            square of the cells that the player already has in it, instead
+	 *            of counting the open lines only.
+	 *            <p>
+	 *            Si {@link #evaluate} pondera cada linea abierta por el
+	 *            cuadrado de las casillas que el jugador ya tiene en ella, en
+	 *            lugar de contar solo las lineas abiertas.
+	 */
+	public ConnectNRules(int dim, boolean weighted) {
 		if (dim < 3) {
 			throw new GameError("Dimension must be at least 3: " + dim);
 		} else {
 			this.dim = dim;
+			this.weighted = weighted;
 		}
 	}
 
@@ -60,7 +94,7 @@ public class ConnectNRules implements GameRules {
 
 	@Override
 	public Board createBoard(List<Piece> pieces) {
-		return new FiniteRectBoard(dim, dim);
+		return new ConnectNBoard(dim);
 	}
 
 	@Override
@@ -83,6 +117,13 @@ public class ConnectNRules implements GameRules {
 		int j;
 		Piece p;
 
+		// a ConnectNBoard knows if some line is complete, if none is there is
+		// no winner and the scan can be skipped.
+		if (board instanceof ConnectNBoard && board.getRows() == dim
+				&& !((ConnectNBoard) board).hasCompleteLine()) {
+			return board.isFull() ? new Pair<State, Piece>(State.Draw, null) : gameInPlayResult;
+		}
+
 		// check rows & cols
 		for (int i = 0; i < dim; i++) {
 			// row i
@@ -144,14 +185,32 @@ public class ConnectNRules implements GameRules {
 		return pieces.get((i + 1) % pieces.size());
 	}
 
+	/**
+	 * Evaluates the board for {@code p} by its possible win lines (rows,
+	 * columns or diagonals with no piece of another player) minus those of
+	 * the best of the other players. If the rules are weighted, each line
+	 * counts 1 plus the square of the pieces that the player already has in
+	 * it. A {@link ConnectNBoard} keeps these numbers as the pieces are
+	 * placed, so the evaluation allocates nothing and takes constant time.
+	 *
+	 * <p>
+	 * Evalua el tablero para {@code p} por sus posibles lineas ganadoras
+	 * (filas, columnas o diagonales sin fichas de otro jugador) menos las del
+	 * mejor de los otros jugadores. Si las reglas estan ponderadas, cada linea
+	 * cuenta 1 mas el cuadrado de las fichas que el jugador ya tiene en ella.
+	 * Un {@link ConnectNBoard} mantiene estos numeros a medida que se colocan
+	 * las fichas, por lo que la evaluacion no reserva memoria y tarda un tiempo
+	 * constante.
+	 */
 	@Override
 	public double evaluate(Board board, List<Piece> playersPieces, Piece turn, Piece p) {
 
 		int n = possibleWinLines(board, p); // win lines for p
 		int m = 0; // max of win lines of other players
-		double d = 2.0 * dim + 2.0; // the max win lines a player can have
+		double d = (2.0 * dim + 2.0) * (weighted ? 1 + dim * dim : 1); // the max a player can have
 
-		for (Piece q : playersPieces) {
+		for (int i = 0; i < playersPieces.size(); i++) {
+			Piece q = playersPieces.get(i);
 			if (!p.equals(q)) {
 				int x = possibleWinLines(board, q);
 				if (x > m) {
@@ -177,48 +236,81 @@ public class ConnectNRules implements GameRules {
 		return moves;
 	}
 
+	@Override
+	public void validMoves(Board board, List<Piece> playersPieces, Piece turn, MoveList moves) {
+		visitMoves(board, playersPieces, turn, moves);
+	}
+
+	@Override
+	public boolean visitMoves(Board board, List<Piece> playersPieces, Piece turn, MoveVisitor visitor) {
+		for (int i = 0; i < board.getRows(); i++) {
+			for (int j = 0; j < board.getCols(); j++) {
+				if (board.getPosition(i, j) == null && !visitor.visit(PackedMove.place(i, j))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void execute(Board board, List<Piece> playersPieces, Piece turn, int move) {
+		int row = PackedMove.row(move);
+		int col = PackedMove.col(move);
+		if (board.getPosition(row, col) == null) {
+			board.setPosition(row, col, turn);
+		} else {
+			throw new GameError("position (" + row + "," + col + ") is already occupied!");
+		}
+	}
+
+	@Override
+	public GameMove toGameMove(Board board, Piece turn, int move) {
+		return new ConnectNMove(PackedMove.row(move), PackedMove.col(move), turn);
+	}
+
 	/**
 	 * Compute the number of win-lines for p. A win-line is a row, column or a
-	 * diagonal that does not have a piece different from p.
+	 * diagonal that does not have a piece different from p. If the rules are
+	 * weighted, each win-line counts 1 plus the square of the pieces of p in
+	 * it.
 	 * 
 	 * @param board The game board.
 	 * @param p A piece whose win-lines we want to compute.
 	 * @return
 	 */
 	private int possibleWinLines(Board board, Piece p) {
+		if (board instanceof ConnectNBoard && board.getRows() == dim) {
+			ConnectNBoard b = (ConnectNBoard) board;
+			return b.openLines(p) + (weighted ? b.openLineSquares(p) : 0);
+		}
 
-		Set<Integer> rows = new HashSet<>();
-		Set<Integer> cols = new HashSet<>();
-		Set<Integer> diag = new HashSet<>();
-
+		// other boards are scanned line by line: rows, columns and diagonals
+		int lines = 0;
 		for (int i = 0; i < dim; i++) {
-			rows.add(i);
-			cols.add(i);
+			lines += lineValue(board, p, i, 0, 0, 1) + lineValue(board, p, 0, i, 1, 0);
 		}
+		return lines + lineValue(board, p, 0, 0, 1, 1) + lineValue(board, p, dim - 1, 0, -1, 1);
+	}
 
-		diag.add(1);
-		diag.add(2);
-
-		for (int i = 0; i < board.getRows() && (rows.size() > 0 || cols.size() > 0); i++) {
-			for (int j = 0; j < board.getCols() && (rows.size() > 0 || cols.size() > 0); j++) {
-				Piece q = board.getPosition(i, j);
-				if (q != null && !q.equals(p)) {
-					rows.remove(i);
-					cols.remove(j);
-
-					if (i == j) {
-						diag.remove(1);
-					}
-
-					if (i + j == dim - 1) {
-						diag.remove(2);
-					}
+	/**
+	 * The value of the line that starts at ({@code row}, {@code col}) and
+	 * advances by ({@code dRow}, {@code dCol}), for {@code p}: 0 if it has a
+	 * piece different from p, otherwise 1 (plus the square of the pieces of p
+	 * if the rules are weighted).
+	 */
+	private int lineValue(Board board, Piece p, int row, int col, int dRow, int dCol) {
+		int own = 0;
+		for (int k = 0; k < dim; k++) {
+			Piece q = board.getPosition(row + k * dRow, col + k * dCol);
+			if (q != null) {
+				if (!q.equals(p)) {
+					return 0;
 				}
-
+				own++;
 			}
 		}
-
-		return rows.size() + cols.size() + diag.size();
+		return weighted ? 1 + own * own : 1;
 	}
 
 }
@@ -0,0 +1,334 @@
+package es.ucm.fdi.tp.basecode.mcts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import es.ucm.fdi.tp.basecode.bgame.model.AIAlgorithm;
+import es.ucm.fdi.tp.basecode.bgame.model.AnytimeAIAlgorithm;
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
+import es.ucm.fdi.tp.basecode.bgame.model.GameError;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveList;
+import es.ucm.fdi.tp.basecode.bgame.model.PackedMoveRules;
+import es.ucm.fdi.tp.basecode.bgame.model.Pair;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * An {@link AIAlgorithm} that implements Monte-Carlo Tree Search with UCT. Each
+ * iteration descends the tree choosing the children with
+ * {@link Node#select(double)}, adds a new node, plays the rest of the game with
+ * random moves (a playout) and adds the result to the nodes of the path. The
+ * reward of a playout is 1 for the winner and 0 for the others (1/n for each
+ * player in a draw), and each node counts the reward of the player that moved
+ * into it (max-n), so it works with any number of players. The search stops
+ * after a maximum number of iterations, when the time budget is over or when
+ * the searching thread is interrupted, and the most visited move is returned.
+ * As an {@link AnytimeAIAlgorithm}, it can also be given a deadline instead of
+ * the time budget.
+ *
+ * <p>
+ * All the iterations use a single scratch board: the moves are executed on it
+ * after a {@link Board#mark()}, and the board is restored with
+ * {@link Board#undo(int)} at the end of the iteration, so no board is copied
+ * during the search.
+ *
+ * <p>
+ * Un {@link AIAlgorithm} que implementa Monte-Carlo Tree Search con UCT. Cada
+ * iteracion desciende por el arbol eligiendo los hijos con
+ * {@link Node#select(double)}, anade un nodo nuevo, juega el resto de la
+ * partida con movimientos aleatorios (una simulacion) y anade el resultado a
+ * los nodos del camino. La recompensa de una simulacion es 1 para el ganador y
+ * 0 para el resto (1/n para cada jugador en un empate), y cada nodo cuenta la
+ * recompensa del jugador que movio hasta el (max-n), por lo que funciona con
+ * cualquier numero de jugadores. La busqueda se detiene tras un numero maximo
+ * de iteraciones, cuando se acaba el tiempo o cuando se interrumpe la hebra
+ * que busca, y se devuelve el movimiento mas visitado. Como
+ * {@link AnytimeAIAlgorithm}, tambien se le puede dar un instante limite en
+ * lugar del tiempo por movimiento.
+ *
+ * <p>
+ * Todas las iteraciones usan un unico tablero auxiliar: los movimientos se
+ * ejecutan en el tras un {@link Board#mark()}, y el tablero se restaura con
+ * {@link Board#undo(int)} al final de la iteracion, por lo que no se copia
+ * ningun tablero durante la busqueda.
+ */
+public class MCTS implements AnytimeAIAlgorithm {
+
+	/**
+	 * The default exploration constant of UCT.
+	 *
+	 * <p>
+	 * Constante de exploracion por defecto de UCT.
+	 */
+	public static final double DEFAULT_EXPLORATION = Math.sqrt(2);
+
+	/**
+	 * The default maximum number of iterations per move.
+	 *
+	 * <p>
+	 * Numero maximo de iteraciones por movimiento por defecto.
+	 */
+	public static final int DEFAULT_ITERATIONS = Integer.MAX_VALUE;
+
+	/**
+	 * Playouts longer than this number of moves are counted as draws, since
+	 * some games (e.g., Ataxx) can go on forever.
+	 *
+	 * <p>
+	 * Las simulaciones mas largas que este numero de movimientos cuentan como
+	 * empates, ya que algunos juegos (por ejemplo, Ataxx) pueden no terminar
+	 * nunca.
+	 */
+	public static final int MAX_PLAYOUT_MOVES = 1000;
+
+	/**
+	 * Maximum number of iterations per move.
+	 *
+	 * <p>
+	 * Numero maximo de iteraciones por movimiento.
+	 */
+	private int iterations;
+
+	/**
+	 * Time budget per move, in milliseconds.
+	 *
+	 * <p>
+	 * Tiempo maximo por movimiento, en milisegundos.
+	 */
+	private long timeBudget;
+
+	/**
+	 * The exploration constant of UCT.
+	 *
+	 * <p>
+	 * La constante de exploracion de UCT.
+	 */
+	private double exploration;
+
+	/**
+	 * Constructs an MCTS algorithm bounded only by time.
+	 *
+	 * <p>
+	 * Construye un algoritmo MCTS limitado solo por tiempo.
+	 *
+	 * @param timeBudget
+	 *            Time budget per move, in milliseconds.
+	 *            <p>
+	 *            Tiempo maximo por movimiento, en milisegundos.
+	 */
+	public MCTS(long timeBudget) {
+		this(DEFAULT_ITERATIONS, timeBudget, DEFAULT_EXPLORATION);
+	}
+
+	/**
+	 * Constructs an MCTS algorithm.
+	 *
+	 * <p>
+	 * Construye un algoritmo MCTS.
+	 *
+	 * @param iterations
+	 *            Maximum number of iterations per move.
+	 *            <p>
+	 *            Numero maximo de iteraciones por movimiento.
+	 * @param timeBudget
+	 *            Time budget per move, in milliseconds.
+	 *            <p>
+	 *            Tiempo maximo por movimiento, en milisegundos.
+	 * @param exploration
+	 *            The exploration constant of UCT.
+	 *            <p>
+	 *            La constante de exploracion de UCT.
+	 */
+	public MCTS(int iterations, long timeBudget, double exploration) {
+		if (iterations < 1) {
+			throw new GameError("The number of iterations must be at least 1: " + iterations);
+		}
+		if (timeBudget < 1) {
+			throw new GameError("The time budget must be positive: " + timeBudget);
+		}
+		this.iterations = iterations;
+		this.timeBudget = timeBudget;
+		this.exploration = exploration;
+	}
+
+	/**
+	 * Consults the maximum number of iterations per move.
+	 *
+	 * <p>
+	 * Proporciona el numero maximo de iteraciones por movimiento.
+	 *
+	 * @return The maximum number of iterations.
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * Consults the time budget per move.
+	 *
+	 * <p>
+	 * Proporciona el tiempo maximo por movimiento.
+	 *
+	 * @return The time budget, in milliseconds.
+	 */
+	public long getTimeBudget() {
+		return timeBudget;
+	}
+
+	@Override
+	public GameMove getMove(Piece p, Board board, List<Piece> pieces, GameRules rules) {
+		return getMove(p, board, pieces, rules, System.currentTimeMillis() + timeBudget);
+	}
+
+	@Override
+	public GameMove getMove(Piece p, Board board, List<Piece> pieces, GameRules rules, long deadline) {
+		Board scratch = board.copy();
+		Node root = new Node(null, p);
+		root.untried = validMoves(rules, scratch, pieces, p);
+		if (root.untried.isEmpty()) {
+			throw new GameError("There are no valid moves for " + p);
+		}
+		if (root.untried.size() == 1) {
+			return root.untried.get(0);
+		}
+
+		Random random = ThreadLocalRandom.current();
+		List<Node> path = new ArrayList<Node>();
+		for (int i = 0; i < iterations && System.currentTimeMillis() < deadline
+				&& !Thread.currentThread().isInterrupted(); i++) {
+			int mark = scratch.mark();
+			path.clear();
+			path.add(root);
+			Node node = root;
+
+			// selection
+			while (node.turn != null && node.untried.isEmpty() && !node.children.isEmpty()) {
+				node = node.select(exploration);
+				node.move.execute(scratch, pieces);
+				path.add(node);
+			}
+
+			// expansion
+			if (node.turn != null && !node.untried.isEmpty()) {
+				GameMove m = node.untried.remove(random.nextInt(node.untried.size()));
+				m.execute(scratch, pieces);
+				Node child = new Node(m, next(rules, scratch, pieces, node.turn));
+				if (child.turn != null) {
+					child.untried = validMoves(rules, scratch, pieces, child.turn);
+				}
+				node.children.add(child);
+				node = child;
+				path.add(node);
+			}
+
+			// playout
+			Piece winner = playout(rules, scratch, pieces, node, random);
+
+			// backpropagation
+			double draw = 1.0 / pieces.size();
+			for (int k = 1; k < path.size(); k++) {
+				Node n = path.get(k);
+				n.visits++;
+				n.reward += winner == null ? draw : winner.equals(n.move.getPiece()) ? 1.0 : 0.0;
+			}
+			root.visits++;
+
+			scratch.undo(mark);
+		}
+
+		Node best = root.mostVisited();
+		return best != null ? best.move : root.untried.get(0);
+	}
+
+	/**
+	 * Plays random moves on {@code board} from the position of {@code node}
+	 * until the game ends. If the rules implement {@link PackedMoveRules}, the
+	 * moves are generated and executed packed, so the playout does not create
+	 * a {@link GameMove} per move.
+	 *
+	 * <p>
+	 * Juega movimientos aleatorios en {@code board} desde la posicion de
+	 * {@code node} hasta que termina la partida. Si las reglas implementan
+	 * {@link PackedMoveRules}, los movimientos se generan y ejecutan
+	 * empaquetados, por lo que la simulacion no crea un {@link GameMove} por
+	 * movimiento.
+	 *
+	 * @return The winner, or {@code null} for a draw.
+	 */
+	private Piece playout(GameRules rules, Board board, List<Piece> pieces, Node node, Random random) {
+		if (node.turn == null) {
+			return winner(rules, board, pieces, node.move.getPiece());
+		}
+		Piece turn = node.turn;
+		PackedMoveRules packedRules = rules instanceof PackedMoveRules ? (PackedMoveRules) rules : null;
+		MoveList packed = packedRules != null ? new MoveList() : null;
+		for (int n = 0; n < MAX_PLAYOUT_MOVES; n++) {
+			if (packedRules != null) {
+				packed.clear();
+				packedRules.validMoves(board, pieces, turn, packed);
+				if (packed.isEmpty()) {
+					return null;
+				}
+				packedRules.execute(board, pieces, turn, packed.get(random.nextInt(packed.size())));
+			} else {
+				List<GameMove> moves = validMoves(rules, board, pieces, turn);
+				if (moves.isEmpty()) {
+					return null;
+				}
+				moves.get(random.nextInt(moves.size())).execute(board, pieces);
+			}
+			Pair<State, Piece> state = rules.updateState(board, pieces, turn);
+			switch (state.getFirst()) {
+			case Won:
+				return state.getSecond();
+			case InPlay:
+				turn = rules.nextPlayer(board, pieces, turn);
+				break;
+			default:
+				return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * The player to move after a move of {@code mover}, or {@code null} if the
+	 * game is over.
+	 *
+	 * <p>
+	 * El jugador que mueve tras un movimiento de {@code mover}, o {@code null}
+	 * si la partida ha terminado.
+	 */
+	private Piece next(GameRules rules, Board board, List<Piece> pieces, Piece mover) {
+		if (rules.updateState(board, pieces, mover).getFirst() != State.InPlay) {
+			return null;
+		}
+		return rules.nextPlayer(board, pieces, mover);
+	}
+
+	/**
+	 * The winner of a game that is over after a move of {@code mover}, or
+	 * {@code null} for a draw.
+	 *
+	 * <p>
+	 * El ganador de una partida terminada tras un movimiento de {@code mover},
+	 * o {@code null} si es un empate.
+	 */
+	private Piece winner(GameRules rules, Board board, List<Piece> pieces, Piece mover) {
+		Pair<State, Piece> state = rules.updateState(board, pieces, mover);
+		return state.getFirst() == State.Won ? state.getSecond() : null;
+	}
+
+	private List<GameMove> validMoves(GameRules rules, Board board, List<Piece> pieces, Piece turn) {
+		List<GameMove> moves = rules.validMoves(board, pieces, turn);
+		if (moves == null) {
+			throw new GameError("The game '" + rules.gameDesc() + "' does not support the generation of valid moves.");
+		}
+		return moves;
+	}
+
+}
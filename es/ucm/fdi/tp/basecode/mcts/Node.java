@@ -0,0 +1,112 @@
+package es.ucm.fdi.tp.basecode.mcts;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * A node of the tree built by {@link MCTS}. It represents the position reached
+ * after {@link #move}, and keeps the statistics of the playouts that went
+ * through it from the point of view of the player that made the move (max-n:
+ * each player maximizes its own reward).
+ *
+ * <p>
+ * Un nodo del arbol que construye {@link MCTS}. Representa la posicion a la
+ * que se llega tras {@link #move}, y guarda las estadisticas de las partidas
+ * simuladas que pasaron por el desde el punto de vista del jugador que hizo el
+ * movimiento (max-n: cada jugador maximiza su propia recompensa).
+ */
+class Node {
+
+	/**
+	 * The move that leads to this node ({@code null} at the root).
+	 *
+	 * <p>
+	 * El movimiento que lleva a este nodo ({@code null} en la raiz).
+	 */
+	final GameMove move;
+
+	/**
+	 * The player to move in this node, or {@code null} if the game is over.
+	 *
+	 * <p>
+	 * El jugador que mueve en este nodo, o {@code null} si la partida ha
+	 * terminado.
+	 */
+	final Piece turn;
+
+	/**
+	 * The valid moves of {@link #turn} that have no child yet. It is
+	 * {@code null} until the node is expanded for the first time.
+	 *
+	 * <p>
+	 * Los movimientos validos de {@link #turn} que aun no tienen hijo. Es
+	 * {@code null} hasta que el nodo se expande por primera vez.
+	 */
+	List<GameMove> untried;
+
+	final List<Node> children = new ArrayList<Node>();
+
+	/**
+	 * Number of playouts that went through this node.
+	 *
+	 * <p>
+	 * Numero de partidas simuladas que pasaron por este nodo.
+	 */
+	int visits;
+
+	/**
+	 * Sum of the rewards of those playouts for the player of {@link #move}.
+	 *
+	 * <p>
+	 * Suma de las recompensas de esas partidas para el jugador de
+	 * {@link #move}.
+	 */
+	double reward;
+
+	Node(GameMove move, Piece turn) {
+		this.move = move;
+		this.turn = turn;
+	}
+
+	/**
+	 * Selects the child with the highest UCT value: the average reward plus an
+	 * exploration term that grows for the children that are visited less.
+	 *
+	 * <p>
+	 * Selecciona el hijo con el mayor valor UCT: la recompensa media mas un
+	 * termino de exploracion que crece para los hijos menos visitados.
+	 */
+	Node select(double exploration) {
+		double logVisits = Math.log(visits);
+		Node best = null;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (Node c : children) {
+			double v = c.reward / c.visits + exploration * Math.sqrt(logVisits / c.visits);
+			if (v > bestValue) {
+				bestValue = v;
+				best = c;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * The most visited child, which is the move played by {@link MCTS}.
+	 *
+	 * <p>
+	 * El hijo mas visitado, que es el movimiento que juega {@link MCTS}.
+	 */
+	Node mostVisited() {
+		Node best = null;
+		for (Node c : children) {
+			if (best == null || c.visits > best.visits) {
+				best = c;
+			}
+		}
+		return best;
+	}
+
+}
@@ -0,0 +1,506 @@
+package es.ucm.fdi.tp.basecode.minmax;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
+import es.ucm.fdi.tp.basecode.bgame.model.GameError;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveList;
+import es.ucm.fdi.tp.basecode.bgame.model.PackedMoveRules;
+import es.ucm.fdi.tp.basecode.bgame.model.Pair;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+import es.ucm.fdi.tp.basecode.bgame.model.Zobrist;
+
+/**
+ * The state of a single alpha-beta search, as used by {@link MinMax}. A new
+ * instance is created for each move request, so {@link MinMax} can be shared
+ * by several players (and threads).
+ *
+ * <p>
+ * El estado de una busqueda alfa-beta, como la usa {@link MinMax}. Se crea una
+ * instancia nueva para cada peticion de movimiento, por lo que {@link MinMax}
+ * se puede compartir entre varios jugadores (y hebras).
+ *
+ * <p>
+ * Several instances can search the same position at the same time, sharing
+ * the transposition table (Lazy SMP, see {@link ParallelMinMax}). The helpers
+ * (those with a positive helper number) search the root moves in a different
+ * order, and the odd ones search only the even depths, so they fill the table
+ * with results that the others did not compute yet.
+ *
+ * <p>
+ * Varias instancias pueden buscar la misma posicion a la vez, compartiendo la
+ * tabla de transposiciones (Lazy SMP, ver {@link ParallelMinMax}). Los
+ * ayudantes (los que tienen un numero de ayudante positivo) buscan los
+ * movimientos de la raiz en otro orden, y los impares buscan solo las
+ * profundidades pares, por lo que llenan la tabla con resultados que los demas
+ * aun no han calculado.
+ *
+ * <p>
+ * If the rules are {@link PackedMoveRules}, the moves of the nodes below the
+ * root are packed and searched in the order of a {@link MoveOrdering};
+ * otherwise (or if the ordering is disabled) the hash move is searched first
+ * and the rest in the order of generation.
+ *
+ * <p>
+ * Si las reglas son {@link PackedMoveRules}, los movimientos de los nodos por
+ * debajo de la raiz se empaquetan y se buscan en el orden de un
+ * {@link MoveOrdering}; si no (o si la ordenacion esta desactivada) se busca
+ * primero el movimiento de la tabla y el resto en el orden de generacion.
+ */
+class AlphaBeta {
+
+	/**
+	 * The value of a won position at the root. Wins found closer to the root
+	 * get higher values, so the search prefers the shortest win. It is greater
+	 * than any value returned by
+	 * {@link GameRules#evaluate(Board, List, Piece, Piece)}.
+	 *
+	 * <p>
+	 * Valor de una posicion ganada en la raiz. Las victorias mas cercanas a la
+	 * raiz tienen valores mayores, por lo que se prefiere la victoria mas
+	 * corta. Es mayor que cualquier valor devuelto por
+	 * {@link GameRules#evaluate(Board, List, Piece, Piece)}.
+	 */
+	static final double WIN = 1000.0;
+
+	/**
+	 * The clock is consulted once every {@code CHECK_INTERVAL+1} nodes. An
+	 * interrupt of the searching thread is handled as the end of the time.
+	 *
+	 * <p>
+	 * El reloj se consulta una vez cada {@code CHECK_INTERVAL+1} nodos. Una
+	 * interrupcion de la hebra que busca se trata como el fin del tiempo.
+	 */
+	private static final int CHECK_INTERVAL = 1023;
+
+	/**
+	 * Thrown (and caught by {@link #run(Board, int)}) when the time is over.
+	 * A single instance is used since it carries no information.
+	 *
+	 * <p>
+	 * Se lanza (y se captura en {@link #run(Board, int)}) cuando se acaba el
+	 * tiempo. Se usa una unica instancia pues no lleva informacion.
+	 */
+	private static class Timeout extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private Timeout() {
+			super(null, null, false, false);
+		}
+	}
+
+	private static final Timeout TIMEOUT = new Timeout();
+
+	private final Piece root;
+	private final List<Piece> pieces;
+	private final GameRules rules;
+	private final TranspositionTable table;
+	private final long perspective;
+	private final long deadline;
+	private final int helper;
+	private final AtomicBoolean stop;
+	private final MoveOrdering ordering;
+	private final SearchStats stats;
+	private long nodes;
+	private long cutoffs;
+	private long firstMoveCutoffs;
+	private final long[] sourceCutoffs = new long[MoveOrdering.SOURCES.length];
+	private int completedDepth;
+
+	/**
+	 * Constructs a search.
+	 *
+	 * <p>
+	 * Construye una busqueda.
+	 *
+	 * @param ordered
+	 *            Whether the moves are ordered with a {@link MoveOrdering},
+	 *            when the rules allow it.
+	 *            <p>
+	 *            Si los movimientos se ordenan con un {@link MoveOrdering},
+	 *            cuando las reglas lo permiten.
+	 * @param stats
+	 *            The statistics where the counters of the search are added
+	 *            when it ends, or {@code null}.
+	 *            <p>
+	 *            Las estadisticas a las que se suman los contadores de la
+	 *            busqueda cuando termina, o {@code null}.
+	 */
+	AlphaBeta(Piece root, List<Piece> pieces, GameRules rules, TranspositionTable table, long deadline,
+			boolean ordered, SearchStats stats) {
+		this(root, pieces, rules, table, deadline, 0, null, ordered, stats);
+	}
+
+	/**
+	 * Constructs a search that is part of a parallel search.
+	 *
+	 * <p>
+	 * Construye una busqueda que forma parte de una busqueda paralela.
+	 *
+	 * @param helper
+	 *            0 for the main search, a positive number for the helpers.
+	 *            <p>
+	 *            0 para la busqueda principal, un numero positivo para los
+	 *            ayudantes.
+	 * @param stop
+	 *            Flag that stops the search when set, or {@code null}.
+	 *            <p>
+	 *            Indicador que detiene la busqueda cuando se activa, o
+	 *            {@code null}.
+	 */
+	AlphaBeta(Piece root, List<Piece> pieces, GameRules rules, TranspositionTable table, long deadline, int helper,
+			AtomicBoolean stop, boolean ordered, SearchStats stats) {
+		this.root = root;
+		this.pieces = pieces;
+		this.rules = rules;
+		this.table = table;
+		this.perspective = Zobrist.perspectiveKey(root);
+		this.deadline = deadline;
+		this.helper = helper;
+		this.stop = stop;
+		this.ordering = ordered && rules instanceof PackedMoveRules
+				? new MoveOrdering((PackedMoveRules) rules, pieces) : null;
+		this.stats = stats;
+	}
+
+	/**
+	 * Runs the iterative deepening search from {@code board}, where
+	 * {@link #root} is to move.
+	 *
+	 * <p>
+	 * Ejecuta la busqueda con profundizacion iterativa desde {@code board}, en
+	 * el que mueve {@link #root}.
+	 *
+	 * @param board
+	 *            The current board. It is not modified.
+	 * @param maxDepth
+	 *            The maximum depth.
+	 * @return The best move found.
+	 */
+	GameMove run(Board board, int maxDepth) {
+		try {
+			return iterate(board, maxDepth);
+		} finally {
+			if (stats != null) {
+				stats.add(nodes, cutoffs, firstMoveCutoffs, sourceCutoffs);
+			}
+		}
+	}
+
+	private GameMove iterate(Board board, int maxDepth) {
+		// the search makes and undoes the moves on a single private copy,
+		// which is also the only board it reads (other searches may be
+		// reading the original one)
+		Board work = board.copy();
+
+		List<GameMove> valid = validMoves(work, root);
+		if (valid.isEmpty()) {
+			throw new GameError("There are no valid moves for " + root);
+		}
+		if (valid.size() == 1) {
+			return valid.get(0);
+		}
+
+		// search first the best move of a previous search, if any
+		long key = key(work, root);
+		List<GameMove> moves = new ArrayList<GameMove>(valid);
+		int ttMove = TranspositionTable.move(table.probe(key));
+		if (ttMove < moves.size()) {
+			moves.add(0, moves.remove(ttMove));
+		}
+
+		// helpers keep the first move but rotate the others
+		if (helper > 0 && moves.size() > 2) {
+			Collections.rotate(moves.subList(1, moves.size()), helper);
+		}
+
+		long start = System.currentTimeMillis();
+		GameMove best = moves.get(0);
+		// odd helpers search the even depths only, one step ahead of the others
+		int step = 1 + (helper & 1);
+		for (int depth = step; depth <= maxDepth; depth += step) {
+			GameMove iterationBest = null;
+			double alpha = Double.NEGATIVE_INFINITY;
+			try {
+				for (GameMove m : moves) {
+					double v;
+					int undo = m.executeUndoable(work, pieces);
+					try {
+						v = valueAfter(work, root, depth - 1, alpha, Double.POSITIVE_INFINITY, 1);
+					} finally {
+						m.undo(work, undo);
+					}
+					if (v > alpha) {
+						alpha = v;
+						iterationBest = m;
+					}
+				}
+			} catch (Timeout e) {
+				// the first move is the best one of the previous iteration, so
+				// any move that improved on it can be trusted
+				if (iterationBest != null) {
+					best = iterationBest;
+				}
+				break;
+			}
+
+			best = iterationBest;
+			completedDepth = depth;
+
+			// search the best move first in the next iteration
+			moves.remove(best);
+			moves.add(0, best);
+			table.store(key, toTable(alpha, 0), depth, TranspositionTable.EXACT, valid.indexOf(best));
+
+			// stop if a win is found, or if the next iteration will not finish
+			long now = System.currentTimeMillis();
+			if (alpha >= WIN - maxDepth || now - start > (deadline - start) / 2) {
+				break;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Computes the value of {@code board}, for {@link #root}, after a move of
+	 * {@code mover}.
+	 *
+	 * <p>
+	 * Calcula el valor de {@code board}, para {@link #root}, despues de un
+	 * movimiento de {@code mover}.
+	 */
+	private double valueAfter(Board board, Piece mover, int depth, double alpha, double beta, int ply) {
+		Pair<State, Piece> state = rules.updateState(board, pieces, mover);
+		switch (state.getFirst()) {
+		case Won:
+			return root.equals(state.getSecond()) ? WIN - ply : -(WIN - ply);
+		case Draw:
+			return 0.0;
+		default:
+			Piece next = rules.nextPlayer(board, pieces, mover);
+			if (depth == 0) {
+				return rules.evaluate(board, pieces, next, root);
+			}
+			return search(board, next, depth, alpha, beta, ply);
+		}
+	}
+
+	/**
+	 * The alpha-beta search of a position where {@code turn} is to move. The
+	 * nodes where {@link #root} moves are max nodes, the others are min nodes.
+	 *
+	 * <p>
+	 * La busqueda alfa-beta de una posicion en la que mueve {@code turn}. Los
+	 * nodos en los que mueve {@link #root} son nodos max, el resto son nodos
+	 * min.
+	 */
+	private double search(Board board, Piece turn, int depth, double alpha, double beta, int ply) {
+		if ((++nodes & CHECK_INTERVAL) == 0
+				&& (System.currentTimeMillis() >= deadline || (stop != null && stop.get())
+						|| Thread.currentThread().isInterrupted())) {
+			throw TIMEOUT;
+		}
+
+		long key = key(board, turn);
+		long entry = table.probe(key);
+		int ttMove = TranspositionTable.NO_MOVE;
+		if (entry != TranspositionTable.MISS) {
+			ttMove = TranspositionTable.move(entry);
+			if (TranspositionTable.depth(entry) >= depth) {
+				double v = fromTable(TranspositionTable.value(entry), ply);
+				int bound = TranspositionTable.bound(entry);
+				if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER && v >= beta)
+						|| (bound == TranspositionTable.UPPER && v <= alpha)) {
+					return v;
+				}
+			}
+		}
+
+		if (ordering != null) {
+			return searchOrdered(board, turn, depth, alpha, beta, ply, key, ttMove);
+		}
+
+		List<GameMove> moves = validMoves(board, turn);
+		if (moves.isEmpty()) {
+			return rules.evaluate(board, pieces, turn, root);
+		}
+
+		double alphaOrig = alpha;
+		double betaOrig = beta;
+		int best = TranspositionTable.NO_MOVE;
+		boolean max = root.equals(turn);
+		int n = moves.size();
+		int searched = 0;
+
+		// the move of the table (if any) is searched first, as k = -1
+		for (int k = -1; k < n && alpha < beta; k++) {
+			int i = k < 0 ? ttMove : k;
+			if (i >= n || (k >= 0 && i == ttMove)) {
+				continue;
+			}
+			GameMove m = moves.get(i);
+			double v;
+			int undo = m.executeUndoable(board, pieces);
+			try {
+				v = valueAfter(board, turn, depth - 1, alpha, beta, ply + 1);
+			} finally {
+				m.undo(board, undo);
+			}
+			if (max && v > alpha) {
+				alpha = v;
+				best = i;
+			} else if (!max && v < beta) {
+				beta = v;
+				best = i;
+			}
+			if (alpha >= beta) {
+				countCutoff(searched, k < 0 ? MoveOrdering.HASH : MoveOrdering.UNORDERED);
+			}
+			searched++;
+		}
+
+		double v = max ? alpha : beta;
+		int bound = v <= alphaOrig ? TranspositionTable.UPPER
+				: v >= betaOrig ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+		table.store(key, toTable(v, ply), depth, bound, best);
+		return v;
+	}
+
+	/**
+	 * The alpha-beta search of a node with packed moves, searched in the order
+	 * of {@link #ordering}. The table still stores the index of the best move
+	 * in the order of generation, as {@link #search} does.
+	 *
+	 * <p>
+	 * La busqueda alfa-beta de un nodo con movimientos empaquetados, buscados
+	 * en el orden de {@link #ordering}. La tabla sigue almacenando el indice del
+	 * mejor movimiento en el orden de generacion, como hace {@link #search}.
+	 */
+	private double searchOrdered(Board board, Piece turn, int depth, double alpha, double beta, int ply, long key,
+			int ttMove) {
+		PackedMoveRules packedRules = (PackedMoveRules) rules;
+		MoveList moves = ordering.generate(board, turn, ply, ttMove);
+		int n = moves.size();
+		if (n == 0) {
+			return rules.evaluate(board, pieces, turn, root);
+		}
+
+		double alphaOrig = alpha;
+		double betaOrig = beta;
+		int best = TranspositionTable.NO_MOVE;
+		boolean max = root.equals(turn);
+
+		for (int k = 0; k < n && alpha < beta; k++) {
+			int i = ordering.next(ply, k);
+			int m = moves.get(i);
+			double v;
+			int mark = board.mark();
+			try {
+				packedRules.execute(board, pieces, turn, m);
+				v = valueAfter(board, turn, depth - 1, alpha, beta, ply + 1);
+			} finally {
+				board.undo(mark);
+			}
+			if (max && v > alpha) {
+				alpha = v;
+				best = i;
+			} else if (!max && v < beta) {
+				beta = v;
+				best = i;
+			}
+			if (alpha >= beta) {
+				int source = ordering.source(ply, k);
+				countCutoff(k, source);
+				ordering.cutoff(turn, ply, depth, m, source);
+			}
+		}
+
+		double v = max ? alpha : beta;
+		int bound = v <= alphaOrig ? TranspositionTable.UPPER
+				: v >= betaOrig ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+		table.store(key, toTable(v, ply), depth, bound, best);
+		return v;
+	}
+
+	private void countCutoff(int searched, int source) {
+		cutoffs++;
+		if (searched == 0) {
+			firstMoveCutoffs++;
+		}
+		sourceCutoffs[source]++;
+	}
+
+	/**
+	 * The key of {@code board} with {@code turn} to move, in the table.
+	 *
+	 * <p>
+	 * La clave de {@code board}, cuando mueve {@code turn}, en la tabla.
+	 */
+	private long key(Board board, Piece turn) {
+		return Zobrist.keyFor(board, turn) ^ perspective;
+	}
+
+	/**
+	 * Converts a value relative to the root to a value relative to a node at
+	 * distance {@code ply} from the root, to be stored in the table. Only the
+	 * values of wins and losses, which depend on the distance to the end of
+	 * the game, change.
+	 *
+	 * <p>
+	 * Convierte un valor relativo a la raiz en un valor relativo a un nodo a
+	 * distancia {@code ply} de la raiz, para almacenarlo en la tabla. Solo
+	 * cambian los valores de las victorias y derrotas, que dependen de la
+	 * distancia al final de la partida.
+	 */
+	private static double toTable(double v, int ply) {
+		return v > WIN / 2 ? v + ply : v < -WIN / 2 ? v - ply : v;
+	}
+
+	/**
+	 * The inverse of {@link #toTable(double, int)}.
+	 *
+	 * <p>
+	 * La inversa de {@link #toTable(double, int)}.
+	 */
+	private static double fromTable(double v, int ply) {
+		return v > WIN / 2 ? v - ply : v < -WIN / 2 ? v + ply : v;
+	}
+
+	private List<GameMove> validMoves(Board board, Piece turn) {
+		List<GameMove> moves = rules.validMoves(board, pieces, turn);
+		if (moves == null) {
+			throw new GameError("The game '" + rules.gameDesc() + "' does not support the generation of valid moves.");
+		}
+		return moves;
+	}
+
+	/**
+	 * Consults the number of nodes visited so far.
+	 *
+	 * <p>
+	 * Proporciona el numero de nodos visitados hasta el momento.
+	 */
+	long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Consults the depth of the deepest iteration that was completed. It is 0
+	 * if none was completed, or if there was a single valid move.
+	 *
+	 * <p>
+	 * Proporciona la profundidad de la iteracion mas profunda que se ha
+	 * completado. Es 0 si no se completo ninguna, o si solo habia un
+	 * movimiento valido.
+	 */
+	int getCompletedDepth() {
+		return completedDepth;
+	}
+
+}
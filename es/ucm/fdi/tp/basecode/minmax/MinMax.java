@@ -0,0 +1,267 @@
+package es.ucm.fdi.tp.basecode.minmax;
+
+import java.util.List;
+
+import es.ucm.fdi.tp.basecode.bgame.model.AIAlgorithm;
+import es.ucm.fdi.tp.basecode.bgame.model.AnytimeAIAlgorithm;
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.GameError;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.PackedMoveRules;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * An {@link AIAlgorithm} that implements the MinMax algorithm with alpha-beta
+ * pruning. The search uses iterative deepening: it searches with depth 1, 2,
+ * 3, etc. until the maximum depth is reached or the time budget per move is
+ * over, and then returns the best move of the deepest search. The moves are
+ * generated with {@link GameRules#validMoves(Board, List, Piece)} and the
+ * leaves are evaluated with
+ * {@link GameRules#evaluate(Board, List, Piece, Piece)}. With more than two
+ * players, all the opponents are assumed to play against the player that
+ * searches (paranoid search). The results of the searches are kept in a
+ * {@link TranspositionTable}, so positions that are reached again (in the same
+ * search or in later ones) are not searched again. As an
+ * {@link AnytimeAIAlgorithm}, the search can also be given a deadline instead
+ * of the time budget, and it returns the best move of the deepest completed
+ * iteration when the deadline arrives. With {@link PackedMoveRules}, the moves
+ * are searched in the order of a {@link MoveOrdering}, and {@link #getStats()}
+ * shows how often the first move already causes a cutoff.
+ *
+ * <p>
+ * Un {@link AIAlgorithm} que implementa el algoritmo MinMax con poda
+ * alfa-beta. La busqueda usa profundizacion iterativa: busca con profundidad
+ * 1, 2, 3, etc. hasta llegar a la profundidad maxima o hasta que se acaba el
+ * tiempo por movimiento, y devuelve el mejor movimiento de la busqueda mas
+ * profunda. Los movimientos se generan con
+ * {@link GameRules#validMoves(Board, List, Piece)} y las hojas se evaluan con
+ * {@link GameRules#evaluate(Board, List, Piece, Piece)}. Con mas de dos
+ * jugadores, se supone que todos los rivales juegan contra el jugador que
+ * busca (busqueda paranoica). Los resultados de las busquedas se guardan en
+ * una {@link TranspositionTable}, por lo que las posiciones que se repiten (en
+ * la misma busqueda o en otras posteriores) no se vuelven a buscar. Como
+ * {@link AnytimeAIAlgorithm}, tambien se le puede dar a la busqueda un
+ * instante limite en lugar del tiempo por movimiento, y devuelve el mejor
+ * movimiento de la iteracion completa mas profunda cuando llega ese instante.
+ * Con {@link PackedMoveRules}, los movimientos se buscan en el orden de un
+ * {@link MoveOrdering}, y {@link #getStats()} muestra con que frecuencia el
+ * primer movimiento ya produce un corte.
+ */
+public class MinMax implements AnytimeAIAlgorithm {
+
+	/**
+	 * The default maximum depth of the search.
+	 *
+	 * <p>
+	 * Profundidad maxima por defecto de la busqueda.
+	 */
+	public static final int DEFAULT_MAX_DEPTH = 64;
+
+	/**
+	 * The default time budget per move, in milliseconds.
+	 *
+	 * <p>
+	 * Tiempo por defecto por movimiento, en milisegundos.
+	 */
+	public static final long DEFAULT_TIME_BUDGET = 1000;
+
+	/**
+	 * Maximum depth of the search.
+	 *
+	 * <p>
+	 * Profundidad maxima de la busqueda.
+	 */
+	private int maxDepth;
+
+	/**
+	 * Time budget per move, in milliseconds.
+	 *
+	 * <p>
+	 * Tiempo maximo por movimiento, en milisegundos.
+	 */
+	private long timeBudget;
+
+	/**
+	 * The transposition table used by the searches.
+	 *
+	 * <p>
+	 * La tabla de transposiciones que usan las busquedas.
+	 */
+	private TranspositionTable table;
+
+	/**
+	 * Whether the moves are ordered with a {@link MoveOrdering}.
+	 *
+	 * <p>
+	 * Si los movimientos se ordenan con un {@link MoveOrdering}.
+	 */
+	private volatile boolean ordered = true;
+
+	/**
+	 * The statistics of the searches.
+	 *
+	 * <p>
+	 * Las estadisticas de las busquedas.
+	 */
+	private final SearchStats stats = new SearchStats();
+
+	/**
+	 * Constructs a MinMax algorithm with the default maximum depth and time
+	 * budget.
+	 *
+	 * <p>
+	 * Construye un algoritmo MinMax con la profundidad maxima y el tiempo por
+	 * defecto.
+	 */
+	public MinMax() {
+		this(DEFAULT_MAX_DEPTH, DEFAULT_TIME_BUDGET);
+	}
+
+	/**
+	 * Constructs a MinMax algorithm with the default maximum depth.
+	 *
+	 * <p>
+	 * Construye un algoritmo MinMax con la profundidad maxima por defecto.
+	 *
+	 * @param timeBudget
+	 *            Time budget per move, in milliseconds.
+	 *            <p>
+	 *            Tiempo maximo por movimiento, en milisegundos.
+	 */
+	public MinMax(long timeBudget) {
+		this(DEFAULT_MAX_DEPTH, timeBudget);
+	}
+
+	/**
+	 * Constructs a MinMax algorithm.
+	 *
+	 * <p>
+	 * Construye un algoritmo MinMax.
+	 *
+	 * @param maxDepth
+	 *            Maximum depth of the search.
+	 *            <p>
+	 *            Profundidad maxima de la busqueda.
+	 * @param timeBudget
+	 *            Time budget per move, in milliseconds.
+	 *            <p>
+	 *            Tiempo maximo por movimiento, en milisegundos.
+	 */
+	public MinMax(int maxDepth, long timeBudget) {
+		this(maxDepth, timeBudget, new TranspositionTable());
+	}
+
+	/**
+	 * Constructs a MinMax algorithm that uses a given transposition table,
+	 * which can be shared with other algorithms.
+	 *
+	 * <p>
+	 * Construye un algoritmo MinMax que usa una tabla de transposiciones dada,
+	 * que se puede compartir con otros algoritmos.
+	 *
+	 * @param maxDepth
+	 *            Maximum depth of the search.
+	 *            <p>
+	 *            Profundidad maxima de la busqueda.
+	 * @param timeBudget
+	 *            Time budget per move, in milliseconds.
+	 *            <p>
+	 *            Tiempo maximo por movimiento, en milisegundos.
+	 * @param table
+	 *            The transposition table.
+	 *            <p>
+	 *            La tabla de transposiciones.
+	 */
+	public MinMax(int maxDepth, long timeBudget, TranspositionTable table) {
+		if (maxDepth < 1) {
+			throw new GameError("The maximum depth must be at least 1: " + maxDepth);
+		}
+		if (timeBudget < 1) {
+			throw new GameError("The time budget must be positive: " + timeBudget);
+		}
+		this.maxDepth = maxDepth;
+		this.timeBudget = timeBudget;
+		this.table = table;
+	}
+
+	/**
+	 * Consults the maximum depth of the search.
+	 *
+	 * <p>
+	 * Proporciona la profundidad maxima de la busqueda.
+	 *
+	 * @return The maximum depth.
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Consults the time budget per move.
+	 *
+	 * <p>
+	 * Proporciona el tiempo maximo por movimiento.
+	 *
+	 * @return The time budget, in milliseconds.
+	 */
+	public long getTimeBudget() {
+		return timeBudget;
+	}
+
+	/**
+	 * Consults the transposition table used by the searches.
+	 *
+	 * <p>
+	 * Proporciona la tabla de transposiciones que usan las busquedas.
+	 *
+	 * @return The transposition table.
+	 */
+	public TranspositionTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Enables or disables the move ordering of the searches (see
+	 * {@link MoveOrdering}). It is enabled by default; disabling it makes it
+	 * possible to measure its gain with {@link #getStats()}.
+	 *
+	 * <p>
+	 * Activa o desactiva la ordenacion de movimientos de las busquedas (ver
+	 * {@link MoveOrdering}). Esta activada por defecto; desactivarla permite
+	 * medir su ganancia con {@link #getStats()}.
+	 *
+	 * @param ordered
+	 *            Whether the moves are ordered.
+	 *            <p>
+	 *            Si los movimientos se ordenan.
+	 */
+	public void setMoveOrdering(boolean ordered) {
+		this.ordered = ordered;
+	}
+
+	/**
+	 * Consults the statistics of all the searches so far.
+	 *
+	 * <p>
+	 * Proporciona las estadisticas de todas las busquedas hasta el momento.
+	 *
+	 * @return The statistics.
+	 */
+	public SearchStats getStats() {
+		return stats;
+	}
+
+	@Override
+	public GameMove getMove(Piece p, Board board, List<Piece> pieces, GameRules rules) {
+		return getMove(p, board, pieces, rules, System.currentTimeMillis() + timeBudget);
+	}
+
+	@Override
+	public GameMove getMove(Piece p, Board board, List<Piece> pieces, GameRules rules, long deadline) {
+		table.newGeneration();
+		AlphaBeta search = new AlphaBeta(p, pieces, rules, table, deadline, ordered, stats);
+		return search.run(board, maxDepth);
+	}
+
+}
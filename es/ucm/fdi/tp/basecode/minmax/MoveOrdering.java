@@ -0,0 +1,334 @@
+package es.ucm.fdi.tp.basecode.minmax;
+
+import java.util.Arrays;
+import java.util.List;
+
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.CaptureRules;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveList;
+import es.ucm.fdi.tp.basecode.bgame.model.PackedMoveRules;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * Orders the packed moves of the nodes of a search, so that the moves that
+ * are most likely to cause a cutoff are searched first. The moves are tried in
+ * this order:
+ * <ol>
+ * <li>The best move stored in the transposition table (the hash move).</li>
+ * <li>The captures, if the rules are {@link CaptureRules}, the ones that
+ * capture more pieces first.</li>
+ * <li>The killer moves of the ply: the last two quiet moves that caused a
+ * cutoff at the same distance from the root.</li>
+ * <li>The rest, by their history score: the sum of the squares of the depths
+ * where they caused a cutoff, for the player that moves.</li>
+ * </ol>
+ *
+ * <p>
+ * Ordena los movimientos empaquetados de los nodos de una busqueda, de forma
+ * que los movimientos que mas probablemente produzcan un corte se buscan
+ * primero. Los movimientos se prueban en este orden:
+ * <ol>
+ * <li>El mejor movimiento almacenado en la tabla de transposiciones (el
+ * movimiento de la tabla).</li>
+ * <li>Las capturas, si las reglas son {@link CaptureRules}, primero las que
+ * capturan mas fichas.</li>
+ * <li>Los movimientos asesinos de la profundidad: los dos ultimos movimientos
+ * tranquilos que produjeron un corte a la misma distancia de la raiz.</li>
+ * <li>El resto, por su puntuacion de historia: la suma de los cuadrados de
+ * las profundidades en las que produjeron un corte, para el jugador que
+ * mueve.</li>
+ * </ol>
+ *
+ * <p>
+ * The moves are not sorted: {@link #next(int, int)} selects the best of the
+ * remaining moves each time, since most nodes are cut after a few moves. An
+ * instance keeps the moves of each ply, so it must be used by a single search
+ * (and thread).
+ *
+ * <p>
+ * Los movimientos no se ordenan: {@link #next(int, int)} selecciona cada vez
+ * el mejor de los movimientos restantes, pues la mayoria de los nodos se
+ * cortan tras unos pocos movimientos. Una instancia guarda los movimientos de
+ * cada profundidad, por lo que la debe usar una unica busqueda (y hebra).
+ */
+public class MoveOrdering {
+
+	/**
+	 * The source of a move that was the hash move.
+	 *
+	 * <p>
+	 * El origen de un movimiento que era el movimiento de la tabla.
+	 */
+	public static final int HASH = 0;
+
+	/**
+	 * The source of a move that was ordered as a capture.
+	 *
+	 * <p>
+	 * El origen de un movimiento que se ordeno como captura.
+	 */
+	public static final int CAPTURE = 1;
+
+	/**
+	 * The source of a move that was a killer move.
+	 *
+	 * <p>
+	 * El origen de un movimiento que era un movimiento asesino.
+	 */
+	public static final int KILLER = 2;
+
+	/**
+	 * The source of a move that was ordered by its history score.
+	 *
+	 * <p>
+	 * El origen de un movimiento que se ordeno por su puntuacion de historia.
+	 */
+	public static final int HISTORY = 3;
+
+	/**
+	 * The source of a move that was searched in the order of generation,
+	 * without move ordering.
+	 *
+	 * <p>
+	 * El origen de un movimiento que se busco en el orden de generacion, sin
+	 * ordenacion de movimientos.
+	 */
+	public static final int UNORDERED = 4;
+
+	/**
+	 * The names of the sources, indexed by source.
+	 *
+	 * <p>
+	 * Los nombres de los origenes, indexados por origen.
+	 */
+	public static final String[] SOURCES = { "hash", "capture", "killer", "history", "unordered" };
+
+	private static final int HASH_SCORE = Integer.MAX_VALUE;
+	private static final int CAPTURE_SCORE = 3 << 28;
+	private static final int KILLER_SCORE = 2 << 28;
+
+	/**
+	 * The history scores are halved when one reaches this value, so they stay
+	 * below {@link #KILLER_SCORE} and recent cutoffs weigh more.
+	 *
+	 * <p>
+	 * Las puntuaciones de historia se dividen a la mitad cuando una alcanza
+	 * este valor, para que sigan por debajo de {@link #KILLER_SCORE} y los
+	 * cortes recientes pesen mas.
+	 */
+	private static final int HISTORY_LIMIT = 1 << 20;
+
+	/**
+	 * The history of a player has {@code 2^HISTORY_BITS} entries, indexed by a
+	 * hash of the packed move.
+	 *
+	 * <p>
+	 * La historia de un jugador tiene {@code 2^HISTORY_BITS} entradas,
+	 * indexadas por un hash del movimiento empaquetado.
+	 */
+	private static final int HISTORY_BITS = 14;
+
+	private static final int NO_KILLER = -1;
+
+	private final PackedMoveRules rules;
+	private final List<Piece> pieces;
+	private final int[][] history;
+	private MoveList[] moves;
+	private int[][] scores;
+	private int[][] order;
+	private int[][] killers;
+
+	/**
+	 * Constructs the move ordering of a search.
+	 *
+	 * <p>
+	 * Construye la ordenacion de movimientos de una busqueda.
+	 *
+	 * @param rules
+	 *            The rules of the game.
+	 *            <p>
+	 *            Las reglas del juego.
+	 * @param pieces
+	 *            The pieces of the players.
+	 *            <p>
+	 *            Las fichas de los jugadores.
+	 */
+	public MoveOrdering(PackedMoveRules rules, List<Piece> pieces) {
+		this.rules = rules;
+		this.pieces = pieces;
+		this.history = new int[Math.max(pieces.size(), 1)][1 << HISTORY_BITS];
+		this.moves = new MoveList[0];
+		this.scores = new int[0][];
+		this.order = new int[0][];
+		this.killers = new int[0][];
+	}
+
+	/**
+	 * Generates and scores the valid moves of {@code turn} at distance
+	 * {@code ply} from the root. The moves of the previous node at the same
+	 * ply are discarded.
+	 *
+	 * <p>
+	 * Genera y puntua los movimientos validos de {@code turn} a distancia
+	 * {@code ply} de la raiz. Se descartan los movimientos del nodo anterior
+	 * a la misma distancia.
+	 *
+	 * @param hashMove
+	 *            The index, in the order of generation, of the hash move, or
+	 *            any value out of range if there is none.
+	 *            <p>
+	 *            El indice, en el orden de generacion, del movimiento de la
+	 *            tabla, o cualquier valor fuera de rango si no hay.
+	 * @return The moves, in the order of generation.
+	 *         <p>
+	 *         Los movimientos, en el orden de generacion.
+	 */
+	public MoveList generate(Board board, Piece turn, int ply, int hashMove) {
+		ensurePly(ply);
+		MoveList list = moves[ply];
+		list.clear();
+		rules.validMoves(board, pieces, turn, list);
+		int n = list.size();
+		if (scores[ply].length < n) {
+			scores[ply] = new int[Math.max(n, 2 * scores[ply].length)];
+			order[ply] = new int[scores[ply].length];
+		}
+		int[] s = scores[ply];
+		int[] o = order[ply];
+		int[] h = history[player(turn)];
+		int[] k = killers[ply];
+		CaptureRules captures = rules instanceof CaptureRules ? (CaptureRules) rules : null;
+		for (int i = 0; i < n; i++) {
+			int m = list.get(i);
+			int c;
+			o[i] = i;
+			if (i == hashMove) {
+				s[i] = HASH_SCORE;
+			} else if (captures != null && (c = captures.captures(board, pieces, turn, m)) > 0) {
+				s[i] = CAPTURE_SCORE + c;
+			} else if (m == k[0]) {
+				s[i] = KILLER_SCORE + 1;
+			} else if (m == k[1]) {
+				s[i] = KILLER_SCORE;
+			} else {
+				s[i] = h[slot(m)];
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Selects the {@code k}-th move to search at distance {@code ply} from the
+	 * root. It must be called with {@code k = 0, 1, 2...} after
+	 * {@link #generate(Board, Piece, int, int)}.
+	 *
+	 * <p>
+	 * Selecciona el {@code k}-esimo movimiento que se busca a distancia
+	 * {@code ply} de la raiz. Se debe llamar con {@code k = 0, 1, 2...} tras
+	 * {@link #generate(Board, Piece, int, int)}.
+	 *
+	 * @return The index of the move in the order of generation.
+	 *         <p>
+	 *         El indice del movimiento en el orden de generacion.
+	 */
+	public int next(int ply, int k) {
+		int[] s = scores[ply];
+		int[] o = order[ply];
+		int n = moves[ply].size();
+		int best = k;
+		for (int i = k + 1; i < n; i++) {
+			if (s[i] > s[best]) {
+				best = i;
+			}
+		}
+		int score = s[best];
+		s[best] = s[k];
+		s[k] = score;
+		int index = o[best];
+		o[best] = o[k];
+		o[k] = index;
+		return index;
+	}
+
+	/**
+	 * The source ({@link #HASH}, {@link #CAPTURE}, {@link #KILLER} or
+	 * {@link #HISTORY}) of the {@code k}-th move selected by
+	 * {@link #next(int, int)} at distance {@code ply} from the root.
+	 *
+	 * <p>
+	 * El origen ({@link #HASH}, {@link #CAPTURE}, {@link #KILLER} o
+	 * {@link #HISTORY}) del {@code k}-esimo movimiento seleccionado por
+	 * {@link #next(int, int)} a distancia {@code ply} de la raiz.
+	 */
+	public int source(int ply, int k) {
+		int score = scores[ply][k];
+		return score == HASH_SCORE ? HASH : score >= CAPTURE_SCORE ? CAPTURE : score >= KILLER_SCORE ? KILLER : HISTORY;
+	}
+
+	/**
+	 * Records that the packed move {@code move} of {@code turn}, at distance
+	 * {@code ply} from the root, caused a cutoff in a search of depth
+	 * {@code depth}. Captures and hash moves are already searched early, so
+	 * only the other moves become killers and gain history.
+	 *
+	 * <p>
+	 * Registra que el movimiento empaquetado {@code move} de {@code turn}, a
+	 * distancia {@code ply} de la raiz, produjo un corte en una busqueda de
+	 * profundidad {@code depth}. Las capturas y los movimientos de la tabla ya
+	 * se buscan pronto, por lo que solo los demas movimientos pasan a ser
+	 * asesinos y ganan historia.
+	 *
+	 * @param source
+	 *            The source of the move, as returned by
+	 *            {@link #source(int, int)}.
+	 *            <p>
+	 *            El origen del movimiento, como lo devuelve
+	 *            {@link #source(int, int)}.
+	 */
+	public void cutoff(Piece turn, int ply, int depth, int move, int source) {
+		if (source == HASH || source == CAPTURE) {
+			return;
+		}
+		int[] k = killers[ply];
+		if (k[0] != move) {
+			k[1] = k[0];
+			k[0] = move;
+		}
+		int[] h = history[player(turn)];
+		int i = slot(move);
+		h[i] += depth * depth;
+		if (h[i] >= HISTORY_LIMIT) {
+			for (int j = 0; j < h.length; j++) {
+				h[j] >>= 1;
+			}
+		}
+	}
+
+	private void ensurePly(int ply) {
+		if (ply < moves.length) {
+			return;
+		}
+		int length = Math.max(ply + 1, 2 * moves.length);
+		int old = moves.length;
+		moves = Arrays.copyOf(moves, length);
+		scores = Arrays.copyOf(scores, length);
+		order = Arrays.copyOf(order, length);
+		killers = Arrays.copyOf(killers, length);
+		for (int i = old; i < length; i++) {
+			moves[i] = new MoveList();
+			scores[i] = new int[64];
+			order[i] = new int[64];
+			killers[i] = new int[] { NO_KILLER, NO_KILLER };
+		}
+	}
+
+	private int player(Piece turn) {
+		int i = pieces.indexOf(turn);
+		return i >= 0 && i < history.length ? i : 0;
+	}
+
+	private static int slot(int move) {
+		return (move * 0x9E3779B1) >>> (32 - HISTORY_BITS);
+	}
+
+}
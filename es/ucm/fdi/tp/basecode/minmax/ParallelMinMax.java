@@ -0,0 +1,325 @@
+package es.ucm.fdi.tp.basecode.minmax;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import es.ucm.fdi.tp.basecode.bgame.model.AnytimeAIAlgorithm;
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.GameError;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * A multi-threaded version of {@link MinMax} (Lazy SMP). Each move request
+ * starts the same alpha-beta search in several threads of a
+ * {@link ForkJoinPool}, all of them sharing a single
+ * {@link TranspositionTable}. The threads do not communicate otherwise: the
+ * results stored in the table by one thread cut the searches of the others,
+ * so with more threads the deepest iteration completed within the time budget
+ * gets deeper. The move returned is the one of the thread that completed the
+ * deepest iteration (the main thread on ties). If the calling thread is
+ * interrupted, all the threads stop and the best move of the main thread is
+ * returned. Its threads must be stopped with {@link #shutdown()} when it is
+ * no longer needed.
+ *
+ * <p>
+ * Una version multi-hebra de {@link MinMax} (Lazy SMP). Cada peticion de
+ * movimiento empieza la misma busqueda alfa-beta en varias hebras de un
+ * {@link ForkJoinPool}, todas ellas compartiendo una unica
+ * {@link TranspositionTable}. Las hebras no se comunican de otra forma: los
+ * resultados almacenados en la tabla por una hebra podan las busquedas de las
+ * demas, por lo que con mas hebras la iteracion mas profunda completada dentro
+ * del tiempo maximo es mas profunda. El movimiento devuelto es el de la hebra
+ * que completo la iteracion mas profunda (la hebra principal en caso de
+ * empate). Si se interrumpe la hebra que llama, todas las hebras se detienen
+ * y se devuelve el mejor movimiento de la hebra principal. Sus hebras se deben
+ * detener con {@link #shutdown()} cuando ya no se necesita.
+ */
+public class ParallelMinMax implements AnytimeAIAlgorithm {
+
+	/**
+	 * Maximum depth of the search.
+	 *
+	 * <p>
+	 * Profundidad maxima de la busqueda.
+	 */
+	private int maxDepth;
+
+	/**
+	 * Time budget per move, in milliseconds.
+	 *
+	 * <p>
+	 * Tiempo maximo por movimiento, en milisegundos.
+	 */
+	private long timeBudget;
+
+	/**
+	 * The transposition table shared by all the threads.
+	 *
+	 * <p>
+	 * La tabla de transposiciones compartida por todas las hebras.
+	 */
+	private TranspositionTable table;
+
+	/**
+	 * The pool that runs the searches, with one thread per search.
+	 *
+	 * <p>
+	 * El pool que ejecuta las busquedas, con una hebra por busqueda.
+	 */
+	private ForkJoinPool pool;
+
+	/**
+	 * Whether the moves are ordered with a {@link MoveOrdering}.
+	 *
+	 * <p>
+	 * Si los movimientos se ordenan con un {@link MoveOrdering}.
+	 */
+	private volatile boolean ordered = true;
+
+	/**
+	 * The statistics of the searches.
+	 *
+	 * <p>
+	 * Las estadisticas de las busquedas.
+	 */
+	private final SearchStats stats = new SearchStats();
+
+	/**
+	 * Constructs a parallel MinMax algorithm with the default maximum depth,
+	 * that uses one thread per available processor.
+	 *
+	 * <p>
+	 * Construye un algoritmo MinMax paralelo con la profundidad maxima por
+	 * defecto, que usa una hebra por procesador disponible.
+	 *
+	 * @param timeBudget
+	 *            Time budget per move, in milliseconds.
+	 *            <p>
+	 *            Tiempo maximo por movimiento, en milisegundos.
+	 */
+	public ParallelMinMax(long timeBudget) {
+		this(Runtime.getRuntime().availableProcessors(), timeBudget);
+	}
+
+	/**
+	 * Constructs a parallel MinMax algorithm with the default maximum depth.
+	 *
+	 * <p>
+	 * Construye un algoritmo MinMax paralelo con la profundidad maxima por
+	 * defecto.
+	 *
+	 * @param threads
+	 *            Number of threads.
+	 *            <p>
+	 *            Numero de hebras.
+	 * @param timeBudget
+	 *            Time budget per move, in milliseconds.
+	 *            <p>
+	 *            Tiempo maximo por movimiento, en milisegundos.
+	 */
+	public ParallelMinMax(int threads, long timeBudget) {
+		this(threads, MinMax.DEFAULT_MAX_DEPTH, timeBudget, new TranspositionTable());
+	}
+
+	/**
+	 * Constructs a parallel MinMax algorithm.
+	 *
+	 * <p>
+	 * Construye un algoritmo MinMax paralelo.
+	 *
+	 * @param threads
+	 *            Number of threads.
+	 *            <p>
+	 *            Numero de hebras.
+	 * @param maxDepth
+	 *            Maximum depth of the search.
+	 *            <p>
+	 *            Profundidad maxima de la busqueda.
+	 * @param timeBudget
+	 *            Time budget per move, in milliseconds.
+	 *            <p>
+	 *            Tiempo maximo por movimiento, en milisegundos.
+	 * @param table
+	 *            The transposition table shared by the threads.
+	 *            <p>
+	 *            La tabla de transposiciones compartida por las hebras.
+	 */
+	public ParallelMinMax(int threads, int maxDepth, long timeBudget, TranspositionTable table) {
+		if (threads < 1) {
+			throw new GameError("The number of threads must be at least 1: " + threads);
+		}
+		if (maxDepth < 1) {
+			throw new GameError("The maximum depth must be at least 1: " + maxDepth);
+		}
+		if (timeBudget < 1) {
+			throw new GameError("The time budget must be positive: " + timeBudget);
+		}
+		this.maxDepth = maxDepth;
+		this.timeBudget = timeBudget;
+		this.table = table;
+		this.pool = new ForkJoinPool(threads);
+	}
+
+	/**
+	 * Consults the number of threads.
+	 *
+	 * <p>
+	 * Proporciona el numero de hebras.
+	 *
+	 * @return The number of threads.
+	 */
+	public int getThreads() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * Consults the time budget per move.
+	 *
+	 * <p>
+	 * Proporciona el tiempo maximo por movimiento.
+	 *
+	 * @return The time budget, in milliseconds.
+	 */
+	public long getTimeBudget() {
+		return timeBudget;
+	}
+
+	/**
+	 * Enables or disables the move ordering of the searches (see
+	 * {@link MoveOrdering}). It is enabled by default; disabling it makes it
+	 * possible to measure its gain with {@link #getStats()}.
+	 *
+	 * <p>
+	 * Activa o desactiva la ordenacion de movimientos de las busquedas (ver
+	 * {@link MoveOrdering}). Esta activada por defecto; desactivarla permite
+	 * medir su ganancia con {@link #getStats()}.
+	 *
+	 * @param ordered
+	 *            Whether the moves are ordered.
+	 *            <p>
+	 *            Si los movimientos se ordenan.
+	 */
+	public void setMoveOrdering(boolean ordered) {
+		this.ordered = ordered;
+	}
+
+	/**
+	 * Consults the statistics of all the searches so far.
+	 *
+	 * <p>
+	 * Proporciona las estadisticas de todas las busquedas hasta el momento.
+	 *
+	 * @return The statistics.
+	 */
+	public SearchStats getStats() {
+		return stats;
+	}
+
+	@Override
+	public GameMove getMove(Piece p, Board board, List<Piece> pieces, GameRules rules) {
+		return getMove(p, board, pieces, rules, System.currentTimeMillis() + timeBudget);
+	}
+
+	/**
+	 * Shuts down the threads of the algorithm, once it is no longer needed. A
+	 * search in progress is allowed to finish, but no more moves can be
+	 * requested.
+	 *
+	 * <p>
+	 * Detiene las hebras del algoritmo, cuando ya no se necesita. Se deja
+	 * terminar una busqueda en curso, pero no se pueden pedir mas
+	 * movimientos.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	@Override
+	public GameMove getMove(Piece p, Board board, List<Piece> pieces, GameRules rules, long deadline) {
+		if (pool.isShutdown()) {
+			throw new GameError("The parallel MinMax has been shut down");
+		}
+		table.newGeneration();
+		final AtomicBoolean stop = new AtomicBoolean(false);
+		int threads = pool.getParallelism();
+
+		List<AlphaBeta> searches = new ArrayList<AlphaBeta>(threads);
+		List<Future<GameMove>> results = new ArrayList<Future<GameMove>>(threads);
+		for (int i = 0; i < threads; i++) {
+			final AlphaBeta search = new AlphaBeta(p, pieces, rules, table, deadline, i, stop, ordered, stats);
+			searches.add(search);
+			results.add(pool.submit(new Callable<GameMove>() {
+				@Override
+				public GameMove call() {
+					return search.run(board, maxDepth);
+				}
+			}));
+		}
+
+		try {
+			GameMove best;
+			try {
+				best = results.get(0).get();
+			} catch (InterruptedException e) {
+				// stop all the searches, and answer with the main one
+				stop.set(true);
+				Thread.currentThread().interrupt();
+				return getUninterruptibly(results.get(0));
+			}
+
+			// when the main search ends, the helpers are no longer needed
+			int bestDepth = searches.get(0).getCompletedDepth();
+			stop.set(true);
+			for (int i = 1; i < threads; i++) {
+				GameMove m = getUninterruptibly(results.get(i));
+				if (searches.get(i).getCompletedDepth() > bestDepth) {
+					best = m;
+					bestDepth = searches.get(i).getCompletedDepth();
+				}
+			}
+			return best;
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new GameError("The parallel search failed: " + e.getCause());
+		} finally {
+			stop.set(true);
+		}
+	}
+
+	/**
+	 * Waits for the result of a search that has been told to stop, so it ends
+	 * soon. An interrupt of the calling thread while waiting is kept for
+	 * later.
+	 *
+	 * <p>
+	 * Espera el resultado de una busqueda a la que se ha pedido que pare, por
+	 * lo que termina pronto. Una interrupcion de la hebra que llama mientras
+	 * espera se conserva para despues.
+	 */
+	private static GameMove getUninterruptibly(Future<GameMove> result) throws ExecutionException {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return result.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+}
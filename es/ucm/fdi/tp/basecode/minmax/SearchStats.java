@@ -0,0 +1,155 @@
+package es.ucm.fdi.tp.basecode.minmax;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of the searches of an algorithm ({@link MinMax} or
+ * {@link ParallelMinMax}), accumulated over all its move requests: the nodes
+ * searched, the nodes cut off (a move reached beta), how many of them were
+ * cut off by the first move searched, and the source of the move that caused
+ * each cutoff (see {@link MoveOrdering}). A good move ordering cuts off most
+ * nodes with the first move. It can be updated by several threads at a time.
+ *
+ * <p>
+ * Estadisticas de las busquedas de un algoritmo ({@link MinMax} o
+ * {@link ParallelMinMax}), acumuladas sobre todas sus peticiones de
+ * movimiento: los nodos buscados, los nodos cortados (un movimiento alcanzo
+ * beta), cuantos de ellos los corto el primer movimiento buscado, y el origen
+ * del movimiento que produjo cada corte (ver {@link MoveOrdering}). Una buena
+ * ordenacion de movimientos corta la mayoria de los nodos con el primer
+ * movimiento. La pueden actualizar varias hebras a la vez.
+ */
+public class SearchStats {
+
+	private final LongAdder nodes = new LongAdder();
+	private final LongAdder cutoffs = new LongAdder();
+	private final LongAdder firstMoveCutoffs = new LongAdder();
+	private final LongAdder[] sourceCutoffs = new LongAdder[MoveOrdering.SOURCES.length];
+
+	/**
+	 * Constructs the statistics, with all the counters at zero.
+	 *
+	 * <p>
+	 * Construye las estadisticas, con todos los contadores a cero.
+	 */
+	public SearchStats() {
+		for (int i = 0; i < sourceCutoffs.length; i++) {
+			sourceCutoffs[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Adds the counters of a search.
+	 *
+	 * <p>
+	 * Suma los contadores de una busqueda.
+	 */
+	void add(long nodes, long cutoffs, long firstMoveCutoffs, long[] sourceCutoffs) {
+		this.nodes.add(nodes);
+		this.cutoffs.add(cutoffs);
+		this.firstMoveCutoffs.add(firstMoveCutoffs);
+		for (int i = 0; i < sourceCutoffs.length; i++) {
+			this.sourceCutoffs[i].add(sourceCutoffs[i]);
+		}
+	}
+
+	/**
+	 * Adds the counters of other statistics, e.g., to sum up the searches of
+	 * several instances of the same algorithm.
+	 *
+	 * <p>
+	 * Suma los contadores de otras estadisticas, por ejemplo para totalizar
+	 * las busquedas de varias instancias del mismo algoritmo.
+	 *
+	 * @param other
+	 *            The statistics to add.
+	 *            <p>
+	 *            Las estadisticas a sumar.
+	 */
+	public void add(SearchStats other) {
+		nodes.add(other.getNodes());
+		cutoffs.add(other.getCutoffs());
+		firstMoveCutoffs.add(other.getFirstMoveCutoffs());
+		for (int i = 0; i < sourceCutoffs.length; i++) {
+			sourceCutoffs[i].add(other.getCutoffs(i));
+		}
+	}
+
+	/**
+	 * Consults the number of nodes searched.
+	 *
+	 * <p>
+	 * Proporciona el numero de nodos buscados.
+	 */
+	public long getNodes() {
+		return nodes.sum();
+	}
+
+	/**
+	 * Consults the number of nodes cut off.
+	 *
+	 * <p>
+	 * Proporciona el numero de nodos cortados.
+	 */
+	public long getCutoffs() {
+		return cutoffs.sum();
+	}
+
+	/**
+	 * Consults the number of nodes cut off by the first move searched.
+	 *
+	 * <p>
+	 * Proporciona el numero de nodos cortados por el primer movimiento
+	 * buscado.
+	 */
+	public long getFirstMoveCutoffs() {
+		return firstMoveCutoffs.sum();
+	}
+
+	/**
+	 * Consults the number of nodes cut off by a move of the given source
+	 * (e.g., {@link MoveOrdering#KILLER}).
+	 *
+	 * <p>
+	 * Proporciona el numero de nodos cortados por un movimiento del origen
+	 * dado (por ejemplo, {@link MoveOrdering#KILLER}).
+	 */
+	public long getCutoffs(int source) {
+		return sourceCutoffs[source].sum();
+	}
+
+	/**
+	 * Resets all the counters.
+	 *
+	 * <p>
+	 * Pone a cero todos los contadores.
+	 */
+	public void reset() {
+		nodes.reset();
+		cutoffs.reset();
+		firstMoveCutoffs.reset();
+		for (LongAdder a : sourceCutoffs) {
+			a.reset();
+		}
+	}
+
+	@Override
+	public String toString() {
+		long c = getCutoffs();
+		StringBuilder sb = new StringBuilder();
+		sb.append(getNodes()).append(" nodes, ").append(c).append(" cutoffs (")
+				.append(percent(getFirstMoveCutoffs(), c)).append(" by the first move; by source:");
+		for (int i = 0; i < sourceCutoffs.length; i++) {
+			long s = getCutoffs(i);
+			if (s > 0) {
+				sb.append(' ').append(MoveOrdering.SOURCES[i]).append(' ').append(percent(s, c));
+			}
+		}
+		return sb.append(')').toString();
+	}
+
+	private static String percent(long n, long total) {
+		return String.format("%.1f%%", total == 0 ? 0.0 : 100.0 * n / total);
+	}
+
+}
@@ -0,0 +1,286 @@
+package es.ucm.fdi.tp.basecode.minmax;
+
+import java.util.Arrays;
+
+import es.ucm.fdi.tp.basecode.bgame.model.GameError;
+import es.ucm.fdi.tp.basecode.bgame.model.Zobrist;
+
+/**
+ * A fixed-size transposition table that stores the results of searches,
+ * indexed by the Zobrist key of the positions (see {@link Zobrist}). It can be
+ * shared by any number of searches (and threads) without locks.
+ *
+ * <p>
+ * Each entry uses two {@code long}s: the data (value, depth, bound, move and
+ * generation, packed) and the key xor the data. An entry is only accepted by
+ * {@link #probe(long)} when both words match, so an entry that is being
+ * written by another thread, or that belongs to another position, is seen as
+ * a miss. When a new result is stored, the entry is replaced only if it comes
+ * from an older generation (see {@link #newGeneration()}) or the new result
+ * comes from a search at least as deep (depth-preferred replacement).
+ *
+ * <p>
+ * Una tabla de transposiciones de tamano fijo que almacena los resultados de
+ * las busquedas, indexada por la clave de Zobrist de las posiciones (ver
+ * {@link Zobrist}). Se puede compartir entre cualquier numero de busquedas (y
+ * hebras) sin cerrojos.
+ *
+ * <p>
+ * Cada entrada usa dos {@code long}: los datos (valor, profundidad, cota,
+ * movimiento y generacion, empaquetados) y la clave xor los datos. Una entrada
+ * solo la acepta {@link #probe(long)} cuando las dos palabras coinciden, por lo
+ * que una entrada que esta escribiendo otra hebra, o que pertenece a otra
+ * posicion, se ve como un fallo. Cuando se almacena un resultado nuevo, la
+ * entrada solo se reemplaza si es de una generacion anterior (ver
+ * {@link #newGeneration()}) o si el nuevo resultado viene de una busqueda al
+ * menos igual de profunda (reemplazo por profundidad).
+ */
+public class TranspositionTable {
+
+	/**
+	 * The stored value is exact.
+	 *
+	 * <p>
+	 * El valor almacenado es exacto.
+	 */
+	public static final int EXACT = 1;
+
+	/**
+	 * The stored value is a lower bound (the search failed high).
+	 *
+	 * <p>
+	 * El valor almacenado es una cota inferior (la busqueda fallo por arriba).
+	 */
+	public static final int LOWER = 2;
+
+	/**
+	 * The stored value is an upper bound (the search failed low).
+	 *
+	 * <p>
+	 * El valor almacenado es una cota superior (la busqueda fallo por abajo).
+	 */
+	public static final int UPPER = 3;
+
+	/**
+	 * The move of an entry that has no best move.
+	 *
+	 * <p>
+	 * El movimiento de una entrada que no tiene mejor movimiento.
+	 */
+	public static final int NO_MOVE = 0xFFFF;
+
+	/**
+	 * The data of an empty entry. No stored entry has this data, since the
+	 * bound of stored entries is never 0.
+	 *
+	 * <p>
+	 * Los datos de una entrada vacia. Ninguna entrada almacenada tiene estos
+	 * datos, pues la cota de las entradas almacenadas nunca es 0.
+	 */
+	public static final long MISS = 0L;
+
+	/**
+	 * The default number of entries (16 bytes each).
+	 *
+	 * <p>
+	 * Numero de entradas por defecto (de 16 bytes cada una).
+	 */
+	public static final int DEFAULT_SIZE = 1 << 20;
+
+	// layout of the data word: value (32) | depth (8) | bound (2) |
+	// generation (6) | move (16)
+	private static final int MOVE_SHIFT = 0;
+	private static final int GEN_SHIFT = 16;
+	private static final int BOUND_SHIFT = 22;
+	private static final int DEPTH_SHIFT = 24;
+	private static final int VALUE_SHIFT = 32;
+
+	private static final int GEN_MASK = 0x3F;
+	private static final int MAX_DEPTH = 0xFF;
+
+	private final long[] keys;
+	private final long[] data;
+	private final int mask;
+	private volatile int generation;
+
+	/**
+	 * Constructs a table with {@link #DEFAULT_SIZE} entries.
+	 *
+	 * <p>
+	 * Construye una tabla con {@link #DEFAULT_SIZE} entradas.
+	 */
+	public TranspositionTable() {
+		this(DEFAULT_SIZE);
+	}
+
+	/**
+	 * Constructs a table.
+	 *
+	 * <p>
+	 * Construye una tabla.
+	 *
+	 * @param size
+	 *            Number of entries. It is rounded down to a power of two.
+	 *            <p>
+	 *            Numero de entradas. Se redondea a una potencia de dos.
+	 */
+	public TranspositionTable(int size) {
+		if (size < 1) {
+			throw new GameError("The size of the transposition table must be positive: " + size);
+		}
+		int n = Integer.highestOneBit(size);
+		keys = new long[n];
+		data = new long[n];
+		mask = n - 1;
+	}
+
+	/**
+	 * Consults the number of entries of the table.
+	 *
+	 * <p>
+	 * Proporciona el numero de entradas de la tabla.
+	 *
+	 * @return The number of entries.
+	 */
+	public int size() {
+		return data.length;
+	}
+
+	/**
+	 * Starts a new generation. It should be called at the beginning of each
+	 * search, so the entries of previous searches are replaced first.
+	 *
+	 * <p>
+	 * Empieza una nueva generacion. Se debe llamar al principio de cada
+	 * busqueda, para que las entradas de busquedas anteriores se reemplacen
+	 * antes.
+	 */
+	public void newGeneration() {
+		generation = (generation + 1) & GEN_MASK;
+	}
+
+	/**
+	 * Removes all the entries. It must not be called while the table is in
+	 * use.
+	 *
+	 * <p>
+	 * Elimina todas las entradas. No se debe llamar mientras se usa la tabla.
+	 */
+	public void clear() {
+		Arrays.fill(keys, 0L);
+		Arrays.fill(data, 0L);
+	}
+
+	/**
+	 * Looks up the entry of the position with Zobrist key {@code key}.
+	 *
+	 * <p>
+	 * Busca la entrada de la posicion con clave de Zobrist {@code key}.
+	 *
+	 * @param key
+	 *            The Zobrist key of the position.
+	 *            <p>
+	 *            La clave de Zobrist de la posicion.
+	 * @return The packed data of the entry, to be decoded with
+	 *         {@link #value(long)}, {@link #depth(long)}, {@link #bound(long)}
+	 *         and {@link #move(long)}, or {@link #MISS} if there is no entry.
+	 *         <p>
+	 *         Los datos empaquetados de la entrada, o {@link #MISS} si no hay
+	 *         entrada.
+	 */
+	public long probe(long key) {
+		int i = (int) key & mask;
+		long d = data[i];
+		if (d != MISS && (keys[i] ^ d) == key) {
+			return d;
+		}
+		return MISS;
+	}
+
+	/**
+	 * Stores the result of a search of the position with Zobrist key
+	 * {@code key}.
+	 *
+	 * <p>
+	 * Almacena el resultado de una busqueda de la posicion con clave de
+	 * Zobrist {@code key}.
+	 *
+	 * @param key
+	 *            The Zobrist key of the position.
+	 *            <p>
+	 *            La clave de Zobrist de la posicion.
+	 * @param value
+	 *            The value found.
+	 *            <p>
+	 *            El valor encontrado.
+	 * @param depth
+	 *            The depth of the search.
+	 *            <p>
+	 *            La profundidad de la busqueda.
+	 * @param bound
+	 *            {@link #EXACT}, {@link #LOWER} or {@link #UPPER}.
+	 * @param move
+	 *            Index of the best move in the list of valid moves, or
+	 *            {@link #NO_MOVE}.
+	 *            <p>
+	 *            Indice del mejor movimiento en la lista de movimientos
+	 *            validos, o {@link #NO_MOVE}.
+	 */
+	public void store(long key, double value, int depth, int bound, int move) {
+		int i = (int) key & mask;
+		long old = data[i];
+		int gen = generation;
+		if (old != MISS && ((int) (old >>> GEN_SHIFT) & GEN_MASK) == gen && depth < depth(old)
+				&& (keys[i] ^ old) != key) {
+			return;
+		}
+		long d = ((long) Float.floatToRawIntBits((float) value) << VALUE_SHIFT)
+				| ((long) Math.min(depth, MAX_DEPTH) << DEPTH_SHIFT)
+				| ((long) bound << BOUND_SHIFT)
+				| ((long) gen << GEN_SHIFT)
+				| ((long) (move & NO_MOVE) << MOVE_SHIFT);
+		keys[i] = key ^ d;
+		data[i] = d;
+	}
+
+	/**
+	 * The value of an entry returned by {@link #probe(long)}.
+	 *
+	 * <p>
+	 * El valor de una entrada devuelta por {@link #probe(long)}.
+	 */
+	public static double value(long entry) {
+		return Float.intBitsToFloat((int) (entry >>> VALUE_SHIFT));
+	}
+
+	/**
+	 * The depth of an entry returned by {@link #probe(long)}.
+	 *
+	 * <p>
+	 * La profundidad de una entrada devuelta por {@link #probe(long)}.
+	 */
+	public static int depth(long entry) {
+		return (int) (entry >>> DEPTH_SHIFT) & MAX_DEPTH;
+	}
+
+	/**
+	 * The bound of an entry returned by {@link #probe(long)}.
+	 *
+	 * <p>
+	 * La cota de una entrada devuelta por {@link #probe(long)}.
+	 */
+	public static int bound(long entry) {
+		return (int) (entry >>> BOUND_SHIFT) & 0x3;
+	}
+
+	/**
+	 * The move of an entry returned by {@link #probe(long)}.
+	 *
+	 * <p>
+	 * El movimiento de una entrada devuelta por {@link #probe(long)}.
+	 */
+	public static int move(long entry) {
+		return (int) (entry >>> MOVE_SHIFT) & NO_MOVE;
+	}
+
+}
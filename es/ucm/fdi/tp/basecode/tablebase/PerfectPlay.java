@@ -0,0 +1,140 @@
+package es.ucm.fdi.tp.basecode.tablebase;
+
+import java.util.List;
+
+import es.ucm.fdi.tp.basecode.bgame.model.AIAlgorithm;
+import es.ucm.fdi.tp.basecode.bgame.model.AnytimeAIAlgorithm;
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveList;
+import es.ucm.fdi.tp.basecode.bgame.model.Moves;
+import es.ucm.fdi.tp.basecode.bgame.model.PackedMoveRules;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * An {@link AIAlgorithm} that plays perfectly the games of a
+ * {@link Tablebase}, without searching: it looks up the position after each
+ * valid move and plays the fastest win, or the slowest loss, or else a draw.
+ * Positions that are not in the tablebase (e.g., of another game) are
+ * delegated to a fallback algorithm.
+ *
+ * <p>
+ * Un {@link AIAlgorithm} que juega perfectamente a los juegos de una
+ * {@link Tablebase}, sin buscar: consulta la posicion tras cada movimiento
+ * valido y juega la victoria mas rapida, o la derrota mas lenta, o si no unas
+ * tablas. Las posiciones que no estan en la tabla (por ejemplo, de otro
+ * juego) se delegan en un algoritmo alternativo.
+ */
+public class PerfectPlay implements AnytimeAIAlgorithm {
+
+	private final Tablebase tablebase;
+	private final AIAlgorithm fallback;
+
+	/**
+	 * Constructs a perfect player.
+	 *
+	 * <p>
+	 * Construye un jugador perfecto.
+	 *
+	 * @param tablebase
+	 *            The tablebase.
+	 *            <p>
+	 *            La tabla de finales.
+	 * @param fallback
+	 *            The algorithm for the positions out of the tablebase, or
+	 *            {@code null} to play the first valid move.
+	 *            <p>
+	 *            El algoritmo para las posiciones fuera de la tabla, o
+	 *            {@code null} para jugar el primer movimiento valido.
+	 */
+	public PerfectPlay(Tablebase tablebase, AIAlgorithm fallback) {
+		this.tablebase = tablebase;
+		this.fallback = fallback;
+	}
+
+	@Override
+	public GameMove getMove(Piece p, Board board, List<Piece> pieces, GameRules rules) {
+		GameMove move = lookup(p, board, pieces, rules);
+		if (move != null) {
+			return move;
+		}
+		return fallback != null ? fallback.getMove(p, board, pieces, rules)
+				: Moves.firstMove(rules, board, pieces, p);
+	}
+
+	@Override
+	public GameMove getMove(Piece p, Board board, List<Piece> pieces, GameRules rules, long deadline) {
+		GameMove move = lookup(p, board, pieces, rules);
+		if (move != null) {
+			return move;
+		}
+		if (fallback instanceof AnytimeAIAlgorithm) {
+			return ((AnytimeAIAlgorithm) fallback).getMove(p, board, pieces, rules, deadline);
+		}
+		return getMove(p, board, pieces, rules);
+	}
+
+	/**
+	 * Chooses the move of {@code p} with the tablebase.
+	 *
+	 * <p>
+	 * Elige el movimiento de {@code p} con la tabla de finales.
+	 *
+	 * @return The move, or {@code null} if the position is not in the
+	 *         tablebase.
+	 *         <p>
+	 *         El movimiento, o {@code null} si la posicion no esta en la
+	 *         tabla.
+	 */
+	private GameMove lookup(Piece p, Board board, List<Piece> pieces, GameRules rules) {
+		if (!(rules instanceof PackedMoveRules) || !tablebase.getGameDesc().equals(rules.gameDesc())
+				|| Tablebase.value(tablebase.probe(board, pieces, p)) == Tablebase.UNKNOWN) {
+			return null;
+		}
+		PackedMoveRules packedRules = (PackedMoveRules) rules;
+		MoveList moves = new MoveList();
+		packedRules.validMoves(board, pieces, p, moves);
+		Board b = board.copy();
+		int best = -1;
+		int bestScore = Integer.MIN_VALUE;
+		for (int i = 0; i < moves.size(); i++) {
+			int mark = b.mark();
+			packedRules.execute(b, pieces, p, moves.get(i));
+			int entry = tablebase.probe(b, pieces, rules.nextPlayer(b, pieces, p));
+			b.undo(mark);
+			int score = score(entry);
+			if (score > bestScore) {
+				best = moves.get(i);
+				bestScore = score;
+			}
+		}
+		return best != -1 && bestScore > Integer.MIN_VALUE + 1 ? packedRules.toGameMove(board, p, best) : null;
+	}
+
+	/**
+	 * Scores a move by the entry of the position it leads to, from the point
+	 * of view of the player that moves: a loss of the other player is the
+	 * best (the sooner the better), then a draw, then a win of the other
+	 * player (the later the better).
+	 *
+	 * <p>
+	 * Puntua un movimiento por la entrada de la posicion a la que lleva, desde
+	 * el punto de vista del jugador que mueve: una derrota del otro jugador es
+	 * lo mejor (cuanto antes mejor), despues unas tablas, y despues una
+	 * victoria del otro jugador (cuanto mas tarde mejor).
+	 */
+	private static int score(int entry) {
+		switch (Tablebase.value(entry)) {
+		case Tablebase.LOSS:
+			return 2 * Tablebase.NO_DISTANCE - Tablebase.distance(entry);
+		case Tablebase.DRAW:
+			return 0;
+		case Tablebase.WIN:
+			return Tablebase.distance(entry) - 2 * Tablebase.NO_DISTANCE;
+		default:
+			return Integer.MIN_VALUE + 1;
+		}
+	}
+
+}
@@ -0,0 +1,462 @@
+package es.ucm.fdi.tp.basecode.tablebase;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.GameError;
+import es.ucm.fdi.tp.basecode.bgame.model.MappedFiles;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * A tablebase: the value under perfect play of every position of a small
+ * game, computed offline by retrograde analysis (see
+ * {@link TablebaseGenerator}). The value of a position is whether the player
+ * to move wins, loses or draws, and the distance to that result, in plies.
+ *
+ * <p>
+ * Positions are indexed directly, without keys: each cell of the board is a
+ * base-3 digit (0 if it is empty, 1 or 2 for the first or second player), in
+ * row-major order, and the index is twice that number plus the index of the
+ * player to move (see {@link #index(Board, List, Piece)}). So a lookup is a
+ * single read, and a {@code dxd} board needs {@code 2*3^(d*d)} entries (e.g.,
+ * 39366 for Tic-Tac-Toe, 86 million for a 4x4 ConnectN), of one byte each.
+ *
+ * <p>
+ * The tablebase is a binary file, which is mapped in memory instead of read,
+ * so only the pages of the positions that are actually consulted are loaded.
+ * Its format is, in big-endian order:
+ * <ul>
+ * <li>the magic number {@link #MAGIC} and the version {@link #VERSION}
+ * (two {@code int}s),</li>
+ * <li>the description of the game, as written by
+ * {@link DataOutputStream#writeUTF(String)},</li>
+ * <li>the number of rows and columns of the board (two {@code int}s),
+ * and</li>
+ * <li>the entries, one byte each (see {@link #value(int)} and
+ * {@link #distance(int)}).</li>
+ * </ul>
+ *
+ * <p>
+ * Una tabla de finales: el valor con juego perfecto de cada posicion de un
+ * juego pequeno, calculado fuera de linea mediante analisis retrogrado (vease
+ * {@link TablebaseGenerator}). El valor de una posicion es si el jugador que
+ * mueve gana, pierde o empata, y la distancia hasta ese resultado, en
+ * jugadas.
+ *
+ * <p>
+ * Las posiciones se indexan directamente, sin claves: cada casilla del
+ * tablero es un digito en base 3 (0 si esta vacia, 1 o 2 para el primer o el
+ * segundo jugador), por filas, y el indice es el doble de ese numero mas el
+ * indice del jugador que mueve (vease {@link #index(Board, List, Piece)}).
+ * Asi, una consulta es una sola lectura, y un tablero {@code dxd} necesita
+ * {@code 2*3^(d*d)} entradas (por ejemplo, 39366 para Tic-Tac-Toe, 86
+ * millones para un ConnectN 4x4), de un byte cada una.
+ *
+ * <p>
+ * La tabla es un fichero binario que se proyecta en memoria en lugar de
+ * leerse, por lo que solo se cargan las paginas de las posiciones que
+ * realmente se consultan. Su formato es, en orden big-endian:
+ * <ul>
+ * <li>el numero magico {@link #MAGIC} y la version {@link #VERSION} (dos
+ * {@code int}),</li>
+ * <li>la descripcion del juego, como la escribe
+ * {@link DataOutputStream#writeUTF(String)},</li>
+ * <li>el numero de filas y de columnas del tablero (dos {@code int}), y</li>
+ * <li>las entradas, de un byte cada una (vease {@link #value(int)} y
+ * {@link #distance(int)}).</li>
+ * </ul>
+ */
+public class Tablebase {
+
+	/**
+	 * The magic number at the start of a tablebase file ("TPTB").
+	 *
+	 * <p>
+	 * El numero magico al comienzo de un fichero de tabla ("TPTB").
+	 */
+	public static final int MAGIC = 0x54505442;
+
+	/**
+	 * The version of the format of the tablebase files.
+	 *
+	 * <p>
+	 * La version del formato de los ficheros de tabla.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * The value of a position that is not reachable from the initial board.
+	 *
+	 * <p>
+	 * El valor de una posicion que no es alcanzable desde el tablero inicial.
+	 */
+	public static final int UNKNOWN = 0;
+
+	/**
+	 * The value of a position won by the player to move.
+	 *
+	 * <p>
+	 * El valor de una posicion ganada por el jugador que mueve.
+	 */
+	public static final int WIN = 1;
+
+	/**
+	 * The value of a position lost by the player to move (e.g., because the
+	 * other player has just won).
+	 *
+	 * <p>
+	 * El valor de una posicion perdida por el jugador que mueve (por ejemplo,
+	 * porque el otro jugador acaba de ganar).
+	 */
+	public static final int LOSS = 2;
+
+	/**
+	 * The value of a drawn position.
+	 *
+	 * <p>
+	 * El valor de una posicion en tablas.
+	 */
+	public static final int DRAW = 3;
+
+	/**
+	 * The largest distance that an entry can hold.
+	 *
+	 * <p>
+	 * La mayor distancia que puede guardar una entrada.
+	 */
+	public static final int MAX_DISTANCE = 62;
+
+	/**
+	 * The distance of a draw that is never reached, because under perfect
+	 * play the game goes on forever (e.g., in Advanced Tic-Tac-Toe).
+	 *
+	 * <p>
+	 * La distancia de unas tablas a las que nunca se llega, porque con juego
+	 * perfecto la partida no termina (por ejemplo, en Tic-Tac-Toe avanzado).
+	 */
+	public static final int NO_DISTANCE = 63;
+
+	private final ByteBuffer buffer;
+	private final String gameDesc;
+	private final int rows;
+	private final int cols;
+	private final int first;
+	private final int entries;
+
+	private Tablebase(ByteBuffer buffer) {
+		this.buffer = buffer;
+		MappedFiles.checkHeader(buffer, 10, MAGIC, VERSION, "a tablebase");
+		this.gameDesc = MappedFiles.getDescription(buffer);
+		int desc = MappedFiles.afterDescription(buffer);
+		this.rows = buffer.getInt(desc);
+		this.cols = buffer.getInt(desc + 4);
+		this.first = desc + 8;
+		long size = size(rows, cols);
+		if (size < 0 || buffer.limit() < first + size) {
+			throw new GameError("The tablebase is truncated");
+		}
+		this.entries = (int) size;
+	}
+
+	/**
+	 * Computes the number of entries of a tablebase for a board.
+	 *
+	 * <p>
+	 * Calcula el numero de entradas de una tabla para un tablero.
+	 *
+	 * @return The number of entries, or -1 if the board is too large to have a
+	 *         tablebase.
+	 *         <p>
+	 *         El numero de entradas, o -1 si el tablero es demasiado grande
+	 *         para tener tabla.
+	 */
+	static long size(int rows, int cols) {
+		if (rows < 1 || cols < 1) {
+			return -1;
+		}
+		long size = 2;
+		for (int i = 0; i < rows * cols; i++) {
+			size *= 3;
+			if (size > Integer.MAX_VALUE - 1024) {
+				return -1;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Opens a tablebase file, mapping it in memory.
+	 *
+	 * <p>
+	 * Abre un fichero de tabla, proyectandolo en memoria.
+	 *
+	 * @param file
+	 *            The tablebase file.
+	 *            <p>
+	 *            El fichero de la tabla.
+	 * @return The tablebase.
+	 *         <p>
+	 *         La tabla.
+	 * @throws IOException
+	 *             If the file cannot be read.
+	 *             <p>
+	 *             Si no se puede leer el fichero.
+	 */
+	public static Tablebase open(Path file) throws IOException {
+		return new Tablebase(MappedFiles.map(file));
+	}
+
+	/**
+	 * Writes a tablebase file.
+	 *
+	 * <p>
+	 * Escribe un fichero de tabla.
+	 *
+	 * @param file
+	 *            The tablebase file.
+	 *            <p>
+	 *            El fichero de la tabla.
+	 * @param gameDesc
+	 *            The description of the game.
+	 *            <p>
+	 *            La descripcion del juego.
+	 * @param rows
+	 *            The number of rows of the board.
+	 *            <p>
+	 *            El numero de filas del tablero.
+	 * @param cols
+	 *            The number of columns of the board.
+	 *            <p>
+	 *            El numero de columnas del tablero.
+	 * @param entries
+	 *            The entries, by index.
+	 *            <p>
+	 *            Las entradas, por indice.
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 *             <p>
+	 *             Si no se puede escribir el fichero.
+	 */
+	public static void write(Path file, String gameDesc, int rows, int cols, byte[] entries) throws IOException {
+		if (entries.length != size(rows, cols)) {
+			throw new GameError("A " + rows + "x" + cols + " tablebase cannot have " + entries.length + " entries");
+		}
+		try (OutputStream os = Files.newOutputStream(file)) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+			MappedFiles.writeHeader(out, MAGIC, VERSION, gameDesc);
+			out.writeInt(rows);
+			out.writeInt(cols);
+			out.write(entries);
+			out.flush();
+		}
+	}
+
+	/**
+	 * Consults the description of the game of this tablebase.
+	 *
+	 * <p>
+	 * Proporciona la descripcion del juego de esta tabla.
+	 *
+	 * @return The description of the game.
+	 */
+	public String getGameDesc() {
+		return gameDesc;
+	}
+
+	/**
+	 * Consults the number of entries (reachable or not) of this tablebase.
+	 *
+	 * <p>
+	 * Proporciona el numero de entradas (alcanzables o no) de esta tabla.
+	 *
+	 * @return The number of entries.
+	 */
+	public int size() {
+		return entries;
+	}
+
+	/**
+	 * Computes the index of a position.
+	 *
+	 * <p>
+	 * Calcula el indice de una posicion.
+	 *
+	 * @param board
+	 *            A board.
+	 *            <p>
+	 *            Un tablero.
+	 * @param pieces
+	 *            The pieces of the two players.
+	 *            <p>
+	 *            Las fichas de los dos jugadores.
+	 * @param turn
+	 *            The player to move.
+	 *            <p>
+	 *            El jugador que mueve.
+	 * @return The index, or -1 if the position cannot be in this tablebase
+	 *         (because the board has another size, or other pieces).
+	 *         <p>
+	 *         El indice, o -1 si la posicion no puede estar en esta tabla
+	 *         (porque el tablero tiene otro tamano, u otras fichas).
+	 */
+	public int index(Board board, List<Piece> pieces, Piece turn) {
+		if (board.getRows() != rows || board.getCols() != cols) {
+			return -1;
+		}
+		return indexOf(board, pieces, turn);
+	}
+
+	/**
+	 * Computes the index of a position on a board of the right size.
+	 *
+	 * <p>
+	 * Calcula el indice de una posicion en un tablero del tamano correcto.
+	 */
+	static int indexOf(Board board, List<Piece> pieces, Piece turn) {
+		if (pieces.size() != 2) {
+			return -1;
+		}
+		Piece p0 = pieces.get(0);
+		Piece p1 = pieces.get(1);
+		int t = turn.equals(p0) ? 0 : turn.equals(p1) ? 1 : -1;
+		if (t < 0) {
+			return -1;
+		}
+		int cells = 0;
+		for (int i = 0; i < board.getRows(); i++) {
+			for (int j = 0; j < board.getCols(); j++) {
+				Piece p = board.getPosition(i, j);
+				int d;
+				if (p == null) {
+					d = 0;
+				} else if (p.equals(p0)) {
+					d = 1;
+				} else if (p.equals(p1)) {
+					d = 2;
+				} else {
+					return -1;
+				}
+				cells = cells * 3 + d;
+			}
+		}
+		return cells * 2 + t;
+	}
+
+	/**
+	 * Reads an entry.
+	 *
+	 * <p>
+	 * Lee una entrada.
+	 *
+	 * @param index
+	 *            The index of a position (see
+	 *            {@link #index(Board, List, Piece)}).
+	 *            <p>
+	 *            El indice de una posicion (vease
+	 *            {@link #index(Board, List, Piece)}).
+	 * @return The entry, or 0 (an {@link #UNKNOWN} value) if the index is
+	 *         -1.
+	 *         <p>
+	 *         La entrada, o 0 (un valor {@link #UNKNOWN}) si el indice es -1.
+	 */
+	public int probe(int index) {
+		if (index < 0 || index >= entries) {
+			return 0;
+		}
+		return buffer.get(first + index) & 0xFF;
+	}
+
+	/**
+	 * Reads the entry of a position.
+	 *
+	 * <p>
+	 * Lee la entrada de una posicion.
+	 *
+	 * @param board
+	 *            A board.
+	 *            <p>
+	 *            Un tablero.
+	 * @param pieces
+	 *            The pieces of the two players.
+	 *            <p>
+	 *            Las fichas de los dos jugadores.
+	 * @param turn
+	 *            The player to move.
+	 *            <p>
+	 *            El jugador que mueve.
+	 * @return The entry.
+	 *         <p>
+	 *         La entrada.
+	 */
+	public int probe(Board board, List<Piece> pieces, Piece turn) {
+		return probe(index(board, pieces, turn));
+	}
+
+	/**
+	 * Builds an entry.
+	 *
+	 * <p>
+	 * Construye una entrada.
+	 *
+	 * @param value
+	 *            {@link #WIN}, {@link #LOSS}, {@link #DRAW} or
+	 *            {@link #UNKNOWN}.
+	 * @param distance
+	 *            The distance to the result, from 0 to {@link #NO_DISTANCE}.
+	 *            <p>
+	 *            La distancia al resultado, de 0 a {@link #NO_DISTANCE}.
+	 * @return The entry.
+	 *         <p>
+	 *         La entrada.
+	 */
+	public static byte entry(int value, int distance) {
+		return (byte) (value << 6 | distance);
+	}
+
+	/**
+	 * Extracts the value of an entry.
+	 *
+	 * <p>
+	 * Extrae el valor de una entrada.
+	 *
+	 * @param entry
+	 *            An entry.
+	 *            <p>
+	 *            Una entrada.
+	 * @return {@link #WIN}, {@link #LOSS}, {@link #DRAW} or
+	 *         {@link #UNKNOWN}.
+	 */
+	public static int value(int entry) {
+		return (entry & 0xFF) >>> 6;
+	}
+
+	/**
+	 * Extracts the distance of an entry: the number of plies until the end
+	 * of the game, if both players play perfectly (the winner as fast as it
+	 * can, the loser as slowly as it can).
+	 *
+	 * <p>
+	 * Extrae la distancia de una entrada: el numero de jugadas hasta el final
+	 * de la partida, si los dos jugadores juegan perfectamente (el ganador lo
+	 * mas rapido que puede, el perdedor lo mas lento que puede).
+	 *
+	 * @param entry
+	 *            An entry.
+	 *            <p>
+	 *            Una entrada.
+	 * @return The distance, or {@link #NO_DISTANCE}.
+	 *         <p>
+	 *         La distancia, o {@link #NO_DISTANCE}.
+	 */
+	public static int distance(int entry) {
+		return entry & 0x3F;
+	}
+
+}
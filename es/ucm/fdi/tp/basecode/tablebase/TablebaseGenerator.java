@@ -0,0 +1,740 @@
+package es.ucm.fdi.tp.basecode.tablebase;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
+import es.ucm.fdi.tp.basecode.bgame.model.GameError;
+import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveList;
+import es.ucm.fdi.tp.basecode.bgame.model.PackedMoveRules;
+import es.ucm.fdi.tp.basecode.bgame.model.Pair;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * Generates the {@link Tablebase} of a small two-player game (e.g.,
+ * Tic-Tac-Toe, Advanced Tic-Tac-Toe or a 4x4 ConnectN) by retrograde
+ * analysis, in three parallel phases:
+ * <ol>
+ * <li>The positions reachable from the initial board are enumerated ply by
+ * ply, and the ones where the game is over get their value (at distance
+ * 0). The moves of the other positions are recorded.</li>
+ * <li>The recorded moves are counted for each position, and each one is
+ * added to the list of predecessors of the position it leads to.</li>
+ * <li>The values are propagated backwards from the final positions, one
+ * distance at a time: when a position is solved at distance {@code k}, each
+ * of its predecessors is won in {@code k + 1} plies if the position is lost
+ * for its player, and otherwise its count of unsolved moves is decreased;
+ * when the count reaches 0, the predecessor is lost (or drawn, if one of its
+ * moves leads to a draw) in {@code k + 1} plies. So each move is looked at
+ * once, and the positions of a distance can be processed in any order and by
+ * several threads (the counts are updated atomically). The positions that
+ * are never solved are drawn, because the game can go on forever (which
+ * happens in Advanced Tic-Tac-Toe).</li>
+ * </ol>
+ * The rules must implement {@link PackedMoveRules}, and the state of a
+ * position must be given by its cells and the player to move (the number of
+ * pieces left to place, if any, is computed from the cells).
+ *
+ * <p>
+ * Genera la {@link Tablebase} de un juego pequeno de dos jugadores (por
+ * ejemplo, Tic-Tac-Toe, Tic-Tac-Toe avanzado o un ConnectN 4x4) mediante
+ * analisis retrogrado, en tres fases paralelas:
+ * <ol>
+ * <li>Se enumeran, jugada a jugada, las posiciones alcanzables desde el
+ * tablero inicial, y las que terminan la partida reciben su valor (a
+ * distancia 0). Se anotan los movimientos de las demas posiciones.</li>
+ * <li>Se cuentan los movimientos anotados de cada posicion, y cada uno se
+ * anade a la lista de predecesoras de la posicion a la que lleva.</li>
+ * <li>Los valores se propagan hacia atras desde las posiciones finales, una
+ * distancia cada vez: cuando una posicion se resuelve a distancia {@code k},
+ * cada una de sus predecesoras esta ganada en {@code k + 1} jugadas si la
+ * posicion esta perdida para su jugador, y si no se decrementa su cuenta de
+ * movimientos sin resolver; cuando la cuenta llega a 0, la predecesora esta
+ * perdida (o en tablas, si uno de sus movimientos lleva a tablas) en
+ * {@code k + 1} jugadas. Asi cada movimiento se mira una vez, y las
+ * posiciones de una distancia se pueden procesar en cualquier orden y por
+ * varias hebras (las cuentas se actualizan atomicamente). Las posiciones
+ * que no se resuelven nunca estan en tablas, porque la partida puede no
+ * terminar nunca (lo que ocurre en Tic-Tac-Toe avanzado).</li>
+ * </ol>
+ * Las reglas deben implementar {@link PackedMoveRules}, y el estado de una
+ * posicion lo deben dar sus casillas y el jugador que mueve (el numero de
+ * fichas que quedan por colocar, si lo hay, se calcula a partir de las
+ * casillas).
+ */
+public class TablebaseGenerator {
+
+	/**
+	 * A growable array of indexes.
+	 *
+	 * <p>
+	 * Un array de indices que crece.
+	 */
+	private static class IndexList {
+		private int[] indexes = new int[1024];
+		private int size;
+
+		private void add(int index) {
+			if (size == indexes.length) {
+				indexes = Arrays.copyOf(indexes, size * 2);
+			}
+			indexes[size++] = index;
+		}
+	}
+
+	/**
+	 * The state in {@link #unsolved} of a solved position.
+	 *
+	 * <p>
+	 * El estado en {@link #unsolved} de una posicion resuelta.
+	 */
+	private static final int SOLVED = -1;
+
+	/**
+	 * The flag in {@link #unsolved} of a position with a move to a draw.
+	 *
+	 * <p>
+	 * La marca en {@link #unsolved} de una posicion con un movimiento que
+	 * lleva a tablas.
+	 */
+	private static final int DRAWN = 1 << 30;
+
+	/**
+	 * The board, moves and helpers of a thread.
+	 *
+	 * <p>
+	 * El tablero, movimientos y auxiliares de una hebra.
+	 */
+	private class Worker {
+		private final Board board = rules.createBoard(pieces);
+		private final MoveList moves = new MoveList();
+		private final int[] placed = new int[2];
+
+		/**
+		 * Sets the board to the position of {@code index} and returns the
+		 * player to move.
+		 *
+		 * <p>
+		 * Pone el tablero en la posicion de {@code index} y devuelve el
+		 * jugador que mueve.
+		 */
+		private Piece decode(int index) {
+			Piece turn = pieces.get(index & 1);
+			int cells = index >>> 1;
+			placed[0] = 0;
+			placed[1] = 0;
+			for (int k = rows * cols - 1; k >= 0; k--) {
+				int d = cells % 3;
+				cells /= 3;
+				board.setPosition(k / cols, k % cols, d == 0 ? null : pieces.get(d - 1));
+				if (d > 0) {
+					placed[d - 1]++;
+				}
+			}
+			for (int p = 0; p < 2; p++) {
+				if (inHand[p] != null) {
+					board.setPieceCount(pieces.get(p), inHand[p] - placed[p]);
+				}
+			}
+			return turn;
+		}
+	}
+
+	private final GameRules rules;
+	private final PackedMoveRules packedRules;
+	private final List<Piece> pieces;
+	private final int threads;
+	private final int rows;
+	private final int cols;
+
+	/**
+	 * The number of pieces that each player has to place at the start of the
+	 * game, or {@code null} if the board does not count them.
+	 *
+	 * <p>
+	 * Numero de fichas que cada jugador tiene que colocar al comienzo de la
+	 * partida, o {@code null} si el tablero no las cuenta.
+	 */
+	private final Integer[] inHand;
+
+	/**
+	 * The entries of the tablebase.
+	 *
+	 * <p>
+	 * Las entradas de la tabla.
+	 */
+	private byte[] table;
+
+	/**
+	 * The positions reachable from the initial board where the game is not
+	 * over.
+	 *
+	 * <p>
+	 * Las posiciones alcanzables desde el tablero inicial en las que la
+	 * partida no ha terminado.
+	 */
+	private int[] pending;
+
+	private int reachable;
+
+	/**
+	 * The moves of the positions of {@link #pending}, recorded by
+	 * {@link #enumerate(ExecutorService)}: each list holds, for some of the
+	 * positions, the position, its number of moves and the positions they
+	 * lead to.
+	 *
+	 * <p>
+	 * Los movimientos de las posiciones de {@link #pending}, anotados por
+	 * {@link #enumerate(ExecutorService)}: cada lista contiene, para algunas
+	 * de las posiciones, la posicion, su numero de movimientos y las
+	 * posiciones a las que llevan.
+	 */
+	private List<IndexList> moves;
+
+	/**
+	 * The reachable positions, a bit for each index of {@link #table}.
+	 *
+	 * <p>
+	 * Las posiciones alcanzables, un bit por cada indice de {@link #table}.
+	 */
+	private long[] seen;
+
+	/**
+	 * The number of reachable positions before each word of {@link #seen}.
+	 * With it, the reachable positions are numbered from 0 (see
+	 * {@link #rank(int)}).
+	 *
+	 * <p>
+	 * El numero de posiciones alcanzables antes de cada palabra de
+	 * {@link #seen}. Con el, las posiciones alcanzables se numeran desde 0
+	 * (ver {@link #rank(int)}).
+	 */
+	private int[] ranks;
+
+	/**
+	 * The number of moves of each reachable position (by rank) that are not
+	 * solved yet, with the flag {@link #DRAWN}, or {@link #SOLVED}.
+	 *
+	 * <p>
+	 * El numero de movimientos de cada posicion alcanzable (por rango) que
+	 * aun no estan resueltos, con la marca {@link #DRAWN}, o
+	 * {@link #SOLVED}.
+	 */
+	private AtomicIntegerArray unsolved;
+
+	/**
+	 * Where the predecessors of each reachable position (by rank) start in
+	 * {@link #predecessors}; they end where those of the next one start.
+	 *
+	 * <p>
+	 * Donde empiezan las predecesoras de cada posicion alcanzable (por rango)
+	 * en {@link #predecessors}; acaban donde empiezan las de la siguiente.
+	 */
+	private int[] firstPredecessor;
+
+	/**
+	 * The predecessors of the reachable positions, one for each move.
+	 *
+	 * <p>
+	 * Las predecesoras de las posiciones alcanzables, una por cada
+	 * movimiento.
+	 */
+	private int[] predecessors;
+
+	/**
+	 * Constructs a tablebase generator.
+	 *
+	 * <p>
+	 * Construye un generador de tablas de finales.
+	 *
+	 * @param rules
+	 *            The rules of the game. They must implement
+	 *            {@link PackedMoveRules}.
+	 *            <p>
+	 *            Las reglas del juego. Deben implementar
+	 *            {@link PackedMoveRules}.
+	 * @param pieces
+	 *            The pieces of the two players.
+	 *            <p>
+	 *            Las fichas de los dos jugadores.
+	 * @param threads
+	 *            The number of threads.
+	 *            <p>
+	 *            El numero de hebras.
+	 */
+	public TablebaseGenerator(GameRules rules, List<Piece> pieces, int threads) {
+		if (!(rules instanceof PackedMoveRules)) {
+			throw new GameError("The game '" + rules.gameDesc() + "' does not support tablebases");
+		}
+		if (pieces.size() != 2) {
+			throw new GameError("Tablebases are only supported for two players");
+		}
+		if (threads < 1) {
+			throw new GameError("The number of threads must be at least 1: " + threads);
+		}
+		this.rules = rules;
+		this.packedRules = (PackedMoveRules) rules;
+		this.pieces = new ArrayList<Piece>(pieces);
+		this.threads = threads;
+		Board initial = rules.createBoard(this.pieces);
+		this.rows = initial.getRows();
+		this.cols = initial.getCols();
+		if (Tablebase.size(rows, cols) < 0) {
+			throw new GameError("The board of '" + rules.gameDesc() + "' is too large for a tablebase");
+		}
+		this.inHand = new Integer[] { initial.getPieceCount(this.pieces.get(0)),
+				initial.getPieceCount(this.pieces.get(1)) };
+	}
+
+	/**
+	 * Solves every position reachable from the initial board.
+	 *
+	 * <p>
+	 * Resuelve cada posicion alcanzable desde el tablero inicial.
+	 *
+	 * @return The number of reachable positions.
+	 *         <p>
+	 *         El numero de posiciones alcanzables.
+	 */
+	public int generate() {
+		table = new byte[(int) Tablebase.size(rows, cols)];
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			enumerate(pool);
+			int[] level = finals();
+			int[] stuck = link(pool);
+			for (int k = 1; level.length > 0; k++) {
+				level = propagate(pool, level, k);
+				if (k == 1) {
+					// the positions without moves are drawn in 1 ply
+					level = concat(level, stuck);
+				}
+			}
+			// what is left can be played forever
+			for (int index : pending) {
+				if (table[index] == 0) {
+					table[index] = Tablebase.entry(Tablebase.DRAW, Tablebase.NO_DISTANCE);
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+			moves = null;
+			seen = null;
+			ranks = null;
+			unsolved = null;
+			firstPredecessor = null;
+			predecessors = null;
+		}
+		return reachable;
+	}
+
+	/**
+	 * The first phase: enumerates the reachable positions, marks the final
+	 * ones in {@link #table}, keeps the others in {@link #pending} and
+	 * records their moves in {@link #moves}.
+	 *
+	 * <p>
+	 * La primera fase: enumera las posiciones alcanzables, marca las finales
+	 * en {@link #table}, guarda las demas en {@link #pending} y anota sus
+	 * movimientos en {@link #moves}.
+	 */
+	private void enumerate(ExecutorService pool) {
+		final AtomicLongArray seen = new AtomicLongArray((table.length + 63) / 64);
+		Board initial = rules.createBoard(pieces);
+		int start = Tablebase.indexOf(initial, pieces, rules.initialPlayer(initial, pieces));
+		seen.set(start >>> 6, 1L << start);
+
+		IndexList all = new IndexList();
+		final List<IndexList> moves = Collections.synchronizedList(new ArrayList<IndexList>());
+		int[] level = new int[] { start };
+		while (level.length > 0) {
+			for (int index : level) {
+				all.add(index);
+			}
+			final int[] current = level;
+			level = run(pool, current.length, 1024, new Task() {
+				@Override
+				public IndexList run(Worker w, int from, int to) {
+					IndexList next = new IndexList();
+					IndexList links = new IndexList();
+					for (int i = from; i < to; i++) {
+						Piece turn = w.decode(current[i]);
+						w.moves.clear();
+						packedRules.validMoves(w.board, pieces, turn, w.moves);
+						links.add(current[i]);
+						links.add(w.moves.size());
+						for (int m = 0; m < w.moves.size(); m++) {
+							int mark = w.board.mark();
+							packedRules.execute(w.board, pieces, turn, w.moves.get(m));
+							Piece nextTurn = rules.nextPlayer(w.board, pieces, turn);
+							int child = Tablebase.indexOf(w.board, pieces, nextTurn);
+							links.add(child);
+							if (claim(seen, child)) {
+								Pair<State, Piece> state = rules.updateState(w.board, pieces, turn);
+								if (state.getFirst() == State.InPlay) {
+									next.add(child);
+								} else {
+									table[child] = Tablebase.entry(state.getFirst() == State.Draw ? Tablebase.DRAW
+											: nextTurn.equals(state.getSecond()) ? Tablebase.WIN : Tablebase.LOSS, 0);
+								}
+							}
+							w.board.undo(mark);
+						}
+					}
+					moves.add(links);
+					return next;
+				}
+			});
+		}
+		this.moves = moves;
+		pending = Arrays.copyOf(all.indexes, all.size);
+		this.seen = new long[seen.length()];
+		ranks = new int[seen.length()];
+		reachable = 0;
+		for (int i = 0; i < seen.length(); i++) {
+			this.seen[i] = seen.get(i);
+			ranks[i] = reachable;
+			reachable += Long.bitCount(this.seen[i]);
+		}
+	}
+
+	/**
+	 * The number of a reachable position, from 0 to {@link #reachable} - 1.
+	 *
+	 * <p>
+	 * El numero de una posicion alcanzable, de 0 a {@link #reachable} - 1.
+	 */
+	private int rank(int index) {
+		return ranks[index >>> 6] + Long.bitCount(seen[index >>> 6] & ((1L << index) - 1));
+	}
+
+	/**
+	 * The reachable positions where the game is over, solved by
+	 * {@link #enumerate(ExecutorService)}.
+	 *
+	 * <p>
+	 * Las posiciones alcanzables en las que la partida ha terminado,
+	 * resueltas por {@link #enumerate(ExecutorService)}.
+	 */
+	private int[] finals() {
+		IndexList finals = new IndexList();
+		for (int word = 0; word < seen.length; word++) {
+			for (long bits = seen[word]; bits != 0; bits &= bits - 1) {
+				int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+				if (table[index] != 0) {
+					finals.add(index);
+				}
+			}
+		}
+		return Arrays.copyOf(finals.indexes, finals.size);
+	}
+
+	/**
+	 * The second phase: counts the moves of the positions of {@link #moves}
+	 * in {@link #unsolved}, and adds them to {@link #predecessors}. The
+	 * positions without moves are solved as drawn in 1 ply.
+	 *
+	 * <p>
+	 * La segunda fase: cuenta los movimientos de las posiciones de
+	 * {@link #moves} en {@link #unsolved}, y los anade a
+	 * {@link #predecessors}. Las posiciones sin movimientos se resuelven en
+	 * tablas en 1 jugada.
+	 *
+	 * @return The positions without moves.
+	 */
+	private int[] link(ExecutorService pool) {
+		final IndexList[] parts = moves.toArray(new IndexList[moves.size()]);
+		moves = null;
+		unsolved = new AtomicIntegerArray(reachable);
+		// the predecessors of each position are counted first, and then
+		// written backwards from the end of their part of the array
+		final AtomicIntegerArray left = new AtomicIntegerArray(reachable);
+		int[] stuck = run(pool, parts.length, 1, new Task() {
+			@Override
+			public IndexList run(Worker w, int from, int to) {
+				IndexList stuck = new IndexList();
+				for (int part = from; part < to; part++) {
+					int[] links = parts[part].indexes;
+					for (int i = 0; i < parts[part].size; i += 2 + links[i + 1]) {
+						int index = links[i];
+						if (links[i + 1] == 0) {
+							unsolved.set(rank(index), SOLVED);
+							table[index] = Tablebase.entry(Tablebase.DRAW, 1);
+							stuck.add(index);
+						} else {
+							unsolved.set(rank(index), links[i + 1]);
+						}
+						for (int m = 0; m < links[i + 1]; m++) {
+							left.incrementAndGet(rank(links[i + 2 + m]));
+						}
+					}
+				}
+				return stuck;
+			}
+		});
+		firstPredecessor = new int[reachable + 1];
+		long total = 0;
+		for (int r = 0; r < reachable; r++) {
+			firstPredecessor[r] = (int) total;
+			total += left.get(r);
+		}
+		if (total > Integer.MAX_VALUE - 8) {
+			throw new GameError("The game '" + rules.gameDesc() + "' has too many moves for a tablebase");
+		}
+		firstPredecessor[reachable] = (int) total;
+		predecessors = new int[(int) total];
+		run(pool, parts.length, 1, new Task() {
+			@Override
+			public IndexList run(Worker w, int from, int to) {
+				for (int part = from; part < to; part++) {
+					int[] links = parts[part].indexes;
+					for (int i = 0; i < parts[part].size; i += 2 + links[i + 1]) {
+						for (int m = 0; m < links[i + 1]; m++) {
+							int r = rank(links[i + 2 + m]);
+							predecessors[firstPredecessor[r] + left.decrementAndGet(r)] = links[i];
+						}
+					}
+					parts[part] = null;
+				}
+				return new IndexList();
+			}
+		});
+		return stuck;
+	}
+
+	/**
+	 * Marks {@code index} as reached.
+	 *
+	 * <p>
+	 * Marca {@code index} como alcanzada.
+	 *
+	 * @return {@code true} if it was not reached before.
+	 */
+	private boolean claim(AtomicLongArray seen, int index) {
+		int word = index >>> 6;
+		long bit = 1L << index;
+		while (true) {
+			long old = seen.get(word);
+			if ((old & bit) != 0) {
+				return false;
+			}
+			if (seen.compareAndSet(word, old, old | bit)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * A step of the third phase: propagates the values of the positions
+	 * solved at distance {@code k - 1} to their predecessors.
+	 *
+	 * <p>
+	 * Un paso de la tercera fase: propaga los valores de las posiciones
+	 * resueltas a distancia {@code k - 1} a sus predecesoras.
+	 *
+	 * @return The positions solved at distance {@code k}.
+	 *         <p>
+	 *         Las posiciones resueltas a distancia {@code k}.
+	 */
+	private int[] propagate(ExecutorService pool, final int[] level, final int k) {
+		if (k > Tablebase.MAX_DISTANCE) {
+			throw new GameError("The game '" + rules.gameDesc() + "' is too long for a tablebase");
+		}
+		return run(pool, level.length, 1024, new Task() {
+			@Override
+			public IndexList run(Worker w, int from, int to) {
+				IndexList solved = new IndexList();
+				for (int i = from; i < to; i++) {
+					int value = Tablebase.value(table[level[i]]);
+					int r = rank(level[i]);
+					for (int p = firstPredecessor[r]; p < firstPredecessor[r + 1]; p++) {
+						byte entry = value == Tablebase.LOSS ? win(predecessors[p], k)
+								: decrease(predecessors[p], value == Tablebase.DRAW, k);
+						if (entry != 0) {
+							table[predecessors[p]] = entry;
+							solved.add(predecessors[p]);
+						}
+					}
+				}
+				return solved;
+			}
+		});
+	}
+
+	/**
+	 * Solves a position with a move to a position lost for the other player,
+	 * unless it is already solved.
+	 *
+	 * <p>
+	 * Resuelve una posicion con un movimiento a una posicion perdida para el
+	 * otro jugador, salvo que ya este resuelta.
+	 *
+	 * @return The entry, or 0 if the position was already solved.
+	 */
+	private byte win(int index, int k) {
+		int r = rank(index);
+		while (true) {
+			int old = unsolved.get(r);
+			if (old == SOLVED) {
+				return 0;
+			}
+			if (unsolved.compareAndSet(r, old, SOLVED)) {
+				return Tablebase.entry(Tablebase.WIN, k);
+			}
+		}
+	}
+
+	/**
+	 * Counts a move of a position to a position won (or drawn) for the other
+	 * player. When all its moves are counted, the position is solved.
+	 *
+	 * <p>
+	 * Cuenta un movimiento de una posicion a una posicion ganada (o en tablas)
+	 * para el otro jugador. Cuando se han contado todos sus movimientos, la
+	 * posicion queda resuelta.
+	 *
+	 * @return The entry, or 0 if the position was already solved or has moves
+	 *         left.
+	 */
+	private byte decrease(int index, boolean draw, int k) {
+		int r = rank(index);
+		while (true) {
+			int old = unsolved.get(r);
+			if (old == SOLVED) {
+				return 0;
+			}
+			int now = (old - 1) | (draw ? DRAWN : 0);
+			if ((now & ~DRAWN) == 0) {
+				if (unsolved.compareAndSet(r, old, SOLVED)) {
+					return Tablebase.entry((now & DRAWN) != 0 ? Tablebase.DRAW : Tablebase.LOSS, k);
+				}
+			} else if (unsolved.compareAndSet(r, old, now)) {
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * Joins two arrays of indexes.
+	 *
+	 * <p>
+	 * Une dos arrays de indices.
+	 */
+	private static int[] concat(int[] a, int[] b) {
+		int[] joined = Arrays.copyOf(a, a.length + b.length);
+		System.arraycopy(b, 0, joined, a.length, b.length);
+		return joined;
+	}
+
+	/**
+	 * A part of the work of a phase.
+	 *
+	 * <p>
+	 * Una parte del trabajo de una fase.
+	 */
+	private interface Task {
+		IndexList run(Worker w, int from, int to);
+	}
+
+	/**
+	 * Runs a task over {@code n} items, split in parts of at least
+	 * {@code grain} items among the threads, and joins the indexes that the
+	 * parts return.
+	 *
+	 * <p>
+	 * Ejecuta una tarea sobre {@code n} elementos, repartidos entre las
+	 * hebras en partes de al menos {@code grain} elementos, y une los indices
+	 * que devuelven las partes.
+	 */
+	private int[] run(ExecutorService pool, int n, int grain, final Task task) {
+		int parts = Math.max(1, Math.min(threads * 8, n / grain));
+		List<Future<IndexList>> results = new ArrayList<Future<IndexList>>();
+		for (int p = 0; p < parts; p++) {
+			final int from = (int) ((long) n * p / parts);
+			final int to = (int) ((long) n * (p + 1) / parts);
+			results.add(pool.submit(new Callable<IndexList>() {
+				@Override
+				public IndexList call() {
+					return task.run(new Worker(), from, to);
+				}
+			}));
+		}
+		IndexList joined = new IndexList();
+		try {
+			for (Future<IndexList> f : results) {
+				IndexList part = f.get();
+				for (int i = 0; i < part.size; i++) {
+					joined.add(part.indexes[i]);
+				}
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new GameError("The generation of the tablebase failed: " + e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GameError("Interrupted while generating the tablebase");
+		}
+		return Arrays.copyOf(joined.indexes, joined.size);
+	}
+
+	/**
+	 * Counts the reachable positions with a value.
+	 *
+	 * <p>
+	 * Cuenta las posiciones alcanzables con un valor.
+	 *
+	 * @param value
+	 *            {@link Tablebase#WIN}, {@link Tablebase#LOSS} or
+	 *            {@link Tablebase#DRAW}.
+	 * @return The number of positions.
+	 *         <p>
+	 *         El numero de posiciones.
+	 */
+	public int count(int value) {
+		int n = 0;
+		for (byte entry : table) {
+			if (Tablebase.value(entry) == value) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Writes the tablebase.
+	 *
+	 * <p>
+	 * Escribe la tabla.
+	 *
+	 * @param file
+	 *            The tablebase file.
+	 *            <p>
+	 *            El fichero de la tabla.
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 *             <p>
+	 *             Si no se puede escribir el fichero.
+	 */
+	public void write(Path file) throws IOException {
+		if (table == null) {
+			throw new GameError("The tablebase has not been generated");
+		}
+		Tablebase.write(file, rules.gameDesc(), rows, cols, table);
+	}
+
+}